@@ -0,0 +1,74 @@
+package autokeypresser.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import autokeypresser.journal.CheckpointJournal;
+
+/**
+ * What the press thread pays for checkpointing: the per-press due check, one checkpoint
+ * written into the mapping, and reopening a full journal to resume.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckpointJournalBenchmark {
+
+    Path file;
+    CheckpointJournal journal;
+    long presses;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("checkpoint", ".journal");
+        journal = CheckpointJournal.create(file, 42);
+        journal.runStarted(System.nanoTime());
+        for (int i = 0; i < CheckpointJournal.DEFAULT_CAPACITY; i++) {
+            journal.checkpoint(i, i, i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        journal.close();
+        Files.deleteIfExists(file);
+    }
+
+    /** Paid on every press. */
+    @Benchmark
+    public boolean isDue() {
+        return journal.isDue(++presses & 0x3FF, 0);
+    }
+
+    /** Paid every 1000 presses or 1s by default; no disk wait. */
+    @Benchmark
+    public void checkpoint() {
+        presses++;
+        journal.checkpoint(presses, presses, presses);
+    }
+
+    /** Scanning every record for the newest intact checkpoint. */
+    @Benchmark
+    public long recover() throws IOException {
+        try (CheckpointJournal reopened = CheckpointJournal.open(file, 42)) {
+            return reopened.getLast().getPresses();
+        }
+    }
+}
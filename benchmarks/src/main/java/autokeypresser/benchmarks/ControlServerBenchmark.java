@@ -0,0 +1,88 @@
+package autokeypresser.benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import autokeypresser.control.ControlServer;
+import autokeypresser.layout.KeyboardLayout;
+import autokeypresser.layout.UnicodeInput;
+import autokeypresser.output.NullOutput;
+
+/**
+ * Round trip of the local control API over loopback HTTP on a kept-alive connection: a
+ * status query, and a live reconfigure of an active run that the engine applies on its
+ * next tick.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControlServerBenchmark {
+
+    ControlServer server;
+    HttpClient client;
+    HttpRequest status;
+    HttpRequest[] reconfigure;
+    int next;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        server = new ControlServer(new NullOutput(), KeyboardLayout.forName(KeyboardLayout.DEFAULT), UnicodeInput.NONE);
+        int port = server.start(0);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        URI base = URI.create("http://127.0.0.1:" + port);
+        status = HttpRequest.newBuilder(base.resolve("/api/status")).build();
+        URI reconfigureUri = base.resolve("/api/reconfigure");
+        reconfigure = new HttpRequest[] {command(reconfigureUri, "{\"interval\":\"1h\",\"characters\":\"abc\"}"),
+                command(reconfigureUri, "{\"interval\":\"2h\",\"characters\":\"xyz\"}")};
+        send(command(base.resolve("/api/start"), "{\"characters\":\"abc\",\"interval\":\"1h\",\"delay\":\"0s\"}"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public String status() throws IOException, InterruptedException {
+        return send(status);
+    }
+
+    @Benchmark
+    public String reconfigure() throws IOException, InterruptedException {
+        return send(reconfigure[next++ & 1]);
+    }
+
+    private static HttpRequest command(URI target, String json) {
+        return HttpRequest.newBuilder(target)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private String send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+}
@@ -0,0 +1,117 @@
+package autokeypresser.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import autokeypresser.engine.KeystrokeProgram;
+import autokeypresser.engine.PressEngine;
+import autokeypresser.journal.CheckpointJournal;
+import autokeypresser.log.LogFormat;
+import autokeypresser.log.PressLogBuffer;
+import autokeypresser.log.RunLogWriter;
+import autokeypresser.metrics.PressMetrics;
+import autokeypresser.output.NullOutput;
+
+/**
+ * End-to-end presses per second of {@link PressEngine} against a no-op output, i.e. the
+ * engine's own ceiling: scheduler, key table walk, action dispatch, logging, metrics,
+ * checkpointing and the persistent run log.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineThroughputBenchmark {
+
+    private static final long RUN_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long FASTEST_INTERVAL_NANOS = 1;
+
+    @Param({"false", "true"})
+    boolean logging;
+
+    @Param({"false", "true"})
+    boolean metrics;
+
+    @Param({"false", "true"})
+    boolean journal;
+
+    @Param({"false", "true"})
+    boolean runLog;
+
+    Path journalFile;
+    CheckpointJournal checkpointJournal;
+    Path runLogFile;
+    RunLogWriter runLogWriter;
+    PressLogBuffer pressLog;
+    PressEngine engine;
+    KeystrokeProgram program;
+
+    /** Reported as presses/s alongside the per-invocation score. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Presses {
+        public long presses;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            presses = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        pressLog = logging ? new PressLogBuffer(8192) : null;
+        engine = new PressEngine(new NullOutput(), pressLog);
+        engine.setMetrics(metrics ? new PressMetrics() : null);
+        if (journal) {
+            journalFile = Files.createTempFile("engine", ".journal");
+            checkpointJournal = CheckpointJournal.create(journalFile, 0);
+            engine.setJournal(checkpointJournal);
+        }
+        if (runLog) {
+            runLogFile = Files.createTempFile("engine", ".log");
+            runLogWriter = RunLogWriter.open(runLogFile, LogFormat.BINARY, 0, 0, 0, RunLogWriter.DEFAULT_CAPACITY);
+            engine.setRunLog(runLogWriter);
+        }
+        program = KeystrokeProgram.compile(Inputs.characters(64));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (checkpointJournal != null) {
+            checkpointJournal.close();
+            Files.deleteIfExists(journalFile);
+        }
+        if (runLogWriter != null) {
+            runLogWriter.close();
+            Files.deleteIfExists(runLogFile);
+        }
+    }
+
+    @Benchmark
+    public void run(Presses counter) throws InterruptedException {
+        counter.presses += engine.run(program, RUN_NANOS, FASTEST_INTERVAL_NANOS, null);
+        if (pressLog != null) {
+            pressLog.drain((press, c, position, time) -> { });
+        }
+    }
+}
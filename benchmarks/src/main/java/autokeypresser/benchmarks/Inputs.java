@@ -0,0 +1,31 @@
+package autokeypresser.benchmarks;
+
+/** Deterministic benchmark inputs. */
+final class Inputs {
+
+    /** Mix of lower case, upper case, digits and shifted symbols. */
+    static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzHELLO0123456789!@#$%^&*()";
+
+    private Inputs() {
+    }
+
+    static char[] characters(int size) {
+        char[] chars = new char[size];
+        for (int i = 0; i < size; i++) {
+            chars[i] = ALPHABET.charAt(i % ALPHABET.length());
+        }
+        return chars;
+    }
+
+    /** The same characters in the comma-separated form typed into the UI. */
+    static String characterArrayInput(int size) {
+        StringBuilder sb = new StringBuilder(size * 2);
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(ALPHABET.charAt(i % ALPHABET.length()));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package autokeypresser.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import autokeypresser.engine.KeystrokeProgram;
+
+/**
+ * Key code resolution: the one-off compile stage and the per-press table lookup that
+ * replaced the {@code getKeyCode}/{@code isShiftCharacter} switch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyResolutionBenchmark {
+
+    private static final int SIZE = 1000;
+
+    char[] characters;
+    KeystrokeProgram program;
+
+    @Setup
+    public void setUp() {
+        characters = Inputs.characters(SIZE);
+        program = KeystrokeProgram.compile(characters);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public KeystrokeProgram compile() {
+        return KeystrokeProgram.compile(characters);
+    }
+
+    /** Per-press resolution cost as seen by the press loop. */
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int resolve() {
+        int acc = 0;
+        for (int i = 0; i < program.length(); i++) {
+            acc += program.keyCode(i) ^ program.modifiers(i);
+        }
+        return acc;
+    }
+}
@@ -0,0 +1,82 @@
+package autokeypresser.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import autokeypresser.engine.KeystrokeProgram;
+import autokeypresser.layout.KeyboardLayout;
+import autokeypresser.layout.UnicodeInput;
+
+/**
+ * Layout translation: building a layout's table from its resource (done once and cached),
+ * compiling accented text against it, and the per-character lookup used by streamed files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyboardLayoutBenchmark {
+
+    private static final String SAMPLE = "Über den Flüssen lag ein Schleier, à la française: très élégant, ça! ";
+    private static final int SIZE = 1000;
+
+    @Param({"us", "de", "fr"})
+    String layoutName;
+
+    String definition;
+    KeyboardLayout layout;
+    char[] text;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream in = KeyboardLayout.class.getResourceAsStream(layoutName + ".layout")) {
+            definition = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        layout = KeyboardLayout.forName(layoutName);
+        text = new char[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            text[i] = SAMPLE.charAt(i % SAMPLE.length());
+        }
+    }
+
+    /** Parsing the definition and expanding dead keys into the dense table. */
+    @Benchmark
+    public KeyboardLayout load() throws IOException {
+        return KeyboardLayout.parse(layoutName, new StringReader(definition));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public KeystrokeProgram compile() {
+        return KeystrokeProgram.compile(text, layout, UnicodeInput.LINUX);
+    }
+
+    /** The hot-path table index for each character. */
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int lookup() {
+        int acc = 0;
+        for (char c : text) {
+            acc += layout.lookup(c);
+        }
+        return acc;
+    }
+}
@@ -0,0 +1,64 @@
+package autokeypresser.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import autokeypresser.metrics.LatencyHistogram;
+
+/**
+ * Cost of recording one latency sample on the press thread, and of a percentile query on
+ * the reader side.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LatencyHistogramBenchmark {
+
+    private static final int BATCH = 1024;
+
+    LatencyHistogram histogram;
+    long[] samples;
+
+    @Setup
+    public void setUp() {
+        histogram = new LatencyHistogram();
+        samples = new long[BATCH];
+        long seed = 42;
+        for (int i = 0; i < BATCH; i++) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            // Spread over 100 ns .. ~1 ms, like real press lateness
+            samples[i] = 100 + ((seed >>> 33) % 1_000_000);
+        }
+        for (long sample : samples) {
+            histogram.record(sample);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long record() {
+        for (int i = 0; i < BATCH; i++) {
+            histogram.record(samples[i]);
+        }
+        return histogram.getTotalCount();
+    }
+
+    @Benchmark
+    public long p999() {
+        return histogram.valueAtPercentile(99.9);
+    }
+}
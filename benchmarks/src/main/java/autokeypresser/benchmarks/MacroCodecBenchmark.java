@@ -0,0 +1,86 @@
+package autokeypresser.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import autokeypresser.macro.MacroReader;
+import autokeypresser.macro.MacroWriter;
+
+/**
+ * Per-event cost of the binary macro format: encoding through the buffered writer and
+ * decoding straight from the memory-mapped file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MacroCodecBenchmark {
+
+    private static final int EVENTS = 100_000;
+
+    Path writeFile;
+    Path readFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        writeFile = Files.createTempFile("macro-write", ".akpm");
+        readFile = Files.createTempFile("macro-read", ".akpm");
+        write(readFile);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(writeFile);
+        Files.deleteIfExists(readFile);
+    }
+
+    private static long write(Path file) throws IOException {
+        try (MacroWriter writer = MacroWriter.create(file)) {
+            long nanos = 0;
+            for (int i = 0; i < EVENTS; i++) {
+                nanos += 1_000_000 + (i & 0xFF);
+                if (i % 10 == 9) {
+                    writer.mouseMoveTo(nanos, 500 + (i & 0x3F), 300 - (i & 0x1F));
+                } else {
+                    writer.keystroke(nanos, 'A' + i % 26, i % 5 == 0 ? 1 : 0);
+                }
+            }
+            return writer.getEvents();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public long encode() throws IOException {
+        return write(writeFile);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public long decode() throws IOException {
+        long checksum = 0;
+        try (MacroReader reader = MacroReader.open(readFile)) {
+            while (reader.next()) {
+                checksum += reader.deltaNanos() + reader.keyCode() + reader.mouseX();
+            }
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,86 @@
+package autokeypresser.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import autokeypresser.engine.CharacterArrayParser;
+import autokeypresser.engine.KeystrokeProgram;
+import autokeypresser.engine.PressEngine;
+import autokeypresser.layout.KeyboardLayout;
+import autokeypresser.layout.UnicodeInput;
+import autokeypresser.output.NullOutput;
+import autokeypresser.script.Script;
+import autokeypresser.script.ScriptPlayer;
+import autokeypresser.sim.VirtualClock;
+
+/**
+ * A million-key macro written as a {@link Script} loop versus the same keys pre-expanded into
+ * a character array: compiling each (see {@code gc.alloc.rate.norm} for the memory it takes),
+ * and the time per key of interpreting the script versus cycling the expanded program on
+ * {@link PressEngine}, both on a {@link VirtualClock} against {@link NullOutput}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MacroScriptBenchmark {
+
+    private static final int KEYS = 1_000_000;
+    private static final String BODY = "Hello";
+    private static final String SOURCE = "repeat " + KEYS / BODY.length() + " { \"" + BODY + "\" }";
+    private static final long INTERVAL_NANOS = 1_000_000L;
+
+    String expanded;
+    Script script;
+    KeystrokeProgram program;
+    ScriptPlayer player;
+    PressEngine engine;
+
+    @Setup
+    public void setUp() {
+        expanded = BODY.repeat(KEYS / BODY.length());
+        script = Script.compile(SOURCE, KeyboardLayout.us(), UnicodeInput.NONE);
+        program = KeystrokeProgram.compile(CharacterArrayParser.parseCharacters(expanded));
+        player = new ScriptPlayer(new NullOutput());
+        player.setClock(new VirtualClock());
+        engine = new PressEngine(new NullOutput(), null);
+        engine.setClock(new VirtualClock());
+    }
+
+    @Benchmark
+    public Script compileScript() {
+        return Script.compile(SOURCE, KeyboardLayout.us(), UnicodeInput.NONE);
+    }
+
+    /** Baseline: parse and compile the expanded array, as a character run has to. */
+    @Benchmark
+    public KeystrokeProgram compileExpanded() {
+        return KeystrokeProgram.compile(CharacterArrayParser.parseCharacters(expanded));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public long interpretScript() throws InterruptedException {
+        return player.play(script, INTERVAL_NANOS, Long.MAX_VALUE);
+    }
+
+    /** Baseline: the expanded program on the engine, for as many presses. */
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public long cycleExpanded() throws InterruptedException {
+        return engine.run(program, KEYS * INTERVAL_NANOS - 1, INTERVAL_NANOS, null);
+    }
+}
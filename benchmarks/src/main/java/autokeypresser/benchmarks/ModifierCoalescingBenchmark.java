@@ -0,0 +1,95 @@
+package autokeypresser.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import autokeypresser.engine.KeystrokeProgram;
+import autokeypresser.engine.PressEngine;
+import autokeypresser.output.KeystrokeOutput;
+
+/**
+ * Output calls per press on mixed-case text with and without SHIFT coalescing. Each output
+ * call stands for one native Robot injection, so {@code outputCalls / presses} is the
+ * number that matters; the score itself is the engine loop rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModifierCoalescingBenchmark {
+
+    private static final String TEXT = "Hello World! The QUICK brown FOX jumps over THE lazy DOG. "
+            + "USER_ID = \"ABC-123\"; (See README) ";
+    private static final long RUN_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Param({"false", "true"})
+    boolean coalesce;
+
+    CountingOutput output;
+    PressEngine engine;
+    KeystrokeProgram program;
+
+    /** Stands in for Robot: counts every injected event. */
+    static final class CountingOutput implements KeystrokeOutput {
+        long calls;
+
+        @Override
+        public void keyPress(int keyCode) {
+            calls++;
+        }
+
+        @Override
+        public void keyRelease(int keyCode) {
+            calls++;
+        }
+
+        @Override
+        public void mouseMoveTo(int x, int y) {
+            calls++;
+        }
+    }
+
+    /** Reported as rates; their ratio is output calls per press. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long presses;
+        public long outputCalls;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            presses = 0;
+            outputCalls = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        output = new CountingOutput();
+        engine = new PressEngine(output, null);
+        engine.setCoalesceModifiers(coalesce);
+        program = KeystrokeProgram.compile(TEXT.toCharArray());
+    }
+
+    @Benchmark
+    public void run(Counters counters) throws InterruptedException {
+        long before = output.calls;
+        counters.presses += engine.run(program, RUN_NANOS, 1, null);
+        counters.outputCalls += output.calls - before;
+    }
+}
@@ -0,0 +1,77 @@
+package autokeypresser.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import autokeypresser.engine.KeystrokeProgram;
+import autokeypresser.lanes.LaneSpec;
+import autokeypresser.lanes.MultiLaneEngine;
+import autokeypresser.output.NullOutput;
+
+/**
+ * Presses per second of {@link MultiLaneEngine} as the lane count grows, every lane running
+ * flat out against a no-op output: lane scheduling, the MPSC queue and the dispatcher.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiLaneBenchmark {
+
+    private static final long RUN_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Param({"1", "16", "256"})
+    int lanes;
+
+    @Param({"1", "2"})
+    int threads;
+
+    MultiLaneEngine engine;
+    List<LaneSpec> specs;
+
+    /** Reported as presses/s alongside the per-invocation score. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Presses {
+        public long presses;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            presses = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        engine = new MultiLaneEngine(new NullOutput(), threads);
+        KeystrokeProgram program = KeystrokeProgram.compile(Inputs.characters(64));
+        specs = new ArrayList<>(lanes);
+        for (int i = 0; i < lanes; i++) {
+            specs.add(new LaneSpec("lane " + (i + 1), program, 1, RUN_NANOS, null));
+        }
+    }
+
+    @Benchmark
+    public void run(Presses counter) throws InterruptedException {
+        for (long presses : engine.run(specs)) {
+            counter.presses += presses;
+        }
+    }
+}
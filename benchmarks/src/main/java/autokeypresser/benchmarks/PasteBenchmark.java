@@ -0,0 +1,82 @@
+package autokeypresser.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import autokeypresser.engine.CharacterArrayParser;
+import autokeypresser.engine.KeystrokeProgram;
+import autokeypresser.engine.PressEngine;
+import autokeypresser.output.NullOutput;
+import autokeypresser.paste.MemoryClipboard;
+import autokeypresser.paste.PasteInjector;
+import autokeypresser.paste.PasteTarget;
+import autokeypresser.sim.VirtualClock;
+
+/**
+ * Time per character of getting a megabyte of text in through {@link PasteInjector}, per
+ * chunk size, versus typing it on {@link PressEngine}, both against {@link NullOutput} on a
+ * {@link VirtualClock}. This is the in-process cost only: against a real display every key
+ * event the typing path sends also pays the OS and the target application, while the paste
+ * path sends four per chunk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasteBenchmark {
+
+    private static final int CHARS = 1 << 20;
+    private static final long INTERVAL_NANOS = 1_000_000L;
+
+    @Param({"512", "4096", "65536"})
+    int chunkChars;
+
+    String text;
+    PasteInjector injector;
+    KeystrokeProgram program;
+    PressEngine engine;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder(CHARS);
+        while (builder.length() < CHARS) {
+            builder.append("The quick brown fox jumps over the lazy dog. ");
+        }
+        text = builder.substring(0, CHARS);
+        MemoryClipboard clipboard = new MemoryClipboard();
+        PasteTarget target = new PasteTarget(new NullOutput(), clipboard, PasteInjector.defaultChord(), null);
+        injector = new PasteInjector(target, clipboard);
+        injector.setChunkChars(chunkChars);
+        injector.setClock(new VirtualClock());
+        program = KeystrokeProgram.compile(CharacterArrayParser.parseCharacters(text));
+        engine = new PressEngine(new NullOutput(), null);
+        engine.setClock(new VirtualClock());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHARS)
+    public long paste() throws InterruptedException {
+        return injector.paste(text);
+    }
+
+    /** Baseline: one press per character, as a --file run types it. */
+    @Benchmark
+    @OperationsPerInvocation(CHARS)
+    public long type() throws InterruptedException {
+        return engine.run(program, CHARS * INTERVAL_NANOS - 1, INTERVAL_NANOS, null);
+    }
+}
@@ -0,0 +1,79 @@
+package autokeypresser.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import autokeypresser.log.PressLogBuffer;
+
+/**
+ * Per-press logging cost: the worker-side record, the EDT-side batch format, and the
+ * string-per-press approach the buffer replaced as a baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PressLogBenchmark {
+
+    private static final int BATCH = 1000;
+
+    PressLogBuffer buffer;
+    PressLogBuffer.EntryConsumer noop;
+    StringBuilder batch;
+    PressLogBuffer.EntryConsumer formatter;
+    long pressNumber;
+
+    @Setup
+    public void setUp() {
+        buffer = new PressLogBuffer(8192);
+        noop = (press, c, position, time) -> { };
+        batch = new StringBuilder(64 * BATCH);
+        formatter = (press, c, position, time) -> batch.append("Press ").append(press)
+                .append(": '").append(c).append("' (position ").append(position + 1).append("/26)\n");
+    }
+
+    /** Worker side: what one press pays to be logged. */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int record() {
+        for (int i = 0; i < BATCH; i++) {
+            buffer.record(++pressNumber, 'a', i % 26, 0L);
+        }
+        return buffer.drain(noop);
+    }
+
+    /** EDT side: formatting one batch into a single reusable builder. */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int recordAndFormat() {
+        for (int i = 0; i < BATCH; i++) {
+            buffer.record(++pressNumber, 'a', i % 26, 0L);
+        }
+        batch.setLength(0);
+        buffer.drain(formatter);
+        return batch.length();
+    }
+
+    /** Baseline: one concatenated String per press, as the log did before the ring buffer. */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void stringPerPress(Blackhole bh) {
+        for (int i = 0; i < BATCH; i++) {
+            bh.consume("⌨️ Press " + (++pressNumber) + ": '" + 'a' + "' (position " + (i % 26 + 1) + "/26)");
+        }
+    }
+}
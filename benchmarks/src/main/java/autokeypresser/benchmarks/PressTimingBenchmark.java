@@ -0,0 +1,93 @@
+package autokeypresser.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import autokeypresser.engine.KeystrokeProgram;
+import autokeypresser.engine.PressEngine;
+import autokeypresser.output.RecordingOutput;
+
+/**
+ * Timing accuracy of {@link PressEngine} on the real clock: each invocation makes
+ * {@value #PRESSES} presses into a {@link RecordingOutput}, and the lateness of every press
+ * against its slot on the schedule, taken from the recorded timestamps, is reported as the
+ * {@code meanLateMicros} and {@code maxLateMicros} counters. The score is the wall time of
+ * the run, which should be the presses times the interval.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 1) // JMH sums event counters over the measured iterations
+@Fork(1)
+public class PressTimingBenchmark {
+
+    private static final int PRESSES = 5000;
+
+    @Param({"100000", "1000000"})
+    long intervalNanos;
+
+    RecordingOutput output;
+    PressEngine engine;
+    KeystrokeProgram program;
+
+    /** Lateness of the last invocation's presses, in microseconds. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Lateness {
+        public double meanLateMicros;
+        public double maxLateMicros;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            meanLateMicros = 0;
+            maxLateMicros = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        output = new RecordingOutput(4 * PRESSES);
+        engine = new PressEngine(output, null);
+        program = KeystrokeProgram.compile(new char[] {'a'});
+    }
+
+    @Benchmark
+    public long run(Lateness lateness) throws InterruptedException {
+        output.clear();
+        long presses = engine.run(program, PRESSES * intervalNanos - 1, intervalNanos, null);
+        // Every press is due one interval after the first, which is taken as on time
+        long first = -1;
+        long slot = 0;
+        long totalLate = 0;
+        long maxLate = 0;
+        for (int i = 0; i < output.size(); i++) {
+            if (output.type(i) != RecordingOutput.KEY_PRESS) {
+                continue;
+            }
+            if (first < 0) {
+                first = output.timestampNanos(i);
+            }
+            long late = Math.max(0, output.timestampNanos(i) - first - slot * intervalNanos);
+            totalLate += late;
+            maxLate = Math.max(maxLate, late);
+            slot++;
+        }
+        lateness.meanLateMicros = slot == 0 ? 0 : totalLate / 1000.0 / slot;
+        lateness.maxLateMicros = maxLate / 1000.0;
+        return presses;
+    }
+}
@@ -0,0 +1,88 @@
+package autokeypresser.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import autokeypresser.log.LogFormat;
+import autokeypresser.log.RunLogWriter;
+
+/**
+ * Persistent run log cost per press: what the press thread pays to queue an entry, and the
+ * writer's end-to-end cost to encode and write it to disk in each format.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RunLogBenchmark {
+
+    private static final int BATCH = 1000;
+    private static final int RUN = 100_000;
+
+    @Param({"text", "json", "binary"})
+    String format;
+
+    Path file;
+    RunLogWriter log;
+    long pressNumber;
+    long timeMillis = System.currentTimeMillis();
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("run", ".log");
+        log = RunLogWriter.open(file, LogFormat.forName(format), 0, 0, 0, RunLogWriter.DEFAULT_CAPACITY);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        log.close();
+        Files.deleteIfExists(file);
+    }
+
+    /** Press thread side, with the writer draining concurrently; a full queue drops instead of waiting. */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public boolean press() {
+        boolean queued = true;
+        for (int i = 0; i < BATCH; i++) {
+            queued &= log.press(++pressNumber, 'a', i % 26, timeMillis + (i >> 4));
+        }
+        return queued;
+    }
+
+    /** Writer side: a whole run queued, encoded and written through a fresh file, per press. */
+    @Benchmark
+    @OperationsPerInvocation(RUN)
+    public long writeRun() throws IOException {
+        Path runFile = Files.createTempFile("run", ".log");
+        try {
+            RunLogWriter run = RunLogWriter.open(runFile, LogFormat.forName(format), 0, 0, 0, Integer.highestOneBit(RUN) << 1);
+            for (int i = 0; i < RUN; i++) {
+                run.press(i + 1, 'a', i % 26, timeMillis + (i >> 4));
+            }
+            run.close();
+            return run.getWrittenBytes();
+        } finally {
+            Files.deleteIfExists(runFile);
+        }
+    }
+}
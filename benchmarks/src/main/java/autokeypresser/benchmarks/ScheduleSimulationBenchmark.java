@@ -0,0 +1,76 @@
+package autokeypresser.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import autokeypresser.engine.KeystrokeProgram;
+import autokeypresser.engine.PrecisionScheduler.MissedDeadlinePolicy;
+import autokeypresser.engine.PressAction;
+import autokeypresser.engine.TimeSpec;
+import autokeypresser.sim.ScheduleSimulator;
+
+/**
+ * Whole runs of the duration/interval/action matrix in simulated time. The score is the real
+ * time one simulated run takes; whether the schedules are right is checked by
+ * {@code ScheduleSimulatorTest}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ScheduleSimulationBenchmark {
+
+    @Param({"1m", "1h", "10h"})
+    String duration;
+
+    @Param({"1ms", "100ms", "1s"})
+    String interval;
+
+    @Param({"none", "Space Bar", "Hover Right"})
+    String action;
+
+    KeystrokeProgram program;
+    long durationNanos;
+    long intervalNanos;
+    PressAction pressAction;
+
+    @Setup
+    public void setUp() {
+        program = KeystrokeProgram.compile("Hello, World!".toCharArray());
+        durationNanos = TimeSpec.parseNanos(duration);
+        intervalNanos = TimeSpec.parseNanos(interval);
+        pressAction = action.equals("none") ? null : PressAction.fromLabel(action);
+    }
+
+    /** Free output: every press on its deadline. */
+    @Benchmark
+    public long exactSchedule() throws InterruptedException {
+        return new ScheduleSimulator().run(program, durationNanos, intervalNanos, pressAction).getPresses();
+    }
+
+    /** Output taking half the interval per event, under both policies. */
+    @Benchmark
+    public long slowOutput() throws InterruptedException {
+        long presses = 0;
+        for (MissedDeadlinePolicy policy : MissedDeadlinePolicy.values()) {
+            ScheduleSimulator simulator = new ScheduleSimulator();
+            simulator.setEventCost(intervalNanos / 2);
+            simulator.setMissedDeadlinePolicy(policy);
+            presses += simulator.run(program, durationNanos, intervalNanos, pressAction).getPresses();
+        }
+        return presses;
+    }
+}
@@ -0,0 +1,143 @@
+package autokeypresser.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import autokeypresser.watch.TileDiff;
+
+/**
+ * Per-frame cost of watching a full-HD region with {@link TileDiff}, for a still screen, a
+ * small change (a cursor blinking in one tile) and a full repaint. Frames alternate between
+ * two prepared copies so every invocation sees the change.
+ *
+ * Two baselines: per-tile hashes (a weighted sum with odd weights, so a one-pixel change
+ * always shows), with only changed tiles compared against the kept frame, and a pixel by
+ * pixel compare-and-copy of the whole frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScreenDiffBenchmark {
+
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+    private static final int TILE = TileDiff.DEFAULT_TILE_SIZE;
+
+    @Param({"still", "cursor", "repaint"})
+    String change;
+
+    int[][] frames;
+    int next;
+    TileDiff tileDiff;
+    int[] previous;
+    int[] hashes;
+    int[] weights;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        int[] base = new int[WIDTH * HEIGHT];
+        for (int i = 0; i < base.length; i++) {
+            // Mostly flat areas with some texture, like a desktop
+            base[i] = (i / WIDTH / 40 * 0x0a0b0c + (random.nextInt(16) == 0 ? random.nextInt(0xffffff) : 0)) & 0xffffff;
+        }
+        int[] other = base.clone();
+        switch (change) {
+            case "still" -> { }
+            case "cursor" -> {
+                for (int y = 500; y < 516; y++) {
+                    other[y * WIDTH + 960] ^= 0xffffff;
+                    other[y * WIDTH + 961] ^= 0xffffff;
+                }
+            }
+            case "repaint" -> {
+                for (int i = 0; i < other.length; i++) {
+                    other[i] ^= 0x010101;
+                }
+            }
+            default -> throw new IllegalArgumentException(change);
+        }
+        frames = new int[][] {base, other};
+        tileDiff = new TileDiff(WIDTH, HEIGHT, TileDiff.DEFAULT_TILE_SIZE);
+        tileDiff.update(base);
+        previous = base.clone();
+        weights = new int[TILE * TILE];
+        int weight = 0x9E3779B9;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = weight | 1;
+            weight += 0x9E3779B9;
+        }
+        hashes = new int[(WIDTH / TILE) * ((HEIGHT + TILE - 1) / TILE)];
+        hashTiles(base);
+    }
+
+    @Benchmark
+    public long tileDiff() {
+        tileDiff.update(frames[++next & 1]);
+        return tileDiff.getChangedPixels();
+    }
+
+    /** Baseline: hash every tile; compare and copy the tiles whose hash changed. */
+    @Benchmark
+    public long tileHashes() {
+        return hashTiles(frames[++next & 1]);
+    }
+
+    /** Baseline: compare every pixel against the previous frame and copy what changed. */
+    @Benchmark
+    public long fullCompare() {
+        int[] frame = frames[++next & 1];
+        long changed = 0;
+        for (int i = 0; i < frame.length; i++) {
+            if (frame[i] != previous[i]) {
+                previous[i] = frame[i];
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    private long hashTiles(int[] frame) {
+        long changed = 0;
+        int tile = 0;
+        for (int y0 = 0; y0 < HEIGHT; y0 += TILE) {
+            int h = Math.min(TILE, HEIGHT - y0);
+            for (int x0 = 0; x0 < WIDTH; x0 += TILE, tile++) {
+                int hash = 0;
+                for (int row = 0; row < h; row++) {
+                    int base = (y0 + row) * WIDTH + x0;
+                    for (int i = 0; i < TILE; i++) {
+                        hash += frame[base + i] * weights[row * TILE + i];
+                    }
+                }
+                if (hash == hashes[tile]) {
+                    continue;
+                }
+                hashes[tile] = hash;
+                for (int row = 0; row < h; row++) {
+                    int base = (y0 + row) * WIDTH + x0;
+                    for (int i = base; i < base + TILE; i++) {
+                        changed += frame[i] != previous[i] ? 1 : 0;
+                    }
+                    System.arraycopy(frame, base, previous, base, TILE);
+                }
+            }
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,80 @@
+package autokeypresser.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import autokeypresser.mouse.PointerModel;
+import autokeypresser.mouse.Trajectory;
+import autokeypresser.output.KeystrokeOutput;
+
+/**
+ * Mouse path cost: computing a Bézier trajectory once, and replaying it one step at a time
+ * through the locally tracked pointer (no position query per step).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrajectoryBenchmark {
+
+    private static final int STEPS = 1000;
+
+    Trajectory trajectory;
+    PointerModel pointer;
+    SummingOutput output;
+
+    /** Stands in for Robot; consumes the coordinates so the replay cannot be optimized away. */
+    static final class SummingOutput implements KeystrokeOutput {
+        long sum;
+
+        @Override
+        public void keyPress(int keyCode) {
+        }
+
+        @Override
+        public void keyRelease(int keyCode) {
+        }
+
+        @Override
+        public void mouseMoveTo(int x, int y) {
+            sum += x ^ y;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        trajectory = Trajectory.bezier(100, -300, 400, 300, 500, 0, STEPS);
+        output = new SummingOutput();
+        pointer = PointerModel.forOutput(output);
+    }
+
+    @Benchmark
+    public Trajectory computeBezier() {
+        return Trajectory.bezier(100, -300, 400, 300, 500, 0, STEPS);
+    }
+
+    /** Per step: two array reads and one move. */
+    @Benchmark
+    @OperationsPerInvocation(STEPS)
+    public long replayStep() {
+        int startX = pointer.getX();
+        int startY = pointer.getY();
+        for (int i = 0; i < STEPS; i++) {
+            pointer.moveTo(startX + trajectory.dx(i), startY + trajectory.dy(i));
+        }
+        return output.sum;
+    }
+}
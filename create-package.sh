@@ -5,6 +5,15 @@ echo "   Auto Key Presser - Package Creator"
 echo "========================================"
 echo
 
+# Compile sources
+echo "Step 0: Compiling sources..."
+javac -sourcepath src src/Main.java
+if [ $? -ne 0 ]; then
+    echo "❌ Compilation failed"
+    exit 1
+fi
+echo
+
 # Create JAR file
 echo "Step 1: Creating JAR file..."
 jar cfe AutoKeyPresser.jar Main -C src .
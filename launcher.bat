@@ -12,18 +12,28 @@ if %errorlevel% neq 0 (
     echo ERROR: Java is not installed or not in PATH
     echo.
     echo Please either:
-    echo 1. Install Java from https://java.com/download
+    echo 1. Install Java 17 or later from https://adoptium.net/
     echo 2. Use the standalone AutoKeyPresser.exe instead
     echo.
     pause
     exit /b 1
 )
 
-REM Check if compiled class exists
+REM Navigate to script directory
+cd /d "%~dp0"
+
+REM Compile if classes are missing or older than the sources
+set COMPILE=
 if not exist "src\Main.class" (
+    set COMPILE=1
+) else (
+    powershell -NoProfile -Command "$built = (Get-Item 'src\Main.class').LastWriteTime; if (Get-ChildItem 'src' -Recurse -Filter '*.java' | Where-Object { $_.LastWriteTime -gt $built }) { exit 1 }" >nul 2>&1
+    if errorlevel 1 set COMPILE=1
+)
+if defined COMPILE (
     echo Compiling application...
-    javac src\Main.java
-    if %errorlevel% neq 0 (
+    javac -sourcepath src src\Main.java
+    if errorlevel 1 (
         echo ERROR: Compilation failed
         pause
         exit /b 1
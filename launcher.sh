@@ -10,9 +10,9 @@ if ! command -v java &> /dev/null; then
     echo "ERROR: Java is not installed or not in PATH"
     echo
     echo "Please install Java:"
-    echo "  Ubuntu/Debian: sudo apt install openjdk-11-jre"
-    echo "  macOS: brew install openjdk@11"
-    echo "  Or download from: https://java.com/download"
+    echo "  Ubuntu/Debian: sudo apt install openjdk-17-jdk"
+    echo "  macOS: brew install openjdk@17"
+    echo "  Or download from: https://adoptium.net/"
     echo
     read -p "Press Enter to exit..."
     exit 1
@@ -26,10 +26,10 @@ echo
 # Navigate to script directory
 cd "$(dirname "$0")"
 
-# Check if compiled class exists
-if [ ! -f "src/Main.class" ]; then
+# Compile if classes are missing or older than the sources
+if [ ! -f "src/Main.class" ] || [ -n "$(find src -name '*.java' -newer src/Main.class)" ]; then
     echo "Compiling application..."
-    javac src/Main.java
+    javac -sourcepath src src/Main.java
     if [ $? -ne 0 ]; then
         echo "ERROR: Compilation failed"
         read -p "Press Enter to exit..."
@@ -1,45 +1,113 @@
 import java.awt.*;
 import java.awt.event.ActionEvent;
-import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.TimeZone;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.text.Element;
+
+import autokeypresser.cli.CommandLineRunner;
+import autokeypresser.engine.CharacterArrayParser;
+import autokeypresser.engine.EngineService;
+import autokeypresser.engine.KeystrokeProgram;
+import autokeypresser.engine.PressAction;
+import autokeypresser.engine.PressEngine;
+import autokeypresser.engine.PressSettings;
+import autokeypresser.journal.Checkpoint;
+import autokeypresser.journal.CheckpointJournal;
+import autokeypresser.layout.KeyboardLayout;
+import autokeypresser.layout.UnicodeInput;
+import autokeypresser.log.LogFormat;
+import autokeypresser.log.PressLogBuffer;
+import autokeypresser.log.RunLogWriter;
+import autokeypresser.metrics.PressMetrics;
+import autokeypresser.output.KeystrokeOutput;
+import autokeypresser.output.RobotOutput;
+import autokeypresser.rate.DrainProbe;
+import autokeypresser.rate.RateController;
 
 public class Main {
     
     static class AutoKeyPresserUI extends JFrame {
+        private static final int PRESS_LOG_CAPACITY = 8192;
+        private static final int LOG_REFRESH_MILLIS = 33; // ~30 fps
+        private static final int MAX_LOG_LINES = 1000;
+        private static final long START_DELAY_NANOS = 3_000_000_000L;
+        private static final Path JOURNAL_FILE =
+                Path.of(System.getProperty("user.home"), ".autokeypresser", "session.journal");
+        private static final Path ACTIVITY_LOG =
+                Path.of(System.getProperty("user.home"), ".autokeypresser", "activity.log");
+        
         private JTextField characterArrayField;
         private JSpinner durationSpinner;
         private JComboBox<String> durationUnitCombo;
         private JSpinner intervalSpinner;
         private JComboBox<String> intervalUnitCombo;
-        private JComboBox<String> actionsCombo;
+        private JComboBox<PressAction> actionsCombo;
         private JCheckBox enableActionsCheck;
+        private JCheckBox rateLimitCheck;
+        private JSpinner rateSpinner;
+        private JComboBox<String> layoutCombo;
+        private JComboBox<UnicodeInput> unicodeInputCombo;
         private JButton startButton;
         private JButton stopButton;
+        private JButton pauseButton;
         private JTextArea logArea;
         private JLabel statusLabel;
         
-        private Thread keyPressingThread;
-        private volatile boolean isRunning = false;
-        private Robot robot;
+        // One long-lived worker; settings changed mid-run are swapped in on the next tick
+        private final EngineService engineService;
+        private boolean isRunning = false;
+        private String liveCharacters;
+        private final PressEngine engine;
+        private final PressMetrics metrics = new PressMetrics();
+        private volatile RateController rateController;
+        
+        // Progress of the current run is checkpointed so it can be paused, or resumed after a crash
+        private CheckpointJournal journal;
+        private boolean isPaused = false;
+        private long runDurationNanos;
+        
+        // Press entries are recorded by the worker and drained in batches on the EDT
+        private final PressLogBuffer pressLog = new PressLogBuffer(PRESS_LOG_CAPACITY);
+        private final PressLogBuffer.EntryConsumer pressEntryFormatter = this::formatPressEntry;
+        private final StringBuilder logBatch = new StringBuilder();
+        private final TimeZone logTimeZone = TimeZone.getDefault();
+        private int logSequenceLength;
+        private String logActionInfo = "";
+        // The same messages and presses, kept on disk by a background writer; null if it cannot be written
+        private final RunLogWriter activityLog;
         
-        public AutoKeyPresserUI() {
+        public AutoKeyPresserUI(KeystrokeOutput output) {
+            engine = new PressEngine(output, pressLog);
+            engine.setMetrics(metrics);
+            activityLog = openActivityLog();
+            engine.setRunLog(activityLog);
+            engineService = new EngineService(engine, new EngineService.Listener() {
+                @Override
+                public void runStarted() {
+                    onRunStarted();
+                }
+                
+                @Override
+                public void runFinished(long presses, boolean stopped, Exception error) {
+                    onRunFinished(presses, stopped, error);
+                }
+            });
             try {
-                robot = new Robot();
+                metrics.registerMBean();
             } catch (Exception e) {
-                JOptionPane.showMessageDialog(null, 
-                    "Failed to initialize Robot: " + e.getMessage(), 
-                    "Error", JOptionPane.ERROR_MESSAGE);
-                System.exit(1);
+                System.err.println("Metrics MBean not registered: " + e.getMessage());
             }
-            
             initializeUI();
         }
         
         private void initializeUI() {
             setTitle("Auto Key Presser - Character Array Input");
             setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
-            setSize(700, 600);
+            setSize(700, 680);
             setLocationRelativeTo(null);
             
             // Create main panel
@@ -68,6 +136,9 @@ public class Main {
             
             // Set initial state
             updateButtonStates();
+            
+            new Timer(LOG_REFRESH_MILLIS, event -> flushPressLog()).start();
+            new Timer(1000, event -> showRate()).start();
         }
         
         private JPanel createInputPanel() {
@@ -85,7 +156,9 @@ public class Main {
             
             gbc.gridx = 1; gbc.gridwidth = 3; gbc.fill = GridBagConstraints.HORIZONTAL;
             characterArrayField = new JTextField("A,B,C", 25);
-            characterArrayField.setToolTipText("Enter characters separated by comma: A,B,C or 'A','B','C'");
+            characterArrayField.setToolTipText("Enter characters separated by comma: A,B,C or 'A','B','C'"
+                    + " (press Enter to apply while running)");
+            characterArrayField.addActionListener(e -> applyLiveSettings(true));
             panel.add(characterArrayField, gbc);
             
             // Parameter 2: Duration
@@ -112,10 +185,13 @@ public class Main {
             gbc.gridx = 1;
             intervalSpinner = new JSpinner(new SpinnerNumberModel(1, 1, 999, 1));
             intervalSpinner.setToolTipText("Time between each character press");
+            intervalSpinner.addChangeListener(e -> applyLiveSettings(false));
             panel.add(intervalSpinner, gbc);
             
             gbc.gridx = 2;
-            intervalUnitCombo = new JComboBox<>(new String[]{"seconds", "minutes", "hours"});
+            intervalUnitCombo = new JComboBox<>(new String[]{"microseconds", "milliseconds", "seconds", "minutes", "hours"});
+            intervalUnitCombo.setSelectedItem("seconds");
+            intervalUnitCombo.addActionListener(e -> applyLiveSettings(false));
             panel.add(intervalUnitCombo, gbc);
             
             // Parameter 4: Optional Actions
@@ -127,18 +203,53 @@ public class Main {
             gbc.gridx = 1;
             enableActionsCheck = new JCheckBox("Enable");
             enableActionsCheck.setToolTipText("Enable additional actions after each character press");
-            enableActionsCheck.addActionListener(e -> actionsCombo.setEnabled(enableActionsCheck.isSelected()));
+            enableActionsCheck.addActionListener(e -> {
+                actionsCombo.setEnabled(enableActionsCheck.isSelected());
+                applyLiveSettings(false);
+            });
             panel.add(enableActionsCheck, gbc);
             
             gbc.gridx = 2;
-            actionsCombo = new JComboBox<>(new String[]{
-                "Hover Up", "Hover Down", "Hover Left", "Hover Right", 
-                "Space Bar", "Next Line"
-            });
+            actionsCombo = new JComboBox<>(PressAction.values());
             actionsCombo.setEnabled(false);
             actionsCombo.setToolTipText("Select action to perform after each character press");
+            actionsCombo.addActionListener(e -> applyLiveSettings(false));
             panel.add(actionsCombo, gbc);
             
+            // Parameter 5: Adaptive rate limit
+            gbc.gridx = 0; gbc.gridy = 4;
+            JLabel rateLabel = new JLabel("5. Rate Limit:");
+            rateLabel.setFont(rateLabel.getFont().deriveFont(Font.BOLD));
+            panel.add(rateLabel, gbc);
+            
+            gbc.gridx = 1;
+            rateLimitCheck = new JCheckBox("Adaptive");
+            rateLimitCheck.setToolTipText("Cap presses per second and slow down when the system falls behind");
+            rateLimitCheck.addActionListener(e -> rateSpinner.setEnabled(rateLimitCheck.isSelected()));
+            panel.add(rateLimitCheck, gbc);
+            
+            gbc.gridx = 2;
+            rateSpinner = new JSpinner(new SpinnerNumberModel(100, 1, 100_000, 10));
+            rateSpinner.setEnabled(false);
+            rateSpinner.setToolTipText("Target presses per second");
+            panel.add(rateSpinner, gbc);
+            
+            // Parameter 6: Keyboard layout
+            gbc.gridx = 0; gbc.gridy = 5;
+            JLabel layoutLabel = new JLabel("6. Keyboard Layout:");
+            layoutLabel.setFont(layoutLabel.getFont().deriveFont(Font.BOLD));
+            panel.add(layoutLabel, gbc);
+            
+            gbc.gridx = 1;
+            layoutCombo = new JComboBox<>(KeyboardLayout.builtInNames().toArray(new String[0]));
+            layoutCombo.setToolTipText("Layout of the keyboard the target system uses");
+            panel.add(layoutCombo, gbc);
+            
+            gbc.gridx = 2;
+            unicodeInputCombo = new JComboBox<>(UnicodeInput.values());
+            unicodeInputCombo.setToolTipText("How to enter characters the layout has no key for (by code point)");
+            panel.add(unicodeInputCombo, gbc);
+            
             return panel;
         }
         
@@ -160,6 +271,11 @@ public class Main {
             stopButton.setFont(stopButton.getFont().deriveFont(Font.BOLD));
             stopButton.addActionListener(this::stopKeyPressing);
             
+            pauseButton = new JButton("⏸ Pause");
+            pauseButton.setPreferredSize(new Dimension(110, 35));
+            pauseButton.setEnabled(false);
+            pauseButton.addActionListener(this::togglePause);
+            
             JButton clearLogButton = new JButton("🗑 Clear Log");
             clearLogButton.setPreferredSize(new Dimension(120, 35));
             clearLogButton.addActionListener(event -> {
@@ -168,6 +284,7 @@ public class Main {
             });
             
             panel.add(startButton);
+            panel.add(pauseButton);
             panel.add(stopButton);
             panel.add(clearLogButton);
             
@@ -216,8 +333,12 @@ public class Main {
             }
             
             char[] characterArray;
+            KeystrokeProgram program;
             try {
-                characterArray = parseCharacterArray(arrayInput);
+                characterArray = CharacterArrayParser.parse(arrayInput);
+                program = KeystrokeProgram.compile(characterArray,
+                        KeyboardLayout.forName((String) layoutCombo.getSelectedItem()),
+                        (UnicodeInput) unicodeInputCombo.getSelectedItem());
             } catch (IllegalArgumentException ex) {
                 JOptionPane.showMessageDialog(this, "Invalid character array format: " + ex.getMessage(), 
                     "Input Error", JOptionPane.ERROR_MESSAGE);
@@ -227,288 +348,241 @@ public class Main {
             // Get duration and interval
             int durationValue = (Integer) durationSpinner.getValue();
             String durationUnit = (String) durationUnitCombo.getSelectedItem();
-            long durationMillis = convertToMillis(durationValue, durationUnit);
+            long durationNanos = convertToNanos(durationValue, durationUnit);
             
             int intervalValue = (Integer) intervalSpinner.getValue();
             String intervalUnit = (String) intervalUnitCombo.getSelectedItem();
-            long intervalMillis = convertToMillis(intervalValue, intervalUnit);
+            long intervalNanos = convertToNanos(intervalValue, intervalUnit);
             
             // Get optional actions
-            String selectedAction = null;
+            PressAction selectedAction = null;
             if (enableActionsCheck.isSelected()) {
-                selectedAction = (String) actionsCombo.getSelectedItem();
+                selectedAction = (PressAction) actionsCombo.getSelectedItem();
             }
             
-            // Start key pressing
-            isRunning = true;
-            updateButtonStates();
-            
-            final String finalAction = selectedAction;
-            keyPressingThread = new Thread(() -> runKeyPressing(characterArray, durationMillis, intervalMillis, finalAction));
-            keyPressingThread.start();
-        }
-        
-        private void stopKeyPressing(ActionEvent e) {
-            if (keyPressingThread != null && isRunning) {
-                isRunning = false;
-                keyPressingThread.interrupt();
-                SwingUtilities.invokeLater(() -> {
-                    appendLog("❌ Stopped by user");
-                    updateStatus("Stopped", new Color(244, 67, 54));
-                    updateButtonStates();
-                });
+            if (rateLimitCheck.isSelected()) {
+                rateController = new RateController((Integer) rateSpinner.getValue(), 10,
+                        DrainProbe.forOutput(engine.getOutput()));
+            } else {
+                rateController = null;
+            }
+            engine.setRateController(rateController);
+            
+            logSequenceLength = program.length();
+            logActionInfo = (selectedAction != null) ? " + " + selectedAction : "";
+            runDurationNanos = durationNanos;
+            liveCharacters = arrayInput;
+            PressSettings settings = new PressSettings(program, intervalNanos, selectedAction);
+            
+            Checkpoint resumeFrom = openJournal(CheckpointJournal.configHash(new String(characterArray),
+                    String.valueOf(intervalNanos), String.valueOf(durationNanos), String.valueOf(selectedAction),
+                    (String) layoutCombo.getSelectedItem(), String.valueOf(unicodeInputCombo.getSelectedItem())));
+            if (resumeFrom != null) {
+                appendLog("↩️ Resuming the previous run after " + resumeFrom.getPresses() + " presses");
+                launch(settings, resumeFrom, true);
+            } else {
+                launch(settings, null, true);
             }
         }
         
-        private void runKeyPressing(char[] characterArray, long durationMillis, long intervalMillis, String action) {
-            SwingUtilities.invokeLater(() -> {
-                appendLog("🚀 === Auto Key Presser Started ===");
-                appendLog("📝 Character Array: [" + arrayToString(characterArray) + "]");
-                appendLog("⏱️ Duration: " + formatTime(durationMillis));
-                appendLog("⏰ Interval: " + formatTime(intervalMillis));
-                if (action != null) {
-                    appendLog("🎯 Action: " + action);
-                }
-                appendLog("⚠️ Make sure a text editor is open and focused!");
-                appendLog("🕐 Starting in 3 seconds...");
-                updateStatus("Starting...", new Color(255, 152, 0));
-            });
-            
+        /**
+         * Opens the session journal for a run with {@code configHash}. If it holds an unfinished
+         * run of the same settings, offers to resume it and returns its last checkpoint;
+         * otherwise starts the journal afresh and returns {@code null}.
+         */
+        private Checkpoint openJournal(long configHash) {
+            closeJournal();
             try {
-                // Initial delay
-                Thread.sleep(3000);
-                
-                SwingUtilities.invokeLater(() -> {
-                    appendLog("✅ Key pressing started!");
-                    updateStatus("Running - Pressing keys", new Color(76, 175, 80));
-                });
-                
-                long startTime = System.currentTimeMillis();
-                int currentCharIndex = 0;
-                final int[] totalPresses = {0}; // Use array to make it effectively final
-                
-                while (isRunning && (System.currentTimeMillis() - startTime) < durationMillis) {
-                    // Press current character
-                    char currentChar = characterArray[currentCharIndex];
-                    pressKey(currentChar);
-                    
-                    // Execute optional action if specified
-                    if (action != null) {
-                        executeAction(action);
-                    }
-                    
-                    totalPresses[0]++;
-                    final int finalPresses = totalPresses[0];
-                    final char finalChar = currentChar;
-                    final int finalIndex = currentCharIndex;
-                    final String actionInfo = (action != null) ? " + " + action : "";
-                    
-                    SwingUtilities.invokeLater(() -> 
-                        appendLog("⌨️ Press " + finalPresses + ": '" + finalChar + "' (position " + (finalIndex + 1) + "/" + characterArray.length + ")" + actionInfo)
-                    );
-                    
-                    // Move to next character in cycle
-                    currentCharIndex = (currentCharIndex + 1) % characterArray.length;
-                    
-                    if (!isRunning) break;
-                    
-                    // Wait for interval
-                    Thread.sleep(intervalMillis);
+                Files.createDirectories(JOURNAL_FILE.getParent());
+                try {
+                    journal = CheckpointJournal.open(JOURNAL_FILE, configHash);
+                } catch (IllegalArgumentException ex) {
+                    journal = CheckpointJournal.create(JOURNAL_FILE, configHash); // Another run's journal
                 }
-                
-                SwingUtilities.invokeLater(() -> {
-                    if (isRunning) {
-                        appendLog("⏰ Duration completed. Total presses: " + totalPresses[0]);
-                        updateStatus("Completed", new Color(33, 150, 243));
+                Checkpoint last = journal.getLast();
+                if (last != null && last.getElapsedNanos() < runDurationNanos) {
+                    int choice = JOptionPane.showConfirmDialog(this,
+                            "An earlier run with these settings stopped after " + last.getPresses() + " presses ("
+                                    + formatTime(last.getElapsedNanos()) + " of " + formatTime(runDurationNanos)
+                                    + ").\nResume it where it stopped?",
+                            "Resume Run", JOptionPane.YES_NO_OPTION);
+                    if (choice == JOptionPane.YES_OPTION) {
+                        engine.setJournal(journal);
+                        return last;
                     }
-                });
-                
-            } catch (InterruptedException ex) {
-                Thread.currentThread().interrupt();
-                SwingUtilities.invokeLater(() -> appendLog("⚠️ Interrupted"));
-            } catch (Exception ex) {
-                SwingUtilities.invokeLater(() -> {
-                    appendLog("❌ Error: " + ex.getMessage());
-                    updateStatus("Error", new Color(244, 67, 54));
-                });
-            } finally {
-                isRunning = false;
-                SwingUtilities.invokeLater(() -> {
-                    updateStatus("Ready - Open a text editor and click Start", new Color(33, 150, 243));
-                    updateButtonStates();
-                });
+                }
+                if (last != null) {
+                    journal.close();
+                    journal = CheckpointJournal.create(JOURNAL_FILE, configHash);
+                }
+            } catch (IOException ex) {
+                closeJournal();
+                appendLog("⚠️ Progress is not saved (cannot write " + JOURNAL_FILE + ": " + ex.getMessage() + ")");
             }
+            engine.setJournal(journal);
+            return null;
         }
         
-        private char[] parseCharacterArray(String input) {
-            input = input.trim();
-            
-            // Remove brackets if present
-            if (input.startsWith("[") && input.endsWith("]")) {
-                input = input.substring(1, input.length() - 1);
+        private void closeJournal() {
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException ex) {
+                    System.err.println("Journal not closed: " + ex.getMessage());
+                }
+                journal = null;
+            }
+        }
+        
+        /** Hands the run to the engine service, from the beginning or after {@code resumeFrom}. */
+        private void launch(PressSettings settings, Checkpoint resumeFrom, boolean delayed) {
+            KeystrokeProgram program = settings.getProgram();
+            int startIndex = 0;
+            long remainingNanos = runDurationNanos;
+            if (resumeFrom != null) {
+                startIndex = (int) ((resumeFrom.getPosition() + 1) % program.length());
+                remainingNanos -= resumeFrom.getElapsedNanos();
             }
             
-            // Split by comma
-            String[] parts = input.split(",");
-            char[] result = new char[parts.length];
-            
-            for (int i = 0; i < parts.length; i++) {
-                String part = parts[i].trim();
-                
-                // Remove quotes if present
-                if ((part.startsWith("'") && part.endsWith("'")) || 
-                    (part.startsWith("\"") && part.endsWith("\""))) {
-                    part = part.substring(1, part.length() - 1);
+            if (delayed) {
+                appendLog("🚀 === Auto Key Presser Started ===");
+                appendLog("📝 Character Array: [" + arrayToString(program) + "]");
+                appendLog("⏱️ Duration: " + formatTime(remainingNanos));
+                appendLog("⏰ Interval: " + formatTime(settings.getIntervalNanos()));
+                if (settings.getAction() != null) {
+                    appendLog("🎯 Action: " + settings.getAction());
                 }
-                
-                if (part.length() == 1) {
-                    result[i] = part.charAt(0);
-                } else if (part.isEmpty()) {
-                    throw new IllegalArgumentException("Empty character at position " + (i + 1));
-                } else {
-                    throw new IllegalArgumentException("Invalid character at position " + (i + 1) + ": '" + part + "' (must be single character)");
+                if (rateController != null) {
+                    appendLog("🚦 Rate limit: " + (int) rateController.getTargetRate() + " presses/s (adaptive)");
                 }
+                appendLog("⚠️ Make sure a text editor is open and focused!");
+                appendLog("🕐 Starting in 3 seconds...");
+                updateStatus("Starting...", new Color(255, 152, 0));
             }
             
-            return result;
+            isRunning = true;
+            isPaused = false;
+            updateButtonStates();
+            // A paused run picks up at once
+            engineService.start(settings, startIndex, remainingNanos, delayed ? START_DELAY_NANOS : 0);
         }
         
-        private void pressKey(char c) {
-            try {
-                int keyCode = getKeyCode(c);
-                if (keyCode != -1) {
-                    boolean needsShift = Character.isUpperCase(c) || isShiftCharacter(c);
-                    
-                    if (needsShift) {
-                        robot.keyPress(KeyEvent.VK_SHIFT);
-                    }
-                    
-                    robot.keyPress(keyCode);
-                    robot.keyRelease(keyCode);
-                    
-                    if (needsShift) {
-                        robot.keyRelease(KeyEvent.VK_SHIFT);
-                    }
+        /**
+         * Swaps the edited interval and action, and with {@code includeCharacters} the edited
+         * characters, into the active or paused run. Takes effect on the next press.
+         */
+        private void applyLiveSettings(boolean includeCharacters) {
+            PressSettings current = engineService.getSettings();
+            if (!(isRunning || isPaused) || current == null) return;
+            
+            KeystrokeProgram program = current.getProgram();
+            String arrayInput = characterArrayField.getText().trim();
+            if (includeCharacters && !arrayInput.equals(liveCharacters)) {
+                try {
+                    program = KeystrokeProgram.compile(CharacterArrayParser.parse(arrayInput),
+                            KeyboardLayout.forName((String) layoutCombo.getSelectedItem()),
+                            (UnicodeInput) unicodeInputCombo.getSelectedItem());
+                } catch (IllegalArgumentException ex) {
+                    appendLog("❌ Characters not changed: " + ex.getMessage());
+                    return;
                 }
-            } catch (Exception e) {
-                SwingUtilities.invokeLater(() -> appendLog("❌ Error pressing key '" + c + "': " + e.getMessage()));
+                liveCharacters = arrayInput;
+            }
+            long intervalNanos = convertToNanos((Integer) intervalSpinner.getValue(),
+                    (String) intervalUnitCombo.getSelectedItem());
+            PressAction action = enableActionsCheck.isSelected() ? (PressAction) actionsCombo.getSelectedItem() : null;
+            if (program == current.getProgram() && intervalNanos == current.getIntervalNanos()
+                    && action == current.getAction()) {
+                return;
             }
+            
+            engineService.reconfigure(new PressSettings(program, intervalNanos, action));
+            logSequenceLength = program.length();
+            logActionInfo = (action != null) ? " + " + action : "";
+            appendLog("🔧 Now pressing [" + arrayToString(program) + "] every " + formatTime(intervalNanos)
+                    + logActionInfo);
         }
         
-        private void executeAction(String action) {
-            try {
-                switch (action) {
-                    case "Hover Up":
-                        Point currentPos = MouseInfo.getPointerInfo().getLocation();
-                        robot.mouseMove(currentPos.x, currentPos.y - 10);
-                        break;
-                    case "Hover Down":
-                        currentPos = MouseInfo.getPointerInfo().getLocation();
-                        robot.mouseMove(currentPos.x, currentPos.y + 10);
-                        break;
-                    case "Hover Left":
-                        currentPos = MouseInfo.getPointerInfo().getLocation();
-                        robot.mouseMove(currentPos.x - 10, currentPos.y);
-                        break;
-                    case "Hover Right":
-                        currentPos = MouseInfo.getPointerInfo().getLocation();
-                        robot.mouseMove(currentPos.x + 10, currentPos.y);
-                        break;
-                    case "Space Bar":
-                        robot.keyPress(KeyEvent.VK_SPACE);
-                        robot.keyRelease(KeyEvent.VK_SPACE);
-                        break;
-                    case "Next Line":
-                        robot.keyPress(KeyEvent.VK_ENTER);
-                        robot.keyRelease(KeyEvent.VK_ENTER);
-                        break;
-                    default:
-                        SwingUtilities.invokeLater(() -> appendLog("⚠️ Unknown action: " + action));
-                        break;
-                }
-            } catch (Exception e) {
-                SwingUtilities.invokeLater(() -> appendLog("❌ Error executing action '" + action + "': " + e.getMessage()));
+        private void togglePause(ActionEvent e) {
+            if (isRunning && journal != null) {
+                // Stopping the engine writes a checkpoint of the last press
+                isPaused = true;
+                engineService.stop();
+            } else if (isPaused && !engineService.isActive()) {
+                Checkpoint last = journal.getLast();
+                appendLog("▶️ Resumed after " + (last != null ? last.getPresses() : 0) + " presses");
+                launch(engineService.getSettings(), last, false);
             }
         }
         
-        private int getKeyCode(char c) {
-            switch (Character.toLowerCase(c)) {
-                // Letters
-                case 'a': return KeyEvent.VK_A;
-                case 'b': return KeyEvent.VK_B;
-                case 'c': return KeyEvent.VK_C;
-                case 'd': return KeyEvent.VK_D;
-                case 'e': return KeyEvent.VK_E;
-                case 'f': return KeyEvent.VK_F;
-                case 'g': return KeyEvent.VK_G;
-                case 'h': return KeyEvent.VK_H;
-                case 'i': return KeyEvent.VK_I;
-                case 'j': return KeyEvent.VK_J;
-                case 'k': return KeyEvent.VK_K;
-                case 'l': return KeyEvent.VK_L;
-                case 'm': return KeyEvent.VK_M;
-                case 'n': return KeyEvent.VK_N;
-                case 'o': return KeyEvent.VK_O;
-                case 'p': return KeyEvent.VK_P;
-                case 'q': return KeyEvent.VK_Q;
-                case 'r': return KeyEvent.VK_R;
-                case 's': return KeyEvent.VK_S;
-                case 't': return KeyEvent.VK_T;
-                case 'u': return KeyEvent.VK_U;
-                case 'v': return KeyEvent.VK_V;
-                case 'w': return KeyEvent.VK_W;
-                case 'x': return KeyEvent.VK_X;
-                case 'y': return KeyEvent.VK_Y;
-                case 'z': return KeyEvent.VK_Z;
-                
-                // Numbers
-                case '0': return KeyEvent.VK_0;
-                case '1': return KeyEvent.VK_1;
-                case '2': return KeyEvent.VK_2;
-                case '3': return KeyEvent.VK_3;
-                case '4': return KeyEvent.VK_4;
-                case '5': return KeyEvent.VK_5;
-                case '6': return KeyEvent.VK_6;
-                case '7': return KeyEvent.VK_7;
-                case '8': return KeyEvent.VK_8;
-                case '9': return KeyEvent.VK_9;
-                
-                // Special characters
-                case ' ': return KeyEvent.VK_SPACE;
-                case '.': return KeyEvent.VK_PERIOD;
-                case ',': return KeyEvent.VK_COMMA;
-                case ';': return KeyEvent.VK_SEMICOLON;
-                case '\'': return KeyEvent.VK_QUOTE;
-                case '[': return KeyEvent.VK_OPEN_BRACKET;
-                case ']': return KeyEvent.VK_CLOSE_BRACKET;
-                case '\\': return KeyEvent.VK_BACK_SLASH;
-                case '/': return KeyEvent.VK_SLASH;
-                case '=': return KeyEvent.VK_EQUALS;
-                case '-': return KeyEvent.VK_MINUS;
-                case '`': return KeyEvent.VK_BACK_QUOTE;
-                
-                default:
-                    SwingUtilities.invokeLater(() -> appendLog("⚠️ Unsupported character: '" + c + "'"));
-                    return -1;
+        private void stopKeyPressing(ActionEvent e) {
+            if (isPaused) {
+                isPaused = false;
+                appendLog("❌ Stopped by user");
+                updateStatus("Stopped", new Color(244, 67, 54));
+                updateButtonStates();
+            } else if (isRunning) {
+                engineService.stop();
             }
         }
         
-        private boolean isShiftCharacter(char c) {
-            String shiftChars = "!@#$%^&*()_+:\"<>?{}|~";
-            return shiftChars.indexOf(c) != -1;
+        // Called on the engine worker once the start delay is over
+        private void onRunStarted() {
+            metrics.reset();
+            SwingUtilities.invokeLater(() -> {
+                appendLog("✅ Key pressing started!");
+                updateStatus("Running - Pressing keys", new Color(76, 175, 80));
+            });
+        }
+        
+        // Called on the engine worker when a run ends, however it ends
+        private void onRunFinished(long presses, boolean stopped, Exception error) {
+            String timing = metrics.describe();
+            RateController rate = rateController;
+            SwingUtilities.invokeLater(() -> {
+                isRunning = false;
+                Checkpoint last = (journal != null) ? journal.getLast() : null;
+                long totalPresses = (last != null) ? last.getPresses() : presses;
+                if (error != null) {
+                    isPaused = false;
+                    appendLog("❌ Error: " + error.getMessage());
+                    updateStatus("Error", new Color(244, 67, 54));
+                } else if (isPaused) {
+                    appendLog("⏸️ Paused after " + totalPresses + " presses");
+                    updateStatus("Paused - click Resume to continue", new Color(255, 152, 0));
+                } else if (stopped) {
+                    appendLog("❌ Stopped by user");
+                    updateStatus("Ready - Open a text editor and click Start", new Color(33, 150, 243));
+                } else {
+                    appendLog("⏰ Duration completed. Total presses: " + totalPresses);
+                    appendLog("📊 Timing: " + timing);
+                    if (rate != null) {
+                        appendLog("🚦 " + rate.describe());
+                    }
+                    updateStatus("Ready - Open a text editor and click Start", new Color(33, 150, 243));
+                }
+                updateButtonStates();
+            });
         }
         
-        private long convertToMillis(int value, String unit) {
+        private long convertToNanos(int value, String unit) {
             return switch (unit.toLowerCase()) {
-                case "seconds" -> value * 1000L;
-                case "minutes" -> value * 60L * 1000L;
-                case "hours" -> value * 60L * 60L * 1000L;
-                default -> value * 1000L;
+                case "microseconds" -> value * 1_000L;
+                case "milliseconds" -> value * 1_000_000L;
+                case "seconds" -> value * 1_000_000_000L;
+                case "minutes" -> value * 60L * 1_000_000_000L;
+                case "hours" -> value * 60L * 60L * 1_000_000_000L;
+                default -> value * 1_000_000_000L;
             };
         }
         
-        private String formatTime(long millis) {
-            long seconds = millis / 1000;
+        private String formatTime(long nanos) {
+            if (nanos < 1_000_000L) {
+                return (nanos / 1_000L) + " microseconds";
+            } else if (nanos < 1_000_000_000L) {
+                return (nanos / 1_000_000L) + " milliseconds";
+            }
+            long seconds = nanos / 1_000_000_000L;
             if (seconds < 60) {
                 return seconds + " seconds";
             } else if (seconds < 3600) {
@@ -518,44 +592,133 @@ public class Main {
             }
         }
         
-        private String arrayToString(char[] array) {
+        private String arrayToString(KeystrokeProgram program) {
             StringBuilder sb = new StringBuilder();
-            for (int i = 0; i < array.length; i++) {
-                sb.append("'").append(array[i]).append("'");
-                if (i < array.length - 1) {
+            for (int i = 0; i < program.length(); i++) {
+                sb.append("'").append(program.character(i)).append("'");
+                if (i < program.length() - 1) {
                     sb.append(", ");
                 }
             }
             return sb.toString();
         }
         
+        private static RunLogWriter openActivityLog() {
+            try {
+                Files.createDirectories(ACTIVITY_LOG.getParent());
+                RunLogWriter log = RunLogWriter.open(ACTIVITY_LOG, LogFormat.TEXT);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        log.close();
+                    } catch (IOException ignored) {
+                        // Exiting; nowhere left to report it
+                    }
+                }, "autokeypresser-log-close"));
+                return log;
+            } catch (IOException e) {
+                System.err.println("Activity log not written: " + e.getMessage());
+                return null;
+            }
+        }
+        
         private void appendLog(String message) {
-            String timestamp = java.time.LocalTime.now().toString().substring(0, 8);
-            logArea.append("[" + timestamp + "] " + message + "\n");
+            if (activityLog != null) {
+                activityLog.event(message);
+            }
+            // Keep ordering with presses that are still waiting in the buffer
+            flushPressLog();
+            
+            logBatch.setLength(0);
+            appendTimestamp(logBatch, System.currentTimeMillis());
+            logBatch.append(message).append('\n');
+            writeLog();
+        }
+        
+        private void flushPressLog() {
+            logBatch.setLength(0);
+            pressLog.drain(pressEntryFormatter, MAX_LOG_LINES);
+            
+            long dropped = pressLog.takeDropped();
+            if (dropped > 0) {
+                appendTimestamp(logBatch, System.currentTimeMillis());
+                logBatch.append("⚠️ ").append(dropped).append(" presses not shown (log cannot keep up with press rate)\n");
+            }
+            
+            if (logBatch.length() > 0) {
+                writeLog();
+            }
+        }
+        
+        private void formatPressEntry(long pressNumber, char character, long position, long timeMillis) {
+            appendTimestamp(logBatch, timeMillis);
+            logBatch.append("⌨️ Press ").append(pressNumber)
+                .append(": '").append(character)
+                .append("' (position ").append(position + 1).append('/').append(logSequenceLength).append(')')
+                .append(logActionInfo).append('\n');
+        }
+        
+        private void appendTimestamp(StringBuilder sb, long timeMillis) {
+            long localMillis = timeMillis + logTimeZone.getOffset(timeMillis);
+            int secondOfDay = (int) Math.floorMod(localMillis / 1000, 86_400L);
+            sb.append('[');
+            appendTwoDigits(sb, secondOfDay / 3600).append(':');
+            appendTwoDigits(sb, (secondOfDay / 60) % 60).append(':');
+            appendTwoDigits(sb, secondOfDay % 60).append("] ");
+        }
+        
+        private static StringBuilder appendTwoDigits(StringBuilder sb, int value) {
+            return sb.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+        }
+        
+        private void writeLog() {
+            logArea.append(logBatch.toString());
+            
+            // Trim the document to the newest MAX_LOG_LINES lines
+            Element root = logArea.getDocument().getDefaultRootElement();
+            int excessLines = root.getElementCount() - MAX_LOG_LINES;
+            if (excessLines > 0) {
+                logArea.replaceRange("", 0, root.getElement(excessLines - 1).getEndOffset());
+            }
+            
             logArea.setCaretPosition(logArea.getDocument().getLength());
         }
         
+        private void showRate() {
+            RateController rate = rateController;
+            if (rate != null && engine.isRunning()) {
+                updateStatus(String.format("Running - %.0f / %.0f presses/s", rate.getEffectiveRate(),
+                        rate.getTargetRate()), new Color(76, 175, 80));
+            }
+        }
+        
         private void updateStatus(String status, Color color) {
             statusLabel.setText(status);
             statusLabel.setForeground(color);
         }
         
         private void updateButtonStates() {
-            startButton.setEnabled(!isRunning);
-            stopButton.setEnabled(isRunning);
-            
-            // Disable input fields while running
-            characterArrayField.setEnabled(!isRunning);
-            durationSpinner.setEnabled(!isRunning);
-            durationUnitCombo.setEnabled(!isRunning);
-            intervalSpinner.setEnabled(!isRunning);
-            intervalUnitCombo.setEnabled(!isRunning);
-            enableActionsCheck.setEnabled(!isRunning);
-            actionsCombo.setEnabled(!isRunning && enableActionsCheck.isSelected());
+            boolean busy = isRunning || isPaused;
+            startButton.setEnabled(!busy);
+            stopButton.setEnabled(busy);
+            pauseButton.setEnabled(busy && journal != null);
+            pauseButton.setText(isPaused ? "▶ Resume" : "⏸ Pause");
+            
+            // Characters, interval and action can be changed mid-run; the duration and the
+            // layout they are typed on cannot
+            durationSpinner.setEnabled(!busy);
+            durationUnitCombo.setEnabled(!busy);
+            layoutCombo.setEnabled(!busy);
+            unicodeInputCombo.setEnabled(!busy);
         }
     }
     
     public static void main(String[] args) {
+        // Any arguments select the headless runner, which never touches Swing
+        if (args.length > 0) {
+            CommandLineRunner.main(args);
+            return;
+        }
+        
         // Set look and feel
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -563,8 +726,19 @@ public class Main {
             // Use default look and feel
         }
         
+        KeystrokeOutput output;
+        try {
+            output = new RobotOutput();
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(null, 
+                "Failed to initialize Robot: " + e.getMessage(), 
+                "Error", JOptionPane.ERROR_MESSAGE);
+            System.exit(1);
+            return;
+        }
+        
         SwingUtilities.invokeLater(() -> {
-            new AutoKeyPresserUI().setVisible(true);
+            new AutoKeyPresserUI(output).setVisible(true);
         });
     }
 }
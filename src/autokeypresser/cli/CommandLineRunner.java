@@ -0,0 +1,973 @@
+package autokeypresser.cli;
+
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import autokeypresser.control.ControlServer;
+import autokeypresser.engine.KeystrokeProgram;
+import autokeypresser.engine.KeystrokeSource;
+import autokeypresser.engine.PressEngine;
+import autokeypresser.engine.TimeSpec;
+import autokeypresser.input.MappedTextSource;
+import autokeypresser.journal.Checkpoint;
+import autokeypresser.journal.CheckpointJournal;
+import autokeypresser.lanes.LaneSpec;
+import autokeypresser.lanes.MultiLaneEngine;
+import autokeypresser.layout.KeyboardLayout;
+import autokeypresser.layout.UnicodeInput;
+import autokeypresser.log.RunLogWriter;
+import autokeypresser.macro.MacroPlayer;
+import autokeypresser.macro.MacroReader;
+import autokeypresser.macro.MacroRecordingOutput;
+import autokeypresser.macro.MacroWriter;
+import autokeypresser.metrics.CsvMetricsReporter;
+import autokeypresser.metrics.PressMetrics;
+import autokeypresser.output.KeystrokeOutput;
+import autokeypresser.output.NullOutput;
+import autokeypresser.output.RobotOutput;
+import autokeypresser.paste.MemoryClipboard;
+import autokeypresser.paste.PasteInjector;
+import autokeypresser.paste.PasteTarget;
+import autokeypresser.paste.SystemTextClipboard;
+import autokeypresser.paste.TextClipboard;
+import autokeypresser.rate.DrainProbe;
+import autokeypresser.rate.RateController;
+import autokeypresser.script.Script;
+import autokeypresser.script.ScriptPlayer;
+import autokeypresser.sim.ScheduleSimulator;
+import autokeypresser.sim.SimulationResult;
+import autokeypresser.watch.FrameSource;
+import autokeypresser.watch.ImageFrameSource;
+import autokeypresser.watch.RobotFrameSource;
+import autokeypresser.watch.ScreenWatcher;
+import autokeypresser.watch.WatchTrigger;
+
+/**
+ * Headless entry point: runs the press engine from command-line arguments or a config file
+ * without loading any Swing classes. With no duration it runs as a daemon until Ctrl+C or
+ * SIGTERM, printing a summary on the way out. With {@code --file} it types a text file once,
+ * streamed through {@link MappedTextSource}, and prints the offset to resume from. With
+ * {@code --metrics} it publishes {@link PressMetrics} over JMX and adds latency percentiles
+ * to the summary. With {@code --lane} it runs several sequences at once on a
+ * {@link MultiLaneEngine}. {@code --record} saves whatever a run sends as a macro and
+ * {@code --replay} plays one back. {@code --log} keeps a persistent {@link RunLogWriter run log}.
+ * {@code --simulate} checks the schedule in simulated time on a {@link ScheduleSimulator}.
+ * {@code --control} serves a local {@link ControlServer control API} and leaves the runs to it.
+ * {@code --watch} types a sequence whenever a screen region changes, on a {@link ScreenWatcher}.
+ * {@code --script} runs a compiled {@link Script macro script} on a {@link ScriptPlayer}.
+ * {@code --paste} gets a text file in through the clipboard with a {@link PasteInjector}.
+ */
+public final class CommandLineRunner {
+
+    private CommandLineRunner() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /** Runs to completion and returns the process exit code. */
+    public static int run(String[] args) {
+        RunConfig config;
+        try {
+            config = RunConfig.parse(args);
+        } catch (RunConfig.HelpRequested e) {
+            printUsage(System.out);
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            printUsage(System.err);
+            return 2;
+        }
+        if (config.isSimulate()) {
+            return runSimulation(config);
+        }
+
+        KeystrokeOutput output;
+        if (config.isDryRun()) {
+            output = new NullOutput();
+        } else {
+            try {
+                output = new RobotOutput();
+            } catch (Exception e) {
+                System.err.println("Error: cannot control keyboard input (" + e + "). Use --dry-run to run without a display.");
+                return 1;
+            }
+        }
+
+        MacroRecordingOutput recorder = null;
+        if (config.getRecordFile() != null) {
+            try {
+                recorder = new MacroRecordingOutput(output, MacroWriter.create(config.getRecordFile()));
+            } catch (IOException e) {
+                System.err.println("Error: cannot write " + config.getRecordFile() + ": " + e.getMessage());
+                return 1;
+            }
+            output = recorder;
+        }
+
+        RunLogWriter runLog = null;
+        if (config.getLogFile() != null) {
+            try {
+                runLog = RunLogWriter.open(config.getLogFile(), config.getLogFormat(), config.getLogMaxBytes(),
+                        config.getLogRotateNanos() / 1_000_000L, config.getLogKeep(), RunLogWriter.DEFAULT_CAPACITY);
+            } catch (IOException e) {
+                System.err.println("Error: cannot write " + config.getLogFile() + ": " + e.getMessage());
+                return 1;
+            }
+            runLog.event("Started: " + String.join(" ", args));
+        }
+
+        int exitCode = 1;
+        try {
+            if (config.isControl()) {
+                exitCode = runControl(config, output, runLog);
+            } else if (!config.getWatches().isEmpty()) {
+                exitCode = runWatch(config, output, runLog);
+            } else if (config.getScript() != null) {
+                exitCode = runScript(config, output, runLog);
+            } else if (config.getPasteFile() != null) {
+                exitCode = runPaste(config, output, runLog);
+            } else if (config.getReplayFile() != null) {
+                exitCode = runReplay(config, output, runLog);
+            } else if (!config.getLanes().isEmpty()) {
+                exitCode = runLanes(config, output, runLog);
+            } else {
+                exitCode = runSingle(config, output, runLog);
+            }
+            return exitCode;
+        } finally {
+            if (runLog != null) {
+                runLog.event("Exited with code " + exitCode);
+                closeQuietly(runLog);
+            }
+            if (recorder != null) {
+                try {
+                    recorder.close();
+                    System.out.println("Recorded " + recorder.getRecordedEvents() + " events to " + config.getRecordFile());
+                } catch (IOException e) {
+                    System.err.println("Error: cannot write " + config.getRecordFile() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static int runSingle(RunConfig config, KeystrokeOutput output, RunLogWriter runLog) {
+        PressEngine engine = new PressEngine(output, null);
+        engine.setMissedDeadlinePolicy(config.getMissedDeadlinePolicy());
+        engine.setHoverGlide(config.getHoverSteps(), config.getHoverStepIntervalNanos());
+        engine.setHoverCurve(config.isHoverCurve());
+        engine.setRunLog(runLog);
+
+        RateController rateController = config.getRate() > 0
+                ? new RateController(config.getRate(), config.getBurst(), DrainProbe.forOutput(output),
+                        config.getMaxDrainNanos(), RateController.DEFAULT_PROBE_PERIOD_NANOS)
+                : null;
+        engine.setRateController(rateController);
+
+        // JMX is only loaded on request so plain runs keep their startup time
+        PressMetrics metrics = config.isMetricsEnabled() ? new PressMetrics() : null;
+        if (metrics != null) {
+            engine.setMetrics(metrics);
+            try {
+                metrics.registerMBean();
+            } catch (Exception e) {
+                System.err.println("Warning: cannot register metrics MBean: " + e.getMessage());
+            }
+        }
+        CsvMetricsReporter csvReporter;
+        if (metrics != null && config.getMetricsCsv() != null) {
+            try {
+                csvReporter = CsvMetricsReporter.start(metrics, config.getMetricsCsv(),
+                        config.getMetricsIntervalNanos() / 1_000_000L);
+            } catch (IOException e) {
+                System.err.println("Error: cannot write " + config.getMetricsCsv() + ": " + e.getMessage());
+                return 1;
+            }
+        } else {
+            csvReporter = null;
+        }
+
+        CheckpointJournal journal;
+        if (config.getJournalFile() != null) {
+            try {
+                journal = config.isResume()
+                        ? CheckpointJournal.open(config.getJournalFile(), config.getConfigHash())
+                        : CheckpointJournal.create(config.getJournalFile(), config.getConfigHash());
+                journal.setInterval(config.getCheckpointEvery(), config.getCheckpointIntervalNanos());
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Error: cannot use journal " + config.getJournalFile() + ": " + e.getMessage());
+                if (csvReporter != null) {
+                    csvReporter.close();
+                }
+                return 1;
+            }
+            engine.setJournal(journal);
+        } else {
+            journal = null;
+        }
+        Checkpoint resumeFrom = journal != null ? journal.getLast() : null;
+
+        long durationNanos = resumeFrom != null && config.getDurationNanos() != RunConfig.UNLIMITED
+                ? config.getDurationNanos() - resumeFrom.getElapsedNanos() : config.getDurationNanos();
+        if (resumeFrom != null && durationNanos <= 0) {
+            System.out.println("Journal " + config.getJournalFile() + " holds a completed run ("
+                    + resumeFrom.getPresses() + " presses); nothing to resume.");
+            closeQuietly(journal);
+            if (csvReporter != null) {
+                csvReporter.close();
+            }
+            return 0;
+        }
+
+        KeystrokeSource source;
+        MappedTextSource textSource;
+        if (config.getFile() != null) {
+            // Reopened at the last key pressed, which is skipped before the run starts
+            long offset = resumeFrom != null ? resumeFrom.getPosition() : config.getFileOffset();
+            try {
+                textSource = MappedTextSource.open(config.getFile(), config.getFileEncoding(), offset);
+                textSource.setKeyboardLayout(config.getLayout(), config.getUnicodeInput());
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Error: cannot open " + config.getFile() + ": " + e.getMessage());
+                if (journal != null) {
+                    closeQuietly(journal);
+                }
+                if (csvReporter != null) {
+                    csvReporter.close();
+                }
+                return 1;
+            }
+            source = textSource;
+        } else {
+            textSource = null;
+            source = resumeFrom != null
+                    ? config.getProgram().cycle((int) ((resumeFrom.getPosition() + 1) % config.getProgram().length()))
+                    : config.getProgram().cycle();
+        }
+        System.out.println("Auto Key Presser (headless)");
+        if (textSource != null) {
+            System.out.println("  File:       " + config.getFile() + " (" + textSource.getFileSize() + " bytes, "
+                    + config.getFileEncoding() + ", from offset " + config.getFileOffset() + ")");
+        } else {
+            System.out.println("  Characters: " + config.getCharacters() + " (" + config.getProgram().length() + " keys)");
+        }
+        printLayout(config);
+        System.out.println("  Interval:   " + TimeSpec.format(config.getIntervalNanos()));
+        System.out.println("  Duration:   " + (durationNanos == RunConfig.UNLIMITED
+                ? (textSource != null ? "until end of file" : "until stopped")
+                : resumeFrom != null ? TimeSpec.format(config.getDurationNanos())
+                + String.format(" (%.3f s left)", durationNanos / 1e9) : TimeSpec.format(durationNanos)));
+        if (config.getAction() != null) {
+            System.out.println("  Action:     " + config.getAction()
+                    + (config.getAction().isHover() && config.getHoverSteps() > 1 ? " (glide: " + config.getHoverSteps()
+                    + " steps every " + TimeSpec.format(config.getHoverStepIntervalNanos())
+                    + (config.isHoverCurve() ? ", curved" : "") + ")" : ""));
+        }
+        if (config.isDryRun()) {
+            System.out.println("  Output:     dry run (no keys are sent)");
+        }
+        if (rateController != null) {
+            System.out.println("  Rate:       up to " + config.getRate() + " presses/s (burst " + config.getBurst()
+                    + "), adapting to backpressure");
+        }
+        if (journal != null) {
+            System.out.println("  Journal:    " + config.getJournalFile() + " (checkpoint every "
+                    + config.getCheckpointEvery() + " presses or " + TimeSpec.format(config.getCheckpointIntervalNanos()) + ")");
+            if (resumeFrom != null) {
+                System.out.printf("  Resuming:   after %d presses, %.3f s in, at position %d%n",
+                        resumeFrom.getPresses(), resumeFrom.getElapsedNanos() / 1e9, resumeFrom.getPosition());
+            } else if (config.isResume()) {
+                System.out.println("  Resuming:   no checkpoint yet, starting from the beginning");
+            }
+        }
+        if (metrics != null) {
+            System.out.println("  Metrics:    JMX " + PressMetrics.OBJECT_NAME
+                    + (csvReporter != null ? ", CSV " + config.getMetricsCsv() + " every "
+                    + TimeSpec.format(config.getMetricsIntervalNanos()) : ""));
+        }
+        printLog(config, runLog);
+
+        return runHeadless(runLog, config.getStartDelayNanos(), engine::stop, () -> {
+            if (textSource != null && resumeFrom != null) {
+                textSource.advance();
+            }
+            if (rateController != null) {
+                startRateReporter(rateController, engine);
+            }
+            return engine.run(source, durationNanos, config.getIntervalNanos(), config.getAction());
+        }, (presses, seconds) -> String.format("Done: %d presses in %.3f s (%.1f presses/s)",
+                presses, seconds, seconds > 0 ? presses / seconds : 0.0), () -> {
+            if (metrics != null) {
+                System.out.println("Timing: " + metrics.describe());
+            }
+            if (rateController != null) {
+                System.out.println("Rate: " + rateController.describe());
+            }
+            if (csvReporter != null) {
+                csvReporter.close();
+            }
+            if (textSource != null) {
+                System.out.println("Typed through byte " + textSource.resumeOffset() + " of " + textSource.getFileSize()
+                        + " (" + textSource.getSkippedCharacters() + " unmapped characters skipped); resume with --offset "
+                        + textSource.resumeOffset());
+                closeQuietly(textSource);
+            }
+            if (journal != null) {
+                Checkpoint last = journal.getLast();
+                if (last != null) {
+                    System.out.printf("Checkpoint: %d presses in total, %.3f s in; %s%n", last.getPresses(),
+                            last.getElapsedNanos() / 1e9, last.getElapsedNanos() >= config.getDurationNanos()
+                            ? "run complete" : "continue with --journal " + config.getJournalFile() + " --resume");
+                }
+                closeQuietly(journal);
+            }
+        });
+    }
+
+    /** Runs the whole schedule in simulated time, prints what it did and whether it passed the checks. */
+    private static int runSimulation(RunConfig config) {
+        KeystrokeSource source;
+        MappedTextSource textSource = null;
+        if (config.getFile() != null) {
+            try {
+                textSource = MappedTextSource.open(config.getFile(), config.getFileEncoding(), config.getFileOffset());
+                textSource.setKeyboardLayout(config.getLayout(), config.getUnicodeInput());
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Error: cannot open " + config.getFile() + ": " + e.getMessage());
+                return 1;
+            }
+            source = textSource;
+        } else {
+            source = config.getProgram().cycle();
+        }
+        ScheduleSimulator simulator = new ScheduleSimulator();
+        simulator.setEventCost(config.getSimulateCostNanos());
+        simulator.setMissedDeadlinePolicy(config.getMissedDeadlinePolicy());
+        simulator.setHoverGlide(config.getHoverSteps(), config.getHoverStepIntervalNanos());
+        simulator.setHoverCurve(config.isHoverCurve());
+
+        System.out.println("Auto Key Presser (simulation)");
+        if (textSource != null) {
+            System.out.println("  File:       " + config.getFile() + " (" + textSource.getFileSize() + " bytes, "
+                    + config.getFileEncoding() + ", from offset " + config.getFileOffset() + ")");
+        } else {
+            System.out.println("  Characters: " + config.getCharacters() + " (" + config.getProgram().length() + " keys)");
+        }
+        System.out.println("  Interval:   " + TimeSpec.format(config.getIntervalNanos()));
+        System.out.println("  Duration:   " + (config.getDurationNanos() == RunConfig.UNLIMITED
+                ? "until end of file" : TimeSpec.format(config.getDurationNanos())));
+        if (config.getAction() != null) {
+            System.out.println("  Action:     " + config.getAction());
+        }
+        System.out.println("  Output:     simulated, " + (config.getSimulateCostNanos() > 0
+                ? TimeSpec.format(config.getSimulateCostNanos()) + " per event" : "free") + ", no keys are sent");
+
+        SimulationResult result;
+        try {
+            result = simulator.run(source, config.getDurationNanos(), config.getIntervalNanos(), config.getAction());
+        } catch (InterruptedException e) {
+            System.out.println("Stopped.");
+            return 1;
+        } catch (RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        } finally {
+            if (textSource != null) {
+                closeQuietly(textSource);
+            }
+        }
+
+        System.out.println("Simulated: " + result);
+        if (result.isExact() && !result.isExhausted()) {
+            System.out.println("  Expected:   " + SimulationResult.expectedPresses(config.getDurationNanos(),
+                    config.getIntervalNanos()) + " presses on an exact schedule");
+        }
+        List<String> failures = result.failures();
+        for (String failure : failures) {
+            System.out.println("  FAILED:     " + failure);
+        }
+        System.out.println(failures.isEmpty() ? "Checks: passed" : "Checks: " + failures.size() + " failed");
+        return failures.isEmpty() ? 0 : 1;
+    }
+
+    /** Prints the effective versus target rate once a second while the engine runs. */
+    private static void startRateReporter(RateController rateController, PressEngine engine) {
+        Thread reporter = new Thread(() -> {
+            try {
+                do {
+                    Thread.sleep(1000);
+                    System.out.println("  " + rateController.describe());
+                } while (engine.isRunning());
+            } catch (InterruptedException ignored) {
+                // Daemon; exits with the process
+            }
+        }, "autokeypresser-rate-report");
+        reporter.setDaemon(true);
+        reporter.start();
+    }
+
+    private static int runLanes(RunConfig config, KeystrokeOutput output, RunLogWriter runLog) {
+        List<LaneSpec> lanes = config.getLanes();
+        MultiLaneEngine engine = new MultiLaneEngine(output, config.getLaneThreads());
+
+        int threads = Math.min(config.getLaneThreads(), lanes.size());
+        System.out.println("Auto Key Presser (headless, " + lanes.size() + " lanes on " + threads
+                + (threads == 1 ? " thread)" : " threads)"));
+        for (LaneSpec lane : lanes) {
+            System.out.println("  " + lane.getName() + ": " + lane.getProgram().length() + " keys every "
+                    + TimeSpec.format(lane.getIntervalNanos()) + ", "
+                    + (lane.getDurationNanos() != LaneSpec.UNLIMITED ? "for " + TimeSpec.format(lane.getDurationNanos()) : "until stopped")
+                    + (lane.getAction() != null ? ", " + lane.getAction() : ""));
+        }
+        if (config.isDryRun()) {
+            System.out.println("  Output:     dry run (no keys are sent)");
+        }
+        printLog(config, runLog);
+
+        long[] presses = new long[lanes.size()];
+        return runHeadless(runLog, config.getStartDelayNanos(), engine::stop, () -> {
+            long[] lanePresses = engine.run(lanes);
+            System.arraycopy(lanePresses, 0, presses, 0, presses.length);
+            long total = 0;
+            for (long lane : lanePresses) {
+                total += lane;
+            }
+            return total;
+        }, (total, seconds) -> {
+            for (int i = 0; i < presses.length; i++) {
+                System.out.println("  " + lanes.get(i).getName() + ": " + presses[i] + " presses");
+            }
+            return String.format("Done: %d presses in %.3f s (%.1f presses/s)",
+                    total, seconds, seconds > 0 ? total / seconds : 0.0);
+        }, null);
+    }
+
+    private static int runReplay(RunConfig config, KeystrokeOutput output, RunLogWriter runLog) {
+        MacroReader reader;
+        try {
+            reader = MacroReader.open(config.getReplayFile());
+        } catch (IOException e) {
+            System.err.println("Error: cannot open " + config.getReplayFile() + ": " + e.getMessage());
+            return 1;
+        }
+        MacroPlayer player = new MacroPlayer(output);
+
+        System.out.println("Auto Key Presser (headless replay)");
+        System.out.println("  Macro:      " + config.getReplayFile() + " (" + reader.getFileSize() + " bytes)");
+        System.out.println("  Speed:      " + config.getReplaySpeed() + "x");
+        if (config.isDryRun()) {
+            System.out.println("  Output:     dry run (no keys are sent)");
+        }
+        printLog(config, runLog);
+
+        return runHeadless(runLog, config.getStartDelayNanos(), player::stop,
+                () -> player.play(reader, config.getReplaySpeed()),
+                (events, seconds) -> String.format("Done: %d events in %.3f s (%.1f events/s)%s", events, seconds,
+                        seconds > 0 ? events / seconds : 0.0, reader.isTruncated() ? ", file ends mid-event" : ""),
+                () -> {
+                    try {
+                        reader.close();
+                    } catch (IOException ignored) {
+                        // Read-only
+                    }
+                });
+    }
+
+    private static int runScript(RunConfig config, KeystrokeOutput output, RunLogWriter runLog) {
+        Script script = config.getScript();
+        ScriptPlayer player = new ScriptPlayer(output);
+        player.setMissedDeadlinePolicy(config.getMissedDeadlinePolicy());
+
+        System.out.println("Auto Key Presser (headless script)");
+        System.out.println("  Script:     " + config.getScriptFile() + " (" + script.getCodeBytes() + " bytes compiled, "
+                + (script.getSteps() == Script.UNLIMITED ? "loops forever" : script.getSteps() + " steps") + ")");
+        printLayout(config);
+        System.out.println("  Interval:   " + TimeSpec.format(config.getIntervalNanos()) + " (until the script sets one)");
+        System.out.println("  Duration:   " + (config.getDurationNanos() == RunConfig.UNLIMITED
+                ? "until the script ends" : TimeSpec.format(config.getDurationNanos())));
+        if (config.isDryRun()) {
+            System.out.println("  Output:     dry run (no keys are sent)");
+        }
+        printLog(config, runLog);
+
+        return runHeadless(runLog, config.getStartDelayNanos(), player::stop,
+                () -> player.play(script, config.getIntervalNanos(), config.getDurationNanos()),
+                (steps, seconds) -> String.format("Done: %d steps in %.3f s (%.1f steps/s)", steps, seconds,
+                        seconds > 0 ? steps / seconds : 0.0), null);
+    }
+
+    /**
+     * Pastes the file once and compares the rate with what typing it would take. A dry run
+     * pastes into an in-memory clipboard read by a {@link PasteTarget} instead of the OS.
+     */
+    private static int runPaste(RunConfig config, KeystrokeOutput output, RunLogWriter runLog) {
+        String text;
+        try {
+            text = Files.readString(config.getPasteFile(), config.getFileEncoding());
+        } catch (IOException e) {
+            System.err.println("Error: cannot read " + config.getPasteFile() + ": " + e.getMessage());
+            return 1;
+        }
+        TextClipboard clipboard;
+        if (config.isDryRun()) {
+            clipboard = new MemoryClipboard();
+        } else {
+            try {
+                clipboard = new SystemTextClipboard();
+            } catch (Exception e) {
+                System.err.println("Error: cannot use the clipboard (" + e + "). Use --dry-run to run without a display.");
+                return 1;
+            }
+        }
+        PasteTarget target = config.isDryRun() ? new PasteTarget(output, clipboard, config.getPasteChord(), null) : null;
+        PasteInjector injector = new PasteInjector(target != null ? target : output, clipboard);
+        injector.setChord(config.getPasteChord());
+        injector.setChunkChars(config.getPasteChunkChars());
+        injector.setTimeout(config.getPasteTimeoutNanos());
+        injector.setSettle(config.getPasteSettleNanos());
+        long keystrokeEvents = PasteInjector.keystrokeEvents(text, config.getLayout(), config.getUnicodeInput());
+
+        System.out.println("Auto Key Presser (headless paste)");
+        System.out.println("  Paste:      " + config.getPasteFile() + " (" + text.length() + " chars in chunks of up to "
+                + config.getPasteChunkChars() + ")");
+        System.out.println("  Chord:      " + formatStroke(config.getPasteChord()) + ", each chunk waits up to "
+                + TimeSpec.format(config.getPasteTimeoutNanos()) + " to be taken");
+        System.out.println("  Clipboard:  " + (config.isDryRun() ? "in memory (dry run; no keys are sent)"
+                : "system, restored afterwards"));
+        System.out.println("  Typing it:  " + (keystrokeEvents >= 0 ? keystrokeEvents + " key events"
+                : "not possible on the " + config.getLayout() + " layout"));
+        printLog(config, runLog);
+
+        return runHeadless(runLog, config.getStartDelayNanos(), injector::stop, () -> injector.paste(text),
+                (ignored, seconds) -> String.format("Done: %d chars in %d chunks in %.3f s (%.0f chars/s)%s",
+                        injector.getPastedChars(), injector.getChunks(), seconds,
+                        seconds > 0 ? injector.getPastedChars() / seconds : 0.0,
+                        target != null ? ", " + target.getReceivedChars() + " received" : ""), () -> {
+                    double nanosPerEvent = injector.getNanosPerKeyEvent();
+                    if (keystrokeEvents > 0 && nanosPerEvent > 0 && injector.getPastedChars() > 0) {
+                        // Typing can go no faster than the output takes per event; the target adds to that
+                        double typingSeconds = keystrokeEvents * nanosPerEvent / 1e9;
+                        System.out.println(String.format("  Typing it: %d key events, at least %.3f s at the %.2f us"
+                                + " per event the output took (%.0f chars/s)", keystrokeEvents, typingSeconds,
+                                nanosPerEvent / 1e3, text.length() / typingSeconds));
+                    }
+                    if (!injector.isRestored()) {
+                        System.err.println("Warning: cannot restore the clipboard's previous contents");
+                    }
+                });
+    }
+
+    private static String formatStroke(int stroke) {
+        int modifiers = KeyboardLayout.modifiers(stroke);
+        return ((modifiers & KeystrokeProgram.MOD_SHIFT) != 0 ? "shift+" : "")
+                + ((modifiers & KeystrokeProgram.MOD_ALT_GRAPH) != 0 ? "altgr+" : "")
+                + ((modifiers & KeystrokeProgram.MOD_CONTROL) != 0 ? "ctrl+" : "")
+                + ((modifiers & KeystrokeProgram.MOD_ALT) != 0 ? "alt+" : "")
+                + ((modifiers & KeystrokeProgram.MOD_META) != 0 ? "meta+" : "")
+                + KeyEvent.getKeyText(KeyboardLayout.keyCode(stroke));
+    }
+
+    /** Serves the control API until Ctrl+C; what to press, and when, comes from its clients. */
+    private static int runControl(RunConfig config, KeystrokeOutput output, RunLogWriter runLog) {
+        ControlServer server = new ControlServer(output, config.getLayout(), config.getUnicodeInput());
+        server.getEngine().setMissedDeadlinePolicy(config.getMissedDeadlinePolicy());
+        server.getEngine().setHoverGlide(config.getHoverSteps(), config.getHoverStepIntervalNanos());
+        server.getEngine().setHoverCurve(config.isHoverCurve());
+        server.setRunLog(runLog);
+        server.setDefaultDelay(config.getStartDelayNanos());
+        Path webRoot = config.getWebRoot() != null ? config.getWebRoot() : defaultWebRoot();
+        server.setWebRoot(webRoot);
+        try {
+            server.start(config.getControlPort());
+        } catch (IOException e) {
+            System.err.println("Error: cannot listen on port " + config.getControlPort() + ": " + e.getMessage());
+            server.close();
+            return 1;
+        }
+
+        System.out.println("Auto Key Presser (headless control)");
+        System.out.println("  Control:    " + server.getUrl() + " (loopback only; POST /api/start, /api/stop,"
+                + " /api/reconfigure; events at /api/events)");
+        System.out.println("  Web page:   " + webRoot.resolve("index.html").toAbsolutePath().normalize()
+                + (Files.isRegularFile(webRoot.resolve("index.html")) ? "" : " (missing; use --web-root <dir>)"));
+        printLayout(config);
+        System.out.println("  Delay:      " + TimeSpec.format(config.getStartDelayNanos())
+                + " before each run, unless the request gives one");
+        if (config.isDryRun()) {
+            System.out.println("  Output:     dry run (no keys are sent)");
+        }
+        printLog(config, runLog);
+
+        // Each run waits its own delay, so the server starts at once
+        return runHeadless(runLog, 0, server::close, () -> {
+            Thread.sleep(Long.MAX_VALUE);
+            return 0;
+        }, (ignored, seconds) -> String.format("Done: %d presses in %.3f s served",
+                server.getMetrics().getPressCount(), seconds), server::close);
+    }
+
+    /**
+     * The {@code web} directory beside the classes this runs from, or beside their parent:
+     * {@code src/} and {@code target/AutoKeyPresser.jar} in the repository, and
+     * {@code AutoKeyPresser.jar} in a distribution, whatever the working directory.
+     */
+    private static Path defaultWebRoot() {
+        CodeSource source = CommandLineRunner.class.getProtectionDomain().getCodeSource();
+        if (source == null) {
+            return Path.of("web");
+        }
+        Path location;
+        try {
+            location = Path.of(source.getLocation().toURI()).toAbsolutePath();
+        } catch (URISyntaxException | IllegalArgumentException | FileSystemNotFoundException e) {
+            return Path.of("web");
+        }
+        Path beside = location.resolveSibling("web");
+        Path parent = location.getParent();
+        if (!Files.isDirectory(beside) && parent != null && Files.isDirectory(parent.resolveSibling("web"))) {
+            return parent.resolveSibling("web");
+        }
+        return beside;
+    }
+
+    /** Polls the watched regions until the duration is up or Ctrl+C, typing on each fire. */
+    private static int runWatch(RunConfig config, KeystrokeOutput output, RunLogWriter runLog) {
+        FrameSource source;
+        if (config.getWatchSource() != null) {
+            try {
+                source = ImageFrameSource.open(config.getWatchSource());
+            } catch (IOException e) {
+                System.err.println("Error: cannot read " + config.getWatchSource() + ": " + e.getMessage());
+                return 1;
+            }
+        } else {
+            try {
+                source = new RobotFrameSource();
+            } catch (Exception e) {
+                System.err.println("Error: cannot capture the screen (" + e + "). Use --watch-source <image> to watch"
+                        + " an image file instead.");
+                return 1;
+            }
+        }
+        PressEngine engine = new PressEngine(output, null);
+        engine.setMissedDeadlinePolicy(config.getMissedDeadlinePolicy());
+        engine.setHoverGlide(config.getHoverSteps(), config.getHoverStepIntervalNanos());
+        engine.setHoverCurve(config.isHoverCurve());
+        engine.setRunLog(runLog);
+        ScreenWatcher watcher;
+        try {
+            watcher = new ScreenWatcher(source, config.getWatches(), engine, config.getIntervalNanos());
+            watcher.setPollInterval(config.getWatchIntervalNanos());
+            watcher.setCooldown(config.getWatchCooldownNanos());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        }
+        watcher.setRunLog(runLog);
+
+        List<WatchTrigger> triggers = config.getWatches();
+        System.out.println("Auto Key Presser (headless watch, " + triggers.size()
+                + (triggers.size() == 1 ? " region)" : " regions)"));
+        for (WatchTrigger trigger : triggers) {
+            System.out.println("  " + trigger.getName() + ": " + trigger.getWidth() + "x" + trigger.getHeight() + " at "
+                    + trigger.getX() + "," + trigger.getY() + ", " + trigger.getCondition() + ": "
+                    + trigger.getProgram().length() + " keys" + (trigger.getAction() != null ? ", " + trigger.getAction() : ""));
+        }
+        System.out.println("  Source:     " + (config.getWatchSource() != null
+                ? config.getWatchSource() + " (re-read when it changes)" : "screen"));
+        System.out.println("  Polling:    every " + TimeSpec.format(config.getWatchIntervalNanos()) + ", cooldown "
+                + TimeSpec.format(config.getWatchCooldownNanos()));
+        System.out.println("  Interval:   " + TimeSpec.format(config.getIntervalNanos()) + " between presses");
+        System.out.println("  Duration:   " + (config.getDurationNanos() == RunConfig.UNLIMITED
+                ? "until stopped" : TimeSpec.format(config.getDurationNanos())));
+        if (config.isDryRun()) {
+            System.out.println("  Output:     dry run (no keys are sent)");
+        }
+        printLog(config, runLog);
+
+        return runHeadless(runLog, config.getStartDelayNanos(), watcher::stop, () -> {
+            Thread reporter = startWatchReporter(watcher);
+            try {
+                return watcher.run(config.getDurationNanos());
+            } finally {
+                reporter.interrupt();
+            }
+        }, (ignored, seconds) -> {
+            for (int i = 0; i < triggers.size(); i++) {
+                long fires = watcher.getFires(i);
+                System.out.println("  " + triggers.get(i).getName() + ": fired " + fires + (fires == 1 ? " time" : " times"));
+            }
+            return String.format("Done: %d presses on %d fires in %.3f s, %d polls (%.1f polls/s)%s%s",
+                    watcher.getPresses(), totalFires(watcher), seconds, watcher.getPolls(),
+                    seconds > 0 ? watcher.getPolls() / seconds : 0.0,
+                    watcher.getSkippedPolls() > 0 ? ", " + watcher.getSkippedPolls() + " skipped" : "",
+                    watcher.getDropped() > 0 ? ", " + watcher.getDropped() + " fires dropped" : "");
+        }, null);
+    }
+
+    private static long totalFires(ScreenWatcher watcher) {
+        long total = 0;
+        for (int i = 0; i < watcher.getTriggers().size(); i++) {
+            total += watcher.getFires(i);
+        }
+        return total;
+    }
+
+    /** Prints the polling rate and cost once a second while the watcher runs. */
+    private static Thread startWatchReporter(ScreenWatcher watcher) {
+        Thread reporter = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(1000);
+                    System.out.println("  " + watcher.describe());
+                }
+            } catch (InterruptedException ignored) {
+                // Interrupted when the watcher returns
+            }
+        }, "autokeypresser-watch-report");
+        reporter.setDaemon(true);
+        reporter.start();
+        return reporter;
+    }
+
+    /** What a headless run does once its start delay is over; returns what it counted, e.g. presses. */
+    private interface RunBody {
+        long run() throws IOException, InterruptedException;
+    }
+
+    /** The "Done: ..." line for what the run counted in the seconds it ran; may print lines before it. */
+    private interface Summary {
+        String done(long count, double seconds);
+    }
+
+    /**
+     * Everything a headless run does after printing its header: the ready line, Ctrl+C and
+     * SIGTERM handling through {@code stop}, the start delay, then {@code body}. A stop prints
+     * "Stopped." and an error is printed and returns 1; the summary, with the memory in use,
+     * is printed and logged unless there was an error. {@code cleanup}, if not null, always
+     * runs last, before the shutdown hook lets the process exit.
+     *
+     * @return the exit code
+     */
+    private static int runHeadless(RunLogWriter runLog, long startDelayNanos, Runnable stop, RunBody body,
+                                   Summary summary, Runnable cleanup) {
+        long readyMillis = System.currentTimeMillis();
+        String memory = ProcessStats.describeMemory();
+        System.out.println("Ready in " + ProcessStats.startupMillis(readyMillis) + " ms | " + memory);
+
+        CountDownLatch finished = new CountDownLatch(1);
+        Thread shutdownHook = installShutdownHook(stop, finished);
+
+        int exitCode = 0;
+        long count = 0;
+        long startNanos = System.nanoTime();
+        try {
+            if (startDelayNanos > 0) {
+                System.out.println("Starting in " + TimeSpec.format(startDelayNanos) + "...");
+                TimeUnit.NANOSECONDS.sleep(startDelayNanos);
+            }
+            startNanos = System.nanoTime();
+            count = body.run();
+            if (Thread.interrupted()) {
+                System.out.println("Stopped.");
+            }
+        } catch (InterruptedException e) {
+            System.out.println("Stopped.");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+            exitCode = 1;
+        } finally {
+            if (exitCode == 0) {
+                String done = summary.done(count, (System.nanoTime() - startNanos) / 1e9);
+                System.out.println(done + " | " + ProcessStats.describeMemory());
+                if (runLog != null) {
+                    runLog.event(done);
+                }
+            }
+            if (cleanup != null) {
+                cleanup.run();
+            }
+            removeShutdownHook(shutdownHook, finished);
+        }
+        return exitCode;
+    }
+
+    /** Only printed for a layout or Unicode input other than the default. */
+    private static void printLayout(RunConfig config) {
+        if (!config.getLayout().getName().equals(KeyboardLayout.DEFAULT) || config.getUnicodeInput() != UnicodeInput.NONE) {
+            System.out.println("  Layout:     " + config.getLayout().getDescription()
+                    + (config.getUnicodeInput() != UnicodeInput.NONE
+                    ? ", other characters by " + config.getUnicodeInput().name().toLowerCase(Locale.ROOT)
+                    + " Unicode input" : ""));
+        }
+    }
+
+    /** Lanes and replays only log their start and end; a single sequence also logs each press. */
+    private static void printLog(RunConfig config, RunLogWriter runLog) {
+        if (runLog != null) {
+            String rotation = config.getLogMaxBytes() > 0 && config.getLogRotateNanos() > 0
+                    ? "rotated at " + formatBytes(config.getLogMaxBytes()) + " or every " + TimeSpec.format(config.getLogRotateNanos())
+                    : config.getLogMaxBytes() > 0 ? "rotated at " + formatBytes(config.getLogMaxBytes())
+                    : config.getLogRotateNanos() > 0 ? "rotated every " + TimeSpec.format(config.getLogRotateNanos())
+                    : "never rotated";
+            System.out.println("  Log:        " + config.getLogFile() + " (" + config.getLogFormat().name().toLowerCase(Locale.ROOT)
+                    + ", " + rotation + ", keeping " + config.getLogKeep() + ")");
+        }
+    }
+
+    private static String formatBytes(long bytes) {
+        return bytes >= 1 << 20 ? String.format("%.1f MB", bytes / 1048576.0)
+                : bytes >= 1 << 10 ? String.format("%.1f KB", bytes / 1024.0) : bytes + " bytes";
+    }
+
+    /** Ctrl+C / SIGTERM: stop the engine and let the main thread print the summary. */
+    private static Thread installShutdownHook(Runnable stopEngine, CountDownLatch finished) {
+        Thread mainThread = Thread.currentThread();
+        Thread shutdownHook = new Thread(() -> {
+            stopEngine.run();
+            mainThread.interrupt();
+            try {
+                finished.await(2, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+        }, "autokeypresser-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        return shutdownHook;
+    }
+
+    private static void removeShutdownHook(Thread shutdownHook, CountDownLatch finished) {
+        finished.countDown();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException alreadyShuttingDown) {
+            // The hook is already running and only waits for the summary above
+        }
+    }
+
+    private static void closeQuietly(MappedTextSource source) {
+        try {
+            source.close();
+        } catch (IOException ignored) {
+            // Read-only; nothing to flush
+        }
+    }
+
+    private static void closeQuietly(CheckpointJournal journal) {
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Warning: cannot close journal " + journal.getFile() + ": " + e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(RunLogWriter runLog) {
+        try {
+            runLog.close();
+        } catch (IOException e) {
+            System.err.println("Warning: cannot write log " + runLog.getFile() + ": " + e.getMessage());
+        }
+    }
+
+    static void printUsage(PrintStream out) {
+        out.println("Usage: java -cp src Main [options] <characters> <interval> [duration]");
+        out.println("       java -cp src Main [options] --file <path> <interval> [duration]");
+        out.println("       java -cp src Main [options] --lane <spec> [--lane <spec> ...] [duration]");
+        out.println("       java -cp src Main [options] --replay <macro>");
+        out.println("       java -cp src Main [options] --script <file> <interval> [duration]");
+        out.println("       java -cp src Main [options] --paste <file>");
+        out.println("       java -cp src Main [options] --control <port>");
+        out.println("       java -cp src Main [options] --watch <spec> [--watch <spec> ...] <interval> [duration]");
+        out.println("       java -cp src Main --config <file> [options]");
+        out.println();
+        out.println("  characters   Text to type (hello) or a character array (A,B,C or ['a','b','c'])");
+        out.println("  interval     Time between presses: 250us, 10ms, 2s, 5m, 1h (bare number = seconds)");
+        out.println("  duration     How long to run; omit to run until Ctrl+C");
+        out.println();
+        out.println("Options:");
+        out.println("  -c, --config <file>   Properties file with characters, interval, duration, action, delay,");
+        out.println("                        missedDeadlines, dryRun, file, offset, encoding, metrics,");
+        out.println("                        metricsCsv, metricsInterval, hoverSteps, hoverStepInterval,");
+        out.println("                        hoverCurve, lane.1, lane.2, ..., laneThreads, record, replay,");
+        out.println("                        speed, rate, burst, maxDrain, layout, unicodeInput, journal, resume,");
+        out.println("                        checkpointEvery, checkpointInterval, log, logFormat,");
+        out.println("                        logMaxSize, logRotate, logKeep, simulate, simulateCost,");
+        out.println("                        control, webRoot, watch.1, watch.2, ..., watchInterval, watchCooldown,");
+        out.println("                        watchSource, script, paste, pasteChunk, pasteChord,");
+        out.println("                        pasteTimeout and pasteSettle; arguments override it");
+        out.println("  -a, --action <name>   Action after each press: \"Hover Up\", \"Space Bar\", \"Next Line\", ...");
+        out.println("  -d, --delay <time>    Delay before the first press (default 3s)");
+        out.println("      --skip-missed     Skip missed deadlines instead of catching up");
+        out.println("      --dry-run         Run the engine without sending keys");
+        out.println("      --simulate        Run the whole schedule at once in simulated time and check its press");
+        out.println("                        count, order and timing; sends no keys");
+        out.println("      --simulate-cost <time> Simulated time each key or mouse event takes (default 0)");
+        out.println("  -f, --file <path>     Type a text file once instead of cycling characters (streamed,");
+        out.println("                        memory-mapped; any size)");
+        out.println("      --offset <bytes>  Byte offset to start the file at, e.g. to resume a stopped run");
+        out.println("      --encoding <cs>   File encoding: UTF-8 (default) or a single-byte charset");
+        out.println("      --hover-steps <n>         Glide each hover action in n moves (default 1: jump)");
+        out.println("      --hover-step-interval <time> Time between glide moves (default 1ms)");
+        out.println("      --hover-curve     Glide along a curve instead of a straight line");
+        out.println("      --lane <spec>     Run several sequences at once; spec is");
+        out.println("                        characters|interval[|duration[|action]], e.g. \"Hi|50ms|10s|Space Bar\"");
+        out.println("      --lane-threads <n> Threads that schedule the lanes (default: number of CPUs)");
+        out.println("      --record <file>   Save every event the run sends, with timing, as a binary macro");
+        out.println("      --replay <file>   Play back a recorded macro instead of typing characters");
+        out.println("      --speed <x>       Replay speed factor (default 1.0; 2 = twice as fast)");
+        out.println("      --script <file>   Run a macro script: \"text\", keys such as ctrl+s or enter, wait 50ms,");
+        out.println("                        interval 10ms, moveto x y, moveby dx dy and repeat n { ... }; the");
+        out.println("                        interval is the time between steps until the script sets one");
+        out.println("      --paste <file>    Paste a text file (in --encoding) through the clipboard, a chunk at a");
+        out.println("                        time, instead of typing it; the clipboard is restored afterwards");
+        out.println("      --paste-chunk <n> Characters per paste (default " + PasteInjector.DEFAULT_CHUNK_CHARS + ")");
+        out.println("      --paste-chord <key>     Keystroke that pastes (default ctrl+V, meta+V on macOS),");
+        out.println("                        e.g. shift+INSERT for terminals");
+        out.println("      --paste-timeout <time>  Time a chunk may take to be taken before the run stops (default 2s)");
+        out.println("      --paste-settle <time>   Time given to each paste where the clipboard cannot tell when it");
+        out.println("                        was taken (default 50ms)");
+        out.println("      --layout <name>   Keyboard layout to type on: us (default), uk, de, fr or a .layout file");
+        out.println("      --unicode-input <mode> Enter characters the layout lacks by code point:");
+        out.println("                        none (default), linux, windows or mac");
+        out.println("      --rate <n>        Cap presses/s with a token bucket that backs off when the OS input");
+        out.println("                        queue drains slowly; use a short interval to let it set the pace");
+        out.println("      --burst <n>       Presses allowed back-to-back under --rate (default 10)");
+        out.println("      --max-drain <time> Drain time that counts as backpressure (default 5ms)");
+        out.println("      --journal <file>  Keep checkpoints of the run's progress in a crash-safe journal");
+        out.println("      --resume          Continue from the journal's last checkpoint");
+        out.println("      --checkpoint-every <n>        Presses between checkpoints (default 1000)");
+        out.println("      --checkpoint-interval <time>  Time between checkpoints (default 1s)");
+        out.println("      --log <file>      Append presses and run events to a log file, written in the background");
+        out.println("      --log-format <f>  Log format: text (default), json (one object per line) or binary");
+        out.println("      --log-max-size <size>  Rotate the log at this size, e.g. 512K, 10M (default 10M; 0 = never)");
+        out.println("      --log-rotate <time>    Also rotate the log after this long, e.g. 1h");
+        out.println("      --log-keep <n>    Rotated log files to keep as <file>.1, <file>.2, ... (default 5)");
+        out.println("      --control <port>  Serve a local control API and web page on 127.0.0.1 instead of running;");
+        out.println("                        clients start, stop and retune runs and stream live presses (0 = any port)");
+        out.println("      --web-root <dir>  Directory whose index.html --control serves (default: the web folder");
+        out.println("                        next to the application)");
+        out.println("      --watch <spec>    Type when a screen region changes; spec is x,y,width,height|condition|");
+        out.println("                        characters[|action] with condition change[:percent],");
+        out.println("                        color:RRGGBB[:tolerance[:percent]] or image:<png>[:tolerance[:percent]];");
+        out.println("                        the interval is the time between the typed presses");
+        out.println("      --watch-interval <time> Time between screen polls (default 20ms)");
+        out.println("      --watch-cooldown <time> Minimum time between two fires of one region (default 1s)");
+        out.println("      --watch-source <file>   Watch an image file, re-read when it changes, instead of the screen");
+        out.println("      --metrics         Record press lateness and output time, published over JMX as");
+        out.println("                        " + PressMetrics.OBJECT_NAME);
+        out.println("      --metrics-csv <file>      Also append a metrics row to a CSV file (implies --metrics)");
+        out.println("      --metrics-interval <time> Period of the CSV rows (default 1s)");
+        out.println("  -h, --help            Show this help");
+    }
+}
@@ -0,0 +1,52 @@
+package autokeypresser.cli;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/** Startup-time and memory probes for the headless runner. */
+final class ProcessStats {
+
+    private static final Path PROC_STATUS = Path.of("/proc/self/status");
+
+    private ProcessStats() {
+    }
+
+    /**
+     * Milliseconds from JVM start to {@code readyMillis}. The management bean is only touched
+     * after the ready timestamp has been taken, so loading it does not count as startup.
+     */
+    static long startupMillis(long readyMillis) {
+        return readyMillis - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+
+    /**
+     * Resident set size in kilobytes from {@code /proc/self/status}, or -1 where that is not
+     * available (non-Linux platforms).
+     */
+    static long residentKilobytes() {
+        try {
+            List<String> lines = Files.readAllLines(PROC_STATUS);
+            for (String line : lines) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.substring(6).replace("kB", "").trim());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not Linux or unreadable; fall through
+        }
+        return -1;
+    }
+
+    static String describeMemory() {
+        long rssKb = residentKilobytes();
+        Runtime rt = Runtime.getRuntime();
+        long heapUsedMb = (rt.totalMemory() - rt.freeMemory()) >> 20;
+        if (rssKb < 0) {
+            return "heap used " + heapUsedMb + " MB (RSS not available on this platform)";
+        }
+        return "RSS " + (rssKb >> 10) + " MB, heap used " + heapUsedMb + " MB";
+    }
+}
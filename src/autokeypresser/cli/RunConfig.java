@@ -0,0 +1,855 @@
+package autokeypresser.cli;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import autokeypresser.engine.CharacterArrayParser;
+import autokeypresser.engine.KeystrokeProgram;
+import autokeypresser.engine.PrecisionScheduler.MissedDeadlinePolicy;
+import autokeypresser.engine.PressAction;
+import autokeypresser.engine.TimeSpec;
+import autokeypresser.journal.CheckpointJournal;
+import autokeypresser.lanes.LaneSpec;
+import autokeypresser.layout.KeyboardLayout;
+import autokeypresser.layout.UnicodeInput;
+import autokeypresser.log.LogFormat;
+import autokeypresser.log.RunLogWriter;
+import autokeypresser.paste.PasteInjector;
+import autokeypresser.rate.RateController;
+import autokeypresser.script.Script;
+import autokeypresser.watch.ScreenWatcher;
+import autokeypresser.watch.WatchCondition;
+import autokeypresser.watch.WatchTrigger;
+
+/**
+ * Settings for a command-line run, read from an optional properties file and then
+ * overridden by command-line options and positional arguments.
+ *
+ * Config file keys: {@code characters}, {@code interval}, {@code duration}, {@code action},
+ * {@code delay}, {@code missedDeadlines} ({@code catch-up} or {@code skip}), {@code dryRun},
+ * for streaming a text file instead of cycling characters: {@code file},
+ * {@code offset} and {@code encoding}, for latency instrumentation: {@code metrics},
+ * {@code metricsCsv} and {@code metricsInterval}, for gliding hover actions:
+ * {@code hoverSteps}, {@code hoverStepInterval} and {@code hoverCurve}, and for running several sequences at
+ * once: {@code lane.1}, {@code lane.2}, ... (see {@link #parseLane}) and {@code laneThreads},
+ * for macros: {@code record}, {@code replay} and {@code speed}, for adaptive rate
+ * control: {@code rate}, {@code burst} and {@code maxDrain}, for typing on another
+ * keyboard layout: {@code layout} and {@code unicodeInput}, for resumable runs:
+ * {@code journal}, {@code resume}, {@code checkpointEvery} and {@code checkpointInterval},
+ * for a persistent run log: {@code log}, {@code logFormat} ({@code text}, {@code json}
+ * or {@code binary}), {@code logMaxSize} (bytes, or with a {@code K}, {@code M} or
+ * {@code G} suffix), {@code logRotate} and {@code logKeep}, for checking a schedule in
+ * simulated time: {@code simulate} and {@code simulateCost}, for serving the local
+ * control API instead of running: {@code control} (a port; 0 picks a free one) and
+ * {@code webRoot} (the directory whose {@code index.html} it serves), and for
+ * typing when the screen changes: {@code watch.1}, {@code watch.2}, ... (see
+ * {@link #parseWatch}), {@code watchInterval}, {@code watchCooldown} and
+ * {@code watchSource} (an image file to watch instead of the screen), for running a
+ * {@link Script macro script} instead of cycling characters: {@code script}, and for pasting
+ * a text file through the clipboard: {@code paste} (read in {@code encoding}),
+ * {@code pasteChunk}, {@code pasteChord}, {@code pasteTimeout} and {@code pasteSettle}.
+ */
+public final class RunConfig {
+
+    /** Duration used when none is given: run until stopped. */
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    private static final long DEFAULT_DELAY_NANOS = 3_000_000_000L;
+    private static final long DEFAULT_METRICS_INTERVAL_NANOS = 1_000_000_000L;
+    private static final long DEFAULT_HOVER_STEP_INTERVAL_NANOS = 1_000_000L;
+
+    private final String characters;
+    private final KeyboardLayout layout;
+    private final UnicodeInput unicodeInput;
+    private final KeystrokeProgram program;
+    private final Path file;
+    private final long fileOffset;
+    private final Charset fileEncoding;
+    private final long intervalNanos;
+    private final long durationNanos;
+    private final PressAction action;
+    private final long startDelayNanos;
+    private final MissedDeadlinePolicy missedDeadlinePolicy;
+    private final boolean dryRun;
+    private final boolean simulate;
+    private final long simulateCostNanos;
+    private final boolean metrics;
+    private final Path metricsCsv;
+    private final long metricsIntervalNanos;
+    private final int hoverSteps;
+    private final long hoverStepIntervalNanos;
+    private final boolean hoverCurve;
+    private final List<LaneSpec> lanes;
+    private final int laneThreads;
+    private final Path recordFile;
+    private final Path replayFile;
+    private final double replaySpeed;
+    private final double rate;
+    private final int burst;
+    private final long maxDrainNanos;
+    private final Path journalFile;
+    private final boolean resume;
+    private final long checkpointEvery;
+    private final long checkpointIntervalNanos;
+    private final Path logFile;
+    private final LogFormat logFormat;
+    private final long logMaxBytes;
+    private final long logRotateNanos;
+    private final int logKeep;
+    private final int controlPort;
+    private final Path webRoot;
+    private final List<WatchTrigger> watches;
+    private final long watchIntervalNanos;
+    private final long watchCooldownNanos;
+    private final Path watchSource;
+    private final Path scriptFile;
+    private final Script script;
+    private final Path pasteFile;
+    private final int pasteChunkChars;
+    private final int pasteChord;
+    private final long pasteTimeoutNanos;
+    private final long pasteSettleNanos;
+
+    private RunConfig(Properties props) {
+        String replay = props.getProperty("replay");
+        replayFile = (replay == null || replay.isBlank()) ? null : Path.of(replay);
+        String record = props.getProperty("record");
+        recordFile = (record == null || record.isBlank()) ? null : Path.of(record);
+        replaySpeed = Double.parseDouble(props.getProperty("speed", "1").trim());
+        if (!(replaySpeed > 0) || Double.isInfinite(replaySpeed)) {
+            throw new IllegalArgumentException("Speed must be a positive number: " + replaySpeed);
+        }
+
+        layout = KeyboardLayout.forName(props.getProperty("layout", KeyboardLayout.DEFAULT));
+        unicodeInput = UnicodeInput.forName(props.getProperty("unicodeInput", "none"));
+
+        lanes = parseLanes(props, layout, unicodeInput);
+        watches = parseWatches(props, layout, unicodeInput);
+        String control = props.getProperty("control");
+        controlPort = (control == null || control.isBlank()) ? -1 : Integer.parseInt(control.trim());
+        if (controlPort > 65535 || (control != null && !control.isBlank() && controlPort < 0)) {
+            throw new IllegalArgumentException("Control port must be between 0 and 65535: " + control.trim());
+        }
+        String web = props.getProperty("webRoot");
+        webRoot = (web == null || web.isBlank()) ? null : Path.of(web.trim());
+        if (controlPort >= 0 && (replayFile != null || !lanes.isEmpty())) {
+            throw new IllegalArgumentException("--control cannot be combined with --lane or --replay");
+        }
+        String fileName = props.getProperty("file");
+        if (controlPort >= 0 && fileName != null && !fileName.isBlank()) {
+            throw new IllegalArgumentException("--control cannot be combined with --file");
+        }
+        if (!watches.isEmpty() && (replayFile != null || !lanes.isEmpty() || controlPort >= 0
+                || (fileName != null && !fileName.isBlank()))) {
+            throw new IllegalArgumentException("--watch cannot be combined with --lane, --replay, --control or --file");
+        }
+        String scriptName = props.getProperty("script");
+        scriptFile = (scriptName == null || scriptName.isBlank()) ? null : Path.of(scriptName);
+        if (scriptFile != null && (replayFile != null || !lanes.isEmpty() || controlPort >= 0 || !watches.isEmpty()
+                || (fileName != null && !fileName.isBlank()))) {
+            throw new IllegalArgumentException("--script cannot be combined with --lane, --replay, --control, --watch"
+                    + " or --file");
+        }
+        String pasteName = props.getProperty("paste");
+        pasteFile = (pasteName == null || pasteName.isBlank()) ? null : Path.of(pasteName);
+        if (pasteFile != null && (replayFile != null || !lanes.isEmpty() || controlPort >= 0 || !watches.isEmpty()
+                || scriptFile != null || (fileName != null && !fileName.isBlank()))) {
+            throw new IllegalArgumentException("--paste cannot be combined with --lane, --replay, --control, --watch,"
+                    + " --script or --file");
+        }
+        script = scriptFile == null ? null : loadScript(scriptFile, layout, unicodeInput);
+        if (replayFile != null || !lanes.isEmpty() || controlPort >= 0 || !watches.isEmpty() || scriptFile != null
+                || pasteFile != null) {
+            file = null;
+            fileOffset = 0;
+            fileEncoding = pasteFile == null ? null : Charset.forName(props.getProperty("encoding", "UTF-8").trim());
+            characters = null;
+            program = null;
+        } else if (fileName != null && !fileName.isBlank()) {
+            file = Path.of(fileName);
+            fileOffset = Long.parseLong(props.getProperty("offset", "0").trim());
+            fileEncoding = Charset.forName(props.getProperty("encoding", "UTF-8").trim());
+            characters = null;
+            program = null;
+        } else {
+            file = null;
+            fileOffset = 0;
+            fileEncoding = null;
+            characters = require(props, "characters");
+            program = KeystrokeProgram.compile(CharacterArrayParser.parseCharacters(characters), layout, unicodeInput);
+        }
+        boolean singleSequence = replayFile == null && lanes.isEmpty() && controlPort < 0 && watches.isEmpty()
+                && scriptFile == null && pasteFile == null;
+        boolean timed = singleSequence || !watches.isEmpty() || scriptFile != null;
+        intervalNanos = timed ? TimeSpec.parseNanos(require(props, "interval")) : 0;
+        if (timed && intervalNanos <= 0) {
+            throw new IllegalArgumentException("Interval must be greater than zero");
+        }
+        String watchInterval = props.getProperty("watchInterval");
+        watchIntervalNanos = (watchInterval == null || watchInterval.isBlank())
+                ? ScreenWatcher.DEFAULT_POLL_INTERVAL_NANOS : TimeSpec.parseNanos(watchInterval);
+        if (watchIntervalNanos <= 0) {
+            throw new IllegalArgumentException("Watch interval must be greater than zero");
+        }
+        String watchCooldown = props.getProperty("watchCooldown");
+        watchCooldownNanos = (watchCooldown == null || watchCooldown.isBlank())
+                ? ScreenWatcher.DEFAULT_COOLDOWN_NANOS : TimeSpec.parseNanos(watchCooldown);
+        String source = props.getProperty("watchSource");
+        watchSource = (source == null || source.isBlank()) ? null : Path.of(source);
+
+        pasteChunkChars = Integer.parseInt(props.getProperty("pasteChunk",
+                String.valueOf(PasteInjector.DEFAULT_CHUNK_CHARS)).trim());
+        if (pasteChunkChars < 2) {
+            throw new IllegalArgumentException("Paste chunk must be at least 2 characters: " + pasteChunkChars);
+        }
+        String chord = props.getProperty("pasteChord");
+        pasteChord = (chord == null || chord.isBlank())
+                ? PasteInjector.defaultChord() : KeyboardLayout.parseStroke(chord.trim().toUpperCase(Locale.ROOT));
+        String pasteTimeout = props.getProperty("pasteTimeout");
+        pasteTimeoutNanos = (pasteTimeout == null || pasteTimeout.isBlank())
+                ? PasteInjector.DEFAULT_TIMEOUT_NANOS : TimeSpec.parseNanos(pasteTimeout);
+        if (pasteTimeoutNanos <= 0) {
+            throw new IllegalArgumentException("Paste timeout must be greater than zero");
+        }
+        String pasteSettle = props.getProperty("pasteSettle");
+        pasteSettleNanos = (pasteSettle == null || pasteSettle.isBlank())
+                ? PasteInjector.DEFAULT_SETTLE_NANOS : TimeSpec.parseNanos(pasteSettle);
+
+        String duration = props.getProperty("duration");
+        durationNanos = (duration == null || duration.isBlank()) ? UNLIMITED : TimeSpec.parseNanos(duration);
+
+        String actionName = props.getProperty("action");
+        action = (actionName == null || actionName.isBlank()) ? null : PressAction.fromLabel(actionName);
+
+        String delay = props.getProperty("delay");
+        startDelayNanos = (delay == null) ? DEFAULT_DELAY_NANOS : TimeSpec.parseNanos(delay);
+
+        String missed = props.getProperty("missedDeadlines", "catch-up").trim();
+        missedDeadlinePolicy = switch (missed.toLowerCase()) {
+            case "catch-up", "catch_up", "catchup" -> MissedDeadlinePolicy.CATCH_UP;
+            case "skip" -> MissedDeadlinePolicy.SKIP;
+            default -> throw new IllegalArgumentException("Unknown missedDeadlines policy: " + missed);
+        };
+
+        dryRun = Boolean.parseBoolean(props.getProperty("dryRun", "false").trim());
+        simulate = Boolean.parseBoolean(props.getProperty("simulate", "false").trim());
+        String simulateCost = props.getProperty("simulateCost");
+        simulateCostNanos = (simulateCost == null || simulateCost.isBlank()) ? 0 : TimeSpec.parseNanos(simulateCost);
+        if (simulate && !singleSequence) {
+            throw new IllegalArgumentException("--simulate only applies to characters and --file runs");
+        }
+        if (simulate && file == null && durationNanos == UNLIMITED) {
+            throw new IllegalArgumentException("--simulate needs a duration");
+        }
+
+        String csv = props.getProperty("metricsCsv");
+        metricsCsv = (csv == null || csv.isBlank()) ? null : Path.of(csv);
+        metrics = metricsCsv != null || Boolean.parseBoolean(props.getProperty("metrics", "false").trim());
+        String metricsInterval = props.getProperty("metricsInterval");
+        metricsIntervalNanos = (metricsInterval == null)
+                ? DEFAULT_METRICS_INTERVAL_NANOS : TimeSpec.parseNanos(metricsInterval);
+        if (metricsIntervalNanos < 1_000_000L) {
+            throw new IllegalArgumentException("Metrics interval must be at least 1 ms");
+        }
+
+        hoverSteps = Integer.parseInt(props.getProperty("hoverSteps", "1").trim());
+        if (hoverSteps <= 0) {
+            throw new IllegalArgumentException("Hover steps must be positive: " + hoverSteps);
+        }
+        String hoverStepInterval = props.getProperty("hoverStepInterval");
+        hoverStepIntervalNanos = (hoverStepInterval == null)
+                ? DEFAULT_HOVER_STEP_INTERVAL_NANOS : TimeSpec.parseNanos(hoverStepInterval);
+        if (hoverStepIntervalNanos <= 0) {
+            throw new IllegalArgumentException("Hover step interval must be greater than zero");
+        }
+        hoverCurve = Boolean.parseBoolean(props.getProperty("hoverCurve", "false").trim());
+
+        String rateValue = props.getProperty("rate");
+        rate = (rateValue == null || rateValue.isBlank()) ? 0 : Double.parseDouble(rateValue.trim());
+        if (rate < 0 || Double.isNaN(rate) || Double.isInfinite(rate)) {
+            throw new IllegalArgumentException("Rate must be a positive number of presses per second: " + rateValue);
+        }
+        burst = Integer.parseInt(props.getProperty("burst", "10").trim());
+        if (burst <= 0) {
+            throw new IllegalArgumentException("Burst must be positive: " + burst);
+        }
+        String maxDrain = props.getProperty("maxDrain");
+        maxDrainNanos = (maxDrain == null) ? RateController.DEFAULT_MAX_DRAIN_NANOS : TimeSpec.parseNanos(maxDrain);
+        if (maxDrainNanos <= 0) {
+            throw new IllegalArgumentException("Max drain time must be greater than zero");
+        }
+
+        String journal = props.getProperty("journal");
+        journalFile = (journal == null || journal.isBlank()) ? null : Path.of(journal);
+        resume = Boolean.parseBoolean(props.getProperty("resume", "false").trim());
+        if (resume && journalFile == null) {
+            throw new IllegalArgumentException("--resume needs a --journal file");
+        }
+        if (journalFile != null && !singleSequence) {
+            throw new IllegalArgumentException("Checkpoints are only kept for characters and --file runs");
+        }
+        checkpointEvery = Long.parseLong(props.getProperty("checkpointEvery",
+                String.valueOf(CheckpointJournal.DEFAULT_EVERY_PRESSES)).trim());
+        String checkpointInterval = props.getProperty("checkpointInterval");
+        checkpointIntervalNanos = (checkpointInterval == null)
+                ? CheckpointJournal.DEFAULT_EVERY_NANOS : TimeSpec.parseNanos(checkpointInterval);
+        if (checkpointEvery <= 0 || checkpointIntervalNanos <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+
+        String log = props.getProperty("log");
+        logFile = (log == null || log.isBlank()) ? null : Path.of(log);
+        logFormat = LogFormat.forName(props.getProperty("logFormat", "text"));
+        String logMaxSize = props.getProperty("logMaxSize");
+        logMaxBytes = (logMaxSize == null) ? RunLogWriter.DEFAULT_MAX_BYTES : parseBytes(logMaxSize);
+        String logRotate = props.getProperty("logRotate");
+        logRotateNanos = (logRotate == null || logRotate.isBlank()) ? 0 : TimeSpec.parseNanos(logRotate);
+        logKeep = Integer.parseInt(props.getProperty("logKeep", String.valueOf(RunLogWriter.DEFAULT_KEEP_FILES)).trim());
+        if (logKeep < 0) {
+            throw new IllegalArgumentException("Log files to keep must not be negative: " + logKeep);
+        }
+
+        String threads = props.getProperty("laneThreads");
+        laneThreads = (threads == null)
+                ? Math.max(1, Math.min(lanes.size(), Runtime.getRuntime().availableProcessors()))
+                : Integer.parseInt(threads.trim());
+        if (laneThreads <= 0) {
+            throw new IllegalArgumentException("Lane threads must be positive: " + laneThreads);
+        }
+    }
+
+    /**
+     * Parses {@code [options] <characters> <interval> [duration]}.
+     *
+     * @throws HelpRequested if {@code -h} or {@code --help} stands where an option is expected
+     * @throws IllegalArgumentException for unknown options, missing values or invalid settings
+     */
+    public static RunConfig parse(String[] args) {
+        Properties props = new Properties();
+        Properties overrides = new Properties();
+        List<String> positional = new ArrayList<>();
+        List<String> laneArgs = new ArrayList<>();
+        List<String> watchArgs = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-h", "--help" -> throw new HelpRequested();
+                case "-c", "--config" -> loadConfigFile(Path.of(value(args, ++i, arg)), props);
+                case "-a", "--action" -> overrides.setProperty("action", value(args, ++i, arg));
+                case "-d", "--delay" -> overrides.setProperty("delay", value(args, ++i, arg));
+                case "--skip-missed" -> overrides.setProperty("missedDeadlines", "skip");
+                case "--dry-run" -> overrides.setProperty("dryRun", "true");
+                case "--simulate" -> overrides.setProperty("simulate", "true");
+                case "--simulate-cost" -> overrides.setProperty("simulateCost", value(args, ++i, arg));
+                case "--journal" -> overrides.setProperty("journal", value(args, ++i, arg));
+                case "--resume" -> overrides.setProperty("resume", "true");
+                case "--checkpoint-every" -> overrides.setProperty("checkpointEvery", value(args, ++i, arg));
+                case "--checkpoint-interval" -> overrides.setProperty("checkpointInterval", value(args, ++i, arg));
+                case "--log" -> overrides.setProperty("log", value(args, ++i, arg));
+                case "--log-format" -> overrides.setProperty("logFormat", value(args, ++i, arg));
+                case "--log-max-size" -> overrides.setProperty("logMaxSize", value(args, ++i, arg));
+                case "--log-rotate" -> overrides.setProperty("logRotate", value(args, ++i, arg));
+                case "--log-keep" -> overrides.setProperty("logKeep", value(args, ++i, arg));
+                case "-f", "--file" -> overrides.setProperty("file", value(args, ++i, arg));
+                case "--offset" -> overrides.setProperty("offset", value(args, ++i, arg));
+                case "--encoding" -> overrides.setProperty("encoding", value(args, ++i, arg));
+                case "--metrics" -> overrides.setProperty("metrics", "true");
+                case "--metrics-csv" -> overrides.setProperty("metricsCsv", value(args, ++i, arg));
+                case "--metrics-interval" -> overrides.setProperty("metricsInterval", value(args, ++i, arg));
+                case "--hover-steps" -> overrides.setProperty("hoverSteps", value(args, ++i, arg));
+                case "--hover-step-interval" -> overrides.setProperty("hoverStepInterval", value(args, ++i, arg));
+                case "--hover-curve" -> overrides.setProperty("hoverCurve", "true");
+                case "--lane" -> laneArgs.add(value(args, ++i, arg));
+                case "--lane-threads" -> overrides.setProperty("laneThreads", value(args, ++i, arg));
+                case "--record" -> overrides.setProperty("record", value(args, ++i, arg));
+                case "--replay" -> overrides.setProperty("replay", value(args, ++i, arg));
+                case "--speed" -> overrides.setProperty("speed", value(args, ++i, arg));
+                case "--layout" -> overrides.setProperty("layout", value(args, ++i, arg));
+                case "--unicode-input" -> overrides.setProperty("unicodeInput", value(args, ++i, arg));
+                case "--rate" -> overrides.setProperty("rate", value(args, ++i, arg));
+                case "--burst" -> overrides.setProperty("burst", value(args, ++i, arg));
+                case "--max-drain" -> overrides.setProperty("maxDrain", value(args, ++i, arg));
+                case "--control" -> overrides.setProperty("control", value(args, ++i, arg));
+                case "--web-root" -> overrides.setProperty("webRoot", value(args, ++i, arg));
+                case "--watch" -> watchArgs.add(value(args, ++i, arg));
+                case "--watch-interval" -> overrides.setProperty("watchInterval", value(args, ++i, arg));
+                case "--watch-cooldown" -> overrides.setProperty("watchCooldown", value(args, ++i, arg));
+                case "--watch-source" -> overrides.setProperty("watchSource", value(args, ++i, arg));
+                case "--script" -> overrides.setProperty("script", value(args, ++i, arg));
+                case "--paste" -> overrides.setProperty("paste", value(args, ++i, arg));
+                case "--paste-chunk" -> overrides.setProperty("pasteChunk", value(args, ++i, arg));
+                case "--paste-chord" -> overrides.setProperty("pasteChord", value(args, ++i, arg));
+                case "--paste-timeout" -> overrides.setProperty("pasteTimeout", value(args, ++i, arg));
+                case "--paste-settle" -> overrides.setProperty("pasteSettle", value(args, ++i, arg));
+                default -> {
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    }
+                    positional.add(arg);
+                }
+            }
+        }
+
+        props.putAll(overrides);
+        if (!laneArgs.isEmpty()) {
+            // Lanes on the command line replace any from the config file
+            props.keySet().removeIf(key -> key.toString().startsWith("lane."));
+            for (int i = 0; i < laneArgs.size(); i++) {
+                props.setProperty("lane." + (i + 1), laneArgs.get(i));
+            }
+        }
+        if (!watchArgs.isEmpty()) {
+            props.keySet().removeIf(key -> key.toString().startsWith("watch."));
+            for (int i = 0; i < watchArgs.size(); i++) {
+                props.setProperty("watch." + (i + 1), watchArgs.get(i));
+            }
+        }
+
+        // A file, script or watches replace the characters argument: <interval> [duration];
+        // lanes only take a duration and a replay, a paste or the control API takes no arguments
+        String[] keys = props.getProperty("replay") != null || props.getProperty("control") != null
+                || props.getProperty("paste") != null
+                ? new String[0]
+                : hasLanes(props)
+                ? new String[] {"duration"}
+                : props.getProperty("file") != null || props.getProperty("script") != null || hasWatches(props)
+                ? new String[] {"interval", "duration"}
+                : new String[] {"characters", "interval", "duration"};
+        if (positional.size() > keys.length) {
+            throw new IllegalArgumentException("Too many arguments: " + positional.subList(keys.length, positional.size()));
+        }
+        for (int i = 0; i < positional.size(); i++) {
+            props.setProperty(keys[i], positional.get(i));
+        }
+
+        return new RunConfig(props);
+    }
+
+    private static boolean hasLanes(Properties props) {
+        return props.stringPropertyNames().stream().anyMatch(key -> key.startsWith("lane."));
+    }
+
+    private static boolean hasWatches(Properties props) {
+        return props.stringPropertyNames().stream().anyMatch(key -> key.startsWith("watch."));
+    }
+
+    private static List<LaneSpec> parseLanes(Properties props, KeyboardLayout layout, UnicodeInput unicodeInput) {
+        Map<Integer, String> specs = new TreeMap<>();
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith("lane.")) {
+                try {
+                    specs.put(Integer.parseInt(key.substring("lane.".length())), props.getProperty(key));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Lane keys are lane.1, lane.2, ...: " + key);
+                }
+            }
+        }
+        String duration = props.getProperty("duration");
+        long defaultDuration = (duration == null || duration.isBlank()) ? UNLIMITED : TimeSpec.parseNanos(duration);
+
+        List<LaneSpec> lanes = new ArrayList<>(specs.size());
+        for (Map.Entry<Integer, String> spec : specs.entrySet()) {
+            lanes.add(parseLane("lane " + spec.getKey(), spec.getValue(), defaultDuration, layout, unicodeInput));
+        }
+        return lanes;
+    }
+
+    /**
+     * Parses {@code characters|interval[|duration[|action]]}, e.g. {@code Hello|50ms|10s|Space Bar}.
+     * Without a duration the lane uses {@code defaultDuration}.
+     */
+    static LaneSpec parseLane(String name, String spec, long defaultDuration,
+                              KeyboardLayout layout, UnicodeInput unicodeInput) {
+        String[] parts = spec.split("\\|", -1);
+        if (parts.length < 2 || parts.length > 4) {
+            throw new IllegalArgumentException("Lane must be characters|interval[|duration[|action]]: " + spec);
+        }
+        KeystrokeProgram laneProgram = KeystrokeProgram.compile(CharacterArrayParser.parseCharacters(parts[0]), layout, unicodeInput);
+        long interval = TimeSpec.parseNanos(parts[1]);
+        long laneDuration = (parts.length > 2 && !parts[2].isBlank()) ? TimeSpec.parseNanos(parts[2]) : defaultDuration;
+        PressAction laneAction = (parts.length > 3 && !parts[3].isBlank()) ? PressAction.fromLabel(parts[3]) : null;
+        return new LaneSpec(name, laneProgram, interval, laneDuration, laneAction);
+    }
+
+    private static List<WatchTrigger> parseWatches(Properties props, KeyboardLayout layout, UnicodeInput unicodeInput) {
+        Map<Integer, String> specs = new TreeMap<>();
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith("watch.")) {
+                try {
+                    specs.put(Integer.parseInt(key.substring("watch.".length())), props.getProperty(key));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Watch keys are watch.1, watch.2, ...: " + key);
+                }
+            }
+        }
+        List<WatchTrigger> triggers = new ArrayList<>(specs.size());
+        for (Map.Entry<Integer, String> spec : specs.entrySet()) {
+            triggers.add(parseWatch("watch " + spec.getKey(), spec.getValue(), layout, unicodeInput));
+        }
+        return triggers;
+    }
+
+    /**
+     * Parses {@code x,y,width,height|condition|characters[|action]}, e.g.
+     * {@code 100,200,64,32|color:ff0000:20|F5}; conditions are described at {@link WatchCondition}.
+     */
+    static WatchTrigger parseWatch(String name, String spec, KeyboardLayout layout, UnicodeInput unicodeInput) {
+        String[] parts = spec.split("\\|", -1);
+        if (parts.length < 3 || parts.length > 4) {
+            throw new IllegalArgumentException("Watch must be x,y,width,height|condition|characters[|action]: " + spec);
+        }
+        String[] region = parts[0].split(",", -1);
+        if (region.length != 4) {
+            throw new IllegalArgumentException("Watch region must be x,y,width,height: " + parts[0]);
+        }
+        int[] bounds = new int[4];
+        for (int i = 0; i < 4; i++) {
+            try {
+                bounds[i] = Integer.parseInt(region[i].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Watch region must be x,y,width,height: " + parts[0]);
+            }
+        }
+        WatchCondition condition = WatchCondition.parse(parts[1]);
+        KeystrokeProgram watchProgram = KeystrokeProgram.compile(CharacterArrayParser.parseCharacters(parts[2]), layout, unicodeInput);
+        PressAction watchAction = (parts.length > 3 && !parts[3].isBlank()) ? PressAction.fromLabel(parts[3]) : null;
+        return new WatchTrigger(name, bounds[0], bounds[1], bounds[2], bounds[3], condition, watchProgram, watchAction);
+    }
+
+    private static Script loadScript(Path file, KeyboardLayout layout, UnicodeInput unicodeInput) {
+        String source;
+        try {
+            source = Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read script " + file + ": " + e.getMessage(), e);
+        }
+        try {
+            return Script.compile(source, layout, unicodeInput);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parses a size such as {@code 4096}, {@code 512K}, {@code 10M} or {@code 1G} (binary
+     * multiples); 0 means no limit.
+     */
+    static long parseBytes(String input) {
+        String text = input.trim().toUpperCase(Locale.ROOT);
+        int shift = 0;
+        if (text.endsWith("B")) {
+            text = text.substring(0, text.length() - 1);
+        }
+        if (!text.isEmpty()) {
+            switch (text.charAt(text.length() - 1)) {
+                case 'K' -> shift = 10;
+                case 'M' -> shift = 20;
+                case 'G' -> shift = 30;
+                default -> { }
+            }
+        }
+        if (shift > 0) {
+            text = text.substring(0, text.length() - 1).trim();
+        }
+        long value;
+        try {
+            value = Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid size '" + input + "' (use e.g. 4096, 512K or 10M)");
+        }
+        if (value < 0 || value > (Long.MAX_VALUE >> shift)) {
+            throw new IllegalArgumentException("Size out of range: " + input);
+        }
+        return value << shift;
+    }
+
+    private static void loadConfigFile(Path file, Properties props) {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            props.load(reader);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read config file " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+
+    private static String require(Properties props, String key) {
+        String value = props.getProperty(key);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing " + key);
+        }
+        return value;
+    }
+
+    /** Character sequence to cycle through, or {@code null} when streaming a {@link #getFile() file}. */
+    public String getCharacters() {
+        return characters;
+    }
+
+    public KeystrokeProgram getProgram() {
+        return program;
+    }
+
+    /** Text file to type once from start to end, or {@code null}. */
+    public Path getFile() {
+        return file;
+    }
+
+    public long getFileOffset() {
+        return fileOffset;
+    }
+
+    /** Encoding of {@link #getFile()} or {@link #getPasteFile()}. */
+    public Charset getFileEncoding() {
+        return fileEncoding;
+    }
+
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    /** Run length in nanoseconds, or {@link #UNLIMITED}. */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public PressAction getAction() {
+        return action;
+    }
+
+    public long getStartDelayNanos() {
+        return startDelayNanos;
+    }
+
+    public MissedDeadlinePolicy getMissedDeadlinePolicy() {
+        return missedDeadlinePolicy;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    /** Whether to run the schedule in simulated time and check it instead of pressing keys. */
+    public boolean isSimulate() {
+        return simulate;
+    }
+
+    /** Simulated time each output event takes under {@link #isSimulate()}. */
+    public long getSimulateCostNanos() {
+        return simulateCostNanos;
+    }
+
+    /** Whether to collect per-press timing and publish it over JMX. */
+    public boolean isMetricsEnabled() {
+        return metrics;
+    }
+
+    /** File that receives periodic metrics rows, or {@code null}. */
+    public Path getMetricsCsv() {
+        return metricsCsv;
+    }
+
+    public long getMetricsIntervalNanos() {
+        return metricsIntervalNanos;
+    }
+
+    /** Moves per hover action; 1 jumps at once. */
+    public int getHoverSteps() {
+        return hoverSteps;
+    }
+
+    public long getHoverStepIntervalNanos() {
+        return hoverStepIntervalNanos;
+    }
+
+    /** Whether hover glides arc along a curve instead of a straight line. */
+    public boolean isHoverCurve() {
+        return hoverCurve;
+    }
+
+    /** Independent sequences to run at once; empty for a single-sequence run. */
+    public List<LaneSpec> getLanes() {
+        return lanes;
+    }
+
+    public int getLaneThreads() {
+        return laneThreads;
+    }
+
+    /** File to record every sent event to as a macro, or {@code null}. */
+    public Path getRecordFile() {
+        return recordFile;
+    }
+
+    /** Macro to play back instead of typing characters, or {@code null}. */
+    public Path getReplayFile() {
+        return replayFile;
+    }
+
+    public double getReplaySpeed() {
+        return replaySpeed;
+    }
+
+    /** Target presses per second for adaptive rate control, or 0 for none. */
+    public double getRate() {
+        return rate;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public long getMaxDrainNanos() {
+        return maxDrainNanos;
+    }
+
+    /** Keyboard layout characters are typed on. */
+    public KeyboardLayout getLayout() {
+        return layout;
+    }
+
+    /** How characters the layout has no key for are entered. */
+    public UnicodeInput getUnicodeInput() {
+        return unicodeInput;
+    }
+
+    /** Checkpoint journal to keep, or {@code null}. */
+    public Path getJournalFile() {
+        return journalFile;
+    }
+
+    /** Whether to continue from the journal's last checkpoint instead of starting over. */
+    public boolean isResume() {
+        return resume;
+    }
+
+    public long getCheckpointEvery() {
+        return checkpointEvery;
+    }
+
+    public long getCheckpointIntervalNanos() {
+        return checkpointIntervalNanos;
+    }
+
+    /** Persistent run log to write, or {@code null}. */
+    public Path getLogFile() {
+        return logFile;
+    }
+
+    public LogFormat getLogFormat() {
+        return logFormat;
+    }
+
+    /** Size at which the run log is rotated, or 0 for no limit. */
+    public long getLogMaxBytes() {
+        return logMaxBytes;
+    }
+
+    /** Age at which the run log is rotated, or 0 for no limit. */
+    public long getLogRotateNanos() {
+        return logRotateNanos;
+    }
+
+    public int getLogKeep() {
+        return logKeep;
+    }
+
+    /** Port to serve the control API on, 0 for any free one, or -1 to run directly. */
+    public int getControlPort() {
+        return controlPort;
+    }
+
+    public boolean isControl() {
+        return controlPort >= 0;
+    }
+
+    /** Directory whose {@code index.html} the control API serves, or {@code null} for the default. */
+    public Path getWebRoot() {
+        return webRoot;
+    }
+
+    /** Screen regions to watch instead of typing right away; empty otherwise. */
+    public List<WatchTrigger> getWatches() {
+        return watches;
+    }
+
+    public long getWatchIntervalNanos() {
+        return watchIntervalNanos;
+    }
+
+    public long getWatchCooldownNanos() {
+        return watchCooldownNanos;
+    }
+
+    /** Image file watched instead of the screen, or {@code null}. */
+    public Path getWatchSource() {
+        return watchSource;
+    }
+
+    /** Macro script to run instead of cycling characters, or {@code null}. */
+    public Path getScriptFile() {
+        return scriptFile;
+    }
+
+    /** {@link #getScriptFile()} compiled for the configured layout, or {@code null}. */
+    public Script getScript() {
+        return script;
+    }
+
+    /** Text file to paste through the clipboard, read in {@link #getFileEncoding()}, or {@code null}. */
+    public Path getPasteFile() {
+        return pasteFile;
+    }
+
+    public int getPasteChunkChars() {
+        return pasteChunkChars;
+    }
+
+    /** Keystroke that pastes, as packed by {@link KeyboardLayout#stroke}. */
+    public int getPasteChord() {
+        return pasteChord;
+    }
+
+    public long getPasteTimeoutNanos() {
+        return pasteTimeoutNanos;
+    }
+
+    public long getPasteSettleNanos() {
+        return pasteSettleNanos;
+    }
+
+    /**
+     * Identifies what this run types and how, so a journal is only resumed by the same run.
+     * The start offset, delay and instrumentation settings are not part of it.
+     */
+    public long getConfigHash() {
+        String what = file != null ? file.toAbsolutePath().normalize() + "|" + fileEncoding : characters;
+        return CheckpointJournal.configHash(what, String.valueOf(intervalNanos), String.valueOf(durationNanos),
+                String.valueOf(action), layout.getName(), unicodeInput.name());
+    }
+
+    /** Thrown by {@link #parse} for {@code -h} or {@code --help}; not an error. */
+    public static final class HelpRequested extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        HelpRequested() {
+            super("Help requested", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package autokeypresser.control;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import autokeypresser.engine.CharacterArrayParser;
+import autokeypresser.engine.EngineService;
+import autokeypresser.engine.KeystrokeProgram;
+import autokeypresser.engine.PressAction;
+import autokeypresser.engine.PressEngine;
+import autokeypresser.engine.PressSettings;
+import autokeypresser.engine.TimeSpec;
+import autokeypresser.layout.KeyboardLayout;
+import autokeypresser.layout.UnicodeInput;
+import autokeypresser.log.PressLogBuffer;
+import autokeypresser.log.RunLogWriter;
+import autokeypresser.metrics.PressMetrics;
+import autokeypresser.output.KeystrokeOutput;
+
+/**
+ * Local HTTP control API for one engine, so {@code web/index.html} or a script can start,
+ * stop and retune runs of a headless instance and watch them live.
+ *
+ * <pre>
+ * GET  /                  the web page, if a web root is set
+ * GET  /api/status        state, settings and counters as JSON
+ * POST /api/start         {"characters":"A,B,C","interval":"100ms","duration":"1m","action":"Space Bar","delay":"0s"}
+ * POST /api/reconfigure   any of characters, interval and action; applied on the next tick
+ * POST /api/stop
+ * GET  /api/events        Server-Sent Events: status, batched presses and metrics (see {@link EventStream})
+ * </pre>
+ *
+ * Runs go through an {@link EngineService}, so reconfiguring never restarts the run. The
+ * server binds to the loopback address only and answers only requests whose {@code Host}
+ * is the loopback address or {@code localhost} with its port, which keeps a web page on
+ * another site from reaching it by DNS rebinding. Commands must be POSTed as
+ * {@code application/json}, which a page on another origin cannot send without a CORS
+ * preflight that the server never approves. Requests are handled on a small pool of daemon
+ * threads; event streams do not hold on to one.
+ */
+public final class ControlServer implements AutoCloseable {
+
+    /** Threads that handle requests. */
+    public static final int DEFAULT_THREADS = 4;
+
+    private static final int PRESS_LOG_CAPACITY = 8192;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private final KeyboardLayout layout;
+    private final UnicodeInput unicodeInput;
+    private final PressLogBuffer pressLog = new PressLogBuffer(PRESS_LOG_CAPACITY);
+    private final PressMetrics metrics = new PressMetrics();
+    private final PressEngine engine;
+    private final EngineService service;
+    private final EventStream events;
+    private long defaultDelayNanos;
+    private Path webRoot;
+    private RunLogWriter runLog;
+    private HttpServer server;
+    private ExecutorService executor;
+    private int port;
+    private boolean closed;
+
+    // Written by the engine worker through the listener
+    private volatile boolean pressing;
+    private volatile String lastRun;
+
+    /** Characters are compiled for {@code layout}, falling back to {@code unicodeInput}. */
+    public ControlServer(KeystrokeOutput output, KeyboardLayout layout, UnicodeInput unicodeInput) {
+        this.layout = layout;
+        this.unicodeInput = unicodeInput;
+        this.engine = new PressEngine(output, pressLog);
+        this.engine.setMetrics(metrics);
+        this.events = new EventStream(pressLog, this::statusJson, this::metricsJson);
+        this.service = new EngineService(engine, new EngineService.Listener() {
+            @Override
+            public void runStarted() {
+                pressing = true;
+                events.publishStatus();
+            }
+
+            @Override
+            public void runFinished(long presses, boolean stopped, Exception error) {
+                pressing = false;
+                StringBuilder json = new StringBuilder("{\"presses\":").append(presses)
+                        .append(",\"stopped\":").append(stopped).append(",\"error\":");
+                if (error != null) {
+                    Json.quote(json, String.valueOf(error.getMessage()));
+                } else {
+                    json.append("null");
+                }
+                lastRun = json.append('}').toString();
+                if (runLog != null) {
+                    runLog.event("Done: " + presses + " presses" + (stopped ? ", stopped" : "")
+                            + (error != null ? ", failed: " + error.getMessage() : ""));
+                }
+                events.publishStatus();
+            }
+        });
+    }
+
+    /** Engine for further setup, such as its missed-deadline policy; configure before {@link #start}. */
+    public PressEngine getEngine() {
+        return engine;
+    }
+
+    /** Timing of every run served, across runs. */
+    public PressMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** Start delay for runs whose request gives none. */
+    public void setDefaultDelay(long delayNanos) {
+        this.defaultDelayNanos = delayNanos;
+    }
+
+    /** Directory whose {@code index.html} is served at {@code /}; {@code null} serves nothing. */
+    public void setWebRoot(Path webRoot) {
+        this.webRoot = webRoot;
+    }
+
+    /** Logs every press and each run's start and end. */
+    public void setRunLog(RunLogWriter runLog) {
+        this.runLog = runLog;
+        engine.setRunLog(runLog);
+    }
+
+    /**
+     * Starts listening on the loopback address.
+     *
+     * @param port TCP port, or 0 for any free one
+     * @return the port listened on
+     */
+    public int start(int port) throws IOException {
+        // Small responses would otherwise wait out delayed ACKs: ~40 ms per request on Linux.
+        // Read once, when the first server in the JVM is created
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(DEFAULT_THREADS, task -> {
+            Thread thread = new Thread(task, "autokeypresser-http-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        this.port = server.getAddress().getPort();
+        return this.port;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /** Base URL of the server, e.g. {@code http://127.0.0.1:8765/}. */
+    public String getUrl() {
+        String host = InetAddress.getLoopbackAddress().getHostAddress();
+        return "http://" + (host.indexOf(':') >= 0 ? "[" + host + "]" : host) + ":" + port + "/";
+    }
+
+    /** Whether a run is active, including its start delay. */
+    public boolean isActive() {
+        return service.isActive();
+    }
+
+    /** Stops any run, closes every event stream and the server. Idempotent. */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        service.close();
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+        events.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!isLocalHost(exchange.getRequestHeaders().getFirst("Host"))) {
+                respond(exchange, 403, error("Host not allowed"));
+                return;
+            }
+            String method = exchange.getRequestMethod();
+            switch (exchange.getRequestURI().getPath()) {
+                case "/", "/index.html" -> {
+                    requireMethod(method, "GET");
+                    serveIndex(exchange);
+                }
+                case "/api/status" -> {
+                    requireMethod(method, "GET");
+                    respond(exchange, 200, statusJson());
+                }
+                case "/api/events" -> {
+                    requireMethod(method, "GET");
+                    exchange.getRequestBody().close();
+                    events.subscribe(exchange);
+                }
+                case "/api/start" -> respond(exchange, 200, start(readCommand(exchange)));
+                case "/api/reconfigure" -> respond(exchange, 200, reconfigure(readCommand(exchange)));
+                case "/api/stop" -> {
+                    readCommand(exchange);
+                    service.stop();
+                    respond(exchange, 200, statusJson());
+                }
+                default -> respond(exchange, 404, error("Not found"));
+            }
+        } catch (HttpError e) {
+            respond(exchange, e.status, error(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, error(e.getMessage()));
+        } catch (IllegalStateException e) {
+            respond(exchange, 409, error(e.getMessage()));
+        } catch (RuntimeException e) {
+            // A bug rather than a bad request, but the client still gets an answer
+            respond(exchange, 500, error("Internal error: " + e));
+        }
+    }
+
+    private String start(Map<String, String> command) {
+        String characters = command.get("characters");
+        String interval = command.get("interval");
+        if (characters == null || characters.isEmpty() || interval == null) {
+            throw new IllegalArgumentException("Start needs characters and an interval");
+        }
+        PressSettings settings = new PressSettings(compile(characters), TimeSpec.parseNanos(interval),
+                parseAction(command.get("action")));
+        String duration = command.get("duration");
+        long durationNanos = (duration == null || duration.isBlank()) ? Long.MAX_VALUE : TimeSpec.parseNanos(duration);
+        if (durationNanos <= 0) {
+            throw new IllegalArgumentException("Duration must be greater than zero");
+        }
+        String delay = command.get("delay");
+        long delayNanos = (delay == null || delay.isBlank()) ? defaultDelayNanos : TimeSpec.parseNanos(delay);
+
+        service.start(settings, 0, durationNanos, delayNanos);
+        if (runLog != null) {
+            runLog.event("Started by control API: " + settings + (durationNanos != Long.MAX_VALUE
+                    ? " for " + TimeSpec.format(durationNanos) : ""));
+        }
+        events.publishStatus();
+        return statusJson();
+    }
+
+    private String reconfigure(Map<String, String> command) {
+        PressSettings settings = service.getSettings();
+        if (settings == null) {
+            throw new IllegalStateException("Nothing to reconfigure; start a run first");
+        }
+        if (command.containsKey("characters")) {
+            settings = settings.withProgram(compile(command.get("characters")));
+        }
+        if (command.containsKey("interval")) {
+            settings = settings.withInterval(TimeSpec.parseNanos(command.get("interval")));
+        }
+        if (command.containsKey("action")) {
+            settings = settings.withAction(parseAction(command.get("action")));
+        }
+        service.reconfigure(settings);
+        if (runLog != null) {
+            runLog.event("Reconfigured by control API: " + settings);
+        }
+        events.publishStatus();
+        return statusJson();
+    }
+
+    private KeystrokeProgram compile(String characters) {
+        if (characters.isEmpty()) {
+            throw new IllegalArgumentException("Characters must not be empty");
+        }
+        return KeystrokeProgram.compile(CharacterArrayParser.parseCharacters(characters), layout, unicodeInput);
+    }
+
+    // Blank or "none" turns the action off
+    private static PressAction parseAction(String label) {
+        return (label == null || label.isBlank() || label.equalsIgnoreCase("none")) ? null : PressAction.fromLabel(label);
+    }
+
+    private String statusJson() {
+        StringBuilder json = new StringBuilder(256);
+        boolean active = service.isActive();
+        json.append("{\"state\":\"").append(!active ? "idle" : pressing ? "running" : "starting").append('"');
+        PressSettings settings = service.getSettings();
+        json.append(",\"settings\":");
+        if (settings != null) {
+            KeystrokeProgram program = settings.getProgram();
+            char[] characters = new char[program.length()];
+            for (int i = 0; i < characters.length; i++) {
+                characters[i] = program.character(i);
+            }
+            json.append("{\"characters\":");
+            Json.quote(json, new String(characters));
+            json.append(",\"interval\":");
+            Json.quote(json, TimeSpec.format(settings.getIntervalNanos()));
+            json.append(",\"action\":");
+            if (settings.getAction() != null) {
+                Json.quote(json, settings.getAction().getLabel());
+            } else {
+                json.append("null");
+            }
+            json.append('}');
+        } else {
+            json.append("null");
+        }
+        json.append(",\"presses\":").append(metrics.getPressCount());
+        json.append(",\"lastRun\":").append(lastRun != null ? lastRun : "null");
+        json.append(",\"subscribers\":").append(events.getSubscriberCount());
+        return json.append('}').toString();
+    }
+
+    private String metricsJson() {
+        return String.format(Locale.ROOT, "{\"presses\":%d,\"pressesPerSecond\":%.1f,\"latenessP50Micros\":%.1f,"
+                        + "\"latenessP99Micros\":%.1f,\"outputP99Micros\":%.1f,\"missedDeadlines\":%d}",
+                metrics.getPressCount(), metrics.getPressesPerSecond(), metrics.getLatenessP50Micros(),
+                metrics.getLatenessP99Micros(), metrics.getOutputP99Micros(), metrics.getMissedDeadlines());
+    }
+
+    private void serveIndex(HttpExchange exchange) throws IOException {
+        Path index = webRoot != null ? webRoot.resolve("index.html") : null;
+        if (index == null || !Files.isRegularFile(index)) {
+            respond(exchange, 404, error("No web page is served; use the /api endpoints"));
+            return;
+        }
+        byte[] page = Files.readAllBytes(index);
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+        send(exchange, 200, page);
+    }
+
+    /** Reads a POSTed JSON command; anything else is refused before the body is trusted. */
+    private static Map<String, String> readCommand(HttpExchange exchange) throws IOException {
+        requireMethod(exchange.getRequestMethod(), "POST");
+        String type = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (type == null || !type.toLowerCase(Locale.ROOT).startsWith("application/json")) {
+            throw new HttpError(415, "Commands must be sent as application/json");
+        }
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                throw new HttpError(413, "Command is larger than " + MAX_BODY_BYTES + " bytes");
+            }
+            String text = new String(body, StandardCharsets.UTF_8);
+            return text.isBlank() ? Map.of() : Json.parseObject(text);
+        }
+    }
+
+    private static void requireMethod(String method, String expected) {
+        if (!method.equals(expected)) {
+            throw new HttpError(405, method + " is not allowed here; use " + expected);
+        }
+    }
+
+    private boolean isLocalHost(String host) {
+        if (host == null) {
+            return false;
+        }
+        String suffix = ":" + port;
+        String name = host.toLowerCase(Locale.ROOT);
+        if (!name.endsWith(suffix)) {
+            return false;
+        }
+        name = name.substring(0, name.length() - suffix.length());
+        return name.equals("localhost") || name.equals("127.0.0.1") || name.equals("[::1]")
+                || name.equals("[" + InetAddress.getLoopbackAddress().getHostAddress() + "]");
+    }
+
+    private static String error(String message) {
+        return Json.quote(new StringBuilder("{\"error\":"), String.valueOf(message)).append('}').toString();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        send(exchange, status, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static final class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package autokeypresser.control;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import autokeypresser.log.PressLogBuffer;
+
+/**
+ * Fans live run events out to Server-Sent Events subscribers.
+ *
+ * One daemon thread drains the engine's {@link PressLogBuffer} every {@link #FRAME_MILLIS}
+ * and turns whatever accumulated into a single {@code presses} frame, so a fast run costs each
+ * client one write per frame rather than one per press, and the press thread never touches a
+ * socket. Status frames queued by other threads and a {@code metrics} frame once a second are
+ * made on the same thread. Each frame is encoded once and queued for every subscriber, whose
+ * own thread writes it out, so a client that stops reading stalls only its own stream. One
+ * that falls {@link #MAX_QUEUED_FRAMES} frames behind is disconnected, and a client that has
+ * gone away is dropped on its first failed write; browsers reconnect an {@code EventSource}
+ * and start again from a fresh status.
+ */
+final class EventStream implements AutoCloseable {
+
+    /** How often presses are batched into a frame. */
+    static final long FRAME_MILLIS = 50;
+
+    /** Frames a subscriber may have waiting, about five seconds of a busy run, before it is disconnected. */
+    static final int MAX_QUEUED_FRAMES = 100;
+
+    private static final int MAX_PRESSES_PER_FRAME = 4096;
+    private static final long METRICS_MILLIS = 1000;
+    private static final long KEEP_ALIVE_MILLIS = 15_000;
+
+    private final PressLogBuffer pressLog;
+    private final Supplier<String> status;
+    private final Supplier<String> metrics;
+    private final Queue<String> pendingStatus = new ConcurrentLinkedQueue<>();
+    private final Queue<Subscriber> joining = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final AtomicInteger subscriberIds = new AtomicInteger();
+    private final Thread thread;
+    private volatile boolean closed;
+
+    // Event thread only
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private final StringBuilder frame = new StringBuilder(256);
+    private long lastMetricsMillis;
+    private long lastWriteMillis;
+
+    /**
+     * @param status  JSON for a {@code status} frame, sent to each new subscriber
+     * @param metrics JSON for the periodic {@code metrics} frame
+     */
+    EventStream(PressLogBuffer pressLog, Supplier<String> status, Supplier<String> metrics) {
+        this.pressLog = pressLog;
+        this.status = status;
+        this.metrics = metrics;
+        this.thread = new Thread(this::run, "autokeypresser-events");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /** Takes over {@code exchange}'s response body; the handler returns without closing it. */
+    void subscribe(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        exchange.sendResponseHeaders(200, 0);
+        subscriberCount.incrementAndGet();
+        Subscriber subscriber = new Subscriber(exchange);
+        subscriber.queue.add(encode("status", status.get()));
+        subscriber.writer.start();
+        joining.add(subscriber);
+    }
+
+    /** Queues a {@code status} frame for every subscriber. */
+    void publishStatus() {
+        if (subscriberCount.get() > 0) {
+            pendingStatus.add(status.get());
+        }
+    }
+
+    int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.disconnect();
+        }
+        for (Subscriber subscriber; (subscriber = joining.poll()) != null; ) {
+            subscriber.disconnect();
+        }
+    }
+
+    private void run() {
+        while (!closed) {
+            try {
+                Thread.sleep(FRAME_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            for (Subscriber subscriber; (subscriber = joining.poll()) != null; ) {
+                subscribers.add(subscriber);
+            }
+            for (String json; (json = pendingStatus.poll()) != null; ) {
+                broadcast("status", json, now);
+            }
+
+            // Drained with or without subscribers, so the buffer never fills while nobody watches
+            frame.setLength(0);
+            frame.append("{\"presses\":[");
+            int count = pressLog.drain(this::appendPress, MAX_PRESSES_PER_FRAME);
+            long dropped = pressLog.takeDropped();
+            if (count > 0) {
+                frame.setLength(frame.length() - 1);
+            }
+            frame.append("],\"dropped\":").append(dropped).append('}');
+            if (count > 0 || dropped > 0) {
+                broadcast("presses", frame.toString(), now);
+            }
+
+            if (now - lastMetricsMillis >= METRICS_MILLIS) {
+                lastMetricsMillis = now;
+                if (!subscribers.isEmpty()) {
+                    broadcast("metrics", metrics.get(), now);
+                }
+            }
+            if (now - lastWriteMillis >= KEEP_ALIVE_MILLIS) {
+                // A comment line; finds clients that left while nothing was running
+                broadcast(null, null, now);
+            }
+        }
+    }
+
+    private void appendPress(long pressNumber, char character, long position, long timeMillis) {
+        frame.append('[').append(pressNumber).append(',');
+        Json.quote(frame, String.valueOf(character));
+        frame.append(',').append(position).append(',').append(timeMillis).append("],");
+    }
+
+    private void broadcast(String event, String json, long now) {
+        byte[] text = encode(event, json);
+        Iterator<Subscriber> it = subscribers.iterator();
+        while (it.hasNext()) {
+            Subscriber subscriber = it.next();
+            if (subscriber.done.get() || !subscriber.queue.offer(text)) {
+                // Gone, or too far behind to catch up
+                subscriber.disconnect();
+                it.remove();
+            }
+        }
+        lastWriteMillis = now;
+    }
+
+    private static byte[] encode(String event, String json) {
+        String text = event == null ? ":\n\n" : "event: " + event + "\ndata: " + json + "\n\n";
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private final class Subscriber {
+        final HttpExchange exchange;
+        final OutputStream body;
+        final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(MAX_QUEUED_FRAMES);
+        final AtomicBoolean done = new AtomicBoolean();
+        final Thread writer;
+
+        Subscriber(HttpExchange exchange) {
+            this.exchange = exchange;
+            this.body = exchange.getResponseBody();
+            this.writer = new Thread(this::write, "autokeypresser-events-" + subscriberIds.incrementAndGet());
+            this.writer.setDaemon(true);
+        }
+
+        private void write() {
+            try {
+                while (!done.get()) {
+                    body.write(queue.take());
+                    // Frames that queued up while writing go out in one flush
+                    if (queue.isEmpty()) {
+                        body.flush();
+                    }
+                }
+            } catch (IOException | InterruptedException e) {
+                // Client gone, or disconnected by the event thread
+            }
+            done.set(true);
+            subscriberCount.decrementAndGet();
+            exchange.close();
+        }
+
+        /**
+         * Stops the writer, which then closes the exchange. Never waits for the socket: a writer
+         * blocked on a client that stopped reading finishes once that write returns or fails.
+         */
+        void disconnect() {
+            done.set(true);
+            writer.interrupt();
+        }
+    }
+}
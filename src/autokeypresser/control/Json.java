@@ -0,0 +1,175 @@
+package autokeypresser.control;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The little JSON the control API needs: request bodies are one flat object of strings,
+ * numbers, booleans and nulls, and responses are built by appending to a
+ * {@link StringBuilder}.
+ */
+final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * Parses a flat object such as {@code {"characters":"A,B","interval":"100ms"}}. Every
+     * value comes back as its text; {@code null} values are left out.
+     *
+     * @throws IllegalArgumentException for anything else, including nested objects and arrays
+     */
+    static Map<String, String> parseObject(String text) {
+        Parser parser = new Parser(text);
+        Map<String, String> values = new LinkedHashMap<>();
+        parser.expect('{');
+        if (!parser.skip('}')) {
+            do {
+                String key = parser.string();
+                parser.expect(':');
+                String value = parser.value();
+                if (value != null) {
+                    values.put(key, value);
+                }
+            } while (parser.skip(','));
+            parser.expect('}');
+        }
+        parser.end();
+        return values;
+    }
+
+    /** Appends {@code value} as a quoted JSON string. */
+    static StringBuilder quote(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        return out.append('"');
+    }
+
+    private static final class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        void expect(char c) {
+            if (!skip(c)) {
+                throw error("expected '" + c + "'");
+            }
+        }
+
+        boolean skip(char c) {
+            whitespace();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void end() {
+            whitespace();
+            if (pos != text.length()) {
+                throw error("unexpected text after the object");
+            }
+        }
+
+        String value() {
+            whitespace();
+            if (pos >= text.length()) {
+                throw error("expected a value");
+            }
+            char c = text.charAt(pos);
+            if (c == '"') {
+                return string();
+            }
+            if (c == '{' || c == '[') {
+                throw error("nested values are not supported");
+            }
+            int start = pos;
+            while (pos < text.length() && "-+.eE0123456789truefalsn".indexOf(text.charAt(pos)) >= 0) {
+                pos++;
+            }
+            String literal = text.substring(start, pos);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.equals("true") || literal.equals("false")) {
+                return literal;
+            }
+            try {
+                Double.parseDouble(literal);
+            } catch (NumberFormatException e) {
+                throw error("invalid value '" + literal + "'");
+            }
+            return literal;
+        }
+
+        String string() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case '"', '\\', '/' -> value.append(escaped);
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        if (pos + 4 > text.length()) {
+                            throw error("truncated \\u escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("invalid \\u escape");
+                        }
+                        pos += 4;
+                    }
+                    default -> throw error("invalid escape \\" + escaped);
+                }
+            }
+            throw error("unterminated string");
+        }
+
+        private void whitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid JSON at position " + pos + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package autokeypresser.engine;
+
+/** Parses the comma-separated character array entered in the UI. */
+public final class CharacterArrayParser {
+
+    private CharacterArrayParser() {
+    }
+
+    /**
+     * A plain string such as {@code hello} is typed character by character; anything with a
+     * comma uses the character array syntax of {@link #parse}.
+     */
+    public static char[] parseCharacters(String input) {
+        if (input.length() > 1 && input.indexOf(',') >= 0) {
+            return parse(input);
+        }
+        return input.toCharArray();
+    }
+
+    /**
+     * Parses input such as {@code A,B,C}, {@code 'A','B','C'} or {@code [A, B, C]}.
+     *
+     * @throws IllegalArgumentException if an element is empty or longer than one character
+     */
+    public static char[] parse(String input) {
+        input = input.trim();
+
+        // Remove brackets if present
+        if (input.startsWith("[") && input.endsWith("]")) {
+            input = input.substring(1, input.length() - 1);
+        }
+
+        // Split by comma
+        String[] parts = input.split(",");
+        char[] result = new char[parts.length];
+
+        for (int i = 0; i < parts.length; i++) {
+            String part = parts[i].trim();
+
+            // Remove quotes if present
+            if ((part.startsWith("'") && part.endsWith("'")) ||
+                (part.startsWith("\"") && part.endsWith("\""))) {
+                part = part.substring(1, part.length() - 1);
+            }
+
+            if (part.length() == 1) {
+                result[i] = part.charAt(0);
+            } else if (part.isEmpty()) {
+                throw new IllegalArgumentException("Empty character at position " + (i + 1));
+            } else {
+                throw new IllegalArgumentException("Invalid character at position " + (i + 1) + ": '" + part + "' (must be single character)");
+            }
+        }
+
+        return result;
+    }
+}
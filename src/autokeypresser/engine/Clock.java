@@ -0,0 +1,41 @@
+package autokeypresser.engine;
+
+/**
+ * Time source the press loop is scheduled on. {@link #SYSTEM} is real time; a
+ * {@link autokeypresser.sim.VirtualClock} lets a whole run execute in simulated time, so an
+ * hour-long schedule can be checked in milliseconds.
+ */
+public interface Clock {
+
+    /** {@link System#nanoTime()}, {@link System#currentTimeMillis()} and a {@link HybridSleeper}. */
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public Sleeper newSleeper() {
+            return new HybridSleeper();
+        }
+
+        @Override
+        public String toString() {
+            return "system clock";
+        }
+    };
+
+    /** Monotonic time in nanoseconds; only differences are meaningful. */
+    long nanoTime();
+
+    /** Wall-clock time in milliseconds since the epoch, used to timestamp log entries. */
+    long currentTimeMillis();
+
+    /** A sleeper that waits on this clock's {@link #nanoTime()} timeline, for one thread. */
+    Sleeper newSleeper();
+}
@@ -0,0 +1,178 @@
+package autokeypresser.engine;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Owns one long-lived worker thread that runs a {@link PressEngine}, so a front end starts,
+ * stops and retunes runs without creating threads or restarting.
+ *
+ * The current {@link PressSettings} is an immutable snapshot held in an
+ * {@link AtomicReference}. {@link #reconfigure} swaps it and unparks the worker, which picks
+ * it up on the next tick without losing its place in the sequence or pausing. Only the start
+ * of a run waits for the start delay.
+ */
+public final class EngineService implements AutoCloseable {
+
+    /** Run events, called on the worker thread. */
+    public interface Listener {
+        /** The start delay is over and the first press is about to fire. */
+        void runStarted();
+
+        /**
+         * A run has ended.
+         *
+         * @param stopped whether {@link #stop()} ended it
+         * @param error   what ended it, or {@code null} if it completed or was stopped
+         */
+        void runFinished(long presses, boolean stopped, Exception error);
+    }
+
+    private final PressEngine engine;
+    private final Listener listener;
+    private final AtomicReference<PressSettings> settings = new AtomicReference<>();
+    private final Thread worker;
+    private final Object lock = new Object();
+
+    // Guarded by lock
+    private int pendingStartIndex = -1;
+    private long pendingDurationNanos;
+    private long pendingDelayNanos;
+    private boolean active;
+    private boolean stopRequested;
+    private boolean closed;
+
+    public EngineService(PressEngine engine, Listener listener) {
+        this.engine = engine;
+        this.listener = listener;
+        this.worker = new Thread(this::work, "autokeypresser-engine");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Starts a run of {@code initial} at {@code startIndex} for {@code durationNanos}, after
+     * {@code startDelayNanos}. Returns at once.
+     *
+     * @throws IllegalStateException if a run is already active or the service is closed
+     * @throws IllegalArgumentException if {@code startIndex} is outside the program
+     */
+    public void start(PressSettings initial, int startIndex, long durationNanos, long startDelayNanos) {
+        if (startIndex < 0 || startIndex >= initial.getProgram().length()) {
+            throw new IllegalArgumentException("Start index " + startIndex + " is outside the program");
+        }
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Engine service is closed");
+            }
+            if (active) {
+                throw new IllegalStateException("A run is already active");
+            }
+            settings.set(initial);
+            pendingStartIndex = startIndex;
+            pendingDurationNanos = durationNanos;
+            pendingDelayNanos = startDelayNanos;
+            active = true;
+            stopRequested = false;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Replaces the settings; an active run applies them on its next tick. Between runs it
+     * only changes what {@link #getSettings()} returns.
+     */
+    public void reconfigure(PressSettings next) {
+        if (next == null) {
+            throw new IllegalArgumentException("Settings must not be null");
+        }
+        settings.set(next);
+        LockSupport.unpark(worker);
+    }
+
+    /** Ends the active run, also during its start delay. Does nothing between runs. */
+    public void stop() {
+        synchronized (lock) {
+            if (!active) {
+                return;
+            }
+            // Under the lock, so the interrupt cannot reach a later run
+            stopRequested = true;
+            engine.stop();
+            worker.interrupt();
+        }
+    }
+
+    /** Whether a run has been started and has not finished, including its start delay. */
+    public boolean isActive() {
+        synchronized (lock) {
+            return active;
+        }
+    }
+
+    /** Current settings snapshot, or {@code null} before the first run. */
+    public PressSettings getSettings() {
+        return settings.get();
+    }
+
+    public PressEngine getEngine() {
+        return engine;
+    }
+
+    /** Stops any active run and ends the worker. */
+    @Override
+    public void close() {
+        stop();
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+    }
+
+    private void work() {
+        while (true) {
+            int startIndex;
+            long durationNanos;
+            long delayNanos;
+            synchronized (lock) {
+                while (pendingStartIndex < 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // A stop that raced the end of the last run; nothing to stop
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+                startIndex = pendingStartIndex;
+                durationNanos = pendingDurationNanos;
+                delayNanos = pendingDelayNanos;
+                pendingStartIndex = -1;
+            }
+
+            long presses = 0;
+            Exception error = null;
+            try {
+                if (delayNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(delayNanos);
+                }
+                listener.runStarted();
+                presses = engine.run(settings::get, startIndex, durationNanos);
+            } catch (InterruptedException e) {
+                // Stopped
+            } catch (RuntimeException e) {
+                error = e;
+            }
+
+            boolean stopped;
+            synchronized (lock) {
+                stopped = stopRequested;
+                active = false;
+                Thread.interrupted(); // Clear a stop's interrupt before the next run
+            }
+            listener.runFinished(presses, stopped, error);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package autokeypresser.engine;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Waits until an absolute {@link System#nanoTime()} deadline: parks until shortly before it
+ * and spins the remainder, which gives sub-millisecond precision without burning a core on
+ * long waits. The spin window adapts to how far parking overshoots on this machine.
+ *
+ * This is the {@link Sleeper} of {@link Clock#SYSTEM}. Keeps per-thread state, so each
+ * waiting thread needs its own instance.
+ */
+public final class HybridSleeper implements Sleeper {
+
+    private static final long MIN_SPIN_NANOS = 20_000L;
+    private static final long MAX_SPIN_NANOS = 2_000_000L;
+    private static final BooleanSupplier NEVER = () -> false;
+
+    // Moving average of how far parkNanos overshoots, used to size the spin window
+    private long parkOvershootNanos = MIN_SPIN_NANOS;
+
+    @Override
+    public void waitUntil(long deadline) throws InterruptedException {
+        waitUntil(deadline, NEVER);
+    }
+
+    /**
+     * {@inheritDoc} {@code wakeUp} is checked before parking and whenever the thread is
+     * unparked ({@link LockSupport#unpark}).
+     */
+    @Override
+    public boolean waitUntil(long deadline, BooleanSupplier wakeUp) throws InterruptedException {
+        long remaining = deadline - System.nanoTime();
+        long spinWindow = Math.min(MAX_SPIN_NANOS, Math.max(MIN_SPIN_NANOS, parkOvershootNanos * 2));
+
+        while (remaining > spinWindow) {
+            if (wakeUp.getAsBoolean()) {
+                return false;
+            }
+            long parkFor = remaining - spinWindow;
+            long parkedAt = System.nanoTime();
+            LockSupport.parkNanos(this, parkFor);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            long overshoot = (System.nanoTime() - parkedAt) - parkFor;
+            if (overshoot > 0) {
+                parkOvershootNanos += (overshoot - parkOvershootNanos) >> 3;
+            }
+            remaining = deadline - System.nanoTime();
+        }
+
+        while (deadline - System.nanoTime() > 0) {
+            Thread.onSpinWait();
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,214 @@
+package autokeypresser.engine;
+
+import java.util.Arrays;
+
+import autokeypresser.layout.KeyboardLayout;
+import autokeypresser.layout.UnicodeInput;
+
+/**
+ * A character sequence compiled into parallel primitive tables of key codes and modifiers.
+ *
+ * Compilation resolves every character once per run through a {@link KeyboardLayout}
+ * (US unless given), and rejects anything the layout and the {@link UnicodeInput} fallback
+ * cannot type up front. The press loop then only indexes into {@link #keyCode(int)} and
+ * {@link #modifiers(int)}. Characters that take several keystrokes, such as a dead key
+ * followed by a letter, are kept as {@link #sequenceLength(int) sequences} that are sent as
+ * one press.
+ */
+public final class KeystrokeProgram {
+
+    /** Modifier bit: hold SHIFT while the key is pressed. */
+    public static final int MOD_SHIFT = 1;
+    /** Modifier bit: hold ALT GRAPH (the right ALT key on most European layouts). */
+    public static final int MOD_ALT_GRAPH = 2;
+    /** Modifier bit: hold CTRL. */
+    public static final int MOD_CONTROL = 4;
+    /** Modifier bit: hold ALT (Option on macOS). */
+    public static final int MOD_ALT = 8;
+    /** Modifier bit: hold META (Command on macOS). */
+    public static final int MOD_META = 16;
+
+    private final char[] characters;
+    private final int[] keyCodes;
+    private final int[] modifiers;
+    // Per character: offset into sequenceStrokes, or -1; null when no character needs a sequence
+    private final int[] sequenceOffsets;
+    private final int[] sequenceStrokes;
+
+    private KeystrokeProgram(char[] characters, int[] keyCodes, int[] modifiers,
+                             int[] sequenceOffsets, int[] sequenceStrokes) {
+        this.characters = characters;
+        this.keyCodes = keyCodes;
+        this.modifiers = modifiers;
+        this.sequenceOffsets = sequenceOffsets;
+        this.sequenceStrokes = sequenceStrokes;
+    }
+
+    /**
+     * Compiles {@code characters} for the US layout without a Unicode fallback.
+     *
+     * @see #compile(char[], KeyboardLayout, UnicodeInput)
+     */
+    public static KeystrokeProgram compile(char[] characters) {
+        return compile(characters, KeyboardLayout.us(), UnicodeInput.NONE);
+    }
+
+    /**
+     * Compiles {@code characters} into key code and modifier tables for {@code layout},
+     * entering characters it has no key for through {@code fallback}.
+     *
+     * @throws IllegalArgumentException if the sequence is empty or contains a character
+     *         that can be typed neither on the layout nor through the fallback
+     */
+    public static KeystrokeProgram compile(char[] characters, KeyboardLayout layout, UnicodeInput fallback) {
+        if (characters.length == 0) {
+            throw new IllegalArgumentException("Character array is empty");
+        }
+
+        int[] keyCodes = new int[characters.length];
+        int[] modifiers = new int[characters.length];
+        int[] sequenceOffsets = null;
+        int[] sequenceStrokes = new int[0];
+        int sequenceSize = 0;
+        int[] strokes = new int[UnicodeInput.MAX_STROKES];
+        for (int i = 0; i < characters.length; i++) {
+            char c = characters[i];
+            int count = layout.strokes(c, fallback, strokes);
+            if (count == 0) {
+                throw new IllegalArgumentException("Unsupported character at position " + (i + 1) + ": '" + c
+                        + "' (not on the " + layout + " layout)");
+            }
+            // The last stroke stands for the character where a single key code is expected
+            keyCodes[i] = KeyboardLayout.keyCode(strokes[count - 1]);
+            modifiers[i] = KeyboardLayout.modifiers(strokes[count - 1]);
+            if (count > 1) {
+                if (sequenceOffsets == null) {
+                    sequenceOffsets = new int[characters.length];
+                    Arrays.fill(sequenceOffsets, -1);
+                }
+                if (sequenceSize + 1 + count > sequenceStrokes.length) {
+                    sequenceStrokes = Arrays.copyOf(sequenceStrokes, Math.max(16, (sequenceSize + 1 + count) * 2));
+                }
+                sequenceOffsets[i] = sequenceSize;
+                sequenceStrokes[sequenceSize++] = count;
+                System.arraycopy(strokes, 0, sequenceStrokes, sequenceSize, count);
+                sequenceSize += count;
+            }
+        }
+        return new KeystrokeProgram(characters.clone(), keyCodes, modifiers, sequenceOffsets,
+                Arrays.copyOf(sequenceStrokes, sequenceSize));
+    }
+
+    /** Whether {@code c} has a key on the US layout. */
+    public static boolean isSupported(char c) {
+        return KeyboardLayout.us().isMapped(c);
+    }
+
+    public int length() {
+        return keyCodes.length;
+    }
+
+    public char character(int index) {
+        return characters[index];
+    }
+
+    public int keyCode(int index) {
+        return keyCodes[index];
+    }
+
+    public int modifiers(int index) {
+        return modifiers[index];
+    }
+
+    /**
+     * Number of keystrokes character {@code index} takes when it is more than one, otherwise 0
+     * and the character is typed with {@link #keyCode(int)} and {@link #modifiers(int)}.
+     */
+    public int sequenceLength(int index) {
+        if (sequenceOffsets == null || sequenceOffsets[index] < 0) {
+            return 0;
+        }
+        return sequenceStrokes[sequenceOffsets[index]];
+    }
+
+    /** Keystroke {@code stroke} of character {@code index}'s sequence, packed as by {@link KeyboardLayout#stroke}. */
+    public int sequenceStroke(int index, int stroke) {
+        return sequenceStrokes[sequenceOffsets[index] + 1 + stroke];
+    }
+
+    /** Returns a source that walks this program in an endless cycle, starting at index 0. */
+    public KeystrokeSource cycle() {
+        return cycle(0);
+    }
+
+    /**
+     * Returns a source that walks this program in an endless cycle, starting at
+     * {@code startIndex}, e.g. to resume after a checkpoint.
+     *
+     * @throws IllegalArgumentException if {@code startIndex} is outside the program
+     */
+    public KeystrokeSource cycle(int startIndex) {
+        if (startIndex < 0 || startIndex >= keyCodes.length) {
+            throw new IllegalArgumentException("Start index " + startIndex + " is outside 0.." + (keyCodes.length - 1));
+        }
+        return source(startIndex, true);
+    }
+
+    /** Returns a source that walks this program once and is then exhausted, e.g. for a triggered sequence. */
+    public KeystrokeSource once() {
+        return source(0, false);
+    }
+
+    private KeystrokeSource source(int startIndex, boolean endless) {
+        return new KeystrokeSource() {
+            private int index = startIndex - 1;
+
+            @Override
+            public boolean advance() {
+                if (++index == keyCodes.length) {
+                    if (!endless) {
+                        index--;
+                        return false;
+                    }
+                    index = 0;
+                }
+                return true;
+            }
+
+            @Override
+            public void pushBack() {
+                index--;
+            }
+
+            @Override
+            public int keyCode() {
+                return keyCodes[index];
+            }
+
+            @Override
+            public int modifiers() {
+                return modifiers[index];
+            }
+
+            @Override
+            public int sequenceLength() {
+                return sequenceOffsets == null ? 0 : KeystrokeProgram.this.sequenceLength(index);
+            }
+
+            @Override
+            public int sequenceStroke(int stroke) {
+                return KeystrokeProgram.this.sequenceStroke(index, stroke);
+            }
+
+            @Override
+            public char character() {
+                return characters[index];
+            }
+
+            @Override
+            public long position() {
+                return index;
+            }
+        };
+    }
+}
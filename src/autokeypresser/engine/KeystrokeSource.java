@@ -0,0 +1,51 @@
+package autokeypresser.engine;
+
+/**
+ * Sequence of resolved keystrokes consumed by {@link PressEngine}, one per tick.
+ *
+ * {@link KeystrokeProgram#cycle()} repeats a compiled character array forever;
+ * {@link autokeypresser.input.MappedTextSource} streams a file once.
+ */
+public interface KeystrokeSource {
+
+    /**
+     * Moves to the next keystroke.
+     *
+     * @return false when the source is exhausted
+     * @throws InterruptedException if the thread is interrupted while waiting for input
+     */
+    boolean advance() throws InterruptedException;
+
+    /**
+     * Gives back the keystroke the last {@link #advance()} moved to, for a run that stopped
+     * before pressing it: the next {@link #advance()} returns it again. Called at most once
+     * per advance.
+     */
+    void pushBack();
+
+    int keyCode();
+
+    int modifiers();
+
+    /**
+     * Number of keystrokes the current character takes when it is more than one, such as a
+     * dead key followed by a letter; 0 when {@link #keyCode()} and {@link #modifiers()} alone
+     * type it.
+     */
+    default int sequenceLength() {
+        return 0;
+    }
+
+    /**
+     * Keystroke {@code index} of the current character's sequence, packed as by
+     * {@link autokeypresser.layout.KeyboardLayout#stroke}.
+     */
+    default int sequenceStroke(int index) {
+        throw new IndexOutOfBoundsException("No keystroke sequence");
+    }
+
+    char character();
+
+    /** Position of the current keystroke: index into the sequence, or byte offset in a file. */
+    long position();
+}
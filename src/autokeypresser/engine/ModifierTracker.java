@@ -0,0 +1,77 @@
+package autokeypresser.engine;
+
+import java.awt.event.KeyEvent;
+
+import autokeypresser.layout.KeyboardLayout;
+import autokeypresser.output.KeystrokeOutput;
+
+/**
+ * Tracks which modifier keys are currently held on a {@link KeystrokeOutput} and only sends
+ * the press/release events needed to reach the modifiers the next keystroke requires.
+ *
+ * Typing {@code HELLO} through a tracker sends one SHIFT press and one SHIFT release around
+ * the five letters instead of five pairs. Callers must call {@link #releaseAll()} when they
+ * stop typing, typically in a {@code finally} block, so no modifier is ever left held.
+ * Not thread-safe; owned by the press thread.
+ */
+public final class ModifierTracker {
+
+    // Key code for each modifier bit, indexed by bit position
+    private static final int[] MODIFIER_KEY_CODES = {
+        KeyEvent.VK_SHIFT,     // KeystrokeProgram.MOD_SHIFT
+        KeyEvent.VK_ALT_GRAPH, // KeystrokeProgram.MOD_ALT_GRAPH
+        KeyEvent.VK_CONTROL,   // KeystrokeProgram.MOD_CONTROL
+        KeyEvent.VK_ALT,       // KeystrokeProgram.MOD_ALT
+        KeyEvent.VK_META,      // KeystrokeProgram.MOD_META
+    };
+
+    private final KeystrokeOutput output;
+    private int held;
+
+    public ModifierTracker(KeystrokeOutput output) {
+        this.output = output;
+    }
+
+    /** Presses and releases modifiers so that exactly {@code modifiers} are held. */
+    public void apply(int modifiers) {
+        int changed = held ^ modifiers;
+        if (changed == 0) {
+            return;
+        }
+        // Release first so a switch between modifiers never briefly holds both
+        int release = changed & held;
+        for (int bit = 0; release != 0; bit++, release >>>= 1) {
+            if ((release & 1) != 0) {
+                output.keyRelease(MODIFIER_KEY_CODES[bit]);
+            }
+        }
+        int press = changed & modifiers;
+        for (int bit = 0; press != 0; bit++, press >>>= 1) {
+            if ((press & 1) != 0) {
+                output.keyPress(MODIFIER_KEY_CODES[bit]);
+            }
+        }
+        held = modifiers;
+    }
+
+    /**
+     * Types one keystroke packed by {@link KeyboardLayout#stroke} with exactly its modifiers
+     * held. They stay held until the next {@link #apply} or {@link #releaseAll()}.
+     */
+    public void typeStroke(int stroke) {
+        apply(KeyboardLayout.modifiers(stroke));
+        int keyCode = KeyboardLayout.keyCode(stroke);
+        output.keyPress(keyCode);
+        output.keyRelease(keyCode);
+    }
+
+    /** Releases every held modifier. Safe to call when nothing is held. */
+    public void releaseAll() {
+        apply(0);
+    }
+
+    /** Modifier bits currently held down. */
+    public int getHeld() {
+        return held;
+    }
+}
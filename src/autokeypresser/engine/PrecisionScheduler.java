@@ -0,0 +1,181 @@
+package autokeypresser.engine;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Fixed-rate tick source driven by absolute {@link Clock#nanoTime()} deadlines.
+ *
+ * Tick {@code n} is due at {@code origin + n * interval}, so time spent pressing keys,
+ * logging or overshooting a park never accumulates into drift. Waiting is delegated to the
+ * clock's {@link Sleeper}; on {@link Clock#SYSTEM} that is a {@link HybridSleeper}, which
+ * parks until shortly before the deadline and spins the remainder.
+ */
+public final class PrecisionScheduler {
+
+    /** What to do when the press loop falls behind its deadlines. */
+    public enum MissedDeadlinePolicy {
+        /** Fire the missed ticks back-to-back until the schedule is caught up. */
+        CATCH_UP,
+        /** Drop the missed ticks and continue with the next deadline in the future. */
+        SKIP
+    }
+
+    /** Largest backlog CATCH_UP will replay; anything beyond (e.g. after a system suspend) is skipped. */
+    public static final long DEFAULT_MAX_CATCH_UP_TICKS = 1_000;
+
+    private long intervalNanos;
+    private final MissedDeadlinePolicy policy;
+    private final long maxCatchUpTicks;
+    private final Clock clock;
+    private final Sleeper sleeper;
+
+    private long originNanos;
+    private long tick;
+    private long lastDeadline;
+    private long lastFired;
+    private long skippedTicks;
+    private long lateTicks;
+
+    public PrecisionScheduler(long intervalNanos, MissedDeadlinePolicy policy) {
+        this(intervalNanos, policy, DEFAULT_MAX_CATCH_UP_TICKS);
+    }
+
+    public PrecisionScheduler(long intervalNanos, MissedDeadlinePolicy policy, long maxCatchUpTicks) {
+        this(intervalNanos, policy, maxCatchUpTicks, Clock.SYSTEM);
+    }
+
+    public PrecisionScheduler(long intervalNanos, MissedDeadlinePolicy policy, long maxCatchUpTicks, Clock clock) {
+        if (intervalNanos <= 0) {
+            throw new IllegalArgumentException("Interval must be positive: " + intervalNanos + " ns");
+        }
+        if (maxCatchUpTicks < 0) {
+            throw new IllegalArgumentException("Max catch-up ticks must not be negative: " + maxCatchUpTicks);
+        }
+        this.intervalNanos = intervalNanos;
+        this.policy = policy;
+        this.maxCatchUpTicks = maxCatchUpTicks;
+        this.clock = clock;
+        this.sleeper = clock.newSleeper();
+    }
+
+    /** Anchors tick 0 at the current instant; the first {@link #awaitNextTick()} returns immediately. */
+    public void start() {
+        start(clock.nanoTime());
+    }
+
+    public void start(long originNanos) {
+        this.originNanos = originNanos;
+        this.tick = 0;
+        this.skippedTicks = 0;
+        this.lateTicks = 0;
+    }
+
+    /**
+     * Blocks until the next tick is due and returns its absolute deadline.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting, mirroring
+     *         {@link Thread#sleep(long)} so existing stop handling keeps working
+     */
+    public long awaitNextTick() throws InterruptedException {
+        awaitNextTick(null);
+        return lastDeadline;
+    }
+
+    /**
+     * Blocks until the next tick is due, like {@link #awaitNextTick()}, unless {@code wakeUp}
+     * becomes true first (see {@link Sleeper#waitUntil(long, BooleanSupplier)}).
+     *
+     * @param wakeUp checked while waiting, or {@code null} to wait for the tick
+     * @return {@code true} when the tick is due, its deadline in {@link #lastDeadline()};
+     *         {@code false} if woken first, in which case the tick is still pending
+     */
+    public boolean awaitNextTick(BooleanSupplier wakeUp) throws InterruptedException {
+        long deadline = originNanos + tick * intervalNanos;
+        long now = clock.nanoTime();
+        boolean late = false;
+
+        if (now - deadline >= intervalNanos) {
+            // At least one whole tick behind
+            long behind = (now - deadline) / intervalNanos;
+            if (policy == MissedDeadlinePolicy.SKIP || behind > maxCatchUpTicks) {
+                skippedTicks += behind;
+                tick += behind;
+                deadline = originNanos + tick * intervalNanos;
+            } else {
+                late = true;
+            }
+        }
+
+        if (wakeUp == null) {
+            sleeper.waitUntil(deadline);
+        } else if (!sleeper.waitUntil(deadline, wakeUp)) {
+            return false;
+        }
+        if (late) {
+            lateTicks++;
+        }
+        tick++;
+        lastDeadline = deadline;
+        lastFired = now - deadline > 0 ? now : deadline;
+        return true;
+    }
+
+    /** Deadline of the tick the last successful wait returned. */
+    public long lastDeadline() {
+        return lastDeadline;
+    }
+
+    /**
+     * When the tick the last successful wait returned fired: its deadline, or the time the
+     * wait was entered if the tick was already overdue then. Costs no clock read.
+     */
+    public long lastFired() {
+        return lastFired;
+    }
+
+    /**
+     * Changes the interval from the next tick on: it is due one new interval after the last
+     * tick, or at once if that has already passed, and the schedule continues from there.
+     * Ticks a longer old interval left behind are not caught up.
+     *
+     * @throws IllegalArgumentException if {@code intervalNanos} is not positive
+     */
+    public void setInterval(long intervalNanos) {
+        if (intervalNanos <= 0) {
+            throw new IllegalArgumentException("Interval must be positive: " + intervalNanos + " ns");
+        }
+        if (tick > 0) {
+            originNanos = lastDeadline;
+            tick = 1;
+        }
+        this.intervalNanos = intervalNanos;
+        long now = clock.nanoTime();
+        if (nextDeadline() - now < 0) {
+            originNanos = now;
+            tick = 0;
+        }
+    }
+
+    /** Deadline of the tick that the next {@link #awaitNextTick()} will wait for (ignoring skips). */
+    public long nextDeadline() {
+        return originNanos + tick * intervalNanos;
+    }
+
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    public MissedDeadlinePolicy getPolicy() {
+        return policy;
+    }
+
+    /** Ticks dropped by the SKIP policy or because the CATCH_UP backlog exceeded its bound. */
+    public long getSkippedTicks() {
+        return skippedTicks;
+    }
+
+    /** Ticks that fired more than one interval after their deadline while catching up. */
+    public long getLateTicks() {
+        return lateTicks;
+    }
+}
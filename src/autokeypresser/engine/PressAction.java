@@ -0,0 +1,81 @@
+package autokeypresser.engine;
+
+import java.awt.event.KeyEvent;
+
+import autokeypresser.mouse.PointerModel;
+import autokeypresser.output.KeystrokeOutput;
+
+/** Optional action performed after each character press. */
+public enum PressAction {
+    HOVER_UP("Hover Up", 0, -PressAction.HOVER_STEP),
+    HOVER_DOWN("Hover Down", 0, PressAction.HOVER_STEP),
+    HOVER_LEFT("Hover Left", -PressAction.HOVER_STEP, 0),
+    HOVER_RIGHT("Hover Right", PressAction.HOVER_STEP, 0),
+    SPACE_BAR("Space Bar", 0, 0),
+    NEXT_LINE("Next Line", 0, 0);
+
+    private static final int HOVER_STEP = 10;
+
+    private final String label;
+    private final int hoverDx;
+    private final int hoverDy;
+
+    PressAction(String label, int hoverDx, int hoverDy) {
+        this.label = label;
+        this.hoverDx = hoverDx;
+        this.hoverDy = hoverDy;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /** Moves the pointer through {@code pointer} and sends keys to {@code output}. */
+    public void perform(KeystrokeOutput output, PointerModel pointer) {
+        switch (this) {
+            case HOVER_UP, HOVER_DOWN, HOVER_LEFT, HOVER_RIGHT -> pointer.moveBy(hoverDx, hoverDy);
+            case SPACE_BAR -> {
+                output.keyPress(KeyEvent.VK_SPACE);
+                output.keyRelease(KeyEvent.VK_SPACE);
+            }
+            case NEXT_LINE -> {
+                output.keyPress(KeyEvent.VK_ENTER);
+                output.keyRelease(KeyEvent.VK_ENTER);
+            }
+        }
+    }
+
+    /** Whether the action moves the pointer, by {@link #getHoverDx()}, {@link #getHoverDy()}. */
+    public boolean isHover() {
+        return hoverDx != 0 || hoverDy != 0;
+    }
+
+    public int getHoverDx() {
+        return hoverDx;
+    }
+
+    public int getHoverDy() {
+        return hoverDy;
+    }
+
+    /** Whether the action sends key events, which must not be combined with a held modifier. */
+    public boolean pressesKeys() {
+        return this == SPACE_BAR || this == NEXT_LINE;
+    }
+
+    /** Looks up an action by its UI label or constant name, ignoring case: "Hover Up", "hover-up", "HOVER_UP". */
+    public static PressAction fromLabel(String label) {
+        String name = label.trim().replace(' ', '_').replace('-', '_');
+        for (PressAction action : values()) {
+            if (action.label.equalsIgnoreCase(label.trim()) || action.name().equalsIgnoreCase(name)) {
+                return action;
+            }
+        }
+        throw new IllegalArgumentException("Unknown action: " + label);
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
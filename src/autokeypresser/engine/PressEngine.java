@@ -0,0 +1,408 @@
+package autokeypresser.engine;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import autokeypresser.engine.PrecisionScheduler.MissedDeadlinePolicy;
+import autokeypresser.journal.CheckpointJournal;
+import autokeypresser.log.PressLogBuffer;
+import autokeypresser.log.RunLogWriter;
+import autokeypresser.metrics.PressMetrics;
+import autokeypresser.mouse.PointerModel;
+import autokeypresser.mouse.Trajectory;
+import autokeypresser.mouse.TrajectoryPlayer;
+import autokeypresser.output.KeystrokeOutput;
+import autokeypresser.rate.RateController;
+
+/**
+ * The press loop: walks a {@link KeystrokeProgram} on a {@link PrecisionScheduler} and sends
+ * each keystroke, plus the optional {@link PressAction}, to a {@link KeystrokeOutput}.
+ *
+ * The engine has no Swing dependency, so with a {@link autokeypresser.output.RecordingOutput}
+ * it runs headless at full speed.
+ */
+public final class PressEngine {
+
+    /**
+     * Longest interval at which SHIFT stays held between consecutive shifted characters. At
+     * slower rates holding it would shift whatever the user types or clicks in between.
+     */
+    public static final long MAX_MODIFIER_HOLD_NANOS = 100_000_000L;
+
+    private final KeystrokeOutput output;
+    private final PressLogBuffer pressLog;
+    private final ModifierTracker modifierState;
+    private final PointerModel pointer;
+    private MissedDeadlinePolicy missedDeadlinePolicy = MissedDeadlinePolicy.CATCH_UP;
+    private boolean coalesceModifiers = true;
+    private PressMetrics metrics;
+    private RateController rateController;
+    private CheckpointJournal journal;
+    private RunLogWriter runLog;
+    private Clock clock = Clock.SYSTEM;
+    private int hoverSteps = 1;
+    private long hoverStepIntervalNanos;
+    private boolean hoverCurve;
+    private TrajectoryPlayer hoverPlayer;
+
+    private volatile boolean running;
+
+    /**
+     * @param pressLog buffer that receives one entry per press, or {@code null} to skip logging
+     */
+    public PressEngine(KeystrokeOutput output, PressLogBuffer pressLog) {
+        this.output = output;
+        this.pressLog = pressLog;
+        this.modifierState = new ModifierTracker(output);
+        this.pointer = PointerModel.forOutput(output);
+    }
+
+    public void setMissedDeadlinePolicy(MissedDeadlinePolicy missedDeadlinePolicy) {
+        this.missedDeadlinePolicy = missedDeadlinePolicy;
+    }
+
+    /**
+     * Whether consecutive characters that need the same modifiers share one modifier
+     * press/release (the default). Only applies to intervals up to {@link #MAX_MODIFIER_HOLD_NANOS}.
+     */
+    public void setCoalesceModifiers(boolean coalesceModifiers) {
+        this.coalesceModifiers = coalesceModifiers;
+    }
+
+    /**
+     * Splits each hover action into a glide of {@code steps} moves, one every
+     * {@code stepIntervalNanos}, played between presses. A glide that would run into the
+     * next press finishes with a jump to its end point. One step (the default) moves at once.
+     *
+     * @throws IllegalArgumentException if {@code steps} or {@code stepIntervalNanos} is not positive
+     */
+    public void setHoverGlide(int steps, long stepIntervalNanos) {
+        if (steps <= 0) {
+            throw new IllegalArgumentException("Hover steps must be positive: " + steps);
+        }
+        this.hoverSteps = steps;
+        this.hoverStepIntervalNanos = stepIntervalNanos;
+        this.hoverPlayer = steps > 1 ? new TrajectoryPlayer(stepIntervalNanos, clock) : null;
+    }
+
+    /**
+     * Whether hover glides arc to one side along a cubic Bézier curve instead of moving in a
+     * straight line (the default). Either way a glide ends on the hover's end point.
+     */
+    public void setHoverCurve(boolean hoverCurve) {
+        this.hoverCurve = hoverCurve;
+    }
+
+    /**
+     * Schedules presses, hover glides and log timestamps on {@code clock} instead of
+     * {@link Clock#SYSTEM}, e.g. a {@link autokeypresser.sim.VirtualClock} to simulate a run.
+     * A {@link #setRateController rate controller} and {@link #setMetrics metrics} rate
+     * sampling keep using real time.
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+        if (hoverPlayer != null) {
+            hoverPlayer = new TrajectoryPlayer(hoverStepIntervalNanos, clock);
+        }
+    }
+
+    /**
+     * Throttles presses to the controller's adaptive rate on top of the interval; {@code null}
+     * (the default) presses on every tick. Run with a short interval to let the controller
+     * alone set the pace.
+     */
+    public void setRateController(RateController rateController) {
+        this.rateController = rateController;
+    }
+
+    /**
+     * Saves progress to {@code journal} as it becomes due and once more when a run ends, so a
+     * stopped or crashed run can be resumed; {@code null} (the default) disables it.
+     */
+    public void setJournal(CheckpointJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Also queues every press to a persistent {@code runLog}, which never blocks the press
+     * loop; {@code null} (the default) disables it.
+     */
+    public void setRunLog(RunLogWriter runLog) {
+        this.runLog = runLog;
+    }
+
+    /** Collects per-press lateness and output timing; {@code null} (the default) disables it. */
+    public void setMetrics(PressMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Presses the program's keys in a cycle, one per interval, until {@code durationNanos}
+     * has elapsed or {@link #stop()} is called.
+     *
+     * @see #run(KeystrokeSource, long, long, PressAction)
+     */
+    public long run(KeystrokeProgram program, long durationNanos, long intervalNanos, PressAction action)
+            throws InterruptedException {
+        return run(program.cycle(), durationNanos, intervalNanos, action);
+    }
+
+    /**
+     * Presses the source's keystrokes, one per interval, until {@code durationNanos} has
+     * elapsed, the source is exhausted or {@link #stop()} is called. The first press fires
+     * immediately. A stop that also interrupts the thread still returns normally, with the
+     * interrupt status preserved. However the run ends, no modifier key is left held and a
+     * configured journal holds a checkpoint of the last press.
+     *
+     * @param action performed after every press, or {@code null}
+     * @return the number of presses made
+     * @throws InterruptedException if the calling thread is interrupted while waiting without
+     *         {@link #stop()} having been called
+     */
+    public long run(KeystrokeSource source, long durationNanos, long intervalNanos, PressAction action)
+            throws InterruptedException {
+        return run(source, durationNanos, intervalNanos, action, null);
+    }
+
+    /**
+     * Presses a program in a cycle, starting at {@code startIndex}, with whatever
+     * {@code settings} currently supplies. Settings are re-read whenever the thread is
+     * unparked while waiting for a tick and before each wait, so a new snapshot takes effect
+     * on the next tick, also one already being waited for. A new program continues at the
+     * same index (modulo its length); a new interval is timed from the last press.
+     *
+     * @param settings supplies the current snapshot; whoever changes it unparks the run's thread
+     * @see EngineService
+     */
+    public long run(Supplier<PressSettings> settings, int startIndex, long durationNanos)
+            throws InterruptedException {
+        LiveSettings live = new LiveSettings(settings);
+        PressSettings initial = live.applied;
+        return run(initial.getProgram().cycle(startIndex), durationNanos, initial.getIntervalNanos(),
+                initial.getAction(), live);
+    }
+
+    private long run(KeystrokeSource source, long durationNanos, long intervalNanos, PressAction action,
+                     LiveSettings live) throws InterruptedException {
+        running = true;
+        PressMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.runStarted();
+        }
+        RateController rate = this.rateController;
+        if (rate != null) {
+            rate.reset();
+        }
+        boolean timed = metrics != null || rate != null;
+        boolean holdModifiers = coalesceModifiers && intervalNanos <= MAX_MODIFIER_HOLD_NANOS;
+        TrajectoryPlayer hoverPlayer = this.hoverPlayer;
+        Trajectory glide = hoverGlide(hoverPlayer, action);
+        CheckpointJournal journal = this.journal;
+        RunLogWriter runLog = this.runLog;
+        Clock clock = this.clock;
+        pointer.invalidate();
+        long presses = 0;
+        long lastPosition = 0;
+        boolean fetched = false; // advanced to a keystroke not pressed yet
+        long endElapsed = -1;
+        long startTime = clock.nanoTime();
+        if (journal != null) {
+            journal.runStarted(startTime);
+        }
+        try {
+            // Presses fire on absolute deadlines so press/log time never adds drift
+            // Under a rate controller ticks it held back are simply gone, not owed
+            PrecisionScheduler scheduler = new PrecisionScheduler(intervalNanos,
+                    rate != null ? MissedDeadlinePolicy.SKIP : missedDeadlinePolicy,
+                    PrecisionScheduler.DEFAULT_MAX_CATCH_UP_TICKS, clock);
+            scheduler.start(startTime);
+
+            while (running && scheduler.nextDeadline() - startTime < durationNanos) {
+                long deadline;
+                try {
+                    // Fetch first so any input latency is absorbed before the deadline
+                    if (!source.advance()) break;
+                    fetched = true;
+                    if (live == null) {
+                        deadline = scheduler.awaitNextTick();
+                    } else {
+                        while (!scheduler.awaitNextTick(live)) {
+                            // New settings: apply them to the tick being waited for
+                            PressSettings previous = live.applied;
+                            PressSettings next = live.take();
+                            if (next.getProgram() != previous.getProgram()) {
+                                KeystrokeProgram program = next.getProgram();
+                                source = program.cycle((int) (source.position() % program.length()));
+                                source.advance();
+                            }
+                            if (next.getIntervalNanos() != previous.getIntervalNanos()) {
+                                scheduler.setInterval(next.getIntervalNanos());
+                                holdModifiers = coalesceModifiers && next.getIntervalNanos() <= MAX_MODIFIER_HOLD_NANOS;
+                                if (!holdModifiers) {
+                                    modifierState.releaseAll();
+                                }
+                            }
+                            if (next.getAction() != previous.getAction()) {
+                                action = next.getAction();
+                                glide = hoverGlide(hoverPlayer, action);
+                            }
+                        }
+                        deadline = scheduler.lastDeadline();
+                    }
+                    if (rate != null) {
+                        rate.acquire();
+                    }
+                } catch (InterruptedException e) {
+                    if (running) {
+                        throw e;
+                    }
+                    // Interrupted by stop(): report the presses made so far
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                // Overdue ticks are not caught up once the duration is over
+                if (scheduler.lastFired() - startTime >= durationNanos) break;
+
+                long firedAt = timed ? clock.nanoTime() : 0;
+                int sequenceLength = source.sequenceLength();
+                if (sequenceLength == 0) {
+                    pressKey(source.keyCode(), source.modifiers(), holdModifiers);
+                } else {
+                    pressSequence(source, sequenceLength);
+                }
+                fetched = false;
+                if (action != null && glide == null) {
+                    if (action.pressesKeys()) {
+                        modifierState.releaseAll();
+                    }
+                    action.perform(output, pointer);
+                }
+                if (timed) {
+                    long outputNanos = clock.nanoTime() - firedAt;
+                    if (rate != null) {
+                        rate.recordInjection(outputNanos);
+                    }
+                    if (metrics != null) {
+                        metrics.recordPress(firedAt - deadline, outputNanos,
+                                scheduler.getSkippedTicks(), scheduler.getLateTicks());
+                    }
+                }
+
+                presses++;
+                if (pressLog != null || runLog != null) {
+                    long now = clock.currentTimeMillis();
+                    if (pressLog != null) {
+                        pressLog.record(presses, source.character(), source.position(), now);
+                    }
+                    if (runLog != null) {
+                        runLog.press(presses, source.character(), source.position(), now);
+                    }
+                }
+                if (journal != null) {
+                    lastPosition = source.position();
+                    if (journal.isDue(presses, deadline)) {
+                        journal.checkpoint(lastPosition, presses, deadline - startTime);
+                    }
+                }
+
+                if (glide != null) {
+                    try {
+                        hoverPlayer.play(glide, pointer, scheduler.nextDeadline());
+                    } catch (InterruptedException e) {
+                        if (running) {
+                            throw e;
+                        }
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            if (scheduler.nextDeadline() - startTime >= durationNanos) {
+                endElapsed = durationNanos; // Ran its full time, whatever the clock says now
+            }
+            return presses;
+        } finally {
+            if (fetched) {
+                // Stopped between fetching a keystroke and pressing it: a resume starts there
+                source.pushBack();
+            }
+            modifierState.releaseAll();
+            if (journal != null && presses > 0) {
+                journal.checkpoint(lastPosition, presses, endElapsed >= 0 ? endElapsed : clock.nanoTime() - startTime);
+                journal.flush();
+            }
+            running = false;
+        }
+    }
+
+    // The settings a live run last applied, and whether the supplier has moved past them
+    private static final class LiveSettings implements BooleanSupplier {
+        private final Supplier<PressSettings> settings;
+        private PressSettings applied;
+
+        LiveSettings(Supplier<PressSettings> settings) {
+            this.settings = settings;
+            this.applied = settings.get();
+        }
+
+        @Override
+        public boolean getAsBoolean() {
+            return settings.get() != applied;
+        }
+
+        PressSettings take() {
+            applied = settings.get();
+            return applied;
+        }
+    }
+
+    private void pressKey(int keyCode, int modifiers, boolean holdModifiers) {
+        modifierState.apply(modifiers);
+        output.keyPress(keyCode);
+        output.keyRelease(keyCode);
+        if (!holdModifiers) {
+            modifierState.releaseAll();
+        }
+    }
+
+    private void pressSequence(KeystrokeSource source, int length) {
+        for (int i = 0; i < length; i++) {
+            modifierState.typeStroke(source.sequenceStroke(i));
+        }
+        // Never hold a modifier into the next character; Alt-code input commits on its release
+        modifierState.releaseAll();
+    }
+
+    // The glide for a hover action, or null to move at once
+    private Trajectory hoverGlide(TrajectoryPlayer hoverPlayer, PressAction action) {
+        if (hoverPlayer == null || action == null || !action.isHover()) {
+            return null;
+        }
+        int dx = action.getHoverDx();
+        int dy = action.getHoverDy();
+        if (!hoverCurve) {
+            return Trajectory.linear(dx, dy, hoverSteps);
+        }
+        // Control points a third and two thirds along, pushed aside by a quarter of the distance
+        return Trajectory.bezier(dx / 3 - dy / 4, dy / 3 + dx / 4, 2 * dx / 3 - dy / 4, 2 * dy / 3 + dx / 4,
+                dx, dy, hoverSteps);
+    }
+
+    /** Asks a running {@link #run} to return after the current press. */
+    public void stop() {
+        running = false;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public KeystrokeOutput getOutput() {
+        return output;
+    }
+
+    /** The engine's local pointer position, shared by hover actions. */
+    public PointerModel getPointer() {
+        return pointer;
+    }
+}
@@ -0,0 +1,60 @@
+package autokeypresser.engine;
+
+/**
+ * What a live run presses and how often: an immutable snapshot that can be swapped in while
+ * the engine runs (see {@link EngineService#reconfigure}). The {@code with} methods return
+ * changed copies.
+ */
+public final class PressSettings {
+
+    private final KeystrokeProgram program;
+    private final long intervalNanos;
+    private final PressAction action;
+
+    /**
+     * @param action performed after every press, or {@code null}
+     * @throws IllegalArgumentException if {@code program} is null or {@code intervalNanos} is not positive
+     */
+    public PressSettings(KeystrokeProgram program, long intervalNanos, PressAction action) {
+        if (program == null) {
+            throw new IllegalArgumentException("Program must not be null");
+        }
+        if (intervalNanos <= 0) {
+            throw new IllegalArgumentException("Interval must be positive: " + intervalNanos + " ns");
+        }
+        this.program = program;
+        this.intervalNanos = intervalNanos;
+        this.action = action;
+    }
+
+    public PressSettings withProgram(KeystrokeProgram program) {
+        return new PressSettings(program, intervalNanos, action);
+    }
+
+    public PressSettings withInterval(long intervalNanos) {
+        return new PressSettings(program, intervalNanos, action);
+    }
+
+    public PressSettings withAction(PressAction action) {
+        return new PressSettings(program, intervalNanos, action);
+    }
+
+    public KeystrokeProgram getProgram() {
+        return program;
+    }
+
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    /** Action after every press, or {@code null}. */
+    public PressAction getAction() {
+        return action;
+    }
+
+    @Override
+    public String toString() {
+        return program.length() + " keys every " + TimeSpec.format(intervalNanos)
+                + (action != null ? " + " + action : "");
+    }
+}
@@ -0,0 +1,29 @@
+package autokeypresser.engine;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Waits until an absolute deadline on a {@link Clock}'s {@link Clock#nanoTime()} timeline.
+ * Implementations may keep per-thread state, so each waiting thread needs its own instance
+ * from {@link Clock#newSleeper()}.
+ */
+public interface Sleeper {
+
+    /**
+     * Returns once {@code deadline} has passed.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    default void waitUntil(long deadline) throws InterruptedException {
+        waitUntil(deadline, () -> false);
+    }
+
+    /**
+     * Returns {@code true} once {@code deadline} has passed, or {@code false} as soon as
+     * {@code wakeUp} is true. {@code wakeUp} is checked before waiting and whenever the thread
+     * is unparked, so whoever makes it true should unpark the waiting thread.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    boolean waitUntil(long deadline, BooleanSupplier wakeUp) throws InterruptedException;
+}
@@ -0,0 +1,60 @@
+package autokeypresser.engine;
+
+import java.util.Locale;
+
+/**
+ * Parses and formats time spans such as {@code 250us}, {@code 10ms}, {@code 2s}, {@code 5m}
+ * or {@code 1h}. A bare number means seconds, matching the GUI default unit.
+ */
+public final class TimeSpec {
+
+    private TimeSpec() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the text is not a non-negative number followed by
+     *         an optional known unit
+     */
+    public static long parseNanos(String text) {
+        String s = text.trim().toLowerCase(Locale.ROOT);
+        int end = 0;
+        while (end < s.length() && Character.isDigit(s.charAt(end))) {
+            end++;
+        }
+        if (end == 0) {
+            throw new IllegalArgumentException("Invalid time '" + text + "' (expected e.g. 500ms, 2s, 5m)");
+        }
+
+        long value;
+        try {
+            value = Long.parseLong(s.substring(0, end));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Time value too large: '" + text + "'");
+        }
+
+        long unitNanos = switch (s.substring(end).trim()) {
+            case "ns", "nanoseconds" -> 1L;
+            case "us", "\u00b5s", "microseconds" -> 1_000L;
+            case "ms", "milliseconds" -> 1_000_000L;
+            case "", "s", "sec", "seconds" -> 1_000_000_000L;
+            case "m", "min", "minutes" -> 60L * 1_000_000_000L;
+            case "h", "hours" -> 60L * 60L * 1_000_000_000L;
+            default -> throw new IllegalArgumentException("Unknown time unit in '" + text + "' (use us, ms, s, m or h)");
+        };
+        try {
+            return Math.multiplyExact(value, unitNanos);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Time '" + text + "' is too large");
+        }
+    }
+
+    /** Formats with the largest unit that divides the span evenly, e.g. {@code 1500ms}, {@code 2m}. */
+    public static String format(long nanos) {
+        if (nanos % (3_600L * 1_000_000_000L) == 0 && nanos != 0) return nanos / (3_600L * 1_000_000_000L) + "h";
+        if (nanos % (60L * 1_000_000_000L) == 0 && nanos != 0) return nanos / (60L * 1_000_000_000L) + "m";
+        if (nanos % 1_000_000_000L == 0) return nanos / 1_000_000_000L + "s";
+        if (nanos % 1_000_000L == 0) return nanos / 1_000_000L + "ms";
+        if (nanos % 1_000L == 0) return nanos / 1_000L + "us";
+        return nanos + "ns";
+    }
+}
@@ -0,0 +1,335 @@
+package autokeypresser.input;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import autokeypresser.engine.KeystrokeSource;
+import autokeypresser.layout.KeyboardLayout;
+import autokeypresser.layout.UnicodeInput;
+
+/**
+ * Streams a text file into the press engine without loading it onto the heap.
+ *
+ * The file is memory-mapped in windows and decoded by a background thread into a fixed pool
+ * of char chunks that circulate through a bounded prefetch queue, so heap use depends only on
+ * the chunk size and count, never on the file size. Characters are translated through a
+ * {@link KeyboardLayout} (US unless {@link #setKeyboardLayout set}); those it cannot type
+ * (for example {@code \r} in CRLF files) are skipped and counted.
+ *
+ * Every keystroke carries the byte offset it was decoded from; {@link #resumeOffset()} is the
+ * offset to reopen at to continue after the last character handed out. Offsets are exact for
+ * UTF-8 and single-byte charsets, which are the only ones accepted.
+ */
+public final class MappedTextSource implements KeystrokeSource, AutoCloseable {
+
+    public static final int DEFAULT_CHUNK_CHARS = 8192;
+    public static final int DEFAULT_PREFETCH_CHUNKS = 4;
+
+    private static final long MAP_WINDOW_BYTES = 64L << 20;
+
+    private static final class Chunk {
+        final char[] chars;
+        int length;
+        long startOffset;
+        boolean last;
+
+        Chunk(int capacity) {
+            chars = new char[capacity];
+        }
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final Charset charset;
+    private final boolean singleByte;
+    private final ArrayBlockingQueue<Chunk> filled;
+    private final ArrayBlockingQueue<Chunk> free;
+    private final Thread decoderThread;
+    private volatile Exception decodeError;
+
+    // Consumer (press thread) state
+    private Chunk chunk;
+    private int index;
+    private long currentOffset;
+    private long nextOffset;
+    private boolean pushedBack;
+    private char character;
+    private int keyCode;
+    private int modifiers;
+    private final int[] sequence = new int[UnicodeInput.MAX_STROKES];
+    private int sequenceLength;
+    private KeyboardLayout layout = KeyboardLayout.us();
+    private UnicodeInput fallback = UnicodeInput.NONE;
+    private boolean exhausted;
+    private long skippedCharacters;
+
+    private MappedTextSource(Path file, FileChannel channel, Charset charset, long startOffset,
+                             int chunkChars, int prefetchChunks) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.fileSize = channel.size();
+        this.charset = charset;
+        this.singleByte = charset.newEncoder().maxBytesPerChar() == 1.0f;
+
+        // One spare slot so the end-of-input marker always fits
+        this.filled = new ArrayBlockingQueue<>(prefetchChunks + 1);
+        this.free = new ArrayBlockingQueue<>(prefetchChunks);
+        for (int i = 0; i < prefetchChunks; i++) {
+            free.add(new Chunk(chunkChars));
+        }
+
+        long decodeFrom = alignStart(startOffset);
+        this.nextOffset = decodeFrom;
+        this.decoderThread = new Thread(() -> decode(decodeFrom), "autokeypresser-prefetch");
+        this.decoderThread.setDaemon(true);
+    }
+
+    public static MappedTextSource open(Path file, Charset charset, long startOffset) throws IOException {
+        return open(file, charset, startOffset, DEFAULT_CHUNK_CHARS, DEFAULT_PREFETCH_CHUNKS);
+    }
+
+    /**
+     * Opens {@code file} and starts prefetching at {@code startOffset}. An offset inside a UTF-8
+     * multi-byte sequence moves forward to the next character.
+     *
+     * @throws IllegalArgumentException for multi-byte charsets other than UTF-8 or an offset
+     *         outside the file
+     */
+    public static MappedTextSource open(Path file, Charset charset, long startOffset,
+                                        int chunkChars, int prefetchChunks) throws IOException {
+        if (!charset.equals(StandardCharsets.UTF_8) && charset.newEncoder().maxBytesPerChar() != 1.0f) {
+            throw new IllegalArgumentException("Unsupported encoding " + charset + " (use UTF-8 or a single-byte charset)");
+        }
+        if (chunkChars < 2 || prefetchChunks < 1) {
+            throw new IllegalArgumentException("Need at least 2 chars per chunk and 1 prefetch chunk");
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (startOffset < 0 || startOffset > channel.size()) {
+                throw new IllegalArgumentException("Offset " + startOffset + " is outside " + file + " (" + channel.size() + " bytes)");
+            }
+            MappedTextSource source = new MappedTextSource(file, channel, charset, startOffset, chunkChars, prefetchChunks);
+            source.decoderThread.start();
+            return source;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private long alignStart(long offset) throws IOException {
+        if (singleByte) {
+            return offset;
+        }
+
+        ByteBuffer probe = ByteBuffer.allocate(4);
+        channel.read(probe, offset);
+        probe.flip();
+
+        // Skip a UTF-8 byte order mark
+        if (offset == 0 && probe.remaining() >= 3
+                && (probe.get(0) & 0xFF) == 0xEF && (probe.get(1) & 0xFF) == 0xBB && (probe.get(2) & 0xFF) == 0xBF) {
+            return 3;
+        }
+        // Move past continuation bytes (10xxxxxx) to the next character boundary
+        int skip = 0;
+        while (skip < probe.remaining() && (probe.get(skip) & 0xC0) == 0x80) {
+            skip++;
+        }
+        return offset + skip;
+    }
+
+    private void decode(long startOffset) {
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        long pos = startOffset;
+        MappedByteBuffer window = null;
+        long windowStart = 0;
+
+        try {
+            while (true) {
+                Chunk next = free.take();
+                CharBuffer out = CharBuffer.wrap(next.chars);
+                next.startOffset = pos;
+
+                while (out.hasRemaining() && pos < fileSize) {
+                    if (window == null) {
+                        windowStart = pos;
+                        window = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(MAP_WINDOW_BYTES, fileSize - pos));
+                    }
+                    boolean endOfInput = windowStart + window.limit() == fileSize;
+                    CoderResult result = decoder.decode(window, out, endOfInput);
+                    pos = windowStart + window.position();
+
+                    if (result.isError()) {
+                        throw new IOException("Cannot decode " + file + " as " + charset + " at byte " + pos);
+                    }
+                    if (result.isOverflow()) {
+                        break; // Chunk full, or too full for the next surrogate pair
+                    }
+                    if (!endOfInput) {
+                        // Window used up, possibly mid-character: remap from the first undecoded byte
+                        window = null;
+                    }
+                }
+
+                next.length = out.position();
+                next.last = pos >= fileSize;
+                filled.put(next);
+                if (next.last) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            // Closed
+        } catch (IOException | RuntimeException e) {
+            decodeError = e;
+            Chunk end = new Chunk(0);
+            end.last = true;
+            filled.offer(end);
+        }
+    }
+
+    @Override
+    public boolean advance() throws InterruptedException {
+        if (pushedBack) {
+            pushedBack = false;
+            return true;
+        }
+        while (!exhausted) {
+            if (chunk == null || index == chunk.length) {
+                if (chunk != null) {
+                    if (chunk.last) {
+                        exhausted = true;
+                        break;
+                    }
+                    free.offer(chunk);
+                }
+                chunk = filled.take();
+                index = 0;
+                nextOffset = chunk.startOffset;
+                continue;
+            }
+
+            char c = chunk.chars[index++];
+            currentOffset = nextOffset;
+            nextOffset += byteLength(c);
+
+            int stroke = layout.lookup(c);
+            int count = 1;
+            if (stroke <= 0) {
+                // Dead key sequence or Unicode input: the uncommon path
+                count = layout.strokes(c, fallback, sequence);
+                if (count == 0) {
+                    skippedCharacters++;
+                    continue;
+                }
+                stroke = sequence[count - 1];
+            }
+            character = c;
+            keyCode = KeyboardLayout.keyCode(stroke);
+            modifiers = KeyboardLayout.modifiers(stroke);
+            sequenceLength = count > 1 ? count : 0;
+            return true;
+        }
+
+        Exception error = decodeError;
+        if (error != null) {
+            throw new UncheckedIOException(error instanceof IOException ? (IOException) error : new IOException(error));
+        }
+        return false;
+    }
+
+    @Override
+    public void pushBack() {
+        pushedBack = true;
+    }
+
+    private int byteLength(char c) {
+        if (singleByte || c < 0x80) {
+            return 1;
+        } else if (c < 0x800) {
+            return 2;
+        } else if (Character.isHighSurrogate(c)) {
+            return 4; // The whole supplementary code point; its low surrogate adds nothing
+        } else if (Character.isLowSurrogate(c)) {
+            return 0;
+        }
+        return 3;
+    }
+
+    @Override
+    public int keyCode() {
+        return keyCode;
+    }
+
+    @Override
+    public int modifiers() {
+        return modifiers;
+    }
+
+    @Override
+    public int sequenceLength() {
+        return sequenceLength;
+    }
+
+    @Override
+    public int sequenceStroke(int index) {
+        return sequence[index];
+    }
+
+    @Override
+    public char character() {
+        return character;
+    }
+
+    /** Byte offset of the current character. */
+    @Override
+    public long position() {
+        return currentOffset;
+    }
+
+    /**
+     * Translates characters for {@code layout}, entering those it has no key for through
+     * {@code fallback}. Call before the first {@link #advance()}.
+     */
+    public void setKeyboardLayout(KeyboardLayout layout, UnicodeInput fallback) {
+        this.layout = layout;
+        this.fallback = fallback;
+    }
+
+    /** Byte offset just past the last character handed out and not pushed back; reopen here to continue. */
+    public long resumeOffset() {
+        return pushedBack ? currentOffset : nextOffset;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    /** Characters skipped because the layout and fallback cannot type them. */
+    public long getSkippedCharacters() {
+        return skippedCharacters;
+    }
+
+    @Override
+    public void close() throws IOException {
+        decoderThread.interrupt();
+        channel.close();
+    }
+}
@@ -0,0 +1,47 @@
+package autokeypresser.journal;
+
+/** Progress of a run at one instant, as stored in a {@link CheckpointJournal}. */
+public final class Checkpoint {
+
+    private final long sequence;
+    private final long position;
+    private final long presses;
+    private final long elapsedNanos;
+    private final long timeMillis;
+
+    Checkpoint(long sequence, long position, long presses, long elapsedNanos, long timeMillis) {
+        this.sequence = sequence;
+        this.position = position;
+        this.presses = presses;
+        this.elapsedNanos = elapsedNanos;
+        this.timeMillis = timeMillis;
+    }
+
+    /** Number of this checkpoint in its journal, starting at 1. */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Position of the last key pressed, as reported by the source: an index into the
+     * character sequence or a byte offset in a file. A resumed run continues after it.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /** Presses made by the whole run, across all resumed segments. */
+    public long getPresses() {
+        return presses;
+    }
+
+    /** Time spent pressing, across all resumed segments; pauses do not count. */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /** Wall-clock time the checkpoint was written. */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+}
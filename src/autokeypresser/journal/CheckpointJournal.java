@@ -0,0 +1,303 @@
+package autokeypresser.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Crash-safe progress journal: a small memory-mapped file of fixed-size checkpoint records,
+ * appended in a circle so the file never grows.
+ *
+ * The press thread calls {@link #isDue} on every press, which is two comparisons, and
+ * {@link #checkpoint} every {@code everyPresses} presses or {@code everyNanos}, whichever
+ * comes first. A checkpoint is a handful of stores into the mapping and never waits for the
+ * disk: a background thread forces dirty pages out every few seconds and {@link #flush()}
+ * does so when a run stops. A process crash loses nothing the OS has been handed; a power
+ * loss loses at most the last few seconds. Each record carries a checksum, so a record torn
+ * by a crash is ignored and {@link #open} resumes from the newest intact one.
+ *
+ * The header holds a hash of the run's configuration; a journal is only reopened for the
+ * same configuration. Not thread-safe apart from {@link #getLast()}.
+ */
+public final class CheckpointJournal implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final long DEFAULT_EVERY_PRESSES = 1000;
+    public static final long DEFAULT_EVERY_NANOS = 1_000_000_000L;
+
+    private static final int MAGIC = 0x414B504A; // "AKPJ"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    // One record per 64 bytes, so no record straddles a page
+    private static final int RECORD_BYTES = 64;
+    private static final long SYNC_INTERVAL_MILLIS = 5_000;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final long configHash;
+    private final int capacity;
+    private final Thread syncThread;
+
+    private long everyPresses = DEFAULT_EVERY_PRESSES;
+    private long everyNanos = DEFAULT_EVERY_NANOS;
+    private volatile Checkpoint last;
+    private volatile boolean dirty;
+    private int nextSlot;
+    private long nextSequence;
+
+    // Per-run state
+    private Checkpoint base;
+    private long runStartNanos;
+    private long nextDuePresses;
+    private long nextDueNanos;
+
+    private CheckpointJournal(Path file, FileChannel channel, MappedByteBuffer map, long configHash, int capacity) {
+        this.file = file;
+        this.channel = channel;
+        this.map = map;
+        this.configHash = configHash;
+        this.capacity = capacity;
+        this.syncThread = new Thread(this::syncLoop, "autokeypresser-journal-sync");
+        this.syncThread.setDaemon(true);
+    }
+
+    /** Starts an empty journal, replacing the contents of any existing file. */
+    public static CheckpointJournal create(Path file, long configHash) throws IOException {
+        return create(file, configHash, DEFAULT_CAPACITY);
+    }
+
+    public static CheckpointJournal create(Path file, long configHash, int capacity) throws IOException {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Journal capacity must be at least 2 records: " + capacity);
+        }
+        // Cleared in place rather than truncated: Windows refuses to truncate a file that is
+        // still mapped, e.g. by the previous journal of this process awaiting GC
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long size = HEADER_BYTES + (long) capacity * RECORD_BYTES;
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            for (int at = 0; at < size; at += Long.BYTES) {
+                map.putLong(at, 0);
+            }
+            map.putInt(0, MAGIC);
+            map.putInt(4, VERSION);
+            map.putLong(8, configHash);
+            map.putLong(16, System.currentTimeMillis());
+            map.putInt(24, capacity);
+            map.force();
+            CheckpointJournal journal = new CheckpointJournal(file, channel, map, configHash, capacity);
+            journal.nextSequence = 1;
+            journal.syncThread.start();
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reopens an existing journal to continue it, or creates it if the file does not exist.
+     * {@link #getLast()} is the newest intact checkpoint.
+     *
+     * @throws IllegalArgumentException if the file is not a checkpoint journal or was written
+     *         for a different configuration
+     */
+    public static CheckpointJournal open(Path file, long configHash) throws IOException {
+        if (!Files.exists(file) || Files.size(file) == 0) {
+            return create(file, configHash);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IllegalArgumentException(file + " is not a checkpoint journal");
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException(file + " is not a checkpoint journal");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IllegalArgumentException(file + " has unsupported journal version " + header.getInt(4));
+            }
+            if (header.getLong(8) != configHash) {
+                throw new IllegalArgumentException(file + " was written for a different configuration");
+            }
+            int capacity = header.getInt(24);
+            long size = HEADER_BYTES + (long) capacity * RECORD_BYTES;
+            if (capacity < 2 || channel.size() < size) {
+                throw new IllegalArgumentException(file + " is truncated");
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            CheckpointJournal journal = new CheckpointJournal(file, channel, map, configHash, capacity);
+            journal.recover();
+            journal.syncThread.start();
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Finds the newest intact record; the next one overwrites the slot after it
+    private void recover() {
+        long newestSequence = 0;
+        int newestSlot = -1;
+        for (int slot = 0; slot < capacity; slot++) {
+            int at = HEADER_BYTES + slot * RECORD_BYTES;
+            long sequence = map.getLong(at);
+            if (sequence > newestSequence && map.getLong(at + 56) == checksum(sequence, map.getLong(at + 8),
+                    map.getLong(at + 16), map.getLong(at + 24), map.getLong(at + 32))) {
+                newestSequence = sequence;
+                newestSlot = slot;
+            }
+        }
+        if (newestSlot >= 0) {
+            int at = HEADER_BYTES + newestSlot * RECORD_BYTES;
+            last = new Checkpoint(newestSequence, map.getLong(at + 8), map.getLong(at + 16), map.getLong(at + 24),
+                    map.getLong(at + 32));
+        }
+        nextSlot = (newestSlot + 1) % capacity;
+        nextSequence = newestSequence + 1;
+    }
+
+    /**
+     * Checkpoint every {@code everyPresses} presses or {@code everyNanos}, whichever is first.
+     *
+     * @throws IllegalArgumentException if either is not positive
+     */
+    public void setInterval(long everyPresses, long everyNanos) {
+        if (everyPresses <= 0 || everyNanos <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        this.everyPresses = everyPresses;
+        this.everyNanos = everyNanos;
+    }
+
+    /**
+     * Begins a run segment. Its presses and time are added to the last checkpoint, so a
+     * resumed run continues the totals.
+     */
+    public void runStarted(long startNanos) {
+        base = last;
+        runStartNanos = startNanos;
+        nextDuePresses = everyPresses;
+        nextDueNanos = startNanos + everyNanos;
+    }
+
+    /** Whether a checkpoint is due after {@code presses} presses of this segment at {@code nowNanos}. */
+    public boolean isDue(long presses, long nowNanos) {
+        return presses >= nextDuePresses || nowNanos - nextDueNanos >= 0;
+    }
+
+    /**
+     * Appends a checkpoint for the current segment.
+     *
+     * @param position     source position of the last key pressed
+     * @param presses      presses made since {@link #runStarted}
+     * @param elapsedNanos time since {@link #runStarted}
+     */
+    public void checkpoint(long position, long presses, long elapsedNanos) {
+        long totalPresses = presses;
+        long totalElapsed = elapsedNanos;
+        if (base != null) {
+            totalPresses += base.getPresses();
+            totalElapsed += base.getElapsedNanos();
+        }
+        long sequence = nextSequence++;
+        long time = System.currentTimeMillis();
+        int at = HEADER_BYTES + nextSlot * RECORD_BYTES;
+        // Checksum last: until it is written the slot does not hold an intact record
+        map.putLong(at + 56, 0);
+        map.putLong(at, sequence);
+        map.putLong(at + 8, position);
+        map.putLong(at + 16, totalPresses);
+        map.putLong(at + 24, totalElapsed);
+        map.putLong(at + 32, time);
+        map.putLong(at + 56, checksum(sequence, position, totalPresses, totalElapsed, time));
+        nextSlot = nextSlot + 1 == capacity ? 0 : nextSlot + 1;
+        dirty = true;
+
+        last = new Checkpoint(sequence, position, totalPresses, totalElapsed, time);
+        nextDuePresses = presses + everyPresses;
+        nextDueNanos = runStartNanos + elapsedNanos + everyNanos;
+    }
+
+    private static long checksum(long sequence, long position, long presses, long elapsed, long time) {
+        long h = sequence * 0x9E3779B97F4A7C15L;
+        h = (h ^ position) * 0xC2B2AE3D27D4EB4FL;
+        h = (h ^ presses) * 0x165667B19E3779F9L;
+        h = (h ^ elapsed) * 0x9E3779B97F4A7C15L;
+        h = (h ^ time) * 0xC2B2AE3D27D4EB4FL;
+        h ^= h >>> 31;
+        return h == 0 ? 1 : h;
+    }
+
+    /** Newest checkpoint, or {@code null} if none has been written. May be read from any thread. */
+    public Checkpoint getLast() {
+        return last;
+    }
+
+    public long getConfigHash() {
+        return configHash;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /** Writes pending checkpoints to disk. Errors are reported, not thrown, so a stopping run still ends. */
+    public void flush() {
+        dirty = false;
+        try {
+            map.force();
+        } catch (UncheckedIOException e) {
+            System.err.println("Checkpoint journal " + file + " not flushed: " + e.getMessage());
+        }
+    }
+
+    private void syncLoop() {
+        try {
+            while (true) {
+                Thread.sleep(SYNC_INTERVAL_MILLIS);
+                if (dirty) {
+                    flush();
+                }
+            }
+        } catch (InterruptedException e) {
+            // Closed
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        syncThread.interrupt();
+        flush();
+        channel.close();
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the settings that identify a run, used to refuse resuming with a
+     * journal written for different characters, timing or layout.
+     */
+    public static long configHash(String... settings) {
+        long h = 0xCBF29CE484222325L;
+        for (String setting : settings) {
+            byte[] bytes = String.valueOf(setting).getBytes(StandardCharsets.UTF_8);
+            for (byte b : bytes) {
+                h = (h ^ (b & 0xFF)) * 0x100000001B3L;
+            }
+            h = (h ^ 0x1F) * 0x100000001B3L; // Separator, so ("ab", "c") differs from ("a", "bc")
+        }
+        return h;
+    }
+}
@@ -0,0 +1,133 @@
+package autokeypresser.lanes;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded lock-free multi-producer/single-consumer queue of whole keystrokes.
+ *
+ * Each entry is one keystroke (lane, key code, modifiers, action) stored in preallocated
+ * primitive arrays, so a keystroke is published and consumed as a unit and can never
+ * interleave with another lane's. Producers claim slots with a CAS on the tail; a per-slot
+ * sequence number (after Vyukov's bounded queue) publishes the entry to the consumer and
+ * hands the slot back once it has been read. No locks and no allocation per entry.
+ */
+public final class KeystrokeQueue {
+
+    /** Receives drained entries; called on the consumer thread. */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(int lane, int keyCode, int modifiers, int action);
+    }
+
+    private static final long FULL_PARK_NANOS = 10_000L;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final int[] lanes;
+    private final int[] keyCodes;
+    private final int[] modifiers;
+    private final int[] actions;
+
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong fullWaits = new AtomicLong();
+    private long head; // owned by the consumer
+
+    public KeystrokeQueue(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.lanes = new int[capacity];
+        this.keyCodes = new int[capacity];
+        this.modifiers = new int[capacity];
+        this.actions = new int[capacity];
+    }
+
+    /**
+     * Adds one keystroke if there is room. Safe to call from any number of threads.
+     *
+     * @return false if the queue was full
+     */
+    public boolean offer(int lane, int keyCode, int modifiers, int action) {
+        while (true) {
+            long t = tail.get();
+            int slot = (int) t & mask;
+            long sequence = sequences.get(slot);
+            if (sequence == t) {
+                if (tail.compareAndSet(t, t + 1)) {
+                    lanes[slot] = lane;
+                    keyCodes[slot] = keyCode;
+                    this.modifiers[slot] = modifiers;
+                    actions[slot] = action;
+                    sequences.lazySet(slot, t + 1);
+                    return true;
+                }
+            } else if (sequence < t) {
+                return false; // The consumer has not freed this slot yet
+            }
+            // Another producer claimed the slot first; retry with the new tail
+        }
+    }
+
+    /**
+     * Adds one keystroke, waiting while the queue is full. This is the backpressure that
+     * keeps lanes from running ahead of the dispatcher.
+     */
+    public void put(int lane, int keyCode, int modifiers, int action) throws InterruptedException {
+        if (offer(lane, keyCode, modifiers, action)) {
+            return;
+        }
+        fullWaits.incrementAndGet();
+        while (!offer(lane, keyCode, modifiers, action)) {
+            LockSupport.parkNanos(this, FULL_PARK_NANOS);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Hands up to {@code maxEntries} published entries to {@code consumer} in order. Must
+     * only be called from the single consumer thread.
+     *
+     * @return number of entries drained
+     */
+    public int drain(EntryConsumer consumer, int maxEntries) {
+        int drained = 0;
+        long h = head;
+        while (drained < maxEntries) {
+            int slot = (int) h & mask;
+            if (sequences.get(slot) != h + 1) {
+                break; // Not yet published
+            }
+            consumer.accept(lanes[slot], keyCodes[slot], modifiers[slot], actions[slot]);
+            sequences.lazySet(slot, h + capacity);
+            h++;
+            drained++;
+        }
+        head = h;
+        return drained;
+    }
+
+    /** Whether no published entry is waiting. Consumer thread only. */
+    public boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+
+    /** Times a producer found the queue full and had to wait. */
+    public long getFullWaits() {
+        return fullWaits.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,56 @@
+package autokeypresser.lanes;
+
+import autokeypresser.engine.KeystrokeProgram;
+import autokeypresser.engine.PressAction;
+
+/** One independent sequence for {@link MultiLaneEngine}: what to press, how often and for how long. */
+public final class LaneSpec {
+
+    /** Duration of a lane that runs until the engine is stopped. */
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final String name;
+    private final KeystrokeProgram program;
+    private final long intervalNanos;
+    private final long durationNanos;
+    private final PressAction action;
+
+    /**
+     * @param action performed after every press of this lane, or {@code null}
+     * @throws IllegalArgumentException if the interval or duration is not positive
+     */
+    public LaneSpec(String name, KeystrokeProgram program, long intervalNanos, long durationNanos, PressAction action) {
+        if (intervalNanos <= 0) {
+            throw new IllegalArgumentException("Lane " + name + ": interval must be greater than zero");
+        }
+        if (durationNanos <= 0) {
+            throw new IllegalArgumentException("Lane " + name + ": duration must be greater than zero");
+        }
+        this.name = name;
+        this.program = program;
+        this.intervalNanos = intervalNanos;
+        this.durationNanos = durationNanos;
+        this.action = action;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public KeystrokeProgram getProgram() {
+        return program;
+    }
+
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    /** Run length in nanoseconds, or {@link #UNLIMITED}. */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public PressAction getAction() {
+        return action;
+    }
+}
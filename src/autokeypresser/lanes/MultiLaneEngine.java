@@ -0,0 +1,300 @@
+package autokeypresser.lanes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+
+import autokeypresser.engine.HybridSleeper;
+import autokeypresser.engine.KeystrokeProgram;
+import autokeypresser.engine.ModifierTracker;
+import autokeypresser.engine.PressAction;
+import autokeypresser.mouse.PointerModel;
+import autokeypresser.output.KeystrokeOutput;
+
+/**
+ * Runs many independent {@link LaneSpec lanes} at once, each on its own interval, duration
+ * and action, through a single output.
+ *
+ * Lanes are not threads: a few worker threads each multiplex a share of the lanes on a
+ * deadline heap and wait with a {@link HybridSleeper} for whichever lane is due next, so
+ * hundreds of lanes cost a handful of threads. Due keystrokes go into one lock-free
+ * {@link KeystrokeQueue}; the thread that calls {@link #run} becomes the dispatcher, the only
+ * thread that touches the output. It sends each keystroke (modifiers, key, action) as a
+ * unit, so lanes never interleave inside a keystroke.
+ */
+public final class MultiLaneEngine {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+
+    private static final int DISPATCH_BATCH = 256;
+    private static final int IDLE_SPINS = 200;
+    private static final long IDLE_PARK_NANOS = 50_000L;
+
+    private static final PressAction[] ACTIONS = PressAction.values();
+
+    // Queued in place of a key code for characters typed as a sequence; modifiers carry the position
+    private static final int SEQUENCE_KEY_CODE = -1;
+
+    private final KeystrokeOutput output;
+    private final int workerThreads;
+    private final int queueCapacity;
+    private final ModifierTracker modifierState;
+    private final PointerModel pointer;
+
+    private volatile boolean running;
+    private volatile List<Thread> workers = List.of();
+
+    // Per-run dispatcher state
+    private long[] lanePresses;
+    private KeystrokeProgram[] lanePrograms;
+    private final KeystrokeQueue.EntryConsumer dispatch = this::dispatch;
+
+    public MultiLaneEngine(KeystrokeOutput output, int workerThreads) {
+        this(output, workerThreads, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param workerThreads threads that schedule lanes; more than the number of lanes is never used
+     * @throws IllegalArgumentException if {@code workerThreads} is not positive
+     */
+    public MultiLaneEngine(KeystrokeOutput output, int workerThreads, int queueCapacity) {
+        if (workerThreads <= 0) {
+            throw new IllegalArgumentException("Worker threads must be positive: " + workerThreads);
+        }
+        this.output = output;
+        this.workerThreads = workerThreads;
+        this.queueCapacity = queueCapacity;
+        this.modifierState = new ModifierTracker(output);
+        this.pointer = PointerModel.forOutput(output);
+    }
+
+    /**
+     * Runs every lane from a common start until all have reached their duration or
+     * {@link #stop()} is called. Lanes whose dispatch falls more than one interval behind
+     * skip the missed presses rather than bursting. A stop that also interrupts the calling
+     * thread returns normally with the interrupt status preserved.
+     *
+     * @return presses made per lane, in the order of {@code lanes}
+     * @throws InterruptedException if the calling thread is interrupted without {@link #stop()}
+     */
+    public long[] run(List<LaneSpec> lanes) throws InterruptedException {
+        if (lanes.isEmpty()) {
+            throw new IllegalArgumentException("No lanes to run");
+        }
+        running = true;
+        KeystrokeQueue queue = new KeystrokeQueue(queueCapacity);
+        lanePresses = new long[lanes.size()];
+        lanePrograms = new KeystrokeProgram[lanes.size()];
+        for (int lane = 0; lane < lanes.size(); lane++) {
+            lanePrograms[lane] = lanes.get(lane).getProgram();
+        }
+        int threadCount = Math.min(workerThreads, lanes.size());
+        CountDownLatch workersDone = new CountDownLatch(threadCount);
+        long startNanos = System.nanoTime();
+
+        List<Thread> threads = new ArrayList<>(threadCount);
+        for (int w = 0; w < threadCount; w++) {
+            List<Integer> owned = new ArrayList<>();
+            for (int lane = w; lane < lanes.size(); lane += threadCount) {
+                owned.add(lane);
+            }
+            LaneWorker worker = new LaneWorker(lanes, owned, queue, startNanos);
+            Thread thread = new Thread(() -> {
+                try {
+                    worker.run();
+                } finally {
+                    workersDone.countDown();
+                }
+            }, "autokeypresser-lanes-" + (w + 1));
+            thread.setDaemon(true);
+            threads.add(thread);
+        }
+        workers = threads;
+        threads.forEach(Thread::start);
+
+        pointer.invalidate();
+        try {
+            int idle = 0;
+            while (running) {
+                if (queue.drain(dispatch, DISPATCH_BATCH) > 0) {
+                    idle = 0;
+                    continue;
+                }
+                // Nothing queued: never hold a modifier while idle
+                modifierState.releaseAll();
+                if (workersDone.getCount() == 0 && queue.isEmpty()) {
+                    break;
+                }
+                if (++idle < IDLE_SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                if (Thread.interrupted()) {
+                    if (running) {
+                        throw new InterruptedException();
+                    }
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            return lanePresses.clone();
+        } finally {
+            modifierState.releaseAll();
+            running = false;
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+            for (Thread thread : threads) {
+                joinUninterruptibly(thread);
+            }
+        }
+    }
+
+    private void dispatch(int lane, int keyCode, int modifiers, int action) {
+        if (keyCode == SEQUENCE_KEY_CODE) {
+            KeystrokeProgram program = lanePrograms[lane];
+            for (int i = 0, n = program.sequenceLength(modifiers); i < n; i++) {
+                modifierState.typeStroke(program.sequenceStroke(modifiers, i));
+            }
+            modifierState.releaseAll();
+        } else {
+            modifierState.apply(modifiers);
+            output.keyPress(keyCode);
+            output.keyRelease(keyCode);
+        }
+        if (action != 0) {
+            PressAction pressAction = ACTIONS[action - 1];
+            if (pressAction.pressesKeys()) {
+                modifierState.releaseAll();
+            }
+            pressAction.perform(output, pointer);
+        }
+        lanePresses[lane]++;
+    }
+
+    private static void joinUninterruptibly(Thread thread) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Asks a running {@link #run} to stop all lanes. */
+    public void stop() {
+        running = false;
+        for (Thread thread : workers) {
+            thread.interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** Schedules a share of the lanes on one thread, earliest deadline first. */
+    private final class LaneWorker {
+
+        private final int[] laneIds;
+        private final KeystrokeProgram[] programs;
+        private final long[] intervals;
+        private final long[] ends;
+        private final int[] actions;
+        private final int[] positions;
+        private final long[] deadlines;
+        private final int[] heap; // Local lane indexes ordered by deadline
+        private int heapSize;
+        private final KeystrokeQueue queue;
+        private final long startNanos;
+        private final HybridSleeper sleeper = new HybridSleeper();
+
+        LaneWorker(List<LaneSpec> lanes, List<Integer> owned, KeystrokeQueue queue, long startNanos) {
+            int n = owned.size();
+            this.queue = queue;
+            laneIds = new int[n];
+            programs = new KeystrokeProgram[n];
+            intervals = new long[n];
+            ends = new long[n];
+            actions = new int[n];
+            positions = new int[n];
+            deadlines = new long[n];
+            heap = new int[n];
+            for (int i = 0; i < n; i++) {
+                LaneSpec spec = lanes.get(owned.get(i));
+                laneIds[i] = owned.get(i);
+                programs[i] = spec.getProgram();
+                intervals[i] = spec.getIntervalNanos();
+                ends[i] = spec.getDurationNanos() == LaneSpec.UNLIMITED
+                        ? Long.MAX_VALUE : spec.getDurationNanos();
+                actions[i] = spec.getAction() == null ? 0 : spec.getAction().ordinal() + 1;
+                deadlines[i] = startNanos;
+                heap[i] = i;
+            }
+            heapSize = n;
+            this.startNanos = startNanos;
+        }
+
+        void run() {
+            try {
+                while (running && heapSize > 0) {
+                    int lane = heap[0];
+                    long deadline = deadlines[lane];
+                    sleeper.waitUntil(deadline);
+
+                    KeystrokeProgram program = programs[lane];
+                    int position = positions[lane];
+                    if (program.sequenceLength(position) == 0) {
+                        queue.put(laneIds[lane], program.keyCode(position), program.modifiers(position), actions[lane]);
+                    } else {
+                        // The dispatcher types the whole sequence from the lane's program
+                        queue.put(laneIds[lane], SEQUENCE_KEY_CODE, position, actions[lane]);
+                    }
+                    positions[lane] = (position + 1 == program.length()) ? 0 : position + 1;
+
+                    long interval = intervals[lane];
+                    long next = deadline + interval;
+                    long behind = System.nanoTime() - next;
+                    if (behind >= interval) {
+                        next += (behind / interval) * interval;
+                    }
+                    if (next - startNanos >= ends[lane]) {
+                        heap[0] = heap[--heapSize];
+                    } else {
+                        deadlines[lane] = next;
+                    }
+                    siftDown();
+                }
+            } catch (InterruptedException e) {
+                // stop()
+            }
+        }
+
+        private void siftDown() {
+            int i = 0;
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= heapSize) {
+                    return;
+                }
+                int right = left + 1;
+                int smallest = (right < heapSize && deadlines[heap[right]] - deadlines[heap[left]] < 0) ? right : left;
+                if (deadlines[heap[smallest]] - deadlines[heap[i]] >= 0) {
+                    return;
+                }
+                int tmp = heap[i];
+                heap[i] = heap[smallest];
+                heap[smallest] = tmp;
+                i = smallest;
+            }
+        }
+    }
+}
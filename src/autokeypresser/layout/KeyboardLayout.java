@@ -0,0 +1,366 @@
+package autokeypresser.layout;
+
+import java.awt.event.KeyEvent;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+import autokeypresser.engine.KeystrokeProgram;
+
+/**
+ * Character-to-keystroke table of one keyboard layout, loaded from a {@code .layout} resource.
+ *
+ * A layout file maps each character to the keystrokes that type it and declares the layout's
+ * dead keys. Loading builds one dense table indexed by {@code char}: an entry is either a
+ * single packed keystroke ({@link #stroke}) or, for characters that take several keystrokes,
+ * a reference into a shared sequence pool. Every letter a dead key can combine with (by
+ * Unicode composition, so {@code ^} + {@code e} gives {@code ê}) is expanded into the table at
+ * load time, so {@link #lookup(char)} is a single array index. Layouts are immutable and
+ * cached by name.
+ *
+ * File format, one entry per line; {@code #} starts a comment, so the character itself is
+ * written {@code U+0023}:
+ * <pre>
+ * name German (Germany)
+ * z        Z
+ * Z        shift+Z
+ * @        altgr+Q
+ * U+0023   SLASH            # characters by code point
+ * dead ^   BACK_SLASH       # dead key and the accent it adds
+ * </pre>
+ * Keys are {@link KeyEvent} {@code VK_} names without the prefix, as the OS reports them
+ * under that layout; modifiers are {@code shift}, {@code altgr}, {@code ctrl} and {@code alt}.
+ */
+public final class KeyboardLayout {
+
+    /** Layout used when none is configured. */
+    public static final String DEFAULT = "us";
+
+    private static final List<String> BUILT_IN = List.of("us", "uk", "de", "fr");
+    private static final ConcurrentHashMap<String, KeyboardLayout> CACHE = new ConcurrentHashMap<>();
+
+    // Spacing accent of a dead key -> the combining mark it adds to the next letter
+    private static final String ACCENTS = "^`\u00B4\u00A8~\u00B8\u00B0\u02C7";
+    private static final String COMBINING = "\u0302\u0300\u0301\u0308\u0303\u0327\u030A\u030C";
+
+    private static final int MODIFIER_SHIFT = 16;
+
+    private final String name;
+    private final String description;
+    private final int[] table;
+    private final int[] sequences;
+
+    private KeyboardLayout(String name, String description, int[] table, int[] sequences) {
+        this.name = name;
+        this.description = description;
+        this.table = table;
+        this.sequences = sequences;
+    }
+
+    /** The built-in US layout. */
+    public static KeyboardLayout us() {
+        return forName(DEFAULT);
+    }
+
+    /**
+     * Returns a built-in layout ({@code us}, {@code uk}, {@code de}, {@code fr}) or one loaded
+     * from a {@code .layout} file path. Each is loaded once and cached.
+     *
+     * @throws IllegalArgumentException if the layout does not exist or cannot be parsed
+     */
+    public static KeyboardLayout forName(String name) {
+        String key = name.trim();
+        if (!key.endsWith(".layout")) {
+            key = key.toLowerCase(Locale.ROOT);
+        }
+        return CACHE.computeIfAbsent(key, KeyboardLayout::load);
+    }
+
+    /** Names accepted by {@link #forName(String)} without a file path. */
+    public static List<String> builtInNames() {
+        return BUILT_IN;
+    }
+
+    private static KeyboardLayout load(String key) {
+        try {
+            if (BUILT_IN.contains(key)) {
+                InputStream in = KeyboardLayout.class.getResourceAsStream(key + ".layout");
+                if (in == null) {
+                    throw new IllegalArgumentException("Layout resource " + key + ".layout is missing from the classpath");
+                }
+                try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                    return parse(key, reader);
+                }
+            }
+            Path file = Path.of(key);
+            if (!Files.isRegularFile(file)) {
+                throw new IllegalArgumentException("Unknown keyboard layout '" + key + "' (use " + String.join(", ", BUILT_IN)
+                        + " or a .layout file)");
+            }
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                return parse(file.getFileName().toString(), reader);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parses a layout definition and builds its table.
+     *
+     * @throws IllegalArgumentException for a malformed line, with its line number
+     */
+    public static KeyboardLayout parse(String name, Reader source) throws IOException {
+        Builder builder = new Builder();
+        String description = name;
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                String[] tokens = line.split("\\s+");
+                if (tokens[0].equals("name")) {
+                    description = line.substring(4).strip();
+                } else if (tokens[0].equals("dead") && tokens.length >= 3) {
+                    char accent = parseCharacter(tokens[1]);
+                    if (ACCENTS.indexOf(accent) < 0) {
+                        throw new IllegalArgumentException("Unknown dead key accent '" + accent + "'");
+                    }
+                    builder.deadKey(accent, parseStroke(tokens[2]));
+                } else {
+                    char c = parseCharacter(tokens[0]);
+                    int[] strokes = new int[tokens.length - 1];
+                    for (int i = 0; i < strokes.length; i++) {
+                        if (tokens[i + 1].startsWith("#")) {
+                            strokes = Arrays.copyOf(strokes, i);
+                            break;
+                        }
+                        strokes[i] = parseStroke(tokens[i + 1]);
+                    }
+                    if (strokes.length == 0) {
+                        throw new IllegalArgumentException("No keystroke for '" + c + "'");
+                    }
+                    builder.map(c, strokes);
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Layout " + name + " line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return builder.build(name, description);
+    }
+
+    private static char parseCharacter(String token) {
+        if (token.length() == 1) {
+            return token.charAt(0);
+        }
+        if (token.startsWith("U+") || token.startsWith("u+")) {
+            int codePoint = Integer.parseInt(token.substring(2), 16);
+            if (codePoint > 0xFFFF) {
+                throw new IllegalArgumentException("Only characters up to U+FFFF can be mapped: " + token);
+            }
+            return (char) codePoint;
+        }
+        throw new IllegalArgumentException("Expected a single character or U+XXXX: " + token);
+    }
+
+    /**
+     * Parses a keystroke written as {@code [modifier+]...key}, e.g. {@code shift+A} or
+     * {@code ctrl+alt+DELETE}: modifiers {@code shift}, {@code altgr}, {@code ctrl},
+     * {@code alt} and {@code meta}, and a key named as its {@link KeyEvent} {@code VK_} constant.
+     *
+     * @throws IllegalArgumentException for an unknown modifier or key
+     */
+    public static int parseStroke(String token) {
+        int modifiers = 0;
+        String[] parts = token.split("\\+");
+        for (int i = 0; i < parts.length - 1; i++) {
+            modifiers |= switch (parts[i].toLowerCase(Locale.ROOT)) {
+                case "shift" -> KeystrokeProgram.MOD_SHIFT;
+                case "altgr" -> KeystrokeProgram.MOD_ALT_GRAPH;
+                case "ctrl" -> KeystrokeProgram.MOD_CONTROL;
+                case "alt" -> KeystrokeProgram.MOD_ALT;
+                case "meta" -> KeystrokeProgram.MOD_META;
+                default -> throw new IllegalArgumentException("Unknown modifier '" + parts[i] + "'");
+            };
+        }
+        String key = parts[parts.length - 1];
+        try {
+            return stroke(KeyEvent.class.getField("VK_" + key).getInt(null), modifiers);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Unknown key '" + key + "'");
+        }
+    }
+
+    /** Packs a key code and modifier bits into one keystroke value. */
+    public static int stroke(int keyCode, int modifiers) {
+        return keyCode | modifiers << MODIFIER_SHIFT;
+    }
+
+    public static int keyCode(int stroke) {
+        return stroke & 0xFFFF;
+    }
+
+    public static int modifiers(int stroke) {
+        return stroke >>> MODIFIER_SHIFT;
+    }
+
+    /**
+     * Table entry for {@code c}: a packed keystroke, a {@link #isSequence sequence} reference,
+     * or 0 if the layout has no mapping.
+     */
+    public int lookup(char c) {
+        return c < table.length ? table[c] : 0;
+    }
+
+    /** Whether a {@link #lookup} entry refers to a multi-keystroke sequence. */
+    public static boolean isSequence(int entry) {
+        return entry < 0;
+    }
+
+    public int sequenceLength(int entry) {
+        return sequences[~entry];
+    }
+
+    public int sequenceStroke(int entry, int index) {
+        return sequences[~entry + 1 + index];
+    }
+
+    public boolean isMapped(char c) {
+        return lookup(c) != 0;
+    }
+
+    /**
+     * Writes the keystrokes that type {@code c} into {@code out}, using {@code fallback} for
+     * characters the layout does not map.
+     *
+     * @param out receives at least {@link UnicodeInput#MAX_STROKES} strokes
+     * @return the number of strokes written, 0 if {@code c} cannot be typed
+     */
+    public int strokes(char c, UnicodeInput fallback, int[] out) {
+        int entry = lookup(c);
+        if (entry > 0) {
+            out[0] = entry;
+            return 1;
+        }
+        if (entry < 0) {
+            int length = sequenceLength(entry);
+            System.arraycopy(sequences, ~entry + 1, out, 0, length);
+            return length;
+        }
+        return fallback.strokes(c, this, out);
+    }
+
+    /** Short name: a built-in name or the file name it was loaded from. */
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /** Collects mappings while parsing and expands dead keys into the dense table. */
+    private static final class Builder {
+        private int[][] mappings = new int[128][];
+        private final StringBuilder deadAccents = new StringBuilder();
+        private int[] deadStrokes = new int[4];
+
+        void map(char c, int[] strokes) {
+            if (c >= mappings.length) {
+                mappings = Arrays.copyOf(mappings, Math.max(c + 1, mappings.length * 2));
+            }
+            mappings[c] = strokes;
+        }
+
+        void deadKey(char accent, int stroke) {
+            if (deadAccents.length() == deadStrokes.length) {
+                deadStrokes = Arrays.copyOf(deadStrokes, deadStrokes.length * 2);
+            }
+            deadStrokes[deadAccents.length()] = stroke;
+            deadAccents.append(accent);
+        }
+
+        KeyboardLayout build(String name, String description) {
+            int space = lookupSingle(' ');
+            int baseCount = mappings.length;
+            for (int d = 0; d < deadAccents.length(); d++) {
+                char accent = deadAccents.charAt(d);
+                int dead = deadStrokes[d];
+                String combining = String.valueOf(COMBINING.charAt(ACCENTS.indexOf(accent)));
+                for (int base = 'A'; base < baseCount; base++) {
+                    if (mappings[base] == null || mappings[base].length != 1 || !Character.isLetter(base)) {
+                        continue;
+                    }
+                    String composed = Normalizer.normalize((char) base + combining, Normalizer.Form.NFC);
+                    if (composed.length() == 1) {
+                        addIfAbsent(composed.charAt(0), new int[] {dead, mappings[base][0]});
+                    }
+                }
+                // Dead key then space types the accent itself
+                if (space != 0) {
+                    addIfAbsent(accent, new int[] {dead, space});
+                }
+            }
+
+            int length = mappings.length;
+            while (length > 0 && mappings[length - 1] == null) {
+                length--;
+            }
+            int[] table = new int[length];
+            int poolSize = 0;
+            for (int c = 0; c < length; c++) {
+                if (mappings[c] != null && mappings[c].length > 1) {
+                    poolSize += 1 + mappings[c].length;
+                }
+            }
+            int[] pool = new int[poolSize];
+            int next = 0;
+            for (int c = 0; c < length; c++) {
+                int[] strokes = mappings[c];
+                if (strokes == null) {
+                    continue;
+                }
+                if (strokes.length == 1) {
+                    table[c] = strokes[0];
+                } else {
+                    table[c] = ~next;
+                    pool[next++] = strokes.length;
+                    System.arraycopy(strokes, 0, pool, next, strokes.length);
+                    next += strokes.length;
+                }
+            }
+            return new KeyboardLayout(name, description, table, pool);
+        }
+
+        private int lookupSingle(char c) {
+            return c < mappings.length && mappings[c] != null && mappings[c].length == 1 ? mappings[c][0] : 0;
+        }
+
+        private void addIfAbsent(char c, int[] strokes) {
+            if (c >= mappings.length || mappings[c] == null) {
+                map(c, strokes);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package autokeypresser.layout;
+
+import java.awt.event.KeyEvent;
+import java.util.Locale;
+
+import autokeypresser.engine.KeystrokeProgram;
+
+/**
+ * How to type a character the keyboard layout has no key for: by its hexadecimal code point,
+ * using the operating system's Unicode input method. Only characters up to U+FFFF are supported.
+ */
+public enum UnicodeInput {
+
+    /** No fallback; unmapped characters are rejected or skipped. */
+    NONE,
+    /** Ctrl+Shift+U, the hex digits, then Space (GTK and IBus on Linux). */
+    LINUX,
+    /**
+     * The hex digits with ALT held, after numpad {@code +}. Needs the {@code EnableHexNumpad}
+     * registry value on Windows.
+     */
+    WINDOWS,
+    /** The four hex digits with Option held (the "Unicode Hex Input" source on macOS). */
+    MAC;
+
+    /** Most keystrokes a fallback sequence can take. */
+    public static final int MAX_STROKES = 8;
+
+    private static final String HEX_DIGITS = "0123456789abcdef";
+
+    /**
+     * @throws IllegalArgumentException if {@code name} is not one of the constants (case-insensitive)
+     */
+    public static UnicodeInput forName(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown Unicode input '" + name + "' (use none, linux, windows or mac)");
+        }
+    }
+
+    /**
+     * Writes the keystrokes that enter {@code c} by code point into {@code out}. Hex digits
+     * are typed with the keys {@code layout} maps them to.
+     *
+     * @return the number of strokes written, 0 if this is {@link #NONE} or the layout cannot
+     *         type a hex digit with a single keystroke
+     */
+    public int strokes(char c, KeyboardLayout layout, int[] out) {
+        if (Character.isSurrogate(c)) {
+            return 0; // Half of a code point above U+FFFF
+        }
+        int n = 0;
+        switch (this) {
+            case NONE -> {
+                return 0;
+            }
+            case LINUX -> {
+                int u = layout.lookup('u');
+                if (u <= 0) {
+                    return 0;
+                }
+                out[n++] = KeyboardLayout.stroke(KeyboardLayout.keyCode(u),
+                        KeyboardLayout.modifiers(u) | KeystrokeProgram.MOD_CONTROL | KeystrokeProgram.MOD_SHIFT);
+                n = hexDigits(c, layout, 0, false, out, n);
+                int space = layout.lookup(' ');
+                if (n == 0 || space <= 0) {
+                    return 0;
+                }
+                out[n++] = space;
+            }
+            case WINDOWS -> {
+                out[n++] = KeyboardLayout.stroke(KeyEvent.VK_ADD, KeystrokeProgram.MOD_ALT);
+                n = hexDigits(c, layout, KeystrokeProgram.MOD_ALT, true, out, n);
+            }
+            case MAC -> n = hexDigits(c, layout, KeystrokeProgram.MOD_ALT, false, out, 0);
+        }
+        return n;
+    }
+
+    // Appends the four hex digits of c; returns the new count, or 0 if a digit has no single key
+    private static int hexDigits(char c, KeyboardLayout layout, int modifiers, boolean numpad, int[] out, int n) {
+        for (int shift = 12; shift >= 0; shift -= 4) {
+            int digit = (c >>> shift) & 0xF;
+            int stroke;
+            if (numpad && digit < 10) {
+                stroke = KeyboardLayout.stroke(KeyEvent.VK_NUMPAD0 + digit, 0);
+            } else {
+                stroke = layout.lookup(HEX_DIGITS.charAt(digit));
+                if (stroke <= 0) {
+                    return 0;
+                }
+            }
+            out[n++] = KeyboardLayout.stroke(KeyboardLayout.keyCode(stroke), KeyboardLayout.modifiers(stroke) | modifiers);
+        }
+        return n;
+    }
+}
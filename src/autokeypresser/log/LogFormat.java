@@ -0,0 +1,41 @@
+package autokeypresser.log;
+
+import java.util.Locale;
+
+/**
+ * Encoding of a {@link RunLogWriter} file.
+ *
+ * <pre>
+ * TEXT    2026-10-17T14:23:15.123Z press 42 'a' position 3
+ *         2026-10-17T14:23:15.200Z Stopped by user
+ * JSON    {"time":"2026-10-17T14:23:15.123Z","press":42,"char":"a","position":3}
+ *         {"time":"2026-10-17T14:23:15.200Z","event":"Stopped by user"}
+ * BINARY  file   = "AKPL" version:u8 record*
+ *         record = varint(zigzag(deltaMillis) &lt;&lt; 1 | type) payload
+ *         PRESS (0)  payload = zigzag(pressDelta) varint(char) zigzag(positionDelta)
+ *         EVENT (1)  payload = varint(length) utf8
+ * </pre>
+ *
+ * Times are UTC. Binary deltas are to the previous record of the same file, starting from
+ * 0, so a press at a steady rate takes about 4 bytes; read it with {@link RunLogReader}.
+ */
+public enum LogFormat {
+
+    /** One human-readable line per entry. */
+    TEXT,
+    /** One JSON object per line, for log pipelines. */
+    JSON,
+    /** Delta-encoded varint records. */
+    BINARY;
+
+    /**
+     * @throws IllegalArgumentException if {@code name} is not one of the constants (case-insensitive)
+     */
+    public static LogFormat forName(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown log format '" + name + "' (use text, json or binary)");
+        }
+    }
+}
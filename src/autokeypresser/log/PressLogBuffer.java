@@ -0,0 +1,101 @@
+package autokeypresser.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-capacity single-producer/single-consumer ring buffer of press log entries.
+ *
+ * The press thread records structured entries into preallocated primitive arrays, so a
+ * press costs a few stores and no allocation. The UI drains whatever has accumulated in
+ * one batch. When the consumer falls behind, new entries are dropped and counted rather
+ * than blocking the press thread or growing memory.
+ */
+public final class PressLogBuffer {
+
+    /** Receives drained entries; called on the consumer thread. */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long pressNumber, char character, long position, long timeMillis);
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final long[] pressNumbers;
+    private final char[] characters;
+    private final long[] positions;
+    private final long[] timestamps;
+
+    private final AtomicLong head = new AtomicLong(); // next slot to read, owned by consumer
+    private final AtomicLong tail = new AtomicLong(); // next slot to write, owned by producer
+    private final AtomicLong dropped = new AtomicLong();
+
+    public PressLogBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.pressNumbers = new long[capacity];
+        this.characters = new char[capacity];
+        this.positions = new long[capacity];
+        this.timestamps = new long[capacity];
+    }
+
+    /**
+     * Records one press. Must only be called from the single producer thread.
+     *
+     * @return false if the buffer was full and the entry was dropped
+     */
+    public boolean record(long pressNumber, char character, long position, long timeMillis) {
+        long t = tail.get();
+        if (t - head.get() >= capacity) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        int slot = (int) t & mask;
+        pressNumbers[slot] = pressNumber;
+        characters[slot] = character;
+        positions[slot] = position;
+        timestamps[slot] = timeMillis;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Hands every entry recorded so far to {@code consumer} in order. Must only be called
+     * from the single consumer thread.
+     *
+     * @return number of entries drained
+     */
+    public int drain(EntryConsumer consumer) {
+        return drain(consumer, capacity);
+    }
+
+    /**
+     * Like {@link #drain(EntryConsumer)} but only hands over the newest {@code maxEntries};
+     * older pending entries are discarded and counted as dropped.
+     */
+    public int drain(EntryConsumer consumer, int maxEntries) {
+        long h = head.get();
+        long t = tail.get();
+        if (t - h > maxEntries) {
+            dropped.addAndGet(t - h - maxEntries);
+            h = t - maxEntries;
+        }
+        for (long i = h; i < t; i++) {
+            int slot = (int) i & mask;
+            consumer.accept(pressNumbers[slot], characters[slot], positions[slot], timestamps[slot]);
+        }
+        head.lazySet(t);
+        return (int) (t - h);
+    }
+
+    /** Returns the number of entries dropped since the last call and resets the counter. */
+    public long takeDropped() {
+        return dropped.getAndSet(0);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
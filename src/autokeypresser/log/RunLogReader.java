@@ -0,0 +1,109 @@
+package autokeypresser.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads a {@link LogFormat#BINARY} run log one record at a time. A file cut off mid-record
+ * (e.g. by a crash) reads up to the last complete record. Not thread-safe.
+ */
+public final class RunLogReader {
+
+    private final ByteBuffer buffer;
+    private boolean press;
+    private long timeMillis;
+    private long pressNumber;
+    private char character;
+    private long position;
+    private String message;
+
+    private RunLogReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the file is not a binary run log
+     */
+    public static RunLogReader open(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        for (byte b : RunLogWriter.MAGIC) {
+            if (!buffer.hasRemaining() || buffer.get() != b) {
+                throw new IllegalArgumentException(file + " is not a binary run log");
+            }
+        }
+        if (!buffer.hasRemaining() || buffer.get() != RunLogWriter.VERSION) {
+            throw new IllegalArgumentException(file + " has an unsupported run log version");
+        }
+        return new RunLogReader(buffer);
+    }
+
+    /** Moves to the next record; returns false at the end of the file. */
+    public boolean next() {
+        int start = buffer.position();
+        try {
+            long header = getVarLong();
+            timeMillis += unzigzag(header >>> 1);
+            press = (header & 1) == RunLogWriter.PRESS;
+            if (press) {
+                pressNumber += unzigzag(getVarLong());
+                character = (char) getVarLong();
+                position += unzigzag(getVarLong());
+                message = null;
+            } else {
+                int length = (int) getVarLong();
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                message = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            buffer.position(start); // Truncated record
+            return false;
+        }
+    }
+
+    /** Whether the current record is a press; otherwise it is an event with a {@link #getMessage()}. */
+    public boolean isPress() {
+        return press;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public long getPressNumber() {
+        return pressNumber;
+    }
+
+    public char getCharacter() {
+        return character;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    /** The event's message, or {@code null} for a press. */
+    public String getMessage() {
+        return message;
+    }
+
+    private long getVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint at byte " + buffer.position());
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
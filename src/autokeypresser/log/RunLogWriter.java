@@ -0,0 +1,510 @@
+package autokeypresser.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Persistent run log: presses and events are written to a file by a background thread, so
+ * the history of a run outlives the window or terminal.
+ *
+ * {@link #press} and {@link #event} only claim a slot in a bounded lock-free
+ * multi-producer queue (the same sequence-numbered design as
+ * {@link autokeypresser.lanes.KeystrokeQueue}) and store primitives; when the queue is full
+ * the entry is dropped and counted, never waited for. The writer thread encodes entries in
+ * {@link LogFormat} into a reusable direct buffer and writes it to the channel whenever it
+ * fills or the queue runs dry, at most every {@value #IDLE_PARK_MILLIS} ms while idle.
+ *
+ * A file that reaches the size limit or age limit is rotated: {@code run.log} becomes
+ * {@code run.log.1}, {@code run.log.1} becomes {@code run.log.2} and so on, keeping the
+ * configured number of old files. A file can overshoot the size limit by up to one buffer.
+ * An existing log is rotated away when the writer starts, so each run begins a fresh file.
+ */
+public final class RunLogWriter implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    public static final long DEFAULT_MAX_BYTES = 10L * 1024 * 1024;
+    public static final int DEFAULT_KEEP_FILES = 5;
+
+    static final byte[] MAGIC = {'A', 'K', 'P', 'L'};
+    static final int VERSION = 1;
+    static final int PRESS = 0;
+    static final int EVENT = 1;
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_MESSAGE_CHARS = 1024;
+    // A message of MAX_MESSAGE_CHARS escaped as \\uXXXX plus the rest of a JSON line
+    private static final int MAX_ENTRY_BYTES = MAX_MESSAGE_CHARS * 6 + 128;
+    private static final long IDLE_PARK_MILLIS = 10;
+    private static final DateTimeFormatter SECOND_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss").withZone(ZoneOffset.UTC);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final Path file;
+    private final LogFormat format;
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    private final int keepFiles;
+
+    // Queue
+    private final int capacity;
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final long[] numbers;
+    private final long[] positions;
+    private final long[] times;
+    private final char[] characters;
+    private final String[] messages;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private long head; // owned by the writer
+
+    // Writer state
+    private final Thread writer;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final byte[] secondText = new byte[19];
+    private long cachedSecond = Long.MIN_VALUE;
+    private FileChannel channel;
+    private long fileBytes;
+    private long fileOpenedMillis;
+    private long lastTime;
+    private long lastNumber;
+    private long lastPosition;
+    private volatile boolean closed;
+    private volatile IOException failure;
+    private final AtomicLong written = new AtomicLong();
+
+    private RunLogWriter(Path file, LogFormat format, long maxBytes, long maxAgeMillis, int keepFiles, int capacity) {
+        this.file = file;
+        this.format = format;
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        this.keepFiles = keepFiles;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.numbers = new long[capacity];
+        this.positions = new long[capacity];
+        this.times = new long[capacity];
+        this.characters = new char[capacity];
+        this.messages = new String[capacity];
+        this.writer = new Thread(this::writeLoop, "autokeypresser-log-writer");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Starts logging to {@code file} with the default size limit, no age limit and
+     * {@value #DEFAULT_KEEP_FILES} rotated files.
+     */
+    public static RunLogWriter open(Path file, LogFormat format) throws IOException {
+        return open(file, format, DEFAULT_MAX_BYTES, 0, DEFAULT_KEEP_FILES, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param maxBytes     size at which the file is rotated, or 0 for no limit
+     * @param maxAgeMillis age at which the file is rotated, or 0 for no limit
+     * @param keepFiles    rotated files to keep; 0 deletes a file when it is rotated
+     * @param capacity     queue entries, a power of two
+     * @throws IllegalArgumentException for a negative limit or a capacity that is not a power of two
+     */
+    public static RunLogWriter open(Path file, LogFormat format, long maxBytes, long maxAgeMillis, int keepFiles,
+                                    int capacity) throws IOException {
+        if (maxBytes < 0 || maxAgeMillis < 0 || keepFiles < 0) {
+            throw new IllegalArgumentException("Log limits must not be negative");
+        }
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two: " + capacity);
+        }
+        RunLogWriter log = new RunLogWriter(file, format, maxBytes, maxAgeMillis, keepFiles, capacity);
+        if (Files.exists(file) && Files.size(file) > 0) {
+            log.shiftRotated();
+        }
+        log.openFile();
+        log.writer.start();
+        return log;
+    }
+
+    /**
+     * Queues one press. Safe to call from any thread; never blocks.
+     *
+     * @return false if the queue was full and the entry was dropped
+     */
+    public boolean press(long pressNumber, char character, long position, long timeMillis) {
+        return offer(pressNumber, character, position, timeMillis, null);
+    }
+
+    /**
+     * Queues a message, e.g. a run starting or stopping, stamped with the current time.
+     * Messages over {@value #MAX_MESSAGE_CHARS} characters are truncated.
+     *
+     * @return false if the queue was full and the entry was dropped
+     */
+    public boolean event(String message) {
+        return offer(0, '\0', 0, System.currentTimeMillis(), message);
+    }
+
+    private boolean offer(long number, char character, long position, long timeMillis, String message) {
+        while (true) {
+            long t = tail.get();
+            int slot = (int) t & mask;
+            long sequence = sequences.get(slot);
+            if (sequence == t) {
+                if (tail.compareAndSet(t, t + 1)) {
+                    numbers[slot] = number;
+                    characters[slot] = character;
+                    positions[slot] = position;
+                    times[slot] = timeMillis;
+                    messages[slot] = message;
+                    sequences.lazySet(slot, t + 1);
+                    return true;
+                }
+            } else if (sequence < t) {
+                dropped.incrementAndGet();
+                return false; // The writer has not freed this slot yet
+            }
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            boolean stopping = closed;
+            try {
+                int drained = drain();
+                if (fileExpired()) {
+                    writeBuffer();
+                    if (fileExpired()) { // Unless the write just rotated at the size limit
+                        rotate();
+                    }
+                }
+                if (drained > 0) {
+                    continue;
+                }
+                long lost = dropped.getAndSet(0);
+                if (lost > 0 && failure == null) {
+                    encodeEvent(System.currentTimeMillis(), lost + " log entries dropped (writer fell behind)");
+                }
+                writeBuffer();
+            } catch (IOException e) {
+                // Keep draining, discarding, so producers drop instead of finding the queue full forever
+                failure = e;
+                buffer.clear();
+                System.err.println("Run log " + file + " stopped: " + e.getMessage());
+            }
+            if (stopping) {
+                break;
+            }
+            LockSupport.parkNanos(this, IDLE_PARK_MILLIS * 1_000_000L);
+        }
+        try {
+            writeBuffer(); // The header of a file the last write rotated to
+            channel.close();
+        } catch (IOException e) {
+            // Already reported, or nothing left to lose
+        }
+    }
+
+    // Encodes up to one queue's worth of published entries; returns how many
+    private int drain() throws IOException {
+        int drained = 0;
+        long h = head;
+        while (drained < capacity) {
+            int slot = (int) h & mask;
+            if (sequences.get(slot) != h + 1) {
+                break; // Not yet published
+            }
+            String message = messages[slot];
+            messages[slot] = null;
+            if (failure != null) {
+                // Discarded
+            } else if (message == null) {
+                encodePress(times[slot], numbers[slot], characters[slot], positions[slot]);
+            } else {
+                encodeEvent(times[slot], message);
+            }
+            sequences.lazySet(slot, h + capacity);
+            h++;
+            drained++;
+            if (buffer.remaining() < MAX_ENTRY_BYTES && failure == null) {
+                head = h;
+                writeBuffer();
+            }
+        }
+        head = h;
+        return drained;
+    }
+
+    private void encodePress(long timeMillis, long number, char c, long position) {
+        switch (format) {
+            case TEXT -> {
+                putTime(timeMillis);
+                putAscii(" press ");
+                putDecimal(number);
+                buffer.put((byte) ' ').put((byte) '\'');
+                putChar(c, false);
+                putAscii("' position ");
+                putDecimal(position);
+                buffer.put((byte) '\n');
+            }
+            case JSON -> {
+                putAscii("{\"time\":\"");
+                putTime(timeMillis);
+                putAscii("\",\"press\":");
+                putDecimal(number);
+                putAscii(",\"char\":\"");
+                putChar(c, true);
+                putAscii("\",\"position\":");
+                putDecimal(position);
+                putAscii("}\n");
+            }
+            case BINARY -> {
+                putRecordHeader(timeMillis, PRESS);
+                putVarLong(zigzag(number - lastNumber));
+                putVarLong(c);
+                putVarLong(zigzag(position - lastPosition));
+                lastNumber = number;
+                lastPosition = position;
+            }
+        }
+    }
+
+    private void encodeEvent(long timeMillis, String message) {
+        if (message.length() > MAX_MESSAGE_CHARS) {
+            message = message.substring(0, MAX_MESSAGE_CHARS);
+        }
+        switch (format) {
+            case TEXT -> {
+                putTime(timeMillis);
+                buffer.put((byte) ' ');
+                putUtf8(message.replace('\n', ' '));
+                buffer.put((byte) '\n');
+            }
+            case JSON -> {
+                putAscii("{\"time\":\"");
+                putTime(timeMillis);
+                putAscii("\",\"event\":\"");
+                for (int i = 0; i < message.length(); i++) {
+                    char c = message.charAt(i);
+                    if (c < 0x80 || Character.isSurrogate(c)) {
+                        putChar(c, true);
+                    } else {
+                        putUtf8Char(c);
+                    }
+                }
+                putAscii("\"}\n");
+            }
+            case BINARY -> {
+                putRecordHeader(timeMillis, EVENT);
+                int lengthAt = buffer.position();
+                buffer.put((byte) 0).put((byte) 0); // Two-byte varint placeholder, enough for the cap
+                int start = buffer.position();
+                putUtf8(message);
+                int length = buffer.position() - start;
+                buffer.put(lengthAt, (byte) ((length & 0x7F) | 0x80)).put(lengthAt + 1, (byte) (length >>> 7));
+            }
+        }
+    }
+
+    // 2026-10-17T14:23:15.123Z; the part up to the second is formatted once per second
+    private void putTime(long timeMillis) {
+        long second = Math.floorDiv(timeMillis, 1000);
+        if (second != cachedSecond) {
+            byte[] text = SECOND_FORMAT.format(Instant.ofEpochSecond(second)).getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(text, 0, secondText, 0, secondText.length);
+            cachedSecond = second;
+        }
+        int millis = Math.floorMod(timeMillis, 1000);
+        buffer.put(secondText).put((byte) '.')
+                .put((byte) ('0' + millis / 100)).put((byte) ('0' + millis / 10 % 10)).put((byte) ('0' + millis % 10))
+                .put((byte) 'Z');
+    }
+
+    private void putAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    private void putDecimal(long value) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int start = buffer.position();
+        do {
+            buffer.put((byte) ('0' + value % 10));
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = buffer.position() - 1; i < j; i++, j--) {
+            byte b = buffer.get(i);
+            buffer.put(i, buffer.get(j)).put(j, b);
+        }
+    }
+
+    // One pressed character; JSON escapes, and a lone surrogate half cannot be UTF-8
+    private void putChar(char c, boolean json) {
+        if (json && (c == '"' || c == '\\' || c < 0x20 || Character.isSurrogate(c))) {
+            switch (c) {
+                case '"' -> putAscii("\\\"");
+                case '\\' -> putAscii("\\\\");
+                case '\n' -> putAscii("\\n");
+                case '\t' -> putAscii("\\t");
+                case '\r' -> putAscii("\\r");
+                default -> {
+                    putAscii("\\u");
+                    buffer.put(HEX[c >>> 12]).put(HEX[(c >>> 8) & 0xF]).put(HEX[(c >>> 4) & 0xF]).put(HEX[c & 0xF]);
+                }
+            }
+        } else if (c < 0x80) {
+            buffer.put((byte) c);
+        } else if (Character.isSurrogate(c)) {
+            buffer.put((byte) '?');
+        } else {
+            putUtf8Char(c);
+        }
+    }
+
+    private void putUtf8Char(char c) {
+        if (c < 0x800) {
+            buffer.put((byte) (0xC0 | c >>> 6)).put((byte) (0x80 | c & 0x3F));
+        } else {
+            buffer.put((byte) (0xE0 | c >>> 12)).put((byte) (0x80 | (c >>> 6) & 0x3F)).put((byte) (0x80 | c & 0x3F));
+        }
+    }
+
+    private void putUtf8(String text) {
+        encoder.reset();
+        encoder.encode(CharBuffer.wrap(text), buffer, true);
+        encoder.flush(buffer);
+    }
+
+    private void putRecordHeader(long timeMillis, int type) {
+        putVarLong(zigzag(timeMillis - lastTime) << 1 | type);
+        lastTime = timeMillis;
+    }
+
+    private void putVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private void writeBuffer() throws IOException {
+        if (failure != null) {
+            buffer.clear();
+            return;
+        }
+        buffer.flip();
+        long bytes = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        fileBytes += bytes;
+        written.addAndGet(bytes);
+        if (maxBytes > 0 && fileBytes >= maxBytes) {
+            rotate();
+        }
+    }
+
+    private boolean fileExpired() {
+        return maxAgeMillis > 0 && failure == null && fileBytes > 0
+                && System.currentTimeMillis() - fileOpenedMillis >= maxAgeMillis;
+    }
+
+    private void rotate() throws IOException {
+        channel.close();
+        shiftRotated();
+        openFile();
+    }
+
+    // run.log.(n-1) -> run.log.n ... run.log -> run.log.1
+    private void shiftRotated() throws IOException {
+        if (keepFiles == 0) {
+            Files.deleteIfExists(file);
+            return;
+        }
+        Files.deleteIfExists(rotated(keepFiles));
+        for (int i = keepFiles - 1; i >= 1; i--) {
+            Path from = rotated(i);
+            if (Files.exists(from)) {
+                Files.move(from, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path rotated(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void openFile() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        fileBytes = 0;
+        fileOpenedMillis = System.currentTimeMillis();
+        lastTime = 0;
+        lastNumber = 0;
+        lastPosition = 0;
+        if (format == LogFormat.BINARY) {
+            buffer.put(MAGIC).put((byte) VERSION);
+        }
+    }
+
+    /** Bytes written to the log files so far. */
+    public long getWrittenBytes() {
+        return written.get();
+    }
+
+    /** Why the writer stopped writing, or {@code null} while it works. */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public LogFormat getFormat() {
+        return format;
+    }
+
+    /** Writes every entry queued so far and closes the file. */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package autokeypresser.macro;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The binary macro format shared by {@link MacroWriter} and {@link MacroReader}.
+ *
+ * <pre>
+ * file   = "AKPM" version:u8 event*
+ * event  = varint(deltaNanos &lt;&lt; 2 | type) payload
+ * KEY_DOWN, KEY_UP  payload = varint(keyCode)
+ * KEYSTROKE         payload = varint(keyCode) varint(modifiers)   press + release
+ * MOUSE_MOVE        payload = zigzag(dx) zigzag(dy)               from the previous position, starting at 0,0
+ * </pre>
+ *
+ * Varints are unsigned LEB128. Deltas are nanoseconds since the previous event (0 for the
+ * first), so a typical keystroke at a steady rate takes 4 to 5 bytes.
+ */
+public final class MacroFormat {
+
+    public static final int KEY_DOWN = 0;
+    public static final int KEY_UP = 1;
+    public static final int KEYSTROKE = 2;
+    public static final int MOUSE_MOVE = 3;
+
+    static final byte[] MAGIC = {'A', 'K', 'P', 'M'};
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = MAGIC.length + 1;
+
+    /** Upper bound of one encoded event: a 10-byte varint header and two 5-byte payload varints. */
+    static final int MAX_EVENT_BYTES = 20;
+
+    private MacroFormat() {
+    }
+
+    static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint at byte " + buffer.position());
+    }
+
+    static int getVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint at byte " + buffer.position());
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
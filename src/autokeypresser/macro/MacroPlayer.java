@@ -0,0 +1,104 @@
+package autokeypresser.macro;
+
+import java.io.IOException;
+import java.util.BitSet;
+
+import autokeypresser.engine.HybridSleeper;
+import autokeypresser.engine.ModifierTracker;
+import autokeypresser.engine.PressEngine;
+import autokeypresser.output.KeystrokeOutput;
+
+/**
+ * Replays a macro from a {@link MacroReader} with its recorded timing, optionally sped up or
+ * slowed down.
+ *
+ * Each event is due at the recording's cumulative time divided by the speed factor, measured
+ * from the start of playback, so per-event overhead never accumulates into drift. Keys held
+ * by KEY_DOWN events and modifiers held for KEYSTROKE events are released however playback
+ * ends, so a stop never leaves a key stuck down.
+ */
+public final class MacroPlayer {
+
+    private final KeystrokeOutput output;
+    private final ModifierTracker modifierState;
+    private final HybridSleeper sleeper = new HybridSleeper();
+    private final BitSet heldKeys = new BitSet();
+
+    private volatile boolean running;
+
+    public MacroPlayer(KeystrokeOutput output) {
+        this.output = output;
+        this.modifierState = new ModifierTracker(output);
+    }
+
+    /**
+     * Plays every event of {@code reader} until the end of the file or {@link #stop()}. A
+     * stop that also interrupts the thread returns normally with the interrupt status preserved.
+     *
+     * @param speed 1.0 for the recorded timing, 2.0 for twice as fast, and so on
+     * @return the number of events played
+     * @throws IllegalArgumentException if {@code speed} is not positive
+     * @throws InterruptedException if interrupted without {@link #stop()} having been called
+     */
+    public long play(MacroReader reader, double speed) throws IOException, InterruptedException {
+        if (!(speed > 0) || Double.isInfinite(speed)) {
+            throw new IllegalArgumentException("Speed must be a positive number: " + speed);
+        }
+        running = true;
+        long played = 0;
+        long recordedNanos = 0;
+        long startNanos = System.nanoTime();
+        try {
+            while (running && reader.next()) {
+                recordedNanos += reader.deltaNanos();
+                if (reader.deltaNanos() / speed > PressEngine.MAX_MODIFIER_HOLD_NANOS) {
+                    // Do not keep SHIFT down across a long pause
+                    modifierState.releaseAll();
+                }
+                try {
+                    sleeper.waitUntil(startNanos + (long) (recordedNanos / speed));
+                } catch (InterruptedException e) {
+                    if (running) {
+                        throw e;
+                    }
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                switch (reader.type()) {
+                    case MacroFormat.KEY_DOWN -> {
+                        output.keyPress(reader.keyCode());
+                        heldKeys.set(reader.keyCode());
+                    }
+                    case MacroFormat.KEY_UP -> {
+                        output.keyRelease(reader.keyCode());
+                        heldKeys.clear(reader.keyCode());
+                    }
+                    case MacroFormat.KEYSTROKE -> {
+                        modifierState.apply(reader.modifiers());
+                        output.keyPress(reader.keyCode());
+                        output.keyRelease(reader.keyCode());
+                    }
+                    default -> output.mouseMoveTo(reader.mouseX(), reader.mouseY());
+                }
+                played++;
+            }
+            return played;
+        } finally {
+            modifierState.releaseAll();
+            for (int key = heldKeys.nextSetBit(0); key >= 0; key = heldKeys.nextSetBit(key + 1)) {
+                output.keyRelease(key);
+            }
+            heldKeys.clear();
+            running = false;
+        }
+    }
+
+    /** Asks a running {@link #play} to return after the current event. */
+    public void stop() {
+        running = false;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,165 @@
+package autokeypresser.macro;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams a {@link MacroFormat} file event by event straight out of a memory mapping.
+ *
+ * Events are decoded in place from mapped windows of the file, so memory use is the same for
+ * a thousand events as for a hundred million, and nothing is copied onto the heap. A file cut
+ * off mid-event (e.g. a recorder that was killed) ends at the last complete event.
+ * Not thread-safe.
+ */
+public final class MacroReader implements AutoCloseable {
+
+    private static final long MAP_WINDOW_BYTES = 64L << 20;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long fileSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    private int type;
+    private long deltaNanos;
+    private int keyCode;
+    private int modifiers;
+    private int mouseX;
+    private int mouseY;
+    private long events;
+    private boolean truncated;
+
+    private MacroReader(Path file, FileChannel channel) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.fileSize = channel.size();
+        map(0);
+        byte[] header = new byte[MacroFormat.HEADER_BYTES];
+        if (fileSize < header.length) {
+            throw new IOException("Not a macro file (too short): " + file);
+        }
+        window.get(header);
+        for (int i = 0; i < MacroFormat.MAGIC.length; i++) {
+            if (header[i] != MacroFormat.MAGIC[i]) {
+                throw new IOException("Not a macro file: " + file);
+            }
+        }
+        if (header[MacroFormat.MAGIC.length] != MacroFormat.VERSION) {
+            throw new IOException("Unsupported macro version " + header[MacroFormat.MAGIC.length] + ": " + file);
+        }
+    }
+
+    public static MacroReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new MacroReader(file, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void map(long position) throws IOException {
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW_BYTES, fileSize - position));
+    }
+
+    /**
+     * Decodes the next event.
+     *
+     * @return false at the end of the file
+     */
+    public boolean next() throws IOException {
+        if (window.remaining() < MacroFormat.MAX_EVENT_BYTES && windowStart + window.limit() < fileSize) {
+            // Remap at the event boundary so no event straddles two windows
+            map(windowStart + window.position());
+        }
+        if (!window.hasRemaining()) {
+            return false;
+        }
+        int start = window.position();
+        try {
+            long header = MacroFormat.getVarLong(window);
+            type = (int) header & 3;
+            deltaNanos = header >>> 2;
+            switch (type) {
+                case MacroFormat.KEY_DOWN, MacroFormat.KEY_UP -> {
+                    keyCode = MacroFormat.getVarInt(window);
+                    modifiers = 0;
+                }
+                case MacroFormat.KEYSTROKE -> {
+                    keyCode = MacroFormat.getVarInt(window);
+                    modifiers = MacroFormat.getVarInt(window);
+                }
+                default -> {
+                    int dx = MacroFormat.unzigzag(MacroFormat.getVarInt(window));
+                    int dy = MacroFormat.unzigzag(MacroFormat.getVarInt(window));
+                    mouseX += dx;
+                    mouseY += dy;
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            window.position(start);
+            truncated = true;
+            return false;
+        }
+        events++;
+        return true;
+    }
+
+    /** One of the {@link MacroFormat} event types. */
+    public int type() {
+        return type;
+    }
+
+    /** Nanoseconds since the previous event. */
+    public long deltaNanos() {
+        return deltaNanos;
+    }
+
+    public int keyCode() {
+        return keyCode;
+    }
+
+    public int modifiers() {
+        return modifiers;
+    }
+
+    /** Absolute pointer x after a MOUSE_MOVE. */
+    public int mouseX() {
+        return mouseX;
+    }
+
+    /** Absolute pointer y after a MOUSE_MOVE. */
+    public int mouseY() {
+        return mouseY;
+    }
+
+    /** Events decoded so far. */
+    public long getEvents() {
+        return events;
+    }
+
+    /** Whether the file ended in the middle of an event. */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,103 @@
+package autokeypresser.macro;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import autokeypresser.output.KeystrokeOutput;
+import autokeypresser.output.PointerLocator;
+
+/**
+ * Output decorator that passes every event on to a delegate and records it, with its
+ * timing, through a {@link MacroWriter}.
+ *
+ * A key press that is released within {@value #KEYSTROKE_MAX_HOLD_NANOS} ns is stored as one
+ * KEYSTROKE event instead of a KEY_DOWN/KEY_UP pair; longer holds keep both events so their
+ * timing is preserved. Java has no global input hook, so what gets recorded is the input
+ * this process sends, e.g. a text file run or a set of lanes, for replay elsewhere.
+ */
+public final class MacroRecordingOutput implements KeystrokeOutput, PointerLocator, AutoCloseable {
+
+    static final long KEYSTROKE_MAX_HOLD_NANOS = 1_000_000L;
+
+    private static final int NONE = -1;
+
+    private final KeystrokeOutput delegate;
+    private final MacroWriter writer;
+
+    // A press waiting to see whether its release follows quickly enough to form a KEYSTROKE
+    private int pendingKey = NONE;
+    private long pendingNanos;
+
+    public MacroRecordingOutput(KeystrokeOutput delegate, MacroWriter writer) {
+        this.delegate = delegate;
+        this.writer = writer;
+    }
+
+    @Override
+    public void keyPress(int keyCode) {
+        delegate.keyPress(keyCode);
+        long now = System.nanoTime();
+        try {
+            flushPending();
+            pendingKey = keyCode;
+            pendingNanos = now;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void keyRelease(int keyCode) {
+        delegate.keyRelease(keyCode);
+        long now = System.nanoTime();
+        try {
+            if (pendingKey == keyCode && now - pendingNanos <= KEYSTROKE_MAX_HOLD_NANOS) {
+                writer.keystroke(pendingNanos, keyCode, 0);
+                pendingKey = NONE;
+            } else {
+                flushPending();
+                writer.keyUp(now, keyCode);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void mouseMoveTo(int x, int y) {
+        delegate.mouseMoveTo(x, y);
+        long now = System.nanoTime();
+        try {
+            flushPending();
+            writer.mouseMoveTo(now, x, y);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean locatePointer(int[] xy) {
+        return delegate instanceof PointerLocator locator && locator.locatePointer(xy);
+    }
+
+    private void flushPending() throws IOException {
+        if (pendingKey != NONE) {
+            writer.keyDown(pendingNanos, pendingKey);
+            pendingKey = NONE;
+        }
+    }
+
+    public long getRecordedEvents() {
+        return writer.getEvents();
+    }
+
+    /** Writes any pending event and closes the writer. */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushPending();
+        } finally {
+            writer.close();
+        }
+    }
+}
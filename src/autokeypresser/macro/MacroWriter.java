@@ -0,0 +1,99 @@
+package autokeypresser.macro;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends events in {@link MacroFormat} to a file through a direct buffer that is written
+ * to the channel in large batches. Timestamps are {@link System#nanoTime()} values; only
+ * the delta to the previous event is stored. Not thread-safe.
+ */
+public final class MacroWriter implements AutoCloseable {
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private long lastNanos;
+    private boolean started;
+    private int mouseX;
+    private int mouseY;
+    private long events;
+
+    private MacroWriter(FileChannel channel) {
+        this.channel = channel;
+        buffer.put(MacroFormat.MAGIC).put((byte) MacroFormat.VERSION);
+    }
+
+    /** Creates or truncates {@code file}. The first event is stored with a delta of zero. */
+    public static MacroWriter create(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        return new MacroWriter(channel);
+    }
+
+    public void keyDown(long nanos, int keyCode) throws IOException {
+        header(nanos, MacroFormat.KEY_DOWN);
+        MacroFormat.putVarInt(buffer, keyCode);
+    }
+
+    public void keyUp(long nanos, int keyCode) throws IOException {
+        header(nanos, MacroFormat.KEY_UP);
+        MacroFormat.putVarInt(buffer, keyCode);
+    }
+
+    /** A complete press and release of {@code keyCode} with {@code modifiers} held. */
+    public void keystroke(long nanos, int keyCode, int modifiers) throws IOException {
+        header(nanos, MacroFormat.KEYSTROKE);
+        MacroFormat.putVarInt(buffer, keyCode);
+        MacroFormat.putVarInt(buffer, modifiers);
+    }
+
+    /** Pointer move to absolute coordinates, stored as the offset from the previous move. */
+    public void mouseMoveTo(long nanos, int x, int y) throws IOException {
+        header(nanos, MacroFormat.MOUSE_MOVE);
+        MacroFormat.putVarInt(buffer, MacroFormat.zigzag(x - mouseX));
+        MacroFormat.putVarInt(buffer, MacroFormat.zigzag(y - mouseY));
+        mouseX = x;
+        mouseY = y;
+    }
+
+    private void header(long nanos, int type) throws IOException {
+        if (buffer.remaining() < MacroFormat.MAX_EVENT_BYTES) {
+            flush();
+        }
+        if (!started) {
+            lastNanos = nanos;
+            started = true;
+        }
+        long delta = Math.max(0, nanos - lastNanos);
+        lastNanos = Math.max(lastNanos, nanos);
+        MacroFormat.putVarLong(buffer, (delta << 2) | type);
+        events++;
+    }
+
+    /** Writes buffered events to the file. */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
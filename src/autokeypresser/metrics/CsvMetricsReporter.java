@@ -0,0 +1,102 @@
+package autokeypresser.metrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Appends a {@link PressMetrics} snapshot to a CSV file at a fixed period from a daemon
+ * thread, so the press thread never touches the file.
+ */
+public final class CsvMetricsReporter implements AutoCloseable {
+
+    static final String HEADER = "time_millis,presses,presses_per_second,missed_deadlines,"
+            + "lateness_p50_us,lateness_p99_us,lateness_p999_us,lateness_max_us,"
+            + "output_p50_us,output_p99_us,output_p999_us,output_max_us";
+
+    private final PressMetrics metrics;
+    private final BufferedWriter writer;
+    private final long periodMillis;
+    private final Thread thread;
+
+    private volatile boolean closed;
+
+    private CsvMetricsReporter(PressMetrics metrics, BufferedWriter writer, long periodMillis) {
+        this.metrics = metrics;
+        this.writer = writer;
+        this.periodMillis = periodMillis;
+        this.thread = new Thread(this::loop, "autokeypresser-metrics-csv");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts reporting to {@code file}, writing a header first if the file is new or empty.
+     *
+     * @throws IllegalArgumentException if {@code periodMillis} is not positive
+     */
+    public static CsvMetricsReporter start(PressMetrics metrics, Path file, long periodMillis) throws IOException {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("Metrics period must be positive: " + periodMillis + " ms");
+        }
+        boolean fresh = !Files.exists(file) || Files.size(file) == 0;
+        BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (fresh) {
+            writer.write(HEADER);
+            writer.newLine();
+        }
+        CsvMetricsReporter reporter = new CsvMetricsReporter(metrics, writer, periodMillis);
+        reporter.thread.start();
+        return reporter;
+    }
+
+    private void loop() {
+        try {
+            while (!closed) {
+                Thread.sleep(periodMillis);
+                writeRow();
+            }
+        } catch (InterruptedException e) {
+            // close() interrupts the sleep
+        } catch (IOException e) {
+            System.err.println("Metrics CSV disabled: " + e.getMessage());
+        }
+    }
+
+    private synchronized void writeRow() throws IOException {
+        if (closed) return;
+        writer.write(String.format(Locale.ROOT, "%d,%d,%.1f,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f",
+                System.currentTimeMillis(), metrics.getPressCount(), metrics.getPressesPerSecond(),
+                metrics.getMissedDeadlines(),
+                metrics.getLatenessP50Micros(), metrics.getLatenessP99Micros(),
+                metrics.getLatenessP999Micros(), metrics.getLatenessMaxMicros(),
+                metrics.getOutputP50Micros(), metrics.getOutputP99Micros(),
+                metrics.getOutputP999Micros(), metrics.getOutputMaxMicros()));
+        writer.newLine();
+        writer.flush();
+    }
+
+    /** Writes a final row and closes the file. */
+    @Override
+    public void close() {
+        try {
+            writeRow();
+        } catch (IOException e) {
+            System.err.println("Failed to write metrics CSV: " + e.getMessage());
+        } finally {
+            closed = true;
+            thread.interrupt();
+            synchronized (this) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    System.err.println("Failed to close metrics CSV: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
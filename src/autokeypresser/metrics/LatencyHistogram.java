@@ -0,0 +1,96 @@
+package autokeypresser.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-bucketed latency histogram in the style of HdrHistogram.
+ *
+ * Values below 2^{@value #SUB_BUCKET_BITS} are counted exactly; above that every power of two
+ * is split into 2^{@value #SUB_BUCKET_BITS} linear sub-buckets, so any recorded value is
+ * reported within about 3% of its true value across the full {@code long} range. The counts
+ * live in one preallocated array.
+ *
+ * Designed for a single recording thread: {@link #record(long)} is a few arithmetic ops and
+ * ordered stores, with no CAS and no allocation. Any number of threads may read concurrently;
+ * a reader sees a possibly slightly stale but never torn view.
+ */
+public final class LatencyHistogram {
+
+    static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /** Records one value; negative values count as zero. Single writer only. */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        int index = indexOf(v);
+        counts.lazySet(index, counts.get(index) + 1);
+        totalCount.lazySet(totalCount.get() + 1);
+        if (v > max.get()) {
+            max.lazySet(v);
+        }
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /** Largest value that maps to {@code index}. */
+    static long highestValueAt(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        long lowest = (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Value at the given percentile (0-100), reported as the upper bound of its bucket and
+     * capped at the recorded maximum. Returns 0 when nothing has been recorded.
+     */
+    public long valueAtPercentile(double percentile) {
+        long total = totalCount.get();
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(total * Math.min(100.0, percentile) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueAt(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /** Clears all counts. Values recorded concurrently with a reset may be lost. */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        max.set(0);
+    }
+}
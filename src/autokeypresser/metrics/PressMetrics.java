@@ -0,0 +1,182 @@
+package autokeypresser.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Per-press timing collected by the press engine: schedule lateness and output time as
+ * {@link LatencyHistogram}s, plus press and missed-deadline counters.
+ *
+ * Recording happens on the press thread and only touches preallocated primitives; readers
+ * (JMX, the CSV reporter, the CLI summary) may query from any thread. Counters accumulate
+ * across runs until {@link #reset()}.
+ */
+public final class PressMetrics implements PressMetricsMXBean {
+
+    public static final String OBJECT_NAME = "autokeypresser:type=PressMetrics";
+
+    private static final long RATE_WINDOW_NANOS = 250_000_000L;
+
+    private final LatencyHistogram lateness = new LatencyHistogram();
+    private final LatencyHistogram outputTime = new LatencyHistogram();
+    private final AtomicLong presses = new AtomicLong();
+
+    // Scheduler counters restart with every run; earlier runs are folded into the base
+    private final AtomicLong skippedBase = new AtomicLong();
+    private final AtomicLong lateBase = new AtomicLong();
+    private final AtomicLong runSkipped = new AtomicLong();
+    private final AtomicLong runLate = new AtomicLong();
+
+    // Rate sampling, reader side only
+    private long rateSampleNanos = System.nanoTime();
+    private long rateSampleCount;
+    private double pressesPerSecond;
+
+    /** Called by the engine before a run starts. */
+    public void runStarted() {
+        skippedBase.addAndGet(runSkipped.getAndSet(0));
+        lateBase.addAndGet(runLate.getAndSet(0));
+    }
+
+    /**
+     * Records one press. Single writer only.
+     *
+     * @param latenessNanos   actual start minus scheduled deadline
+     * @param outputNanos     time spent in the output backend for this press
+     * @param skippedInRun    the scheduler's skipped-tick count for the current run
+     * @param lateInRun       the scheduler's late-tick count for the current run
+     */
+    public void recordPress(long latenessNanos, long outputNanos, long skippedInRun, long lateInRun) {
+        lateness.record(latenessNanos);
+        outputTime.record(outputNanos);
+        presses.lazySet(presses.get() + 1);
+        runSkipped.lazySet(skippedInRun);
+        runLate.lazySet(lateInRun);
+    }
+
+    public LatencyHistogram getLateness() {
+        return lateness;
+    }
+
+    public LatencyHistogram getOutputTime() {
+        return outputTime;
+    }
+
+    @Override
+    public long getPressCount() {
+        return presses.get();
+    }
+
+    /** Press rate since the previous query, sampled over at least a quarter second. */
+    @Override
+    public synchronized double getPressesPerSecond() {
+        long now = System.nanoTime();
+        long elapsed = now - rateSampleNanos;
+        if (elapsed >= RATE_WINDOW_NANOS) {
+            long count = presses.get();
+            pressesPerSecond = Math.max(0, count - rateSampleCount) * 1e9 / elapsed;
+            rateSampleNanos = now;
+            rateSampleCount = count;
+        }
+        return pressesPerSecond;
+    }
+
+    @Override
+    public long getMissedDeadlines() {
+        return getSkippedDeadlines() + getLateDeadlines();
+    }
+
+    @Override
+    public long getSkippedDeadlines() {
+        return skippedBase.get() + runSkipped.get();
+    }
+
+    @Override
+    public long getLateDeadlines() {
+        return lateBase.get() + runLate.get();
+    }
+
+    @Override
+    public double getLatenessP50Micros() {
+        return micros(lateness.valueAtPercentile(50));
+    }
+
+    @Override
+    public double getLatenessP99Micros() {
+        return micros(lateness.valueAtPercentile(99));
+    }
+
+    @Override
+    public double getLatenessP999Micros() {
+        return micros(lateness.valueAtPercentile(99.9));
+    }
+
+    @Override
+    public double getLatenessMaxMicros() {
+        return micros(lateness.getMax());
+    }
+
+    @Override
+    public double getOutputP50Micros() {
+        return micros(outputTime.valueAtPercentile(50));
+    }
+
+    @Override
+    public double getOutputP99Micros() {
+        return micros(outputTime.valueAtPercentile(99));
+    }
+
+    @Override
+    public double getOutputP999Micros() {
+        return micros(outputTime.valueAtPercentile(99.9));
+    }
+
+    @Override
+    public double getOutputMaxMicros() {
+        return micros(outputTime.getMax());
+    }
+
+    @Override
+    public synchronized void reset() {
+        lateness.reset();
+        outputTime.reset();
+        presses.set(0);
+        skippedBase.set(-runSkipped.get());
+        lateBase.set(-runLate.get());
+        rateSampleNanos = System.nanoTime();
+        rateSampleCount = 0;
+        pressesPerSecond = 0;
+    }
+
+    /** One-line p50/p99/p999 summary of both histograms. */
+    public String describe() {
+        return String.format("lateness p50/p99/p999 %.1f/%.1f/%.1f us | output p50/p99/p999 %.1f/%.1f/%.1f us | missed %d",
+                getLatenessP50Micros(), getLatenessP99Micros(), getLatenessP999Micros(),
+                getOutputP50Micros(), getOutputP99Micros(), getOutputP999Micros(),
+                getMissedDeadlines());
+    }
+
+    /**
+     * Registers this instance with the platform MBean server under {@link #OBJECT_NAME},
+     * replacing any earlier registration.
+     */
+    public void registerMBean() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        try {
+            server.registerMBean(this, name);
+        } catch (InstanceAlreadyExistsException e) {
+            server.unregisterMBean(name);
+            server.registerMBean(this, name);
+        }
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1_000.0;
+    }
+}
@@ -0,0 +1,41 @@
+package autokeypresser.metrics;
+
+/**
+ * JMX view of {@link PressMetrics}, registered as {@value PressMetrics#OBJECT_NAME}.
+ *
+ * Latencies are reported in microseconds. Lateness is how long after its scheduled deadline
+ * a press actually started; output time is how long the output backend took to deliver the
+ * keystroke and its action.
+ */
+public interface PressMetricsMXBean {
+
+    long getPressCount();
+
+    double getPressesPerSecond();
+
+    /** Skipped plus late deadlines. */
+    long getMissedDeadlines();
+
+    long getSkippedDeadlines();
+
+    long getLateDeadlines();
+
+    double getLatenessP50Micros();
+
+    double getLatenessP99Micros();
+
+    double getLatenessP999Micros();
+
+    double getLatenessMaxMicros();
+
+    double getOutputP50Micros();
+
+    double getOutputP99Micros();
+
+    double getOutputP999Micros();
+
+    double getOutputMaxMicros();
+
+    /** Clears all histograms and counters. */
+    void reset();
+}
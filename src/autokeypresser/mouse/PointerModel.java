@@ -0,0 +1,99 @@
+package autokeypresser.mouse;
+
+import autokeypresser.output.KeystrokeOutput;
+import autokeypresser.output.PointerLocator;
+
+/**
+ * Local copy of the pointer position, so relative moves cost one native call instead of a
+ * position query plus a move.
+ *
+ * The real position is read from the {@link PointerLocator} on the first move and then at
+ * most once per resync interval, which picks up manual mouse movement without paying the
+ * round trip on every step. Without a locator (headless outputs) the model starts at 0,0
+ * and never resyncs. Not thread-safe; owned by the press thread.
+ */
+public final class PointerModel {
+
+    /** Default time between position reads from the OS. */
+    public static final long DEFAULT_RESYNC_NANOS = 250_000_000L;
+
+    private final KeystrokeOutput output;
+    private final PointerLocator locator;
+    private final long resyncNanos;
+    private final int[] located = new int[2];
+
+    private int x;
+    private int y;
+    private boolean synced;
+    private long lastSyncNanos;
+    private long resyncs;
+
+    public PointerModel(KeystrokeOutput output, PointerLocator locator) {
+        this(output, locator, DEFAULT_RESYNC_NANOS);
+    }
+
+    /**
+     * @param locator reads the real position, or {@code null} to track locally only
+     * @throws IllegalArgumentException if {@code resyncNanos} is negative
+     */
+    public PointerModel(KeystrokeOutput output, PointerLocator locator, long resyncNanos) {
+        if (resyncNanos < 0) {
+            throw new IllegalArgumentException("Resync interval must not be negative: " + resyncNanos + " ns");
+        }
+        this.output = output;
+        this.locator = locator;
+        this.resyncNanos = resyncNanos;
+    }
+
+    /** Creates a model that resyncs through {@code output} if it can locate the pointer. */
+    public static PointerModel forOutput(KeystrokeOutput output) {
+        return new PointerModel(output, output instanceof PointerLocator locator ? locator : null);
+    }
+
+    /** Moves the pointer relative to its (locally tracked) position. */
+    public void moveBy(int dx, int dy) {
+        resyncIfStale();
+        moveTo(x + dx, y + dy);
+    }
+
+    public void moveTo(int x, int y) {
+        this.x = x;
+        this.y = y;
+        output.mouseMoveTo(x, y);
+    }
+
+    /** Reads the real position now if the last read is older than the resync interval. */
+    public void resyncIfStale() {
+        if (locator == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (!synced || now - lastSyncNanos >= resyncNanos) {
+            if (locator.locatePointer(located)) {
+                x = located[0];
+                y = located[1];
+                synced = true;
+                resyncs++;
+            }
+            lastSyncNanos = now;
+        }
+    }
+
+    /** Forces a read on the next move, e.g. before a run starts. */
+    public void invalidate() {
+        synced = false;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    /** Native position reads made so far. */
+    public long getResyncs() {
+        return resyncs;
+    }
+}
@@ -0,0 +1,72 @@
+package autokeypresser.mouse;
+
+/**
+ * A pointer path computed once into primitive arrays of offsets from its start point, so
+ * replaying a step is two array reads and one move.
+ *
+ * Offsets are relative, so one trajectory can be replayed from wherever the pointer is.
+ * The last step always lands exactly on the end offset.
+ */
+public final class Trajectory {
+
+    private final int[] dx;
+    private final int[] dy;
+
+    private Trajectory(int[] dx, int[] dy) {
+        this.dx = dx;
+        this.dy = dy;
+    }
+
+    /** Straight line to ({@code toX}, {@code toY}) in {@code steps} evenly spaced steps. */
+    public static Trajectory linear(int toX, int toY, int steps) {
+        checkSteps(steps);
+        int[] dx = new int[steps];
+        int[] dy = new int[steps];
+        for (int i = 0; i < steps; i++) {
+            double t = (double) (i + 1) / steps;
+            dx[i] = (int) Math.round(toX * t);
+            dy[i] = (int) Math.round(toY * t);
+        }
+        return new Trajectory(dx, dy);
+    }
+
+    /**
+     * Cubic Bézier curve from the start point to ({@code toX}, {@code toY}) with control
+     * points ({@code c1x}, {@code c1y}) and ({@code c2x}, {@code c2y}), all relative to the start.
+     */
+    public static Trajectory bezier(int c1x, int c1y, int c2x, int c2y, int toX, int toY, int steps) {
+        checkSteps(steps);
+        int[] dx = new int[steps];
+        int[] dy = new int[steps];
+        for (int i = 0; i < steps; i++) {
+            double t = (double) (i + 1) / steps;
+            double u = 1 - t;
+            double b1 = 3 * u * u * t;
+            double b2 = 3 * u * t * t;
+            double b3 = t * t * t;
+            dx[i] = (int) Math.round(b1 * c1x + b2 * c2x + b3 * toX);
+            dy[i] = (int) Math.round(b1 * c1y + b2 * c2y + b3 * toY);
+        }
+        return new Trajectory(dx, dy);
+    }
+
+    private static void checkSteps(int steps) {
+        if (steps <= 0) {
+            throw new IllegalArgumentException("Steps must be positive: " + steps);
+        }
+    }
+
+    public int steps() {
+        return dx.length;
+    }
+
+    /** X offset from the start point after step {@code index}. */
+    public int dx(int index) {
+        return dx[index];
+    }
+
+    /** Y offset from the start point after step {@code index}. */
+    public int dy(int index) {
+        return dy[index];
+    }
+}
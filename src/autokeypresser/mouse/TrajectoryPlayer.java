@@ -0,0 +1,57 @@
+package autokeypresser.mouse;
+
+import autokeypresser.engine.Clock;
+import autokeypresser.engine.PrecisionScheduler;
+import autokeypresser.engine.PrecisionScheduler.MissedDeadlinePolicy;
+
+/**
+ * Replays {@link Trajectory} steps through a {@link PointerModel} on a
+ * {@link PrecisionScheduler}, one step per step interval. Reusable and allocation-free per
+ * replay. Not thread-safe.
+ */
+public final class TrajectoryPlayer {
+
+    private final PrecisionScheduler scheduler;
+
+    /** @throws IllegalArgumentException if {@code stepIntervalNanos} is not positive */
+    public TrajectoryPlayer(long stepIntervalNanos) {
+        this(stepIntervalNanos, Clock.SYSTEM);
+    }
+
+    /** Plays steps on {@code clock}'s timeline. */
+    public TrajectoryPlayer(long stepIntervalNanos, Clock clock) {
+        // Late steps fire back-to-back so the path is always completed in full
+        this.scheduler = new PrecisionScheduler(stepIntervalNanos, MissedDeadlinePolicy.CATCH_UP,
+                PrecisionScheduler.DEFAULT_MAX_CATCH_UP_TICKS, clock);
+    }
+
+    /**
+     * Plays {@code trajectory} from the pointer's current position; the first step moves
+     * immediately. If a step would be due at or after {@code stopBeforeNanos} (a
+     * {@link Clock#nanoTime()} instant) the pointer jumps straight to the end point instead,
+     * so the displacement is the same however little time there is.
+     *
+     * @return the number of steps played before finishing or jumping to the end
+     */
+    public int play(Trajectory trajectory, PointerModel pointer, long stopBeforeNanos) throws InterruptedException {
+        pointer.resyncIfStale();
+        int startX = pointer.getX();
+        int startY = pointer.getY();
+        int last = trajectory.steps() - 1;
+
+        scheduler.start();
+        for (int i = 0; i <= last; i++) {
+            if (i > 0 && scheduler.nextDeadline() - stopBeforeNanos >= 0) {
+                pointer.moveTo(startX + trajectory.dx(last), startY + trajectory.dy(last));
+                return i;
+            }
+            scheduler.awaitNextTick();
+            pointer.moveTo(startX + trajectory.dx(i), startY + trajectory.dy(i));
+        }
+        return last + 1;
+    }
+
+    public long getStepIntervalNanos() {
+        return scheduler.getIntervalNanos();
+    }
+}
@@ -0,0 +1,20 @@
+package autokeypresser.output;
+
+/**
+ * Destination for the key and mouse events produced by the press engine.
+ *
+ * {@link RobotOutput} injects into the OS; {@link RecordingOutput} keeps events in memory
+ * so the engine can run without a display.
+ */
+public interface KeystrokeOutput {
+
+    void keyPress(int keyCode);
+
+    void keyRelease(int keyCode);
+
+    /**
+     * Moves the pointer to absolute screen coordinates. Relative moves go through
+     * {@link autokeypresser.mouse.PointerModel}, which tracks the position locally.
+     */
+    void mouseMoveTo(int x, int y);
+}
@@ -0,0 +1,17 @@
+package autokeypresser.output;
+
+/** Discards every event. Used for dry runs and for measuring the engine's own overhead. */
+public final class NullOutput implements KeystrokeOutput {
+
+    @Override
+    public void keyPress(int keyCode) {
+    }
+
+    @Override
+    public void keyRelease(int keyCode) {
+    }
+
+    @Override
+    public void mouseMoveTo(int x, int y) {
+    }
+}
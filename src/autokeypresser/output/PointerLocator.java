@@ -0,0 +1,12 @@
+package autokeypresser.output;
+
+/** Reads the real pointer position from the OS; a native round trip, so callers cache it. */
+public interface PointerLocator {
+
+    /**
+     * Stores the pointer position in {@code xy[0]} and {@code xy[1]}.
+     *
+     * @return false if the position is unknown, e.g. the pointer is not on any screen
+     */
+    boolean locatePointer(int[] xy);
+}
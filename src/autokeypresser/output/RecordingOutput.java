@@ -0,0 +1,105 @@
+package autokeypresser.output;
+
+/**
+ * In-memory output that timestamps every event with {@link System#nanoTime()}.
+ *
+ * Events go into preallocated parallel primitive arrays, so recording costs no allocation
+ * and the engine can run headless at full speed. Once the buffer is full further events
+ * are counted as dropped. Not thread-safe: read results after the run has finished.
+ */
+public final class RecordingOutput implements KeystrokeOutput {
+
+    public static final int KEY_PRESS = 1;
+    public static final int KEY_RELEASE = 2;
+    public static final int MOUSE_MOVE = 3;
+
+    private final int[] types;
+    private final int[] args0;
+    private final int[] args1;
+    private final long[] timestamps;
+    private int size;
+    private long droppedEvents;
+
+    public RecordingOutput(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        types = new int[capacity];
+        args0 = new int[capacity];
+        args1 = new int[capacity];
+        timestamps = new long[capacity];
+    }
+
+    @Override
+    public void keyPress(int keyCode) {
+        record(KEY_PRESS, keyCode, 0);
+    }
+
+    @Override
+    public void keyRelease(int keyCode) {
+        record(KEY_RELEASE, keyCode, 0);
+    }
+
+    @Override
+    public void mouseMoveTo(int x, int y) {
+        record(MOUSE_MOVE, x, y);
+    }
+
+    private void record(int type, int arg0, int arg1) {
+        int i = size;
+        if (i == types.length) {
+            droppedEvents++;
+            return;
+        }
+        types[i] = type;
+        args0[i] = arg0;
+        args1[i] = arg1;
+        timestamps[i] = System.nanoTime();
+        size = i + 1;
+    }
+
+    public void clear() {
+        size = 0;
+        droppedEvents = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return types.length;
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents;
+    }
+
+    public int type(int index) {
+        return types[index];
+    }
+
+    /** Key code for key events, x for mouse moves. */
+    public int arg0(int index) {
+        return args0[index];
+    }
+
+    /** y for mouse moves, 0 otherwise. */
+    public int arg1(int index) {
+        return args1[index];
+    }
+
+    public long timestampNanos(int index) {
+        return timestamps[index];
+    }
+
+    public int count(int type) {
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (types[i] == type) {
+                n++;
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,56 @@
+package autokeypresser.output;
+
+import java.awt.AWTException;
+import java.awt.MouseInfo;
+import java.awt.Point;
+import java.awt.PointerInfo;
+import java.awt.Robot;
+
+/** Injects events into the OS input queue through {@link java.awt.Robot}. */
+public final class RobotOutput implements KeystrokeOutput, PointerLocator {
+
+    private final Robot robot;
+
+    /**
+     * @throws AWTException if the platform does not allow low-level input control
+     * @throws java.awt.HeadlessException if there is no display
+     */
+    public RobotOutput() throws AWTException {
+        this(new Robot());
+    }
+
+    public RobotOutput(Robot robot) {
+        this.robot = robot;
+    }
+
+    @Override
+    public void keyPress(int keyCode) {
+        robot.keyPress(keyCode);
+    }
+
+    @Override
+    public void keyRelease(int keyCode) {
+        robot.keyRelease(keyCode);
+    }
+
+    @Override
+    public void mouseMoveTo(int x, int y) {
+        robot.mouseMove(x, y);
+    }
+
+    @Override
+    public boolean locatePointer(int[] xy) {
+        PointerInfo pointer = MouseInfo.getPointerInfo();
+        if (pointer == null) {
+            return false; // Pointer is not on any screen device
+        }
+        Point location = pointer.getLocation();
+        xy[0] = location.x;
+        xy[1] = location.y;
+        return true;
+    }
+
+    public Robot getRobot() {
+        return robot;
+    }
+}
@@ -0,0 +1,49 @@
+package autokeypresser.paste;
+
+/**
+ * In-memory clipboard for headless runs, dry runs and benchmarks; pair it with a
+ * {@link PasteTarget} to have the pastes received. Every {@link #getText()} counts as a read.
+ * Thread-safe.
+ */
+public final class MemoryClipboard implements TextClipboard {
+
+    private String text;
+    private long reads;
+
+    public MemoryClipboard() {
+    }
+
+    public MemoryClipboard(String text) {
+        this.text = text;
+    }
+
+    @Override
+    public synchronized Object save() {
+        return text;
+    }
+
+    @Override
+    public synchronized void restore(Object saved) {
+        text = (String) saved;
+        reads = 0;
+    }
+
+    @Override
+    public synchronized void setText(String text) {
+        this.text = text;
+        reads = 0;
+    }
+
+    @Override
+    public synchronized String getText() {
+        if (text != null) {
+            reads++;
+        }
+        return text;
+    }
+
+    @Override
+    public synchronized long reads() {
+        return reads;
+    }
+}
@@ -0,0 +1,282 @@
+package autokeypresser.paste;
+
+import java.awt.event.KeyEvent;
+import java.util.Locale;
+
+import autokeypresser.engine.Clock;
+import autokeypresser.engine.KeystrokeProgram;
+import autokeypresser.engine.ModifierTracker;
+import autokeypresser.engine.Sleeper;
+import autokeypresser.engine.TimeSpec;
+import autokeypresser.layout.KeyboardLayout;
+import autokeypresser.layout.UnicodeInput;
+import autokeypresser.output.KeystrokeOutput;
+
+/**
+ * Gets a large text into the focused application through the clipboard instead of one key
+ * press per character: the text goes onto a {@link TextClipboard} a chunk at a time, each
+ * followed by the paste chord.
+ *
+ * A chunk is only replaced by the next once it has been taken. Where the clipboard reports
+ * reads, that is when the target has read it after the chord; elsewhere it is after a settle
+ * time, provided the clipboard still holds the chunk, i.e. nothing replaced it mid-paste. A
+ * chunk that is not taken in time stops the run rather than risk pasting it twice. Chunks
+ * never split a surrogate pair or a CR LF, and whatever was on the clipboard before is put
+ * back however the run ends. Not thread-safe except for {@link #stop()} and the getters.
+ */
+public final class PasteInjector {
+
+    public static final int DEFAULT_CHUNK_CHARS = 4096;
+    public static final long DEFAULT_TIMEOUT_NANOS = 2_000_000_000L;
+    public static final long DEFAULT_SETTLE_NANOS = 50_000_000L;
+
+    private static final long POLL_NANOS = 500_000L;
+    private static final int CLIPBOARD_ATTEMPTS = 10;
+    private static final long CLIPBOARD_RETRY_NANOS = 20_000_000L;
+
+    private final TextClipboard clipboard;
+    private final ModifierTracker modifierState;
+    private int chord = defaultChord();
+    private int chunkChars = DEFAULT_CHUNK_CHARS;
+    private long timeoutNanos = DEFAULT_TIMEOUT_NANOS;
+    private long settleNanos = DEFAULT_SETTLE_NANOS;
+    private Clock clock = Clock.SYSTEM;
+
+    private volatile boolean running;
+    private volatile long pastedChars;
+    private volatile long chunks;
+    private volatile long observedChunks;
+    private volatile boolean restored;
+    private long chordNanos;
+    private long chordEvents;
+
+    public PasteInjector(KeystrokeOutput output, TextClipboard clipboard) {
+        this.clipboard = clipboard;
+        this.modifierState = new ModifierTracker(output);
+    }
+
+    /** CTRL+V, or META+V (Command+V) on macOS. */
+    public static int defaultChord() {
+        boolean mac = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("mac");
+        return KeyboardLayout.stroke(KeyEvent.VK_V, mac ? KeystrokeProgram.MOD_META : KeystrokeProgram.MOD_CONTROL);
+    }
+
+    /** Keystroke that pastes, as packed by {@link KeyboardLayout#stroke}, e.g. SHIFT+INSERT in terminals. */
+    public void setChord(int chord) {
+        this.chord = chord;
+    }
+
+    public void setChunkChars(int chunkChars) {
+        if (chunkChars < 2) {
+            throw new IllegalArgumentException("Chunk size must be at least 2 characters: " + chunkChars);
+        }
+        this.chunkChars = chunkChars;
+    }
+
+    /** How long the target may take to read a chunk it was told to paste. */
+    public void setTimeout(long timeoutNanos) {
+        if (timeoutNanos <= 0) {
+            throw new IllegalArgumentException("Paste timeout must be greater than zero");
+        }
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    /** Time given to each paste where the clipboard cannot report when the target reads it. */
+    public void setSettle(long settleNanos) {
+        this.settleNanos = settleNanos;
+    }
+
+    /** Clock that times the waits; {@link Clock#SYSTEM} unless set, e.g. to simulate a run. */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Pastes {@code text} chunk by chunk until done or {@link #stop()}, which lets the chunk
+     * in flight finish. A stop that also interrupts the thread returns normally with the
+     * interrupt status preserved.
+     *
+     * @return the number of characters pasted
+     * @throws IllegalStateException if the clipboard stays busy or a chunk is not taken in time
+     * @throws InterruptedException if interrupted without {@link #stop()} having been called
+     */
+    public long paste(CharSequence text) throws InterruptedException {
+        Sleeper sleeper = clock.newSleeper();
+        int length = text.length();
+        pastedChars = 0;
+        chunks = 0;
+        observedChunks = 0;
+        restored = false;
+        running = true;
+        Object saved = clipboard.save();
+        try {
+            int start = 0;
+            while (running && start < length) {
+                int end = Math.min(start + chunkChars, length);
+                if (end < length) {
+                    char last = text.charAt(end - 1);
+                    if (Character.isHighSurrogate(last) || (last == '\r' && text.charAt(end) == '\n')) {
+                        end--;
+                    }
+                }
+                String chunk = text.subSequence(start, end).toString();
+                place(chunk, sleeper);
+                long before = clipboard.reads();
+                long sent = System.nanoTime();
+                modifierState.typeStroke(chord);
+                modifierState.releaseAll();
+                chordNanos += System.nanoTime() - sent;
+                chordEvents += 2 + 2 * Integer.bitCount(KeyboardLayout.modifiers(chord));
+                if (!awaitTaken(chunk, before, sleeper)) {
+                    throw new IllegalStateException(String.format("Characters %d to %d were not pasted within %s;"
+                            + " is a text field focused?", start, end, TimeSpec.format(timeoutNanos)));
+                }
+                chunks++;
+                pastedChars += chunk.length();
+                start = end;
+            }
+            return pastedChars;
+        } catch (InterruptedException e) {
+            if (running) {
+                throw e;
+            }
+            Thread.currentThread().interrupt();
+            return pastedChars;
+        } finally {
+            modifierState.releaseAll();
+            running = false;
+            restored = restore(saved);
+        }
+    }
+
+    /** Sets the chunk, retrying while another application has the clipboard open. */
+    private void place(String chunk, Sleeper sleeper) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            boolean kept;
+            try {
+                clipboard.setText(chunk);
+                kept = chunk.equals(clipboard.getText());
+            } catch (IllegalStateException e) {
+                if (attempt == CLIPBOARD_ATTEMPTS) {
+                    throw new IllegalStateException("The clipboard stays busy: " + e.getMessage(), e);
+                }
+                kept = false;
+            }
+            if (kept) {
+                return;
+            }
+            if (attempt == CLIPBOARD_ATTEMPTS) {
+                throw new IllegalStateException("The clipboard does not keep the text put on it");
+            }
+            sleeper.waitUntil(clock.nanoTime() + CLIPBOARD_RETRY_NANOS);
+        }
+    }
+
+    private boolean awaitTaken(String chunk, long before, Sleeper sleeper) throws InterruptedException {
+        long deadline = clock.nanoTime() + (before < 0 ? settleNanos : timeoutNanos);
+        while (true) {
+            if (before >= 0 && clipboard.reads() > before) {
+                observedChunks++;
+                return true;
+            }
+            long now = clock.nanoTime();
+            if (now - deadline >= 0) {
+                break;
+            }
+            sleeper.waitUntil(Math.min(now + POLL_NANOS, deadline));
+        }
+        return before < 0 && chunk.equals(clipboard.getText());
+    }
+
+    private boolean restore(Object saved) {
+        for (int attempt = 1; attempt <= CLIPBOARD_ATTEMPTS; attempt++) {
+            try {
+                clipboard.restore(saved);
+                return true;
+            } catch (IllegalStateException busy) {
+                try {
+                    Thread.sleep(CLIPBOARD_RETRY_NANOS / 1_000_000L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Asks a running {@link #paste} to return after the chunk in flight. */
+    public void stop() {
+        running = false;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long getPastedChars() {
+        return pastedChars;
+    }
+
+    public long getChunks() {
+        return chunks;
+    }
+
+    /** Chunks the clipboard saw the target read; the others were given the settle time. */
+    public long getObservedChunks() {
+        return observedChunks;
+    }
+
+    /** Whether the last {@link #paste} put the previous clipboard contents back. */
+    public boolean isRestored() {
+        return restored;
+    }
+
+    /** Average time the output took per key event of the paste chords, or 0 before any. */
+    public double getNanosPerKeyEvent() {
+        return chordEvents == 0 ? 0 : (double) chordNanos / chordEvents;
+    }
+
+    /**
+     * Key events the keystroke path would send to type {@code text} on {@code layout},
+     * modifiers included, for comparison; -1 if some character cannot be typed on it at all.
+     */
+    public static long keystrokeEvents(CharSequence text, KeyboardLayout layout, UnicodeInput fallback) {
+        EventCounter counter = new EventCounter();
+        ModifierTracker typist = new ModifierTracker(counter);
+        int[] strokes = new int[UnicodeInput.MAX_STROKES];
+        for (int i = 0; i < text.length(); i++) {
+            int count = layout.strokes(text.charAt(i), fallback, strokes);
+            if (count == 0) {
+                return -1;
+            }
+            for (int j = 0; j < count; j++) {
+                typist.typeStroke(strokes[j]);
+            }
+            if (count > 1) {
+                typist.releaseAll();
+            }
+        }
+        typist.releaseAll();
+        return counter.events;
+    }
+
+    private static final class EventCounter implements KeystrokeOutput {
+
+        long events;
+
+        @Override
+        public void keyPress(int keyCode) {
+            events++;
+        }
+
+        @Override
+        public void keyRelease(int keyCode) {
+            events++;
+        }
+
+        @Override
+        public void mouseMoveTo(int x, int y) {
+        }
+    }
+}
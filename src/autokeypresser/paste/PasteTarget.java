@@ -0,0 +1,83 @@
+package autokeypresser.paste;
+
+import java.awt.event.KeyEvent;
+
+import autokeypresser.engine.KeystrokeProgram;
+import autokeypresser.layout.KeyboardLayout;
+import autokeypresser.output.KeystrokeOutput;
+
+/**
+ * Stands in for a focused text field in headless runs: passes every event on to another
+ * output and, whenever the paste chord is pressed, reads the clipboard as an application
+ * would. Keeps the count of characters received and, optionally, the text itself.
+ * Not thread-safe: read results after the run has finished.
+ */
+public final class PasteTarget implements KeystrokeOutput {
+
+    private final KeystrokeOutput output;
+    private final TextClipboard clipboard;
+    private final int chordKeyCode;
+    private final int chordModifiers;
+    private final StringBuilder received;
+    private int held;
+    private long receivedChars;
+    private long pastes;
+
+    /**
+     * @param chord     keystroke that pastes, as packed by {@link KeyboardLayout#stroke}
+     * @param received  where to append the pasted text, or null to only count it
+     */
+    public PasteTarget(KeystrokeOutput output, TextClipboard clipboard, int chord, StringBuilder received) {
+        this.output = output;
+        this.clipboard = clipboard;
+        this.chordKeyCode = KeyboardLayout.keyCode(chord);
+        this.chordModifiers = KeyboardLayout.modifiers(chord);
+        this.received = received;
+    }
+
+    @Override
+    public void keyPress(int keyCode) {
+        output.keyPress(keyCode);
+        held |= modifierBit(keyCode);
+        if (keyCode == chordKeyCode && held == chordModifiers) {
+            String text = clipboard.getText();
+            if (text != null) {
+                pastes++;
+                receivedChars += text.length();
+                if (received != null) {
+                    received.append(text);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void keyRelease(int keyCode) {
+        output.keyRelease(keyCode);
+        held &= ~modifierBit(keyCode);
+    }
+
+    @Override
+    public void mouseMoveTo(int x, int y) {
+        output.mouseMoveTo(x, y);
+    }
+
+    public long getReceivedChars() {
+        return receivedChars;
+    }
+
+    public long getPastes() {
+        return pastes;
+    }
+
+    private static int modifierBit(int keyCode) {
+        return switch (keyCode) {
+            case KeyEvent.VK_SHIFT -> KeystrokeProgram.MOD_SHIFT;
+            case KeyEvent.VK_ALT_GRAPH -> KeystrokeProgram.MOD_ALT_GRAPH;
+            case KeyEvent.VK_CONTROL -> KeystrokeProgram.MOD_CONTROL;
+            case KeyEvent.VK_ALT -> KeystrokeProgram.MOD_ALT;
+            case KeyEvent.VK_META -> KeystrokeProgram.MOD_META;
+            default -> 0;
+        };
+    }
+}
@@ -0,0 +1,150 @@
+package autokeypresser.paste;
+
+import java.awt.Toolkit;
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.ClipboardOwner;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.StringSelection;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The OS clipboard, through {@link Toolkit#getSystemClipboard()}.
+ *
+ * Text is offered lazily where the platform allows it (X11), so every paste by another
+ * application calls back into this process and is counted by {@link #reads()}. Where the
+ * platform copies the text out as soon as it is set, reads cannot be seen and
+ * {@link #reads()} returns -1. {@link #save()} keeps text, images and file lists; richer
+ * formats, such as styled text, come back as their plain text.
+ */
+public final class SystemTextClipboard implements TextClipboard {
+
+    private static final DataFlavor[] SAVED_FLAVORS = {
+        DataFlavor.stringFlavor, DataFlavor.imageFlavor, DataFlavor.javaFileListFlavor,
+    };
+
+    private final Clipboard clipboard;
+    private CountingSelection current;
+    private boolean eager;
+
+    /** @throws java.awt.HeadlessException if there is no display */
+    public SystemTextClipboard() {
+        this(Toolkit.getDefaultToolkit().getSystemClipboard());
+    }
+
+    public SystemTextClipboard(Clipboard clipboard) {
+        this.clipboard = clipboard;
+    }
+
+    @Override
+    public Object save() {
+        Transferable contents = clipboard.getContents(null);
+        if (contents == null) {
+            return null;
+        }
+        Map<DataFlavor, Object> data = new LinkedHashMap<>();
+        for (DataFlavor flavor : SAVED_FLAVORS) {
+            if (contents.isDataFlavorSupported(flavor)) {
+                try {
+                    data.put(flavor, contents.getTransferData(flavor));
+                } catch (UnsupportedFlavorException | IOException e) {
+                    // The owner withdrew this format; keep the others
+                }
+            }
+        }
+        return data.isEmpty() ? null : new Snapshot(data);
+    }
+
+    @Override
+    public void restore(Object saved) {
+        current = null;
+        clipboard.setContents(saved != null ? (Snapshot) saved : new Snapshot(Map.of()), null);
+    }
+
+    @Override
+    public void setText(String text) {
+        CountingSelection selection = new CountingSelection(text);
+        clipboard.setContents(selection, selection);
+        current = selection;
+        eager = selection.reads.get() > 0;
+    }
+
+    @Override
+    public String getText() {
+        try {
+            return clipboard.isDataFlavorAvailable(DataFlavor.stringFlavor)
+                    ? (String) clipboard.getData(DataFlavor.stringFlavor) : null;
+        } catch (UnsupportedFlavorException | IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public long reads() {
+        return current == null || eager ? -1 : current.reads.get();
+    }
+
+    /** Text that counts how often it is handed out. */
+    private static final class CountingSelection implements Transferable, ClipboardOwner {
+
+        private final StringSelection selection;
+        private final AtomicLong reads = new AtomicLong();
+
+        CountingSelection(String text) {
+            selection = new StringSelection(text);
+        }
+
+        @Override
+        public DataFlavor[] getTransferDataFlavors() {
+            return selection.getTransferDataFlavors();
+        }
+
+        @Override
+        public boolean isDataFlavorSupported(DataFlavor flavor) {
+            return selection.isDataFlavorSupported(flavor);
+        }
+
+        @Override
+        public Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException, IOException {
+            reads.incrementAndGet();
+            return selection.getTransferData(flavor);
+        }
+
+        @Override
+        public void lostOwnership(Clipboard clipboard, Transferable contents) {
+        }
+    }
+
+    /** Contents copied out by {@link #save()}. */
+    private static final class Snapshot implements Transferable {
+
+        private final Map<DataFlavor, Object> data;
+
+        Snapshot(Map<DataFlavor, Object> data) {
+            this.data = data;
+        }
+
+        @Override
+        public DataFlavor[] getTransferDataFlavors() {
+            return data.keySet().toArray(new DataFlavor[0]);
+        }
+
+        @Override
+        public boolean isDataFlavorSupported(DataFlavor flavor) {
+            return data.containsKey(flavor);
+        }
+
+        @Override
+        public Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException {
+            Object value = data.get(flavor);
+            if (value == null) {
+                throw new UnsupportedFlavorException(flavor);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package autokeypresser.paste;
+
+/**
+ * Clipboard that a {@link PasteInjector} hands text to.
+ *
+ * {@link SystemTextClipboard} is the OS clipboard; {@link MemoryClipboard} keeps the text
+ * in memory, so paste runs can be exercised without a display.
+ */
+public interface TextClipboard {
+
+    /**
+     * Takes a copy of the current contents for {@link #restore}; null if the clipboard is
+     * empty.
+     *
+     * @throws IllegalStateException if the clipboard cannot be read right now
+     */
+    Object save();
+
+    /** Puts back contents taken by {@link #save}, or empties the clipboard for null. */
+    void restore(Object saved);
+
+    /**
+     * Replaces the contents with {@code text}.
+     *
+     * @throws IllegalStateException if another application has the clipboard open
+     */
+    void setText(String text);
+
+    /** The text on the clipboard, or null if it holds none. */
+    String getText();
+
+    /**
+     * How many times the text set last has been read, by anyone, since it was set; -1 if
+     * reads cannot be observed, e.g. because the platform copies the text out at once.
+     */
+    long reads();
+}
@@ -0,0 +1,30 @@
+package autokeypresser.rate;
+
+import java.awt.Robot;
+
+import autokeypresser.output.KeystrokeOutput;
+import autokeypresser.output.RobotOutput;
+
+/** Measures how long the input pipeline takes to drain what has been injected so far. */
+@FunctionalInterface
+public interface DrainProbe {
+
+    /** Blocks until injected events have been processed and returns how long that took. */
+    long drainNanos();
+
+    /**
+     * A probe that times {@link Robot#waitForIdle()} for a {@link RobotOutput}, or
+     * {@code null} for outputs that have no queue to drain.
+     */
+    static DrainProbe forOutput(KeystrokeOutput output) {
+        if (output instanceof RobotOutput robotOutput) {
+            Robot robot = robotOutput.getRobot();
+            return () -> {
+                long start = System.nanoTime();
+                robot.waitForIdle();
+                return System.nanoTime() - start;
+            };
+        }
+        return null;
+    }
+}
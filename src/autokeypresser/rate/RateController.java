@@ -0,0 +1,173 @@
+package autokeypresser.rate;
+
+import autokeypresser.engine.HybridSleeper;
+
+/**
+ * Token bucket that caps the press rate and adapts it to what the receiving side can take.
+ *
+ * Tokens refill at the effective rate up to the burst size and each press takes one. The
+ * effective rate starts at the target and is adjusted additive-increase/multiplicative-
+ * decrease: every probe period the controller checks for backpressure, either a
+ * {@link DrainProbe} that took longer than the allowed drain time or injection calls that
+ * have become much slower than their best observed time, and cuts the rate by 30%;
+ * otherwise it raises it by 5% of the target, never above the target.
+ *
+ * {@link #acquire()} and {@link #recordInjection(long)} are called from the press thread;
+ * the rate getters may be read from any thread.
+ */
+public final class RateController {
+
+    public static final long DEFAULT_PROBE_PERIOD_NANOS = 250_000_000L;
+    public static final long DEFAULT_MAX_DRAIN_NANOS = 5_000_000L;
+
+    private static final double DECREASE_FACTOR = 0.7;
+    private static final double INCREASE_FRACTION = 0.05;
+    private static final double MIN_RATE_FRACTION = 0.01;
+    private static final long INJECTION_SLOWDOWN = 4;
+    // Below this, injection time is noise rather than a backed-up queue
+    private static final long MIN_CONGESTED_INJECTION_NANOS = 500_000L;
+    // Samples before the injection average counts as a baseline: the time constant of its 1/16 weight
+    private static final int INJECTION_WARM_UP_SAMPLES = 16;
+
+    private final double targetRate;
+    private final double burst;
+    private final DrainProbe probe;
+    private final long maxDrainNanos;
+    private final long probePeriodNanos;
+    private final HybridSleeper sleeper = new HybridSleeper();
+
+    private volatile double effectiveRate;
+    private volatile long lastDrainNanos;
+    private volatile long decreases;
+
+    private double tokens;
+    private long lastRefillNanos;
+    private long nextProbeNanos;
+    private long injectionAverageNanos;
+    private long injectionBestNanos = Long.MAX_VALUE;
+    private long injectionSamples;
+
+    /**
+     * @param targetRate       presses per second to aim for
+     * @param burst            presses that may fire back-to-back after an idle spell
+     * @param probe            backpressure probe, or {@code null} to rely on injection timing only
+     * @param maxDrainNanos    drain time above which the rate is reduced
+     * @param probePeriodNanos time between adjustments
+     * @throws IllegalArgumentException for a non-positive rate, burst or period
+     */
+    public RateController(double targetRate, int burst, DrainProbe probe, long maxDrainNanos, long probePeriodNanos) {
+        if (!(targetRate > 0) || Double.isInfinite(targetRate)) {
+            throw new IllegalArgumentException("Target rate must be a positive number: " + targetRate);
+        }
+        if (burst <= 0) {
+            throw new IllegalArgumentException("Burst must be positive: " + burst);
+        }
+        if (probePeriodNanos <= 0 || maxDrainNanos <= 0) {
+            throw new IllegalArgumentException("Probe period and max drain time must be positive");
+        }
+        this.targetRate = targetRate;
+        this.burst = burst;
+        this.probe = probe;
+        this.maxDrainNanos = maxDrainNanos;
+        this.probePeriodNanos = probePeriodNanos;
+        reset();
+    }
+
+    public RateController(double targetRate, int burst, DrainProbe probe) {
+        this(targetRate, burst, probe, DEFAULT_MAX_DRAIN_NANOS, DEFAULT_PROBE_PERIOD_NANOS);
+    }
+
+    /** Starts over at the target rate with a full bucket, e.g. before a run. */
+    public void reset() {
+        effectiveRate = targetRate;
+        tokens = burst;
+        lastRefillNanos = System.nanoTime();
+        nextProbeNanos = lastRefillNanos + probePeriodNanos;
+        injectionAverageNanos = 0;
+        injectionBestNanos = Long.MAX_VALUE;
+        injectionSamples = 0;
+    }
+
+    /**
+     * Waits until a press is allowed and takes its token.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        long now = System.nanoTime();
+        if (now - nextProbeNanos >= 0) {
+            adjust();
+            now = System.nanoTime();
+        }
+        refill(now);
+        if (tokens < 1) {
+            long waitNanos = (long) Math.ceil((1 - tokens) * 1e9 / effectiveRate);
+            sleeper.waitUntil(now + waitNanos);
+            refill(System.nanoTime());
+        }
+        tokens -= 1;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) * effectiveRate / 1e9);
+        lastRefillNanos = now;
+    }
+
+    /** Feeds the time one press spent in the output backend. */
+    public void recordInjection(long nanos) {
+        if (injectionSamples++ == 0) {
+            injectionAverageNanos = nanos; // Started at 0 the average would look like a best case
+        } else {
+            injectionAverageNanos += (nanos - injectionAverageNanos) >> 4;
+        }
+        if (injectionSamples >= INJECTION_WARM_UP_SAMPLES && injectionAverageNanos > 0
+                && injectionAverageNanos < injectionBestNanos) {
+            injectionBestNanos = injectionAverageNanos;
+        }
+    }
+
+    private void adjust() {
+        boolean congested = injectionBestNanos != Long.MAX_VALUE
+                && injectionAverageNanos > Math.max(MIN_CONGESTED_INJECTION_NANOS, injectionBestNanos * INJECTION_SLOWDOWN);
+        if (probe != null) {
+            long drain = probe.drainNanos();
+            lastDrainNanos = drain;
+            congested |= drain > maxDrainNanos;
+        }
+
+        double rate = effectiveRate;
+        if (congested) {
+            rate = Math.max(targetRate * MIN_RATE_FRACTION, rate * DECREASE_FACTOR);
+            tokens = Math.min(tokens, 0);
+            decreases++;
+        } else {
+            rate = Math.min(targetRate, rate + targetRate * INCREASE_FRACTION);
+        }
+        effectiveRate = rate;
+        nextProbeNanos = System.nanoTime() + probePeriodNanos;
+    }
+
+    public double getTargetRate() {
+        return targetRate;
+    }
+
+    /** Presses per second currently allowed. */
+    public double getEffectiveRate() {
+        return effectiveRate;
+    }
+
+    /** Duration of the most recent drain probe, 0 if none has run. */
+    public long getLastDrainNanos() {
+        return lastDrainNanos;
+    }
+
+    /** Times the rate was cut because of backpressure. */
+    public long getDecreases() {
+        return decreases;
+    }
+
+    public String describe() {
+        return String.format("rate %.1f / %.1f presses/s (effective / target), %d backoffs, last drain %.2f ms",
+                effectiveRate, targetRate, decreases, lastDrainNanos / 1e6);
+    }
+}
@@ -0,0 +1,90 @@
+package autokeypresser.script;
+
+import autokeypresser.layout.KeyboardLayout;
+import autokeypresser.layout.UnicodeInput;
+
+/**
+ * A macro script compiled into one flat {@code int} instruction array.
+ *
+ * The language, one statement after another, separated by whitespace:
+ * <pre>
+ * "Hello\n"              text: one step per character, \" \\ \n \t escapes
+ * ctrl+s  enter  F5      a key, with modifiers (shift, altgr, ctrl, alt, meta); KeyEvent.VK_* names
+ * wait 500ms             pause on top of the interval
+ * interval 20ms          time between steps from here on
+ * moveto 800 600         move the pointer to a screen position (one step)
+ * moveby 10 -5           move the pointer relative to where it is (one step)
+ * repeat 1000 { ... }    loop; without a count, forever
+ * # comment              to the end of the line
+ * </pre>
+ * Text is resolved through a {@link KeyboardLayout} when the script is compiled, so an
+ * untypeable character is reported with its line before anything is pressed. Loops compile
+ * to a counter and a backward jump and are never expanded: a script that types a billion
+ * keys takes as many bytes as one that types ten. {@link ScriptPlayer} interprets it.
+ */
+public final class Script {
+
+    // Opcodes and their operands
+    static final int KEY = 0;       // stroke
+    static final int SEQUENCE = 1;  // count, stroke... (dead keys, Unicode input)
+    static final int WAIT = 2;      // nanos high, nanos low
+    static final int INTERVAL = 3;  // nanos high, nanos low
+    static final int MOVE_TO = 4;   // x, y
+    static final int MOVE_BY = 5;   // dx, dy
+    static final int LOOP = 6;      // count, 0 for forever
+    static final int NEXT = 7;      // index of the loop body
+
+    /** Step count of a script that loops forever. */
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final int[] code;
+    private final int maxDepth;
+    private final long steps;
+
+    Script(int[] code, int maxDepth, long steps) {
+        this.code = code;
+        this.maxDepth = maxDepth;
+        this.steps = steps;
+    }
+
+    /**
+     * Compiles {@code source} for {@code layout}, entering characters it has no key for
+     * through {@code fallback}.
+     *
+     * @throws IllegalArgumentException with the line number if the script is malformed,
+     *         empty or uses a key or character that cannot be typed
+     */
+    public static Script compile(String source, KeyboardLayout layout, UnicodeInput fallback) {
+        return new ScriptCompiler(source, layout, fallback).compile();
+    }
+
+    int[] code() {
+        return code;
+    }
+
+    /** Deepest loop nesting, the size of the interpreter's counter stack. */
+    int maxDepth() {
+        return maxDepth;
+    }
+
+    /** Instructions' size in bytes. */
+    public int getCodeBytes() {
+        return code.length * Integer.BYTES;
+    }
+
+    /** Key presses and pointer moves one pass makes, or {@link #UNLIMITED}. */
+    public long getSteps() {
+        return steps;
+    }
+
+    /** The 64-bit operand of a WAIT or INTERVAL at {@code pc}. */
+    static long nanos(int[] code, int pc) {
+        return (long) code[pc + 1] << 32 | (code[pc + 2] & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public String toString() {
+        return "Script[" + code.length + " ints, " + (steps == UNLIMITED ? "unlimited" : steps) + " steps, depth "
+                + maxDepth + "]";
+    }
+}
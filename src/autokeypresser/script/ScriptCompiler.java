@@ -0,0 +1,284 @@
+package autokeypresser.script;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import autokeypresser.engine.TimeSpec;
+import autokeypresser.layout.KeyboardLayout;
+import autokeypresser.layout.UnicodeInput;
+
+/** Single-pass compiler from script text to a {@link Script}; one instance per compilation. */
+final class ScriptCompiler {
+
+    private static final int MAX_DEPTH = 64;
+
+    private final String source;
+    private final KeyboardLayout layout;
+    private final UnicodeInput fallback;
+    private final int[] strokes = new int[UnicodeInput.MAX_STROKES];
+    private int[] code = new int[64];
+    private int size;
+    private int pos;
+    private int line = 1;
+    private int maxDepth;
+    private boolean timed; // whether the block being compiled has a step or a wait
+
+    ScriptCompiler(String source, KeyboardLayout layout, UnicodeInput fallback) {
+        this.source = source;
+        this.layout = layout;
+        this.fallback = fallback;
+    }
+
+    Script compile() {
+        long steps;
+        try {
+            steps = block(0);
+            if (pos < source.length()) {
+                throw new IllegalArgumentException("'}' without a matching repeat");
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Script line " + line + ": " + e.getMessage(), e);
+        }
+        if (steps == 0) {
+            throw new IllegalArgumentException("Script has no key presses or pointer moves");
+        }
+        return new Script(Arrays.copyOf(code, size), maxDepth, steps);
+    }
+
+    /** Compiles statements up to a '}' or the end and returns the steps they make. */
+    private long block(int depth) {
+        long steps = 0;
+        while (true) {
+            skipBlank();
+            if (pos == source.length() || source.charAt(pos) == '}') {
+                return steps;
+            }
+            steps = add(steps, statement(depth));
+        }
+    }
+
+    private long statement(int depth) {
+        if (source.charAt(pos) == '"') {
+            return text(string());
+        }
+        if (source.charAt(pos) == '{') {
+            throw new IllegalArgumentException("'{' must follow repeat");
+        }
+        String word = word();
+        switch (word.toLowerCase(Locale.ROOT)) {
+            case "repeat" -> {
+                return repeat(depth);
+            }
+            case "wait" -> {
+                long nanos = time(word);
+                emit(Script.WAIT, (int) (nanos >>> 32), (int) nanos);
+                timed |= nanos > 0;
+                return 0;
+            }
+            case "interval" -> {
+                long nanos = time(word);
+                if (nanos <= 0) {
+                    throw new IllegalArgumentException("Interval must be greater than zero");
+                }
+                emit(Script.INTERVAL, (int) (nanos >>> 32), (int) nanos);
+                return 0;
+            }
+            case "moveto", "moveby" -> {
+                int x = number(word);
+                int y = number(word);
+                emit(word.equalsIgnoreCase("moveto") ? Script.MOVE_TO : Script.MOVE_BY, x, y);
+                timed = true;
+                return 1;
+            }
+            default -> {
+                int stroke;
+                try {
+                    stroke = KeyboardLayout.parseStroke(word.toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(e.getMessage() + " (statements are text in quotes, a key"
+                            + " such as ctrl+s, repeat, wait, interval, moveto and moveby)");
+                }
+                emit(Script.KEY, stroke);
+                timed = true;
+                return 1;
+            }
+        }
+    }
+
+    private long repeat(int depth) {
+        skipBlank();
+        int count = 0; // forever
+        if (pos < source.length() && source.charAt(pos) != '{') {
+            count = number("repeat");
+            if (count <= 0) {
+                throw new IllegalArgumentException("Repeat count must be positive: " + count);
+            }
+            skipBlank();
+        }
+        if (pos == source.length() || source.charAt(pos) != '{') {
+            throw new IllegalArgumentException("Expected '{' after repeat");
+        }
+        pos++;
+        if (depth + 1 > MAX_DEPTH) {
+            throw new IllegalArgumentException("Loops are nested more than " + MAX_DEPTH + " deep");
+        }
+        maxDepth = Math.max(maxDepth, depth + 1);
+        int startLine = line;
+        emit(Script.LOOP, count);
+        int body = size;
+        boolean outerTimed = timed;
+        timed = false;
+        long steps = block(depth + 1);
+        if (pos == source.length()) {
+            line = startLine;
+            throw new IllegalArgumentException("repeat without a closing '}'");
+        }
+        pos++;
+        if (size == body) {
+            throw new IllegalArgumentException("Empty repeat");
+        }
+        if (!timed) {
+            // Nothing in the body would ever wait, so the loop would spin without doing anything
+            throw new IllegalArgumentException("Repeat body needs a key, text, move or wait");
+        }
+        timed |= outerTimed;
+        emit(Script.NEXT, body);
+        if (count == 0) {
+            return steps > 0 ? Script.UNLIMITED : 0;
+        }
+        return multiply(steps, count);
+    }
+
+    /** Emits a step for each character of {@code text}. */
+    private long text(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int count = layout.strokes(c, fallback, strokes);
+            if (count == 0) {
+                throw new IllegalArgumentException("Unsupported character '" + c + "' (not on the " + layout + " layout)");
+            }
+            if (count == 1) {
+                emit(Script.KEY, strokes[0]);
+            } else {
+                ensure(2 + count);
+                code[size++] = Script.SEQUENCE;
+                code[size++] = count;
+                System.arraycopy(strokes, 0, code, size, count);
+                size += count;
+            }
+        }
+        if (!text.isEmpty()) {
+            timed = true;
+        }
+        return text.length();
+    }
+
+    private String string() {
+        int startLine = line;
+        StringBuilder text = new StringBuilder();
+        pos++;
+        while (true) {
+            if (pos == source.length()) {
+                line = startLine;
+                throw new IllegalArgumentException("Unterminated text");
+            }
+            char c = source.charAt(pos++);
+            if (c == '"') {
+                return text.toString();
+            }
+            if (c == '\n') {
+                line++;
+            }
+            if (c != '\\') {
+                text.append(c);
+                continue;
+            }
+            if (pos == source.length()) {
+                continue;
+            }
+            char escaped = source.charAt(pos++);
+            text.append(switch (escaped) {
+                case 'n' -> '\n';
+                case 't' -> '\t';
+                case '"', '\\' -> escaped;
+                default -> throw new IllegalArgumentException("Unknown escape \\" + escaped + " (use \\\" \\\\ \\n or \\t)");
+            });
+        }
+    }
+
+    private String word() {
+        int start = pos;
+        while (pos < source.length()) {
+            char c = source.charAt(pos);
+            if (Character.isWhitespace(c) || c == '{' || c == '}' || c == '"' || c == '#') {
+                break;
+            }
+            pos++;
+        }
+        return source.substring(start, pos);
+    }
+
+    private long time(String statement) {
+        skipBlank();
+        String value = word();
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException(statement + " needs a time, e.g. 50ms");
+        }
+        return TimeSpec.parseNanos(value);
+    }
+
+    private int number(String statement) {
+        skipBlank();
+        String value = word();
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(statement + " needs a whole number, not '" + value + "'");
+        }
+    }
+
+    /** Skips whitespace and comments, counting lines. */
+    private void skipBlank() {
+        while (pos < source.length()) {
+            char c = source.charAt(pos);
+            if (c == '\n') {
+                line++;
+            } else if (c == '#') {
+                while (pos < source.length() && source.charAt(pos) != '\n') {
+                    pos++;
+                }
+                continue;
+            } else if (!Character.isWhitespace(c)) {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private void emit(int opcode, int operand) {
+        ensure(2);
+        code[size++] = opcode;
+        code[size++] = operand;
+    }
+
+    private void emit(int opcode, int first, int second) {
+        ensure(3);
+        code[size++] = opcode;
+        code[size++] = first;
+        code[size++] = second;
+    }
+
+    private void ensure(int ints) {
+        if (size + ints > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length * 2, size + ints));
+        }
+    }
+
+    private static long add(long a, long b) {
+        return a == Script.UNLIMITED || b == Script.UNLIMITED || a + b < 0 ? Script.UNLIMITED : a + b;
+    }
+
+    private static long multiply(long steps, int count) {
+        return steps == Script.UNLIMITED || (steps > 0 && steps > Long.MAX_VALUE / count) ? Script.UNLIMITED : steps * count;
+    }
+}
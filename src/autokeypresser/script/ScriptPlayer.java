@@ -0,0 +1,193 @@
+package autokeypresser.script;
+
+import autokeypresser.engine.Clock;
+import autokeypresser.engine.ModifierTracker;
+import autokeypresser.engine.PrecisionScheduler;
+import autokeypresser.engine.PrecisionScheduler.MissedDeadlinePolicy;
+import autokeypresser.engine.PressEngine;
+import autokeypresser.engine.Sleeper;
+import autokeypresser.layout.KeyboardLayout;
+import autokeypresser.mouse.PointerModel;
+import autokeypresser.output.KeystrokeOutput;
+
+/**
+ * Interprets a {@link Script}: one loop over its instruction array with a program counter
+ * and a small stack of loop counters, so memory stays constant however many times the loops
+ * run.
+ *
+ * Every key, text character and pointer move is a step, due one interval after the previous
+ * step on an absolute deadline schedule, so interpretation overhead never accumulates into
+ * drift; a {@code wait} sleeps and moves the following deadlines back. Modifiers carry over
+ * between steps only while the interval is short enough for
+ * {@link PressEngine#MAX_MODIFIER_HOLD_NANOS}, and are released however playback ends. Not
+ * thread-safe except for {@link #stop()}.
+ */
+public final class ScriptPlayer {
+
+    private final KeystrokeOutput output;
+    private final ModifierTracker modifierState;
+    private final PointerModel pointer;
+    private Clock clock = Clock.SYSTEM;
+    private MissedDeadlinePolicy missedDeadlinePolicy = MissedDeadlinePolicy.CATCH_UP;
+
+    private volatile boolean running;
+
+    public ScriptPlayer(KeystrokeOutput output) {
+        this.output = output;
+        this.modifierState = new ModifierTracker(output);
+        this.pointer = PointerModel.forOutput(output);
+    }
+
+    /** Clock that times the steps; {@link Clock#SYSTEM} unless set, e.g. to simulate a run. */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    public void setMissedDeadlinePolicy(MissedDeadlinePolicy missedDeadlinePolicy) {
+        this.missedDeadlinePolicy = missedDeadlinePolicy;
+    }
+
+    /**
+     * Runs {@code script} until its end, {@code durationNanos} or {@link #stop()}. The first
+     * step happens at once. A stop that also interrupts the thread returns normally with the
+     * interrupt status preserved.
+     *
+     * @param intervalNanos time between steps until the script sets another
+     * @return the number of steps made
+     * @throws IllegalArgumentException if the interval is not positive
+     * @throws InterruptedException if interrupted without {@link #stop()} having been called
+     */
+    public long play(Script script, long intervalNanos, long durationNanos) throws InterruptedException {
+        if (intervalNanos <= 0) {
+            throw new IllegalArgumentException("Interval must be greater than zero");
+        }
+        int[] code = script.code();
+        int[] counters = new int[script.maxDepth()];
+        int depth = 0;
+        int pc = 0;
+        long interval = intervalNanos;
+        boolean holdModifiers = interval <= PressEngine.MAX_MODIFIER_HOLD_NANOS;
+        long steps = 0;
+        Sleeper sleeper = clock.newSleeper();
+        long start = clock.nanoTime();
+        long end = durationNanos >= Long.MAX_VALUE - start ? Long.MAX_VALUE : start + durationNanos;
+        long deadline = start;
+        running = true;
+        try {
+            program:
+            while (running && pc < code.length) {
+                int opcode = code[pc];
+                if (opcode <= Script.SEQUENCE || opcode == Script.MOVE_TO || opcode == Script.MOVE_BY) {
+                    // A step: wait for its deadline first
+                    long now = clock.nanoTime();
+                    if (now - deadline >= interval && (missedDeadlinePolicy == MissedDeadlinePolicy.SKIP
+                            || now - deadline > PrecisionScheduler.DEFAULT_MAX_CATCH_UP_TICKS * interval)) {
+                        deadline = now;
+                    }
+                    if (deadline - end >= 0 || !sleepUntil(sleeper, deadline)) {
+                        break;
+                    }
+                    deadline += interval;
+                    steps++;
+                }
+                switch (opcode) {
+                    case Script.KEY -> {
+                        int stroke = code[pc + 1];
+                        modifierState.apply(KeyboardLayout.modifiers(stroke));
+                        output.keyPress(KeyboardLayout.keyCode(stroke));
+                        output.keyRelease(KeyboardLayout.keyCode(stroke));
+                        if (!holdModifiers) {
+                            modifierState.releaseAll();
+                        }
+                        pc += 2;
+                    }
+                    case Script.SEQUENCE -> {
+                        int count = code[pc + 1];
+                        for (int i = 0; i < count; i++) {
+                            modifierState.typeStroke(code[pc + 2 + i]);
+                        }
+                        // Never hold a modifier into the next step; Alt-code input commits on its release
+                        modifierState.releaseAll();
+                        pc += 2 + count;
+                    }
+                    case Script.WAIT -> {
+                        long pause = Script.nanos(code, pc);
+                        deadline += pause;
+                        if (pause + interval > PressEngine.MAX_MODIFIER_HOLD_NANOS) {
+                            modifierState.releaseAll();
+                        }
+                        pc += 3;
+                        // Sleep through the pause here too, so a loop of only waits does not spin.
+                        // deadline - interval is the last step plus the pauses since, never past
+                        // the next step's deadline, whatever intervals follow
+                        long paused = deadline - interval;
+                        if (paused - end >= 0 || !sleepUntil(sleeper, paused)) {
+                            break program;
+                        }
+                    }
+                    case Script.INTERVAL -> {
+                        long next = Script.nanos(code, pc);
+                        if (steps > 0) {
+                            deadline += next - interval; // The step after the last one is due one new interval after it
+                        }
+                        interval = next;
+                        holdModifiers = interval <= PressEngine.MAX_MODIFIER_HOLD_NANOS;
+                        if (!holdModifiers) {
+                            modifierState.releaseAll();
+                        }
+                        pc += 3;
+                    }
+                    case Script.MOVE_TO -> {
+                        pointer.moveTo(code[pc + 1], code[pc + 2]);
+                        pc += 3;
+                    }
+                    case Script.MOVE_BY -> {
+                        pointer.moveBy(code[pc + 1], code[pc + 2]);
+                        pc += 3;
+                    }
+                    case Script.LOOP -> {
+                        counters[depth++] = code[pc + 1];
+                        pc += 2;
+                    }
+                    case Script.NEXT -> {
+                        int remaining = counters[depth - 1];
+                        if (remaining == 0 || --counters[depth - 1] > 0) {
+                            pc = code[pc + 1]; // Forever, or more passes to go
+                        } else {
+                            depth--;
+                            pc += 2;
+                        }
+                    }
+                    default -> throw new IllegalStateException("Bad opcode " + opcode + " at " + pc);
+                }
+            }
+            return steps;
+        } finally {
+            modifierState.releaseAll();
+            running = false;
+        }
+    }
+
+    /** Waits for {@code deadline}; false if interrupted by {@link #stop()}, with the interrupt status kept. */
+    private boolean sleepUntil(Sleeper sleeper, long deadline) throws InterruptedException {
+        try {
+            sleeper.waitUntil(deadline);
+            return true;
+        } catch (InterruptedException e) {
+            if (running) {
+                throw e;
+            }
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /** Asks a running {@link #play} to return after the current step. */
+    public void stop() {
+        running = false;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+}
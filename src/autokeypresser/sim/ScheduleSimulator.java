@@ -0,0 +1,219 @@
+package autokeypresser.sim;
+
+import autokeypresser.engine.KeystrokeProgram;
+import autokeypresser.engine.KeystrokeSource;
+import autokeypresser.engine.PrecisionScheduler.MissedDeadlinePolicy;
+import autokeypresser.engine.PressAction;
+import autokeypresser.engine.PressEngine;
+import autokeypresser.metrics.PressMetrics;
+import autokeypresser.output.KeystrokeOutput;
+
+/**
+ * Runs the real {@link PressEngine} on a {@link VirtualClock}, so the schedule of a long run
+ * (how many presses, in what order, when, and when it stops) can be checked in a fraction of
+ * its duration.
+ *
+ * The simulated output sends nothing. It lets each event take a configurable
+ * {@link #setEventCost cost} of simulated time, to model a slow system, and watches what the
+ * engine does: each keystroke the source advances to must be pressed exactly once, in order,
+ * and never before its place in the schedule ({@code start + n * interval}). The checks are
+ * collected in a {@link SimulationResult}. Not thread-safe; reusable.
+ */
+public final class ScheduleSimulator {
+
+    private long eventCostNanos;
+    private MissedDeadlinePolicy missedDeadlinePolicy = MissedDeadlinePolicy.CATCH_UP;
+    private int hoverSteps = 1;
+    private long hoverStepIntervalNanos = 1_000_000L;
+    private boolean hoverCurve;
+
+    /**
+     * Simulated time each output event (key press or release, pointer move) takes; 0 (the
+     * default) makes output free, so the schedule must be followed exactly.
+     *
+     * @throws IllegalArgumentException if {@code eventCostNanos} is negative
+     */
+    public void setEventCost(long eventCostNanos) {
+        if (eventCostNanos < 0) {
+            throw new IllegalArgumentException("Event cost must not be negative: " + eventCostNanos + " ns");
+        }
+        this.eventCostNanos = eventCostNanos;
+    }
+
+    public void setMissedDeadlinePolicy(MissedDeadlinePolicy missedDeadlinePolicy) {
+        this.missedDeadlinePolicy = missedDeadlinePolicy;
+    }
+
+    /** @see PressEngine#setHoverGlide(int, long) */
+    public void setHoverGlide(int steps, long stepIntervalNanos) {
+        if (steps <= 0 || stepIntervalNanos <= 0) {
+            throw new IllegalArgumentException("Hover steps and step interval must be positive");
+        }
+        this.hoverSteps = steps;
+        this.hoverStepIntervalNanos = stepIntervalNanos;
+    }
+
+    /** @see PressEngine#setHoverCurve(boolean) */
+    public void setHoverCurve(boolean hoverCurve) {
+        this.hoverCurve = hoverCurve;
+    }
+
+    /** Simulates cycling {@code program} for {@code durationNanos}. */
+    public SimulationResult run(KeystrokeProgram program, long durationNanos, long intervalNanos, PressAction action)
+            throws InterruptedException {
+        return run(program.cycle(), durationNanos, intervalNanos, action);
+    }
+
+    /**
+     * Simulates pressing {@code source} for {@code durationNanos}. The run must end on its
+     * own: give a finite duration, a source that is exhausted, or both.
+     *
+     * @param action performed after every press, or {@code null}
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public SimulationResult run(KeystrokeSource source, long durationNanos, long intervalNanos, PressAction action)
+            throws InterruptedException {
+        VirtualClock clock = new VirtualClock();
+        CheckedSource checked = new CheckedSource(source);
+        SimulatedOutput output = new SimulatedOutput(clock, checked, eventCostNanos, intervalNanos);
+        PressMetrics metrics = new PressMetrics();
+
+        PressEngine engine = new PressEngine(output, null);
+        engine.setClock(clock);
+        engine.setMissedDeadlinePolicy(missedDeadlinePolicy);
+        engine.setHoverGlide(hoverSteps, hoverStepIntervalNanos);
+        engine.setHoverCurve(hoverCurve);
+        engine.setMetrics(metrics);
+
+        long wallStart = System.nanoTime();
+        long presses = engine.run(checked, durationNanos, intervalNanos, action);
+        long wallNanos = System.nanoTime() - wallStart;
+
+        return new SimulationResult(durationNanos, intervalNanos, missedDeadlinePolicy, eventCostNanos, presses,
+                output.presses, output.keyPresses, output.keyReleases, output.mouseMoves,
+                checked.unpressed, checked.exhausted, output.earlyPresses, output.maxDriftNanos,
+                output.lastPressNanos, clock.elapsedNanos(), metrics.getLateness().valueAtPercentile(99), metrics.getLateness().getMax(),
+                metrics.getSkippedDeadlines(), metrics.getLateDeadlines(), wallNanos);
+    }
+
+    // Counts keystrokes the engine advanced to but never pressed before moving on
+    private static final class CheckedSource implements KeystrokeSource {
+        private final KeystrokeSource source;
+        private boolean pending;
+        private long unpressed;
+        private boolean exhausted;
+
+        CheckedSource(KeystrokeSource source) {
+            this.source = source;
+        }
+
+        @Override
+        public boolean advance() throws InterruptedException {
+            if (pending) {
+                unpressed++;
+            }
+            pending = source.advance();
+            exhausted = !pending;
+            return pending;
+        }
+
+        @Override
+        public void pushBack() {
+            source.pushBack();
+            pending = false;
+        }
+
+        /** Marks the current keystroke pressed if {@code keyCode} is its key; returns whether it was. */
+        boolean pressed(int keyCode) {
+            if (pending && keyCode == source.keyCode()) {
+                pending = false;
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public int keyCode() {
+            return source.keyCode();
+        }
+
+        @Override
+        public int modifiers() {
+            return source.modifiers();
+        }
+
+        @Override
+        public int sequenceLength() {
+            return source.sequenceLength();
+        }
+
+        @Override
+        public int sequenceStroke(int index) {
+            return source.sequenceStroke(index);
+        }
+
+        @Override
+        public char character() {
+            return source.character();
+        }
+
+        @Override
+        public long position() {
+            return source.position();
+        }
+    }
+
+    // The first press of the current keystroke's key is the press; modifiers, dead keys and
+    // action keys around it are only counted
+    private static final class SimulatedOutput implements KeystrokeOutput {
+        private final VirtualClock clock;
+        private final CheckedSource source;
+        private final long eventCostNanos;
+        private final long intervalNanos;
+        private final long startNanos;
+        private long presses;
+        private long keyPresses;
+        private long keyReleases;
+        private long mouseMoves;
+        private long earlyPresses;
+        private long maxDriftNanos;
+        private long lastPressNanos = -1;
+
+        SimulatedOutput(VirtualClock clock, CheckedSource source, long eventCostNanos, long intervalNanos) {
+            this.clock = clock;
+            this.source = source;
+            this.eventCostNanos = eventCostNanos;
+            this.intervalNanos = intervalNanos;
+            this.startNanos = clock.nanoTime();
+        }
+
+        @Override
+        public void keyPress(int keyCode) {
+            keyPresses++;
+            if (source.pressed(keyCode)) {
+                long elapsed = clock.nanoTime() - startNanos;
+                long drift = elapsed - presses * intervalNanos;
+                if (drift < 0) {
+                    earlyPresses++;
+                } else if (drift > maxDriftNanos) {
+                    maxDriftNanos = drift;
+                }
+                lastPressNanos = elapsed;
+                presses++;
+            }
+            clock.advance(eventCostNanos);
+        }
+
+        @Override
+        public void keyRelease(int keyCode) {
+            keyReleases++;
+            clock.advance(eventCostNanos);
+        }
+
+        @Override
+        public void mouseMoveTo(int x, int y) {
+            mouseMoves++;
+            clock.advance(eventCostNanos);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package autokeypresser.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import autokeypresser.engine.PrecisionScheduler.MissedDeadlinePolicy;
+import autokeypresser.engine.TimeSpec;
+
+/**
+ * What a {@link ScheduleSimulator} run did, in simulated time, and the checks it must pass.
+ *
+ * Every run must press each keystroke exactly once and in order, never early, never at or
+ * after the duration, and release every key it pressed. With free output under
+ * {@link MissedDeadlinePolicy#CATCH_UP} the schedule must also be exact: the expected number
+ * of presses, each on its deadline, and no waiting past the last one.
+ */
+public final class SimulationResult {
+
+    private final long durationNanos;
+    private final long intervalNanos;
+    private final MissedDeadlinePolicy policy;
+    private final long eventCostNanos;
+    private final long presses;
+    private final long observedPresses;
+    private final long keyPresses;
+    private final long keyReleases;
+    private final long mouseMoves;
+    private final long unpressed;
+    private final boolean exhausted;
+    private final long earlyPresses;
+    private final long maxDriftNanos;
+    private final long lastPressNanos;
+    private final long elapsedNanos;
+    private final long latenessP99Nanos;
+    private final long latenessMaxNanos;
+    private final long skippedTicks;
+    private final long lateTicks;
+    private final long wallNanos;
+
+    SimulationResult(long durationNanos, long intervalNanos, MissedDeadlinePolicy policy, long eventCostNanos,
+                     long presses, long observedPresses, long keyPresses, long keyReleases, long mouseMoves,
+                     long unpressed, boolean exhausted, long earlyPresses, long maxDriftNanos, long lastPressNanos,
+                     long elapsedNanos, long latenessP99Nanos, long latenessMaxNanos, long skippedTicks, long lateTicks, long wallNanos) {
+        this.durationNanos = durationNanos;
+        this.intervalNanos = intervalNanos;
+        this.policy = policy;
+        this.eventCostNanos = eventCostNanos;
+        this.presses = presses;
+        this.observedPresses = observedPresses;
+        this.keyPresses = keyPresses;
+        this.keyReleases = keyReleases;
+        this.mouseMoves = mouseMoves;
+        this.unpressed = unpressed;
+        this.exhausted = exhausted;
+        this.earlyPresses = earlyPresses;
+        this.maxDriftNanos = maxDriftNanos;
+        this.lastPressNanos = lastPressNanos;
+        this.elapsedNanos = elapsedNanos;
+        this.latenessP99Nanos = latenessP99Nanos;
+        this.latenessMaxNanos = latenessMaxNanos;
+        this.skippedTicks = skippedTicks;
+        this.lateTicks = lateTicks;
+        this.wallNanos = wallNanos;
+    }
+
+    /**
+     * Presses a run of {@code durationNanos} at {@code intervalNanos} makes on an exact
+     * schedule: one at the start and one per whole interval before the duration is up.
+     */
+    public static long expectedPresses(long durationNanos, long intervalNanos) {
+        return durationNanos <= 0 ? 0 : (durationNanos - 1) / intervalNanos + 1;
+    }
+
+    /** Whether the schedule must be exact: free output, catching up, and a finite duration. */
+    public boolean isExact() {
+        return eventCostNanos == 0 && policy == MissedDeadlinePolicy.CATCH_UP && durationNanos != Long.MAX_VALUE;
+    }
+
+    /** Descriptions of every failed check; empty if the run behaved. */
+    public List<String> failures() {
+        List<String> failures = new ArrayList<>();
+        if (observedPresses != presses) {
+            failures.add("engine reported " + presses + " presses but the output saw " + observedPresses);
+        }
+        if (unpressed > 0) {
+            failures.add(unpressed + " keystrokes were skipped over without being pressed");
+        }
+        if (earlyPresses > 0) {
+            failures.add(earlyPresses + " presses came before their place in the schedule");
+        }
+        if (keyPresses != keyReleases) {
+            failures.add((keyPresses - keyReleases) + " keys left held (" + keyPresses + " presses, "
+                    + keyReleases + " releases)");
+        }
+        if (lastPressNanos >= durationNanos) {
+            failures.add("a press came " + TimeSpec.format(lastPressNanos) + " in, at or after the duration");
+        }
+        if (isExact()) {
+            long expected = expectedPresses(durationNanos, intervalNanos);
+            // A source that runs out, such as a file, ends the run sooner
+            if (exhausted ? presses > expected : presses != expected) {
+                failures.add(presses + " presses instead of " + expected);
+            }
+            if (maxDriftNanos > 0) {
+                failures.add("presses drifted up to " + maxDriftNanos + " ns from the schedule");
+            }
+            if (presses > 0 && elapsedNanos > Math.max(durationNanos, lastPressNanos + intervalNanos)) {
+                failures.add("run ended " + TimeSpec.format(elapsedNanos) + " in, after the duration");
+            }
+        }
+        return failures;
+    }
+
+    public long getPresses() {
+        return presses;
+    }
+
+    public long getKeyPresses() {
+        return keyPresses;
+    }
+
+    public long getMouseMoves() {
+        return mouseMoves;
+    }
+
+    /** Whether the source ran out before the duration was up. */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    /** Largest distance of a press behind {@code start + n * interval}. */
+    public long getMaxDriftNanos() {
+        return maxDriftNanos;
+    }
+
+    /** When the last press came, from the start; -1 if there was none. */
+    public long getLastPressNanos() {
+        return lastPressNanos;
+    }
+
+    /** Simulated time the run took. */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /** p99 of how far presses fired after their tick's deadline, as {@code PressMetrics} reports it. */
+    public long getLatenessP99Nanos() {
+        return latenessP99Nanos;
+    }
+
+    public long getLatenessMaxNanos() {
+        return latenessMaxNanos;
+    }
+
+    public long getSkippedTicks() {
+        return skippedTicks;
+    }
+
+    public long getLateTicks() {
+        return lateTicks;
+    }
+
+    /** Real time the simulation took. */
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /** Simulated time per real time, e.g. 36000 when 10 hours take one second. */
+    public double getSpeedup() {
+        return wallNanos > 0 ? (double) elapsedNanos / wallNanos : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d presses in %s simulated (last at %.6f s) | drift max %d ns | lateness p99/max %d/%d ns"
+                        + " | skipped %d, late %d | %d key events, %d moves | %.3f s real, %.0fx",
+                presses, TimeSpec.format(elapsedNanos), lastPressNanos / 1e9, maxDriftNanos, latenessP99Nanos,
+                latenessMaxNanos, skippedTicks, lateTicks, keyPresses + keyReleases, mouseMoves, wallNanos / 1e9,
+                getSpeedup());
+    }
+}
@@ -0,0 +1,100 @@
+package autokeypresser.sim;
+
+import java.util.function.BooleanSupplier;
+
+import autokeypresser.engine.Clock;
+import autokeypresser.engine.Sleeper;
+
+/**
+ * Simulated time for running the press loop without waiting. Time only moves when a
+ * {@link #newSleeper() sleeper} waits, which jumps straight to its deadline, or when
+ * {@link #advance} models work that takes time, so a run on this clock is deterministic and
+ * an hour-long schedule finishes as fast as the loop can execute it.
+ *
+ * Not thread-safe: drive it from the one thread that runs the engine.
+ */
+public final class VirtualClock implements Clock {
+
+    /** Wall-clock time the simulation starts at by default: 2026-01-01T00:00:00Z. */
+    public static final long DEFAULT_START_EPOCH_MILLIS = 1_767_225_600_000L;
+
+    private final long startNanos;
+    private final long startEpochMillis;
+    private long nanos;
+    private long waits;
+
+    public VirtualClock() {
+        this(0, DEFAULT_START_EPOCH_MILLIS);
+    }
+
+    /**
+     * @param startNanos       initial {@link #nanoTime()}; any value, including one close to
+     *                         overflow, since only differences are meaningful
+     * @param startEpochMillis initial {@link #currentTimeMillis()}
+     */
+    public VirtualClock(long startNanos, long startEpochMillis) {
+        this.startNanos = startNanos;
+        this.startEpochMillis = startEpochMillis;
+        this.nanos = startNanos;
+    }
+
+    @Override
+    public long nanoTime() {
+        return nanos;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return startEpochMillis + (nanos - startNanos) / 1_000_000L;
+    }
+
+    /**
+     * Returns a sleeper that checks {@code wakeUp} and the interrupt status, then moves time to
+     * the deadline, if it is still ahead, without blocking.
+     */
+    @Override
+    public Sleeper newSleeper() {
+        return this::waitUntil;
+    }
+
+    /**
+     * Lets {@code durationNanos} of simulated time pass, e.g. for an output call.
+     *
+     * @throws IllegalArgumentException if {@code durationNanos} is negative
+     */
+    public void advance(long durationNanos) {
+        if (durationNanos < 0) {
+            throw new IllegalArgumentException("Time cannot go backwards: " + durationNanos + " ns");
+        }
+        nanos += durationNanos;
+    }
+
+    /** Simulated time since the clock was created. */
+    public long elapsedNanos() {
+        return nanos - startNanos;
+    }
+
+    /** Number of waits that returned at their deadline. */
+    public long getWaits() {
+        return waits;
+    }
+
+    private boolean waitUntil(long deadline, BooleanSupplier wakeUp) throws InterruptedException {
+        if (wakeUp.getAsBoolean()) {
+            return false;
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (deadline - nanos > 0) {
+            nanos = deadline;
+        }
+        waits++;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "virtual clock at " + elapsedNanos() + " ns";
+    }
+}
@@ -0,0 +1,20 @@
+package autokeypresser.watch;
+
+import java.io.IOException;
+
+/**
+ * Where watched regions are read from.
+ *
+ * {@link RobotFrameSource} captures the screen; {@link ImageFrameSource} reads an image, so
+ * triggers can be exercised without a display.
+ */
+public interface FrameSource {
+
+    /**
+     * Fills {@code pixels} with the region's pixels, row-major, as {@code 0xRRGGBB} (the
+     * alpha byte is unspecified). Parts of the region outside the source read as black.
+     *
+     * @throws IOException if the frame cannot be read
+     */
+    void capture(int x, int y, int width, int height, int[] pixels) throws IOException;
+}
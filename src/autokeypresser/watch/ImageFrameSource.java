@@ -0,0 +1,94 @@
+package autokeypresser.watch;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Serves regions of an image instead of the screen, for running triggers without a display.
+ * Either set images directly with {@link #setImage}, or {@link #open} a file that is read
+ * again whenever its modification time changes, so another program can "paint" it.
+ */
+public final class ImageFrameSource implements FrameSource {
+
+    private final Path file;
+    private FileTime loaded;
+    private int[] pixels = new int[0];
+    private int width;
+    private int height;
+
+    public ImageFrameSource() {
+        this.file = null;
+    }
+
+    private ImageFrameSource(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns a source that reads {@code file}, and reads it again when it changes.
+     *
+     * @throws IOException if the file cannot be read as an image
+     */
+    public static ImageFrameSource open(Path file) throws IOException {
+        ImageFrameSource source = new ImageFrameSource(file);
+        source.reload();
+        return source;
+    }
+
+    /** Replaces the image served from now on. */
+    public synchronized void setImage(BufferedImage image) {
+        width = image.getWidth();
+        height = image.getHeight();
+        pixels = image.getRGB(0, 0, width, height, null, 0, width);
+    }
+
+    @Override
+    public synchronized void capture(int x, int y, int regionWidth, int regionHeight, int[] out) throws IOException {
+        if (file != null) {
+            reload();
+        }
+        for (int row = 0; row < regionHeight; row++) {
+            int start = row * regionWidth;
+            int sourceY = y + row;
+            int from = Math.max(x, 0);
+            int to = Math.min(x + regionWidth, width);
+            if (sourceY < 0 || sourceY >= height || from >= to) {
+                Arrays.fill(out, start, start + regionWidth, 0);
+                continue;
+            }
+            Arrays.fill(out, start, start + from - x, 0);
+            System.arraycopy(pixels, sourceY * width + from, out, start + from - x, to - from);
+            Arrays.fill(out, start + to - x, start + regionWidth, 0);
+        }
+    }
+
+    private void reload() throws IOException {
+        FileTime modified = Files.getLastModifiedTime(file);
+        if (modified.equals(loaded)) {
+            return;
+        }
+        BufferedImage image;
+        try {
+            image = ImageIO.read(file.toFile());
+        } catch (IOException e) {
+            image = null;
+            if (loaded == null) {
+                throw e;
+            }
+        }
+        if (image == null) {
+            if (loaded != null) {
+                return; // Caught mid-write; keep the last image and retry on the next capture
+            }
+            throw new IOException("Not an image ImageIO can read: " + file);
+        }
+        loaded = modified;
+        setImage(image);
+    }
+}
@@ -0,0 +1,46 @@
+package autokeypresser.watch;
+
+import java.awt.AWTException;
+import java.awt.Rectangle;
+import java.awt.Robot;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/** Captures screen regions through {@link Robot#createScreenCapture}. */
+public final class RobotFrameSource implements FrameSource {
+
+    private final Robot robot;
+
+    /**
+     * @throws AWTException if the platform does not allow screen capture
+     * @throws java.awt.HeadlessException if there is no display
+     */
+    public RobotFrameSource() throws AWTException {
+        this(new Robot());
+    }
+
+    public RobotFrameSource(Robot robot) {
+        this.robot = robot;
+    }
+
+    @Override
+    public void capture(int x, int y, int width, int height, int[] pixels) {
+        BufferedImage image = robot.createScreenCapture(new Rectangle(x, y, width, height));
+        // Captures are normally packed ints; copy rows straight out of the raster then
+        if (image.getRaster().getDataBuffer() instanceof DataBufferInt buffer
+                && image.getSampleModel() instanceof SinglePixelPackedSampleModel model
+                && image.getWidth() == width && image.getHeight() == height) {
+            int[] data = buffer.getData();
+            int stride = model.getScanlineStride();
+            int offset = buffer.getOffset() - image.getRaster().getSampleModelTranslateX()
+                    - image.getRaster().getSampleModelTranslateY() * stride;
+            for (int row = 0; row < height; row++) {
+                System.arraycopy(data, offset + row * stride, pixels, row * width, width);
+            }
+        } else {
+            image.getRGB(0, 0, Math.min(width, image.getWidth()), Math.min(height, image.getHeight()),
+                    pixels, 0, width);
+        }
+    }
+}
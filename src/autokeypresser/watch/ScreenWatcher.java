@@ -0,0 +1,332 @@
+package autokeypresser.watch;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import autokeypresser.engine.PressEngine;
+import autokeypresser.log.RunLogWriter;
+
+/**
+ * Polls {@link WatchTrigger} regions and types a trigger's sequence when its condition
+ * becomes true.
+ *
+ * One watcher thread captures every region per poll and runs it through the region's
+ * {@link TileDiff} and {@link WatchCondition}, so a poll over a still screen is one compare
+ * pass per region. A trigger fires on the poll its condition turns true, and again only
+ * after it has been false and its cooldown has passed. Fired sequences are queued to a
+ * dispatch thread that types them one after another on the engine, so slow typing never
+ * delays polling; when the queue is full the fire is dropped and counted.
+ *
+ * Polls run on a fixed schedule; a poll that overruns its slot skips the missed ones
+ * instead of catching up. Polls are timed with plain parking: a few hundred microseconds of
+ * jitter does not matter here, and spinning would show up as watcher CPU.
+ */
+public final class ScreenWatcher {
+
+    /** Default time between polls. */
+    public static final long DEFAULT_POLL_INTERVAL_NANOS = 20_000_000L;
+    /** Default minimum time between two fires of one trigger. */
+    public static final long DEFAULT_COOLDOWN_NANOS = 1_000_000_000L;
+
+    private static final int QUEUE_CAPACITY = 16;
+
+    private final FrameSource source;
+    private final List<WatchTrigger> triggers;
+    private final PressEngine engine;
+    private final long pressIntervalNanos;
+    private final TileDiff[] diffs;
+    private final int[][] frames;
+    private final boolean[] matched;
+    private final long[] lastFireNanos;
+    private final AtomicLongArray fires;
+    private final BlockingQueue<WatchTrigger> dispatchQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private long pollIntervalNanos = DEFAULT_POLL_INTERVAL_NANOS;
+    private long cooldownNanos = DEFAULT_COOLDOWN_NANOS;
+    private RunLogWriter runLog;
+
+    private volatile boolean stopped;
+    private volatile Thread watcherThread;
+    private volatile Thread dispatchThread;
+
+    // Written by the watcher thread only
+    private volatile long polls;
+    private volatile long skippedPolls;
+    private volatile long captureNanos;
+    private volatile long diffNanos;
+    private volatile long changedTiles;
+    private volatile long dropped;
+    private volatile long presses; // Written by the dispatch thread
+
+    // Last values describe() reported against
+    private long reportedNanos;
+    private long reportedPolls;
+    private long reportedCaptureNanos;
+    private long reportedDiffNanos;
+    private long reportedChangedTiles;
+    private long reportedCpuNanos;
+
+    /**
+     * @param pressIntervalNanos time between the presses of a triggered sequence
+     * @throws IllegalArgumentException if there are no triggers or the interval is not positive
+     */
+    public ScreenWatcher(FrameSource source, List<WatchTrigger> triggers, PressEngine engine, long pressIntervalNanos) {
+        if (triggers.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to watch");
+        }
+        if (pressIntervalNanos <= 0) {
+            throw new IllegalArgumentException("Interval must be greater than zero");
+        }
+        this.source = source;
+        this.triggers = List.copyOf(triggers);
+        this.engine = engine;
+        this.pressIntervalNanos = pressIntervalNanos;
+        int count = this.triggers.size();
+        diffs = new TileDiff[count];
+        frames = new int[count][];
+        matched = new boolean[count];
+        lastFireNanos = new long[count];
+        fires = new AtomicLongArray(count);
+        for (int i = 0; i < count; i++) {
+            WatchTrigger trigger = this.triggers.get(i);
+            diffs[i] = new TileDiff(trigger.getWidth(), trigger.getHeight(), TileDiff.DEFAULT_TILE_SIZE);
+            frames[i] = new int[trigger.getWidth() * trigger.getHeight()];
+            trigger.getCondition().start(diffs[i]);
+        }
+    }
+
+    /** @throws IllegalArgumentException if the interval is not positive */
+    public void setPollInterval(long pollIntervalNanos) {
+        if (pollIntervalNanos <= 0) {
+            throw new IllegalArgumentException("Poll interval must be greater than zero");
+        }
+        this.pollIntervalNanos = pollIntervalNanos;
+    }
+
+    /** @throws IllegalArgumentException if the cooldown is negative */
+    public void setCooldown(long cooldownNanos) {
+        if (cooldownNanos < 0) {
+            throw new IllegalArgumentException("Cooldown must not be negative");
+        }
+        this.cooldownNanos = cooldownNanos;
+    }
+
+    /** Log that receives an event for every fire, or {@code null}. */
+    public void setRunLog(RunLogWriter runLog) {
+        this.runLog = runLog;
+    }
+
+    /**
+     * Polls on the calling thread until {@code durationNanos} has elapsed or {@link #stop()}
+     * is called. A sequence still being typed then stops after its current press, and queued
+     * ones are dropped.
+     *
+     * @return the number of polls made
+     * @throws IOException if a region cannot be captured
+     * @throws InterruptedException if the thread is interrupted without {@link #stop()} having been called
+     */
+    public long run(long durationNanos) throws IOException, InterruptedException {
+        watcherThread = Thread.currentThread();
+        Thread dispatcher = new Thread(this::dispatch, "autokeypresser-watch-dispatch");
+        dispatcher.setDaemon(true);
+        dispatchThread = dispatcher;
+        dispatcher.start();
+
+        long start = System.nanoTime();
+        long end = durationNanos >= Long.MAX_VALUE - start ? Long.MAX_VALUE : start + durationNanos;
+        synchronized (this) {
+            reportedNanos = start;
+            reportedCpuNanos = threadCpuNanos();
+        }
+        try {
+            long next = start;
+            while (!stopped) {
+                poll();
+                next += pollIntervalNanos;
+                long now = System.nanoTime();
+                if (now - next > 0) {
+                    long behind = (now - next) / pollIntervalNanos + 1;
+                    skippedPolls += behind;
+                    next += behind * pollIntervalNanos;
+                }
+                if (end - next <= 0 || !park(Math.min(next, end))) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            if (!stopped) {
+                throw e;
+            }
+            Thread.currentThread().interrupt();
+        } finally {
+            stopped = true;
+            engine.stop();
+            dispatcher.interrupt();
+            boolean interrupted = false;
+            while (dispatcher.isAlive()) {
+                try {
+                    dispatcher.join(); // The engine stops after its current press
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return polls;
+    }
+
+    /** Parks until {@code deadline}; false if stopped first. */
+    private boolean park(long deadline) throws InterruptedException {
+        long remaining;
+        while (!stopped && (remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return !stopped;
+    }
+
+    private void poll() throws IOException {
+        long tiles = 0;
+        long capture = 0;
+        long diff = 0;
+        for (int i = 0; i < diffs.length; i++) {
+            WatchTrigger trigger = triggers.get(i);
+            int[] frame = frames[i];
+            long t0 = System.nanoTime();
+            source.capture(trigger.getX(), trigger.getY(), trigger.getWidth(), trigger.getHeight(), frame);
+            long t1 = System.nanoTime();
+            tiles += diffs[i].update(frame);
+            boolean now = trigger.getCondition().evaluate(diffs[i], frame);
+            long t2 = System.nanoTime();
+            capture += t1 - t0;
+            diff += t2 - t1;
+            if (!now) {
+                matched[i] = false;
+            } else if (!matched[i] && (fires.get(i) == 0 || t2 - lastFireNanos[i] >= cooldownNanos)) {
+                // A match that starts inside the cooldown stays armed and fires once it ends
+                matched[i] = true;
+                fire(i, trigger, t2);
+            }
+        }
+        captureNanos += capture;
+        diffNanos += diff;
+        changedTiles += tiles;
+        polls++;
+    }
+
+    private void fire(int index, WatchTrigger trigger, long now) {
+        lastFireNanos[index] = now;
+        fires.incrementAndGet(index);
+        boolean queued = dispatchQueue.offer(trigger);
+        if (!queued) {
+            dropped++;
+        }
+        if (runLog != null) {
+            runLog.event("Watch " + trigger.getName() + " fired" + (queued ? "" : "; dropped, typing is behind"));
+        }
+    }
+
+    private void dispatch() {
+        try {
+            while (!stopped) {
+                WatchTrigger trigger = dispatchQueue.take();
+                presses += engine.run(trigger.getProgram().once(), Long.MAX_VALUE, pressIntervalNanos, trigger.getAction());
+            }
+        } catch (InterruptedException ignored) {
+            // Stopped
+        }
+    }
+
+    /** Asks a running {@link #run} to return; a sequence being typed stops after its current press. */
+    public void stop() {
+        stopped = true;
+        engine.stop();
+        Thread watcher = watcherThread;
+        if (watcher != null) {
+            LockSupport.unpark(watcher);
+        }
+        Thread dispatcher = dispatchThread;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+    }
+
+    public List<WatchTrigger> getTriggers() {
+        return triggers;
+    }
+
+    /** How often the trigger at {@code index} has fired, including dropped fires. */
+    public long getFires(int index) {
+        return fires.get(index);
+    }
+
+    public long getPolls() {
+        return polls;
+    }
+
+    /** Polls left out because an earlier one overran its slot. */
+    public long getSkippedPolls() {
+        return skippedPolls;
+    }
+
+    /** Fires dropped because the dispatch queue was full. */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /** Keys pressed by triggered sequences so far. */
+    public long getPresses() {
+        return presses;
+    }
+
+    /**
+     * Polling rate and cost since the last call (or the start): polls per second, capture
+     * and compare time per poll, changed tiles per poll, and the watcher thread's CPU time
+     * as a share of one core.
+     */
+    public synchronized String describe() {
+        long now = System.nanoTime();
+        long cpu = threadCpuNanos();
+        long pollCount = polls - reportedPolls;
+        double seconds = (now - reportedNanos) / 1e9;
+        String line = String.format("%.1f polls/s, capture %.3f ms, compare %.3f ms, %.1f changed tiles per poll, "
+                        + "watcher CPU %s",
+                seconds > 0 ? pollCount / seconds : 0.0,
+                pollCount > 0 ? (captureNanos - reportedCaptureNanos) / 1e6 / pollCount : 0.0,
+                pollCount > 0 ? (diffNanos - reportedDiffNanos) / 1e6 / pollCount : 0.0,
+                pollCount > 0 ? (double) (changedTiles - reportedChangedTiles) / pollCount : 0.0,
+                cpu >= 0 && reportedCpuNanos >= 0 && seconds > 0
+                        ? String.format("%.1f%% of one core", (cpu - reportedCpuNanos) / 1e7 / seconds) : "n/a");
+        reportedNanos = now;
+        reportedPolls += pollCount;
+        reportedCaptureNanos = captureNanos;
+        reportedDiffNanos = diffNanos;
+        reportedChangedTiles = changedTiles;
+        reportedCpuNanos = cpu;
+        return line;
+    }
+
+    /** CPU time of the watcher thread, or -1 if the JVM does not measure it. */
+    private long threadCpuNanos() {
+        Thread watcher = watcherThread;
+        if (watcher == null || !threads.isThreadCpuTimeSupported()) {
+            return -1;
+        }
+        try {
+            return threads.getThreadCpuTime(watcher.getId());
+        } catch (UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+}
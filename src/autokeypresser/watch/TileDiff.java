@@ -0,0 +1,156 @@
+package autokeypresser.watch;
+
+import java.util.Arrays;
+
+/**
+ * Incremental frame comparison for one watched region, split into square tiles.
+ *
+ * Each row of a new frame is checked against the kept copy of the last one with
+ * {@link Arrays#mismatch}, a vectorized intrinsic that runs at memory speed over equal
+ * pixels. Only where it finds a difference is the rest of that tile's row compared pixel by
+ * pixel, counted and copied; the tile is then listed as changed, and conditions re-evaluate
+ * only the {@link #changedTile changed tiles}. A still screen therefore costs one streaming
+ * pass and no copying.
+ *
+ * Not thread-safe; one instance per region, used by the watcher thread.
+ */
+public final class TileDiff {
+
+    /** Default tile edge in pixels. */
+    public static final int DEFAULT_TILE_SIZE = 32;
+
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final int tilesAcross;
+    private final int tileCount;
+    private final int[] previous;
+    private final int[] changedTiles;
+    private final int[] tileStamps; // frame number a tile was last listed in
+    private int changedTileCount;
+    private long changedPixels;
+    private int frameNumber;
+    private boolean first = true;
+    private boolean lastWasFirst;
+
+    /** @throws IllegalArgumentException if a size is not positive */
+    public TileDiff(int width, int height, int tileSize) {
+        if (width <= 0 || height <= 0 || tileSize <= 0) {
+            throw new IllegalArgumentException("Region and tile sizes must be positive: " + width + "x" + height
+                    + ", tile " + tileSize);
+        }
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.tilesAcross = (width + tileSize - 1) / tileSize;
+        this.tileCount = tilesAcross * ((height + tileSize - 1) / tileSize);
+        this.previous = new int[width * height];
+        this.changedTiles = new int[tileCount];
+        this.tileStamps = new int[tileCount];
+    }
+
+    /**
+     * Compares {@code frame}, row-major pixels of this region, with the last one.
+     *
+     * @return the number of changed tiles; every tile of the first frame counts as changed
+     */
+    public int update(int[] frame) {
+        if (frame.length < previous.length) {
+            throw new IllegalArgumentException("Frame has " + frame.length + " pixels, region has " + previous.length);
+        }
+        lastWasFirst = first;
+        if (first) {
+            first = false;
+            System.arraycopy(frame, 0, previous, 0, previous.length);
+            for (int tile = 0; tile < tileCount; tile++) {
+                changedTiles[tile] = tile;
+            }
+            changedTileCount = tileCount;
+            changedPixels = previous.length;
+            return changedTileCount;
+        }
+
+        changedTileCount = 0;
+        long pixels = 0;
+        int stamp = ++frameNumber;
+        for (int y = 0; y < height; y++) {
+            int base = y * width;
+            int bandTile = (y / tileSize) * tilesAcross;
+            int x = 0;
+            int mismatch;
+            while (x < width && (mismatch = Arrays.mismatch(frame, base + x, base + width,
+                    previous, base + x, base + width)) >= 0) {
+                x += mismatch;
+                int tileColumn = x / tileSize;
+                int tileEnd = Math.min(width, (tileColumn + 1) * tileSize);
+                int differing = 0;
+                for (int i = base + x, end = base + tileEnd; i < end; i++) {
+                    int pixel = frame[i];
+                    differing += pixel != previous[i] ? 1 : 0;
+                    previous[i] = pixel;
+                }
+                pixels += differing;
+                int tile = bandTile + tileColumn;
+                if (tileStamps[tile] != stamp) {
+                    tileStamps[tile] = stamp;
+                    changedTiles[changedTileCount++] = tile;
+                }
+                x = tileEnd;
+            }
+        }
+        changedPixels = pixels;
+        return changedTileCount;
+    }
+
+    /** Forgets the last frame, so the next one counts as entirely changed. */
+    public void reset() {
+        first = true;
+    }
+
+    /** Whether the last {@link #update} was the first frame, with nothing to compare against. */
+    public boolean isFirst() {
+        return lastWasFirst;
+    }
+
+    public int getChangedTileCount() {
+        return changedTileCount;
+    }
+
+    /** Index of the {@code i}th tile that changed in the last update, in no particular order. */
+    public int changedTile(int i) {
+        return changedTiles[i];
+    }
+
+    /** Pixels that differ from the previous frame; all of them for the first. */
+    public long getChangedPixels() {
+        return changedPixels;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getTileCount() {
+        return tileCount;
+    }
+
+    public int tileX(int tile) {
+        return (tile % tilesAcross) * tileSize;
+    }
+
+    public int tileY(int tile) {
+        return (tile / tilesAcross) * tileSize;
+    }
+
+    public int tileWidth(int tile) {
+        return Math.min(tileSize, width - tileX(tile));
+    }
+
+    public int tileHeight(int tile) {
+        return Math.min(tileSize, height - tileY(tile));
+    }
+}
@@ -0,0 +1,274 @@
+package autokeypresser.watch;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+import javax.imageio.ImageIO;
+
+/**
+ * What a watched region has to show for its trigger to fire. Conditions are evaluated
+ * incrementally: after each frame they only look at the tiles {@link TileDiff} reports as
+ * changed, and keep per-tile counts for the rest.
+ *
+ * Specs, as parsed by {@link #parse}:
+ * <ul>
+ *   <li>{@code change[:percent]}: at least {@code percent} of the region's pixels (default:
+ *       any pixel) differ from the previous frame
+ *   <li>{@code color:RRGGBB[:tolerance[:percent]]}: at least {@code percent} of the pixels
+ *       (default: any pixel) are within {@code tolerance} (0-255 per channel, default 0) of
+ *       the color
+ *   <li>{@code image:path[:tolerance[:percent]]}: the region looks like the image, which must
+ *       have the region's size; {@code percent} of its pixels (default 100) are within
+ *       {@code tolerance} of the image's
+ * </ul>
+ * Colors are compared on their RGB channels only. Not thread-safe; one instance per trigger.
+ */
+public abstract class WatchCondition {
+
+    private WatchCondition() {
+    }
+
+    /** Prepares for frames of a region of this size; called before the first. */
+    abstract void start(TileDiff diff);
+
+    /** Whether the frame {@code diff} has just compared meets the condition. */
+    abstract boolean evaluate(TileDiff diff, int[] frame);
+
+    /**
+     * Parses a condition spec.
+     *
+     * @throws IllegalArgumentException if the spec is malformed or an image cannot be read
+     */
+    public static WatchCondition parse(String spec) {
+        String[] parts = spec.trim().split(":", -1);
+        String kind = parts[0].trim().toLowerCase(Locale.ROOT);
+        switch (kind) {
+            case "change" -> {
+                if (parts.length > 2) {
+                    throw new IllegalArgumentException("Change condition must be change[:percent]: " + spec);
+                }
+                return new Change(parts.length > 1 ? parsePercent(parts[1], 0) : 0);
+            }
+            case "color", "colour" -> {
+                if (parts.length < 2 || parts.length > 4) {
+                    throw new IllegalArgumentException("Color condition must be color:RRGGBB[:tolerance[:percent]]: " + spec);
+                }
+                String hex = parts[1].trim();
+                if (hex.startsWith("#")) {
+                    hex = hex.substring(1);
+                }
+                int rgb;
+                try {
+                    rgb = hex.length() == 6 ? Integer.parseInt(hex, 16) : -1;
+                } catch (NumberFormatException e) {
+                    rgb = -1;
+                }
+                if (rgb < 0) {
+                    throw new IllegalArgumentException("Color must be six hex digits, e.g. ff8800: " + parts[1]);
+                }
+                return new Color(rgb, parts.length > 2 ? parseTolerance(parts[2]) : 0,
+                        parts.length > 3 ? parsePercent(parts[3], 0) : 0);
+            }
+            case "image" -> {
+                // Paths may contain ':' (C:\...), so tolerance and percent are taken from the end
+                int numbers = 0;
+                while (numbers < 2 && parts.length - numbers > 2 && isNumber(parts[parts.length - 1 - numbers])) {
+                    numbers++;
+                }
+                String path = String.join(":", Arrays.copyOfRange(parts, 1, parts.length - numbers)).trim();
+                if (path.isEmpty()) {
+                    throw new IllegalArgumentException("Image condition must be image:path[:tolerance[:percent]]: " + spec);
+                }
+                int tolerance = numbers > 0 ? parseTolerance(parts[parts.length - numbers]) : 0;
+                double percent = numbers > 1 ? parsePercent(parts[parts.length - 1], 100) : 100;
+                return new Image(Path.of(path), readImage(Path.of(path)), tolerance, percent);
+            }
+            default -> throw new IllegalArgumentException("Unknown watch condition '" + parts[0]
+                    + "' (expected change, color or image)");
+        }
+    }
+
+    /** Pixels out of {@code total} that {@code percent} asks for; at least one. */
+    static long required(double percent, long total) {
+        return Math.max(1, (long) Math.ceil(percent * total / 100));
+    }
+
+    private static boolean isNumber(String text) {
+        return !text.isBlank() && text.trim().chars().allMatch(c -> (c >= '0' && c <= '9') || c == '.');
+    }
+
+    private static double parsePercent(String text, double fallback) {
+        if (text.isBlank()) {
+            return fallback;
+        }
+        double percent = Double.parseDouble(text.trim());
+        if (!(percent >= 0 && percent <= 100)) {
+            throw new IllegalArgumentException("Percent must be between 0 and 100: " + text);
+        }
+        return percent;
+    }
+
+    private static int parseTolerance(String text) {
+        if (text.isBlank()) {
+            return 0;
+        }
+        int tolerance = Integer.parseInt(text.trim());
+        if (tolerance < 0 || tolerance > 255) {
+            throw new IllegalArgumentException("Tolerance must be between 0 and 255: " + text);
+        }
+        return tolerance;
+    }
+
+    private static BufferedImage readImage(Path file) {
+        BufferedImage image;
+        try {
+            image = ImageIO.read(file.toFile());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read image " + file + ": " + e.getMessage(), e);
+        }
+        if (image == null) {
+            throw new IllegalArgumentException("Not an image ImageIO can read: " + file);
+        }
+        return image;
+    }
+
+    /** Whether two pixels are within {@code tolerance} on each of R, G and B. */
+    static boolean near(int a, int b, int tolerance) {
+        return Math.abs(((a >> 16) & 0xff) - ((b >> 16) & 0xff)) <= tolerance
+                && Math.abs(((a >> 8) & 0xff) - ((b >> 8) & 0xff)) <= tolerance
+                && Math.abs((a & 0xff) - (b & 0xff)) <= tolerance;
+    }
+
+    private static final class Change extends WatchCondition {
+        private final double percent;
+        private long required;
+
+        Change(double percent) {
+            this.percent = percent;
+        }
+
+        @Override
+        void start(TileDiff diff) {
+            required = required(percent, (long) diff.getWidth() * diff.getHeight());
+        }
+
+        @Override
+        boolean evaluate(TileDiff diff, int[] frame) {
+            return !diff.isFirst() && diff.getChangedPixels() >= required;
+        }
+
+        @Override
+        public String toString() {
+            return percent > 0 ? "change of " + percent + "%" : "any change";
+        }
+    }
+
+    /** Keeps a count of matching pixels per tile and recounts only changed tiles. */
+    private abstract static class PixelCount extends WatchCondition {
+        private final double percent;
+        private int[] tileMatches;
+        private long matches;
+        private long required;
+
+        PixelCount(double percent) {
+            this.percent = percent;
+        }
+
+        @Override
+        void start(TileDiff diff) {
+            tileMatches = new int[diff.getTileCount()];
+            matches = 0;
+            required = required(percent, (long) diff.getWidth() * diff.getHeight());
+        }
+
+        @Override
+        boolean evaluate(TileDiff diff, int[] frame) {
+            int width = diff.getWidth();
+            for (int i = 0; i < diff.getChangedTileCount(); i++) {
+                int tile = diff.changedTile(i);
+                int x0 = diff.tileX(tile);
+                int y0 = diff.tileY(tile);
+                int w = diff.tileWidth(tile);
+                int h = diff.tileHeight(tile);
+                int count = 0;
+                for (int y = y0; y < y0 + h; y++) {
+                    for (int index = y * width + x0, end = index + w; index < end; index++) {
+                        if (matches(frame[index], index)) {
+                            count++;
+                        }
+                    }
+                }
+                matches += count - tileMatches[tile];
+                tileMatches[tile] = count;
+            }
+            return matches >= required;
+        }
+
+        abstract boolean matches(int pixel, int index);
+
+        String describePercent(double fallback) {
+            return percent == fallback ? "" : ", " + percent + "% of pixels";
+        }
+    }
+
+    private static final class Color extends PixelCount {
+        private final int rgb;
+        private final int tolerance;
+
+        Color(int rgb, int tolerance, double percent) {
+            super(percent);
+            this.rgb = rgb;
+            this.tolerance = tolerance;
+        }
+
+        @Override
+        boolean matches(int pixel, int index) {
+            return near(pixel, rgb, tolerance);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("color #%06x", rgb) + (tolerance > 0 ? " within " + tolerance : "")
+                    + describePercent(0);
+        }
+    }
+
+    private static final class Image extends PixelCount {
+        private final Path file;
+        private final int[] reference;
+        private final int width;
+        private final int height;
+        private final int tolerance;
+
+        Image(Path file, BufferedImage image, int tolerance, double percent) {
+            super(percent);
+            this.file = file;
+            this.width = image.getWidth();
+            this.height = image.getHeight();
+            this.reference = image.getRGB(0, 0, width, height, null, 0, width);
+            this.tolerance = tolerance;
+        }
+
+        @Override
+        void start(TileDiff diff) {
+            if (diff.getWidth() != width || diff.getHeight() != height) {
+                throw new IllegalArgumentException("Image " + file + " is " + width + "x" + height
+                        + " but the region is " + diff.getWidth() + "x" + diff.getHeight());
+            }
+            super.start(diff);
+        }
+
+        @Override
+        boolean matches(int pixel, int index) {
+            return near(pixel, reference[index], tolerance);
+        }
+
+        @Override
+        public String toString() {
+            return "image " + file + (tolerance > 0 ? " within " + tolerance : "") + describePercent(100);
+        }
+    }
+}
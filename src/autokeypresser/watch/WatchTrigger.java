@@ -0,0 +1,69 @@
+package autokeypresser.watch;
+
+import autokeypresser.engine.KeystrokeProgram;
+import autokeypresser.engine.PressAction;
+
+/** One watched screen region for {@link ScreenWatcher}: where to look, what to wait for and what to type. */
+public final class WatchTrigger {
+
+    private final String name;
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+    private final WatchCondition condition;
+    private final KeystrokeProgram program;
+    private final PressAction action;
+
+    /**
+     * @param action performed after every press of the triggered sequence, or {@code null}
+     * @throws IllegalArgumentException if the region is empty
+     */
+    public WatchTrigger(String name, int x, int y, int width, int height, WatchCondition condition,
+                        KeystrokeProgram program, PressAction action) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Watch " + name + ": region must not be empty: " + width + "x" + height);
+        }
+        this.name = name;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.condition = condition;
+        this.program = program;
+        this.action = action;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public WatchCondition getCondition() {
+        return condition;
+    }
+
+    /** Typed once, from start to end, each time the trigger fires. */
+    public KeystrokeProgram getProgram() {
+        return program;
+    }
+
+    public PressAction getAction() {
+        return action;
+    }
+}
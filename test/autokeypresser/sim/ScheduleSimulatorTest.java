@@ -0,0 +1,165 @@
+package autokeypresser.sim;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import autokeypresser.engine.KeystrokeProgram;
+import autokeypresser.engine.PrecisionScheduler.MissedDeadlinePolicy;
+import autokeypresser.engine.PressAction;
+import autokeypresser.engine.TimeSpec;
+
+/**
+ * Whole runs in simulated time, checked for exact press counts, order and stop times across
+ * the duration/interval/action matrix, on slow output under both missed-deadline policies,
+ * and with hover glides on either path.
+ */
+class ScheduleSimulatorTest {
+
+    private static final KeystrokeProgram HELLO = KeystrokeProgram.compile("Hello, World!".toCharArray());
+    // Two key events per press, no modifiers
+    private static final KeystrokeProgram LOWER = KeystrokeProgram.compile("abc".toCharArray());
+    private static final long MS = 1_000_000L;
+    private static final long SECOND = 1000 * MS;
+
+    static Stream<Arguments> matrix() {
+        Stream.Builder<Arguments> matrix = Stream.builder();
+        for (String duration : new String[] {"1s", "1m", "1h"}) {
+            for (String interval : new String[] {"1ms", "7ms", "100ms", "1s"}) {
+                for (String action : new String[] {"none", "Space Bar", "Hover Right"}) {
+                    matrix.add(Arguments.of(duration, interval, action));
+                }
+            }
+        }
+        return matrix.build();
+    }
+
+    /** Free output: one press at the start and one per whole interval before the end, each on time. */
+    @ParameterizedTest(name = "{0} every {1}, {2}")
+    @MethodSource("matrix")
+    void followsTheScheduleExactly(String duration, String interval, String action) throws InterruptedException {
+        long durationNanos = TimeSpec.parseNanos(duration);
+        long intervalNanos = TimeSpec.parseNanos(interval);
+        PressAction pressAction = action.equals("none") ? null : PressAction.fromLabel(action);
+
+        SimulationResult result = new ScheduleSimulator().run(HELLO, durationNanos, intervalNanos, pressAction);
+
+        long presses = (durationNanos + intervalNanos - 1) / intervalNanos;
+        assertEquals(List.of(), result.failures(), result::toString);
+        assertEquals(presses, result.getPresses(), result::toString);
+        assertEquals((presses - 1) * intervalNanos, result.getLastPressNanos(), result::toString);
+        // Nothing waits past the last press
+        assertEquals(result.getLastPressNanos(), result.getElapsedNanos(), result::toString);
+        assertEquals(0, result.getMaxDriftNanos(), result::toString);
+        assertEquals(pressAction != null && pressAction.isHover() ? presses : 0, result.getMouseMoves(), result::toString);
+    }
+
+    /** A press costing half the interval still keeps every deadline under either policy. */
+    @ParameterizedTest
+    @ValueSource(strings = {"CATCH_UP", "SKIP"})
+    void absorbsOutputFasterThanTheInterval(MissedDeadlinePolicy policy) throws InterruptedException {
+        SimulationResult result = simulate(policy, 250_000L);
+
+        assertEquals(List.of(), result.failures(), result::toString);
+        assertEquals(1000, result.getPresses(), result::toString);
+        assertEquals(999 * MS, result.getLastPressNanos(), result::toString);
+        assertEquals(0, result.getMaxDriftNanos(), result::toString);
+        assertEquals(0, result.getSkippedTicks(), result::toString);
+        assertEquals(0, result.getLateTicks(), result::toString);
+        // The last press's two events finish after it
+        assertEquals(999 * MS + 500_000L, result.getElapsedNanos(), result::toString);
+    }
+
+    /**
+     * A press costing 1.5 intervals: presses come back to back at 0, 1.5 ms, ... 999 ms, and
+     * the run stops once the last one is out. Catching up keeps every tick and falls further
+     * behind; skipping drops the ticks missed by a whole interval and is never more than half
+     * an interval late.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"CATCH_UP", "SKIP"})
+    void fallsBehindOutputSlowerThanTheInterval(MissedDeadlinePolicy policy) throws InterruptedException {
+        SimulationResult result = simulate(policy, 750_000L);
+
+        assertEquals(List.of(), result.failures(), result::toString);
+        assertEquals(667, result.getPresses(), result::toString);
+        assertEquals(999 * MS, result.getLastPressNanos(), result::toString);
+        assertEquals(999 * MS + 1_500_000L, result.getElapsedNanos(), result::toString);
+        assertEquals(333 * MS, result.getMaxDriftNanos(), result::toString);
+        if (policy == MissedDeadlinePolicy.CATCH_UP) {
+            assertEquals(0, result.getSkippedTicks(), result::toString);
+            assertEquals(665, result.getLateTicks(), result::toString);
+            assertEquals(333 * MS, result.getLatenessMaxNanos(), result::toString);
+        } else {
+            assertEquals(333, result.getSkippedTicks(), result::toString);
+            assertEquals(0, result.getLateTicks(), result::toString);
+            assertEquals(500_000L, result.getLatenessMaxNanos(), result::toString);
+        }
+    }
+
+    /** Ten 1 ms steps per 50 ms press; the last glide finishes 9 ms after the last press. */
+    @ParameterizedTest(name = "curved: {0}")
+    @ValueSource(booleans = {false, true})
+    void glidesBetweenPresses(boolean curved) throws InterruptedException {
+        ScheduleSimulator simulator = new ScheduleSimulator();
+        simulator.setHoverGlide(10, MS);
+        simulator.setHoverCurve(curved);
+
+        SimulationResult result = simulator.run(HELLO, 60 * SECOND, 50 * MS, PressAction.HOVER_RIGHT);
+
+        assertEquals(List.of(), result.failures(), result::toString);
+        assertEquals(1200, result.getPresses(), result::toString);
+        assertEquals(1199 * 50 * MS, result.getLastPressNanos(), result::toString);
+        assertEquals(1200 * 10, result.getMouseMoves(), result::toString);
+        assertEquals(1199 * 50 * MS + 9 * MS, result.getElapsedNanos(), result::toString);
+    }
+
+    /** A 100-step glide cannot fit in a 50 ms interval: 50 steps, then a jump to its end. */
+    @ParameterizedTest(name = "curved: {0}")
+    @ValueSource(booleans = {false, true})
+    void cutsShortAGlideThatRunsIntoThePress(boolean curved) throws InterruptedException {
+        ScheduleSimulator simulator = new ScheduleSimulator();
+        simulator.setHoverGlide(100, MS);
+        simulator.setHoverCurve(curved);
+
+        SimulationResult result = simulator.run(HELLO, SECOND, 50 * MS, PressAction.HOVER_RIGHT);
+
+        assertEquals(List.of(), result.failures(), result::toString);
+        assertEquals(20, result.getPresses(), result::toString);
+        assertEquals(20 * 51, result.getMouseMoves(), result::toString);
+        assertEquals(SECOND - MS, result.getElapsedNanos(), result::toString);
+    }
+
+    /** Glide moves take output time too, but only delay the presses by the cost of one event. */
+    @ParameterizedTest(name = "curved: {0}")
+    @ValueSource(booleans = {false, true})
+    void glidesOnSlowOutput(boolean curved) throws InterruptedException {
+        ScheduleSimulator simulator = new ScheduleSimulator();
+        simulator.setHoverGlide(10, MS);
+        simulator.setHoverCurve(curved);
+        simulator.setEventCost(200_000L);
+
+        SimulationResult result = simulator.run(HELLO, 60 * SECOND, 50 * MS, PressAction.HOVER_RIGHT);
+
+        assertEquals(List.of(), result.failures(), result::toString);
+        assertEquals(1200, result.getPresses(), result::toString);
+        assertEquals(1200 * 10, result.getMouseMoves(), result::toString);
+        assertEquals(200_000L, result.getMaxDriftNanos(), result::toString);
+        assertEquals(0, result.getSkippedTicks(), result::toString);
+    }
+
+    // One second of 1 ms presses of lower-case keys, each key event taking eventCostNanos
+    private static SimulationResult simulate(MissedDeadlinePolicy policy, long eventCostNanos)
+            throws InterruptedException {
+        ScheduleSimulator simulator = new ScheduleSimulator();
+        simulator.setMissedDeadlinePolicy(policy);
+        simulator.setEventCost(eventCostNanos);
+        return simulator.run(LOWER, SECOND, MS, null);
+    }
+}